@@ -33,6 +33,11 @@ public class Activator extends AbstractUIPlugin {
 	// The plug-in ID
 	public static final String PLUGIN_ID = "org.eclipse.bpmn2.modeler.core"; //$NON-NLS-1$
 
+	// Debug options, see the .options file
+	public static final String TRACE_PRESAVE = PLUGIN_ID + "/debug/presave"; //$NON-NLS-1$
+	public static final String TRACE_VALIDATION_PROFILE = PLUGIN_ID + "/debug/validation/profile"; //$NON-NLS-1$
+	public static final String TRACE_PICTOGRAM_INDEX = PLUGIN_ID + "/debug/pictogramIndex"; //$NON-NLS-1$
+
 	// The shared instance
 	private static Activator plugin;
 
@@ -79,6 +84,27 @@ public class Activator extends AbstractUIPlugin {
 	public static void logError(Exception e) {
 		logStatus(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
 	}
+
+	/**
+	 * Check if the given debug option is enabled.
+	 * 
+	 * @param option one of the TRACE_ options
+	 * @return true if the plug-in is in debug mode and the option is "true"
+	 */
+	public static boolean isTracing(String option) {
+		return plugin!=null && plugin.isDebugging() &&
+				"true".equalsIgnoreCase(Platform.getDebugOption(option)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Write a tracing message to the log. Callers should check
+	 * {@link #isTracing(String)} first.
+	 * 
+	 * @param message the message
+	 */
+	public static void trace(String message) {
+		logStatus(new Status(IStatus.INFO, Activator.PLUGIN_ID, message));
+	}
 	
 	/**
 	 * Initializes the table of images used in this plugin.
@@ -12,7 +12,10 @@ package org.eclipse.bpmn2.modeler.core.adapters;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IAdapterFactory;
 import org.eclipse.core.runtime.IAdapterManager;
@@ -29,6 +32,7 @@ import org.eclipse.emf.common.notify.impl.NotificationImpl;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.edit.provider.ComposedAdapterFactory;
 import org.eclipse.emf.edit.provider.ReflectiveItemProviderAdapterFactory;
 import org.eclipse.emf.edit.provider.resource.ResourceItemProviderAdapterFactory;
@@ -73,6 +77,59 @@ public class AdapterRegistry {
 	
 	HashMap<Object,List<AdapterFactory>> fKeyToAdapterFactory ;
 	
+	/** The factory that produced the adapter for an EClass and adapter type,
+	 *   so that the factory lists need to be searched only once per
+	 *   combination. This is cleared whenever a factory is registered or
+	 *   unregistered.
+	 */
+	
+	final Map<ResolutionKey,Resolution> fResolutions = new ConcurrentHashMap<ResolutionKey,Resolution>();
+	
+	/** The key of a resolved factory: an EClass and an adapter type */
+	static class ResolutionKey {
+		final EClass eClass;
+		final Class<?> type;
+		
+		ResolutionKey(EClass eClass, Class<?> type) {
+			this.eClass = eClass;
+			this.type = type;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof ResolutionKey) {
+				ResolutionKey k = (ResolutionKey)o;
+				return k.eClass == eClass && k.type == type;
+			}
+			return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * eClass.hashCode() + type.hashCode();
+		}
+	}
+	
+	/** The step of the factory list search that produced an adapter */
+	static class Resolution {
+		// the key of the factory list (an EClass, EPackage or instance class)
+		final Object listKey;
+		// the position of the factory in that list
+		final int index;
+		// true if the adapter was created with adaptNew(), false if adapt() was used
+		final boolean adaptNew;
+		// true if adaptAllNew() was called on the ComposedAdapterFactories
+		// that precede the factory in the list
+		final boolean adaptAllNew;
+		
+		Resolution(Object listKey, int index, boolean adaptNew, boolean adaptAllNew) {
+			this.listKey = listKey;
+			this.index = index;
+			this.adaptNew = adaptNew;
+			this.adaptAllNew = adaptAllNew;
+		}
+	}
+	
 	/** The current adapter manager */
 	IAdapterManager fAdapterManager;
 	
@@ -152,6 +209,7 @@ public class AdapterRegistry {
 				list.add (factory);
 			}
 		}
+		fResolutions.clear();
 		
 		return factory;
 	}
@@ -163,6 +221,7 @@ public class AdapterRegistry {
 			return ;
 		}
 		list.remove(factory);		
+		fResolutions.clear();
 	}
 	
 	
@@ -227,36 +286,50 @@ public class AdapterRegistry {
 				}
 			}
 			
+			// try the factory that worked for another object of this EClass
+			ResolutionKey key = effectiveClass==null ? null : new ResolutionKey(effectiveClass, clazz);
+			if (key != null) {
+				Resolution resolution = fResolutions.get(key);
+				if (resolution != null) {
+					adapter = adaptWith(resolution, eObj, clazz);
+					if (adapter != null && clazz.isInstance(adapter)) {
+						return clazz.cast(adapter);
+					}
+				}
+			}
+			
 			List<AdapterFactory> list = fKeyToAdapterFactory.get( effectiveClass );
 			if (list != null) {
-				for(AdapterFactory factory : list) {
-					adapter = factory.adapt(target, clazz);
+				for (int i=0; i<list.size(); ++i) {
+					adapter = list.get(i).adapt(target, clazz);
 					if (adapter != null && clazz.isInstance(adapter)) {
-						return clazz.cast(adapter);
+						return resolved(key, new Resolution(effectiveClass, i, false, false), clazz, adapter);
 					}
 				}
 
 				// adaptNew() maybe?
-				for(AdapterFactory factory : list ) {
-					adapter = factory.adaptNew((Notifier)target, clazz);
+				for (int i=0; i<list.size(); ++i) {
+					adapter = list.get(i).adaptNew((Notifier)target, clazz);
 					if (adapter != null && clazz.isInstance(adapter)) {
-						return clazz.cast(adapter);
+						return resolved(key, new Resolution(effectiveClass, i, true, false), clazz, adapter);
 					}
 				}					   
 			}
 			
 			if (effectiveClass!=null) {
-				list = fKeyToAdapterFactory.get( effectiveClass.getEPackage() );
+				EPackage ePackage = effectiveClass.getEPackage();
+				list = fKeyToAdapterFactory.get( ePackage );
 				if (list != null) {
-					for(AdapterFactory factory : list ) {
-						adapter = factory.adapt(target, clazz);
+					for (int i=0; i<list.size(); ++i) {
+						adapter = list.get(i).adapt(target, clazz);
 						if (adapter != null && clazz.isInstance(adapter)) {
-							return clazz.cast(adapter);
+							return resolved(key, new Resolution(ePackage, i, false, false), clazz, adapter);
 						}
 					}					   
 	
 					// adaptNew() maybe?
-					for(AdapterFactory factory : list ) {
+					for (int i=0; i<list.size(); ++i) {
+						AdapterFactory factory = list.get(i);
 						if (factory instanceof ComposedAdapterFactory) {
 							ComposedAdapterFactory cf = (ComposedAdapterFactory)factory;
 							cf.adaptAllNew((Notifier) target);
@@ -264,18 +337,19 @@ public class AdapterRegistry {
 						
 						adapter = factory.adaptNew((Notifier)target, clazz);
 						if (adapter != null && clazz.isInstance(adapter)) {
-							return clazz.cast(adapter);
+							return resolved(key, new Resolution(ePackage, i, true, true), clazz, adapter);
 						}
 					}					   
 				}
 				
 				// last chance: check instance class of an EClass
-				list = fKeyToAdapterFactory.get( effectiveClass.getInstanceClass() );
+				Class<?> instanceClass = effectiveClass.getInstanceClass();
+				list = fKeyToAdapterFactory.get( instanceClass );
 				if (list != null) {
-					for(AdapterFactory factory : list ) {
-						adapter = factory.adaptNew((Notifier)target, clazz);
+					for (int i=0; i<list.size(); ++i) {
+						adapter = list.get(i).adaptNew((Notifier)target, clazz);
 						if (adapter != null && clazz.isInstance(adapter)) {
-							return clazz.cast(adapter);
+							return resolved(key, new Resolution(instanceClass, i, true, false), clazz, adapter);
 						}
 					}					   
 				}
@@ -293,6 +367,60 @@ public class AdapterRegistry {
 	    return null;
 	}
 	
+	/**
+	 * Repeat the step of the factory list search that produced an adapter
+	 * for another object of the same EClass.
+	 * 
+	 * @param resolution the step
+	 * @param target the object to adapt
+	 * @param clazz the adapter type
+	 * @return the adapter, or null if the factory did not produce one
+	 */
+	
+	Object adaptWith (Resolution resolution, EObject target, Class<?> clazz) {
+		List<AdapterFactory> list = fKeyToAdapterFactory.get(resolution.listKey);
+		if (list == null || resolution.index >= list.size()) {
+			return null;
+		}
+		if (resolution.adaptAllNew) {
+			for (int i=0; i<=resolution.index; ++i) {
+				if (list.get(i) instanceof ComposedAdapterFactory) {
+					((ComposedAdapterFactory)list.get(i)).adaptAllNew(target);
+				}
+			}
+		}
+		AdapterFactory factory = list.get(resolution.index);
+		return resolution.adaptNew ? factory.adaptNew(target, clazz) : factory.adapt(target, clazz);
+	}
+	
+	<T extends Object> T resolved (ResolutionKey key, Resolution resolution, Class<T> clazz, Object adapter) {
+		if (key != null) {
+			fResolutions.put(key, resolution);
+		}
+		return clazz.cast(adapter);
+	}
+	
+	/**
+	 * Adapt all objects in the given Resource to the given type in one pass,
+	 * for example right after the Resource has been loaded, so that the
+	 * adapters do not have to be created one by one later on. Objects that
+	 * can not be adapted are skipped.
+	 * 
+	 * @param resource the Resource
+	 * @param clazz the adapter type, e.g. ExtendedPropertiesAdapter
+	 * @return the number of objects that were adapted
+	 */
+	
+	public int adaptAll (Resource resource, Class<?> clazz) {
+		int count = 0;
+		for (Iterator<EObject> iter = resource.getAllContents(); iter.hasNext();) {
+			if (adapt(iter.next(), clazz, false) != null) {
+				++count;
+			}
+		}
+		return count;
+	}
+	
 	
 	
 	/**
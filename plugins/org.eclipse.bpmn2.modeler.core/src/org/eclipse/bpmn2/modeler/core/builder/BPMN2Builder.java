@@ -11,8 +11,11 @@
 package org.eclipse.bpmn2.modeler.core.builder;
 
 import java.io.FileInputStream;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -24,6 +27,8 @@ import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
 import org.eclipse.bpmn2.modeler.core.runtime.XMLConfigElement;
 import org.eclipse.bpmn2.modeler.core.utils.ErrorDialog;
 import org.eclipse.bpmn2.modeler.core.validation.BPMN2ProjectValidator;
+import org.eclipse.bpmn2.modeler.core.validation.ValidationProfiler;
+import org.eclipse.bpmn2.modeler.core.validation.ValidationScheduler;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -48,8 +53,15 @@ public class BPMN2Builder extends IncrementalProjectBuilder {
 	private static final String MARKER_TYPE = "org.eclipse.bpmn2.modeler.core.xmlProblem"; //$NON-NLS-1$
 	public static final String CONFIG_FOLDER = ".bpmn2config"; //$NON-NLS-1$
 	
-	private SAXParserFactory parserFactory;
+	private static SAXParserFactory parserFactory;
+	private static SAXParserFactory namespaceAwareParserFactory;
 	private Hashtable<IFolder, Long> timestamps = new Hashtable<IFolder, Long>();
+	// BPMN2 files collected during a build, to be validated concurrently when the build is done
+	private Set<IFile> pendingValidation = new LinkedHashSet<IFile>();
+	// files visited during an incremental build; these will also be validated by the Validation Builder
+	private Set<IFile> changedFiles = new HashSet<IFile>();
+	// BPMN2 files that were not changed, but depend on files that were
+	private Set<IFile> dependentValidation = new LinkedHashSet<IFile>();
 
 	public static final BPMN2Builder INSTANCE = new BPMN2Builder();
 
@@ -87,14 +99,22 @@ public class BPMN2Builder extends IncrementalProjectBuilder {
 			case IResourceDelta.ADDED:
 				// handle added resource
 				// checkXML(resource);
+				updateIndex(resource);
+				updateDependencies(resource);
 				validate(delta, monitor);
 				break;
 			case IResourceDelta.REMOVED:
 				// handle removed resource
+				removeFromIndex(resource);
+				removeDependencies(resource);
 				break;
 			case IResourceDelta.CHANGED:
 				// handle changed resource
 				// checkXML(resource);
+				if ((delta.getFlags() & IResourceDelta.CONTENT) != 0) {
+					updateIndex(resource);
+					updateDependencies(resource);
+				}
 				validate(delta, monitor);
 				break;
 			}
@@ -112,6 +132,7 @@ public class BPMN2Builder extends IncrementalProjectBuilder {
 
 		public boolean visit(IResource resource) {
 			// checkXML(resource);
+			updateIndex(resource);
 			validate(resource, monitor);
 			// return true to continue visiting children.
 			return true;
@@ -125,6 +146,12 @@ public class BPMN2Builder extends IncrementalProjectBuilder {
 	 * java.util.Map, org.eclipse.core.runtime.IProgressMonitor)
 	 */
 	protected IProject[] build(int kind, Map args, IProgressMonitor monitor) throws CoreException {
+		pendingValidation.clear();
+		changedFiles.clear();
+		dependentValidation.clear();
+		// the profiling statistics describe the last build
+		if (ValidationProfiler.isEnabled())
+			ValidationProfiler.reset();
 		if (kind == FULL_BUILD) {
 			fullBuild(monitor);
 		} else {
@@ -135,6 +162,18 @@ public class BPMN2Builder extends IncrementalProjectBuilder {
 				incrementalBuild(delta, monitor);
 			}
 		}
+		ValidationScheduler.validate(getProject(), pendingValidation, monitor);
+		// The Validation Builder only validates the files in its resource delta,
+		// so files that depend on a changed file must be revalidated here.
+		for (IFile file : dependentValidation) {
+			if (monitor!=null && monitor.isCanceled())
+				break;
+			if (!changedFiles.contains(file))
+				BPMN2ProjectValidator.validate(file, monitor);
+		}
+		pendingValidation.clear();
+		changedFiles.clear();
+		dependentValidation.clear();
 		return null;
 	}
 
@@ -143,18 +182,71 @@ public class BPMN2Builder extends IncrementalProjectBuilder {
 		delta.accept(new BPMN2DeltaVisitor(monitor));
 	}
 
+	void updateIndex(IResource resource) {
+		if (ExternalReferenceIndex.isIndexed(resource))
+			ExternalReferenceIndex.getIndex(resource.getProject()).update((IFile) resource);
+	}
+
+	void removeFromIndex(IResource resource) {
+		if (ExternalReferenceIndex.isIndexed(resource))
+			ExternalReferenceIndex.getIndex(resource.getProject()).remove((IFile) resource);
+	}
+
+	void updateDependencies(IResource resource) {
+		if (resource instanceof IFile && (ExternalReferenceIndex.isIndexed(resource) || BPMN2ProjectValidator.isBPMN2File(resource))) {
+			for (IFile file : DependencyGraph.getGraph(resource.getProject()).update((IFile) resource))
+				addDependent(file);
+		}
+	}
+
+	void removeDependencies(IResource resource) {
+		if (resource instanceof IFile) {
+			for (IFile file : DependencyGraph.getGraph(resource.getProject()).remove((IFile) resource))
+				addDependent(file);
+		}
+	}
+
+	private void addDependent(IFile file) {
+		if (file.exists() &&
+				!file.isDerived(IResource.CHECK_ANCESTORS) &&
+				ValidationScheduler.isBuildValidationEnabled(file)) {
+			pendingValidation.add(file);
+			dependentValidation.add(file);
+		}
+	}
+
 	void validate(IResourceDelta delta, IProgressMonitor monitor) {
 		// This project builder should not be doing validation.
 		// Validation is being handled by the Eclipse Validation Builder
 		// and can be enabled/disabled from the User Preferences -> Validation page.
-//		BPMN2ProjectValidator.validate(delta, monitor);
+		// However, we collect the BPMN2 files that will need validation so they
+		// can be validated concurrently by the ValidationScheduler at the end of
+		// the build; the results are cached, and the Validation Builder will then
+		// report the cached results.
+		validate(delta.getResource(), monitor);
 	}
 
 	void validate(IResource resource, IProgressMonitor monitor) {
-//		BPMN2ProjectValidator.validate(resource, monitor);
+		if (resource instanceof IFile)
+			changedFiles.add((IFile) resource);
+		if (BPMN2ProjectValidator.isBPMN2File(resource) &&
+				!resource.isDerived(IResource.CHECK_ANCESTORS) &&
+				ValidationScheduler.isBuildValidationEnabled((IFile) resource)) {
+			pendingValidation.add((IFile) resource);
+		}
+	}
+
+	@Override
+	protected void clean(IProgressMonitor monitor) throws CoreException {
+		ExternalReferenceIndex.removeIndex(getProject());
+		DependencyGraph.removeGraph(getProject());
 	}
 
 	protected void fullBuild(final IProgressMonitor monitor) throws CoreException {
+		// every BPMN2 file will be validated, so the dependency graph
+		// does not need to be maintained during the build; it will be
+		// rebuilt the next time it is needed.
+		DependencyGraph.removeGraph(getProject());
 		try {
 			getProject().accept(new BPMN2ResourceVisitor(monitor));
 		} catch (CoreException e) {
@@ -325,6 +417,27 @@ public class BPMN2Builder extends IncrementalProjectBuilder {
 	 * @throws SAXException
 	 */
 	private SAXParser getParser() throws ParserConfigurationException, SAXException {
+		return getParser(false);
+	}
+
+	/**
+	 * Construct a new SAX parser. The parser factories are shared by all
+	 * clients that need to scan XML files in the workspace, e.g. the
+	 * {@link BPMN2FileIndex} and the {@link ExternalReferenceIndex}.
+	 * 
+	 * @param namespaceAware if true, the parser will provide support for XML namespaces
+	 * @return a new SAX parser
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	public static synchronized SAXParser getParser(boolean namespaceAware) throws ParserConfigurationException, SAXException {
+		if (namespaceAware) {
+			if (namespaceAwareParserFactory == null) {
+				namespaceAwareParserFactory = SAXParserFactory.newInstance();
+				namespaceAwareParserFactory.setNamespaceAware(true);
+			}
+			return namespaceAwareParserFactory.newSAXParser();
+		}
 		if (parserFactory == null) {
 			parserFactory = SAXParserFactory.newInstance();
 		}
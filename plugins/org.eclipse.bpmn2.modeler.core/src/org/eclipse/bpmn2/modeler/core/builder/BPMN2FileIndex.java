@@ -0,0 +1,515 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ * All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.builder;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A lightweight summary of the contents of a BPMN2 file, constructed in a
+ * single streaming pass with a SAX parser. No EMF objects are created, so this
+ * is much cheaper than loading the file into a Resource when only the
+ * following information is needed:
+ * <ul>
+ * <li>the ID, name, element type, containing element and line number of every
+ * element that has an ID</li>
+ * <li>references to CallableElements (<code>calledElement</code>,
+ * <code>calledChoreographyRef</code>, <code>calledCollaborationRef</code>) and
+ * to data structures (<code>structureRef</code>)</li>
+ * <li>the Imports declared by the Definitions</li>
+ * <li>the DI bounds of BPMNShapes and BPMNEdges, keyed by the ID of the BPMN2
+ * element they render</li>
+ * </ul>
+ * This is used by the {@link BPMN2Builder} and the
+ * {@link ExternalReferenceIndex}, and can be used by any other client that
+ * needs to search BPMN2 files without loading them.
+ */
+public class BPMN2FileIndex {
+
+	public static final String BPMN2_NAMESPACE = "http://www.omg.org/spec/BPMN/20100524/MODEL"; //$NON-NLS-1$
+	public static final String BPMNDI_NAMESPACE = "http://www.omg.org/spec/BPMN/20100524/DI"; //$NON-NLS-1$
+	public static final String DC_NAMESPACE = "http://www.omg.org/spec/DD/20100524/DC"; //$NON-NLS-1$
+	public static final String DI_NAMESPACE = "http://www.omg.org/spec/DD/20100524/DI"; //$NON-NLS-1$
+
+	/**
+	 * An element of the BPMN2 file that has an ID.
+	 */
+	public static class Element {
+		String namespace;
+		String type;
+		String id;
+		String name;
+		String containerId;
+		int line;
+
+		/** @return the namespace URI of the element */
+		public String getNamespace() {
+			return namespace;
+		}
+
+		/** @return the element type, which is the local name of the XML element, e.g. "callActivity" */
+		public String getType() {
+			return type;
+		}
+
+		/** @return the element ID */
+		public String getId() {
+			return id;
+		}
+
+		/** @return the value of the element's "name" attribute, or null */
+		public String getName() {
+			return name;
+		}
+
+		/** @return the ID of the nearest containing element that has an ID, or null */
+		public String getContainerId() {
+			return containerId;
+		}
+
+		/** @return the line number at which the element starts, or -1 if unknown */
+		public int getLine() {
+			return line;
+		}
+
+		@Override
+		public String toString() {
+			return type + "[" + id + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * A reference from an element in this file to some other element, which may
+	 * be defined in this or some other file.
+	 */
+	public static class Reference {
+		String sourceId;
+		String feature;
+		String value;
+
+		/** @return the ID of the referencing element */
+		public String getSourceId() {
+			return sourceId;
+		}
+
+		/** @return the name of the referencing attribute, e.g. "calledElement" */
+		public String getFeature() {
+			return feature;
+		}
+
+		/** @return the raw attribute value, which may be a QName */
+		public String getValue() {
+			return value;
+		}
+
+		/** @return the attribute value without its namespace prefix */
+		public String getLocalValue() {
+			int i = value.indexOf(':');
+			return i<0 ? value : value.substring(i+1);
+		}
+	}
+
+	/**
+	 * An Import declared by the Definitions.
+	 */
+	public static class ImportInfo {
+		String importType;
+		String location;
+		String namespace;
+
+		public String getImportType() {
+			return importType;
+		}
+
+		public String getLocation() {
+			return location;
+		}
+
+		public String getNamespace() {
+			return namespace;
+		}
+	}
+
+	/**
+	 * The DI bounds of a BPMNShape, or the bounding box of the waypoints of a
+	 * BPMNEdge.
+	 */
+	public static class Bounds {
+		String diagramElementId;
+		String bpmnElementId;
+		boolean edge;
+		double x = Double.NaN;
+		double y = Double.NaN;
+		double width;
+		double height;
+
+		/** @return the ID of the BPMNShape or BPMNEdge */
+		public String getDiagramElementId() {
+			return diagramElementId;
+		}
+
+		/** @return the ID of the BPMN2 element rendered by the shape or edge */
+		public String getBpmnElementId() {
+			return bpmnElementId;
+		}
+
+		/** @return true if these are the bounds of a BPMNEdge */
+		public boolean isEdge() {
+			return edge;
+		}
+
+		public double getX() {
+			return x;
+		}
+
+		public double getY() {
+			return y;
+		}
+
+		public double getWidth() {
+			return width;
+		}
+
+		public double getHeight() {
+			return height;
+		}
+
+		void add(double px, double py) {
+			if (Double.isNaN(x)) {
+				x = px;
+				y = py;
+			}
+			else {
+				double x2 = Math.max(x + width, px);
+				double y2 = Math.max(y + height, py);
+				x = Math.min(x, px);
+				y = Math.min(y, py);
+				width = x2 - x;
+				height = y2 - y;
+			}
+		}
+	}
+
+	private boolean bpmn2;
+	private String targetNamespace;
+	private String errorMessage;
+	private final List<Element> elements = new ArrayList<Element>();
+	private final Map<String, Element> ids = new HashMap<String, Element>();
+	private final List<Reference> references = new ArrayList<Reference>();
+	private final List<ImportInfo> imports = new ArrayList<ImportInfo>();
+	private final Map<String, Bounds> bounds = new HashMap<String, Bounds>();
+
+	private BPMN2FileIndex() {
+	}
+
+	/**
+	 * Index the contents of the given workspace file.
+	 *
+	 * @param file a BPMN2 file
+	 * @return the file index. If the file is not a well-formed XML document,
+	 *         the index contains everything found up to the point where the
+	 *         error was detected, and {@link #getErrorMessage()} describes the
+	 *         error.
+	 * @throws CoreException if the file contents can not be read
+	 */
+	public static BPMN2FileIndex create(IFile file) throws CoreException {
+		InputStream is = file.getContents(true);
+		try {
+			return create(is);
+		}
+		finally {
+			try {
+				is.close();
+			} catch (Exception e) {
+			}
+		}
+	}
+
+	/**
+	 * Index the contents of the given input stream.
+	 *
+	 * @param is an input stream containing a BPMN2 document
+	 * @return the file index
+	 */
+	public static BPMN2FileIndex create(InputStream is) {
+		BPMN2FileIndex index = new BPMN2FileIndex();
+		IndexHandler handler = index.new IndexHandler();
+		try {
+			BPMN2Builder.getParser(true).parse(is, handler);
+		}
+		catch (NotBPMN2Exception e) {
+			// the document is not a BPMN2 file
+		}
+		catch (SAXParseException e) {
+			index.errorMessage = e.getMessage() + " (" + e.getLineNumber() + ":" + e.getColumnNumber() + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		catch (Exception e) {
+			index.errorMessage = e.getMessage();
+		}
+		return index;
+	}
+
+	/**
+	 * @return true if the document's root element is a BPMN2 Definitions.
+	 */
+	public boolean isBPMN2() {
+		return bpmn2;
+	}
+
+	/**
+	 * @return the error message if the document could not be completely
+	 *         parsed, or null if there were no errors.
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/**
+	 * @return the targetNamespace of the Definitions
+	 */
+	public String getTargetNamespace() {
+		return targetNamespace;
+	}
+
+	/**
+	 * @return all elements that have an ID, in document order
+	 */
+	public List<Element> getElements() {
+		return Collections.unmodifiableList(elements);
+	}
+
+	/**
+	 * Return all elements of the given type.
+	 *
+	 * @param type the element type, e.g. "process"
+	 * @return a list of elements in document order
+	 */
+	public List<Element> getElements(String type) {
+		List<Element> result = new ArrayList<Element>();
+		for (Element e : elements) {
+			if (e.type.equals(type))
+				result.add(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the element with the given ID. If there is more than one element
+	 * with this ID, the first one is returned.
+	 *
+	 * @param id the element ID
+	 * @return the element or null
+	 */
+	public Element getElement(String id) {
+		return ids.get(id);
+	}
+
+	/**
+	 * @return all references to CallableElements and data structures
+	 */
+	public List<Reference> getReferences() {
+		return Collections.unmodifiableList(references);
+	}
+
+	/**
+	 * Return the references made through the given attribute.
+	 *
+	 * @param feature the attribute name, e.g. "calledElement" or "structureRef"
+	 * @return a list of references in document order
+	 */
+	public List<Reference> getReferences(String feature) {
+		List<Reference> result = new ArrayList<Reference>();
+		for (Reference r : references) {
+			if (r.feature.equals(feature))
+				result.add(r);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the Imports declared by the Definitions
+	 */
+	public List<ImportInfo> getImports() {
+		return Collections.unmodifiableList(imports);
+	}
+
+	/**
+	 * Return the DI bounds of the BPMNShape or BPMNEdge that renders the given
+	 * BPMN2 element.
+	 *
+	 * @param bpmnElementId the ID of the BPMN2 element
+	 * @return the bounds or null if the element has no DI
+	 */
+	public Bounds getBounds(String bpmnElementId) {
+		return bounds.get(bpmnElementId);
+	}
+
+	/**
+	 * @return the DI bounds of all BPMNShapes and BPMNEdges
+	 */
+	public Map<String, Bounds> getAllBounds() {
+		return Collections.unmodifiableMap(bounds);
+	}
+
+	private static class NotBPMN2Exception extends SAXException {
+		private static final long serialVersionUID = -4915206271625530931L;
+	}
+
+	private class IndexHandler extends DefaultHandler {
+		private Locator locator;
+		// IDs of the open elements; null for elements without an ID
+		private Stack<String> idStack = new Stack<String>();
+		private Bounds currentBounds;
+		// interned element types, so we don't keep a separate copy for every element
+		private Map<String, String> types = new HashMap<String, String>();
+
+		@Override
+		public void setDocumentLocator(Locator locator) {
+			this.locator = locator;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+			if (idStack.isEmpty()) {
+				if (!BPMN2_NAMESPACE.equals(uri) || !"definitions".equals(localName)) //$NON-NLS-1$
+					throw new NotBPMN2Exception();
+				bpmn2 = true;
+				targetNamespace = attributes.getValue("targetNamespace"); //$NON-NLS-1$
+			}
+
+			String id = attributes.getValue("id"); //$NON-NLS-1$
+			if (id!=null) {
+				Element e = new Element();
+				e.namespace = uri;
+				e.type = intern(localName);
+				e.id = id;
+				e.name = attributes.getValue("name"); //$NON-NLS-1$
+				e.containerId = getContainerId();
+				e.line = locator==null ? -1 : locator.getLineNumber();
+				elements.add(e);
+				if (!ids.containsKey(id))
+					ids.put(id, e);
+			}
+
+			if (BPMN2_NAMESPACE.equals(uri)) {
+				if ("import".equals(localName)) { //$NON-NLS-1$
+					ImportInfo imp = new ImportInfo();
+					imp.importType = attributes.getValue("importType"); //$NON-NLS-1$
+					imp.location = attributes.getValue("location"); //$NON-NLS-1$
+					imp.namespace = attributes.getValue("namespace"); //$NON-NLS-1$
+					imports.add(imp);
+				}
+				else if ("callActivity".equals(localName)) { //$NON-NLS-1$
+					addReference(id, "calledElement", attributes); //$NON-NLS-1$
+				}
+				else if ("callChoreography".equals(localName)) { //$NON-NLS-1$
+					addReference(id, "calledChoreographyRef", attributes); //$NON-NLS-1$
+				}
+				else if ("callConversation".equals(localName)) { //$NON-NLS-1$
+					addReference(id, "calledCollaborationRef", attributes); //$NON-NLS-1$
+				}
+				else if ("itemDefinition".equals(localName)) { //$NON-NLS-1$
+					addReference(id, "structureRef", attributes); //$NON-NLS-1$
+				}
+			}
+			else if (BPMNDI_NAMESPACE.equals(uri)) {
+				boolean shape = "BPMNShape".equals(localName); //$NON-NLS-1$
+				if (shape || "BPMNEdge".equals(localName)) { //$NON-NLS-1$
+					String bpmnElement = attributes.getValue("bpmnElement"); //$NON-NLS-1$
+					if (bpmnElement!=null) {
+						currentBounds = new Bounds();
+						currentBounds.diagramElementId = id;
+						currentBounds.bpmnElementId = bpmnElement;
+						currentBounds.edge = !shape;
+						bounds.put(bpmnElement, currentBounds);
+					}
+				}
+			}
+			else if (currentBounds!=null) {
+				if (!currentBounds.edge && DC_NAMESPACE.equals(uri) && "Bounds".equals(localName)) { //$NON-NLS-1$
+					currentBounds.x = parseDouble(attributes.getValue("x")); //$NON-NLS-1$
+					currentBounds.y = parseDouble(attributes.getValue("y")); //$NON-NLS-1$
+					currentBounds.width = parseDouble(attributes.getValue("width")); //$NON-NLS-1$
+					currentBounds.height = parseDouble(attributes.getValue("height")); //$NON-NLS-1$
+				}
+				else if (currentBounds.edge && DI_NAMESPACE.equals(uri) && "waypoint".equals(localName)) { //$NON-NLS-1$
+					currentBounds.add(
+							parseDouble(attributes.getValue("x")), //$NON-NLS-1$
+							parseDouble(attributes.getValue("y"))); //$NON-NLS-1$
+				}
+			}
+
+			idStack.push(id);
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			idStack.pop();
+			if (BPMNDI_NAMESPACE.equals(uri) &&
+					("BPMNShape".equals(localName) || "BPMNEdge".equals(localName))) { //$NON-NLS-1$ //$NON-NLS-2$
+				currentBounds = null;
+			}
+		}
+
+		private void addReference(String sourceId, String feature, Attributes attributes) {
+			String value = attributes.getValue(feature);
+			if (value!=null && !value.isEmpty()) {
+				Reference r = new Reference();
+				r.sourceId = sourceId;
+				r.feature = feature;
+				r.value = value;
+				references.add(r);
+			}
+		}
+
+		private String getContainerId() {
+			for (int i=idStack.size()-1; i>=0; --i) {
+				String id = idStack.get(i);
+				if (id!=null)
+					return id;
+			}
+			return null;
+		}
+
+		private String intern(String s) {
+			String t = types.get(s);
+			if (t==null) {
+				types.put(s, s);
+				t = s;
+			}
+			return t;
+		}
+
+		private double parseDouble(String s) {
+			if (s!=null) {
+				try {
+					return Double.parseDouble(s);
+				}
+				catch (NumberFormatException e) {
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ * All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.bpmn2.modeler.core.builder.ExternalReferenceIndex.SymbolKind;
+import org.eclipse.bpmn2.modeler.core.validation.BPMN2ProjectValidator;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.emf.common.util.URI;
+
+/**
+ * A project-wide graph of the dependencies between BPMN2 files and the files
+ * they refer to. A BPMN2 file depends on:
+ * <ul>
+ * <li>the files named by its Definitions' Imports</li>
+ * <li>the BPMN2 files that define the CallableElements referenced by its CallActivities</li>
+ * <li>the XML Schema files that define the structures referenced by its ItemDefinitions</li>
+ * </ul>
+ * The graph is built lazily from {@link BPMN2FileIndex}es the first time it
+ * is queried, and is then kept up to date by the {@link BPMN2Builder}. When a
+ * file changes, the builder asks the graph for its dependents so that only the
+ * BPMN2 files that are actually affected by the change are validated again.
+ * <p>
+ * For BPMN2 files with references that could not be resolved, the missing
+ * symbols are remembered. Such a file is computed again only when one of its
+ * missing symbols can be found in the {@link ExternalReferenceIndex}, which
+ * itself only looks again for symbols it did not find after some file in the
+ * project has changed.
+ */
+public class DependencyGraph {
+
+	private static final Hashtable<IProject, DependencyGraph> graphs = new Hashtable<IProject, DependencyGraph>();
+
+	private static final Comparator<IFile> PATH_COMPARATOR = new Comparator<IFile>() {
+		public int compare(IFile f1, IFile f2) {
+			return f1.getFullPath().toString().compareTo(f2.getFullPath().toString());
+		}
+	};
+
+	private final IProject project;
+	// BPMN2 file -> the files it depends on
+	private final Map<IFile, Set<IFile>> dependencies = new HashMap<IFile, Set<IFile>>();
+	// any file -> the BPMN2 files that depend on it
+	private final Map<IFile, Set<IFile>> dependents = new HashMap<IFile, Set<IFile>>();
+	// BPMN2 files with references that could not be resolved to a file, and the missing symbols
+	private final Map<IFile, List<Symbol>> unresolved = new HashMap<IFile, List<Symbol>>();
+	private boolean initialized;
+
+	/**
+	 * A symbol that is referenced by a BPMN2 file but not defined in any
+	 * indexed file.
+	 */
+	private static class Symbol {
+		final SymbolKind kind;
+		final String name;
+
+		Symbol(SymbolKind kind, String name) {
+			this.kind = kind;
+			this.name = name;
+		}
+	}
+
+	private DependencyGraph(IProject project) {
+		this.project = project;
+	}
+
+	/**
+	 * Return the dependency graph for the given Project, creating an empty
+	 * one if necessary. The graph will be populated the first time it is
+	 * queried.
+	 *
+	 * @param project the Project
+	 * @return the dependency graph
+	 */
+	public static DependencyGraph getGraph(IProject project) {
+		synchronized (graphs) {
+			DependencyGraph graph = graphs.get(project);
+			if (graph==null) {
+				graph = new DependencyGraph(project);
+				graphs.put(project, graph);
+			}
+			return graph;
+		}
+	}
+
+	/**
+	 * Discard the dependency graph for the given Project, e.g. because the
+	 * project was closed, deleted or cleaned.
+	 *
+	 * @param project the Project
+	 */
+	public static void removeGraph(IProject project) {
+		graphs.remove(project);
+	}
+
+	/**
+	 * Compute the workspace files that the given BPMN2 file depends on. These
+	 * files are not necessarily accessible.
+	 *
+	 * @param file a BPMN2 file
+	 * @param fileIndex the index of the BPMN2 file
+	 * @return a set of files, sorted by workspace path
+	 */
+	public static Set<IFile> computeDependencies(IFile file, BPMN2FileIndex fileIndex) {
+		return computeDependencies(file, fileIndex, null);
+	}
+
+	private static Set<IFile> computeDependencies(IFile file, BPMN2FileIndex fileIndex, List<Symbol> missing) {
+		Set<IFile> deps = new TreeSet<IFile>(PATH_COMPARATOR);
+		for (BPMN2FileIndex.ImportInfo imp : fileIndex.getImports()) {
+			IFile f = resolveLocation(file, imp.getLocation());
+			if (f!=null)
+				deps.add(f);
+		}
+		ExternalReferenceIndex index = ExternalReferenceIndex.getIndex(file.getProject());
+		for (BPMN2FileIndex.Reference r : fileIndex.getReferences()) {
+			SymbolKind kind = "structureRef".equals(r.getFeature()) ? //$NON-NLS-1$
+					SymbolKind.XSD_ELEMENT : SymbolKind.CALLABLE_ELEMENT;
+			// references to elements in the same file are resolved locally
+			if (kind==SymbolKind.CALLABLE_ELEMENT && fileIndex.getElement(r.getLocalValue())!=null)
+				continue;
+			List<IFile> found = index.findFiles(kind, r.getLocalValue());
+			if (found.isEmpty() && missing!=null)
+				missing.add(new Symbol(kind, r.getLocalValue()));
+			deps.addAll(found);
+		}
+		deps.remove(file);
+		return deps;
+	}
+
+	private static IFile resolveLocation(IFile file, String location) {
+		if (location==null || location.isEmpty())
+			return null;
+		try {
+			URI uri = URI.createURI(location);
+			if (uri.isPlatformResource()) {
+				return file.getWorkspace().getRoot().getFile(new Path(uri.toPlatformString(true)));
+			}
+			if (uri.isRelative()) {
+				IPath path = file.getParent().getFullPath().append(location);
+				return file.getWorkspace().getRoot().getFile(path);
+			}
+		}
+		catch (Exception e) {
+		}
+		return null;
+	}
+
+	/**
+	 * Return the files that the given BPMN2 file depends on.
+	 *
+	 * @param file a BPMN2 file in this project
+	 * @return a set of files, or an empty set if the file has no dependencies
+	 */
+	public synchronized Set<IFile> getDependencies(IFile file) {
+		initialize();
+		Set<IFile> set = dependencies.get(file);
+		if (set==null)
+			return Collections.emptySet();
+		return new HashSet<IFile>(set);
+	}
+
+	/**
+	 * Return the BPMN2 files that depend directly on the given file.
+	 *
+	 * @param file any file in the workspace
+	 * @return a set of BPMN2 files, or an empty set if there are none
+	 */
+	public synchronized Set<IFile> getDependents(IFile file) {
+		initialize();
+		Set<IFile> set = dependents.get(file);
+		if (set==null)
+			return Collections.emptySet();
+		return new HashSet<IFile>(set);
+	}
+
+	/**
+	 * Update the graph after the given file has been added or changed. If the
+	 * file is a BPMN2 file, its dependencies are computed again. BPMN2 files
+	 * that had unresolved references are also updated if the new file contents
+	 * define one of the missing elements.
+	 *
+	 * @param file a file in this project
+	 * @return the BPMN2 files that depend on the given file, including files
+	 *         that depend on it only as a result of this update.
+	 */
+	public synchronized Set<IFile> update(IFile file) {
+		if (!initialized) {
+			initialize();
+		}
+		else {
+			if (BPMN2ProjectValidator.isBPMN2File(file))
+				compute(file);
+			if (ExternalReferenceIndex.isIndexed(file)) {
+				ExternalReferenceIndex index = ExternalReferenceIndex.getIndex(project);
+				for (Map.Entry<IFile, List<Symbol>> e : new ArrayList<Map.Entry<IFile, List<Symbol>>>(unresolved.entrySet())) {
+					if (!e.getKey().equals(file) && isResolvable(index, e.getValue()))
+						compute(e.getKey());
+				}
+			}
+		}
+		return getDependents(file);
+	}
+
+	/**
+	 * Remove the given file from the graph, e.g. because it was deleted.
+	 *
+	 * @param file a file in this project
+	 * @return the BPMN2 files that depended on the given file
+	 */
+	public synchronized Set<IFile> remove(IFile file) {
+		Set<IFile> result = getDependents(file);
+		removeDependencies(file);
+		// the dependents may now resolve their references to some other file
+		for (IFile f : result)
+			compute(f);
+		return result;
+	}
+
+	private static boolean isResolvable(ExternalReferenceIndex index, List<Symbol> missing) {
+		for (Symbol s : missing) {
+			if (!index.findFiles(s.kind, s.name).isEmpty())
+				return true;
+		}
+		return false;
+	}
+
+	private void initialize() {
+		if (!initialized) {
+			initialized = true;
+			if (project.isAccessible()) {
+				List<IFile> files = new ArrayList<IFile>();
+				findAllFiles(project, files);
+				for (IFile file : files)
+					compute(file);
+			}
+		}
+	}
+
+	private void compute(IFile file) {
+		removeDependencies(file);
+		if (!file.exists())
+			return;
+		try {
+			BPMN2FileIndex fileIndex = BPMN2FileIndex.create(file);
+			if (!fileIndex.isBPMN2())
+				return;
+			List<Symbol> missing = new ArrayList<Symbol>();
+			Set<IFile> deps = computeDependencies(file, fileIndex, missing);
+			dependencies.put(file, deps);
+			for (IFile d : deps) {
+				Set<IFile> set = dependents.get(d);
+				if (set==null) {
+					set = new HashSet<IFile>(1);
+					dependents.put(d, set);
+				}
+				set.add(file);
+			}
+			if (!missing.isEmpty())
+				unresolved.put(file, missing);
+		}
+		catch (CoreException e) {
+		}
+	}
+
+	private void removeDependencies(IFile file) {
+		unresolved.remove(file);
+		Set<IFile> deps = dependencies.remove(file);
+		if (deps!=null) {
+			for (IFile d : deps) {
+				Set<IFile> set = dependents.get(d);
+				if (set!=null) {
+					set.remove(file);
+					if (set.isEmpty())
+						dependents.remove(d);
+				}
+			}
+		}
+	}
+
+	private void findAllFiles(IContainer container, List<IFile> found) {
+		try {
+			for (IResource res : container.members()) {
+				if (res instanceof IFile) {
+					if (BPMN2ProjectValidator.isBPMN2File(res) && !res.isDerived(IResource.CHECK_ANCESTORS))
+						found.add((IFile)res);
+				}
+				else if (res instanceof IContainer) {
+					findAllFiles((IContainer)res, found);
+				}
+			}
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,461 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ * All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.builder;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A project-wide index of the symbols that may be referenced from a BPMN2 file
+ * but are defined in some other file of the same project. This is used by
+ * {@link org.eclipse.bpmn2.modeler.core.utils.ImportUtil#resolveExternalReference(org.eclipse.emf.ecore.EObject, org.eclipse.emf.ecore.EStructuralFeature, String)}
+ * to find the file that defines a referenced object without having to load
+ * every candidate file in the project.
+ * <p>
+ * The following symbols are indexed:
+ * <ul>
+ * <li>IDs of CallableElements (Processes and Global Tasks) in BPMN2 files</li>
+ * <li>names of element declarations in XML Schema files</li>
+ * <li>names of PortTypes in WSDL files</li>
+ * </ul>
+ * Files are scanned with a SAX parser (BPMN2 files with a {@link BPMN2FileIndex})
+ * so no EMF model is constructed. The index is built lazily the first time it
+ * is queried, and is then kept up to date by the {@link BPMN2Builder} from
+ * resource deltas. Entries for files that have changed since they were indexed
+ * are refreshed on demand.
+ * <p>
+ * A lookup that finds nothing refreshes the index from the project contents
+ * only if an indexable file has been added, changed or removed since the last
+ * refresh, so references that can not be resolved do not cause a rescan of the
+ * project on every lookup. The index of a project is discarded when the
+ * project is closed or deleted.
+ */
+public class ExternalReferenceIndex {
+
+	/**
+	 * The kinds of symbols maintained by this index.
+	 */
+	public enum SymbolKind {
+		CALLABLE_ELEMENT(new String[] {"bpmn","bpmn2"}), //$NON-NLS-1$ //$NON-NLS-2$
+		XSD_ELEMENT(new String[] {"xml","xsd"}), //$NON-NLS-1$ //$NON-NLS-2$
+		WSDL_PORT_TYPE(new String[] {"wsdl"}); //$NON-NLS-1$
+
+		private final String[] extensions;
+
+		SymbolKind(String[] extensions) {
+			this.extensions = extensions;
+		}
+
+		/**
+		 * Return the kind of symbols that are defined in files with the given
+		 * extension.
+		 *
+		 * @param ext a file extension
+		 * @return the symbol kind or null if files with this extension are not
+		 *         indexed.
+		 */
+		public static SymbolKind forExtension(String ext) {
+			if (ext!=null) {
+				for (SymbolKind kind : values()) {
+					for (String s : kind.extensions) {
+						if (s.equals(ext))
+							return kind;
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	private static final String BPMN2_NAMESPACE = BPMN2FileIndex.BPMN2_NAMESPACE;
+	private static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema"; //$NON-NLS-1$
+	private static final String WSDL_NAMESPACE = "http://schemas.xmlsoap.org/wsdl/"; //$NON-NLS-1$
+
+	private static final Set<String> CALLABLE_ELEMENTS = new HashSet<String>();
+	static {
+		CALLABLE_ELEMENTS.add("process"); //$NON-NLS-1$
+		CALLABLE_ELEMENTS.add("globalTask"); //$NON-NLS-1$
+		CALLABLE_ELEMENTS.add("globalBusinessRuleTask"); //$NON-NLS-1$
+		CALLABLE_ELEMENTS.add("globalManualTask"); //$NON-NLS-1$
+		CALLABLE_ELEMENTS.add("globalScriptTask"); //$NON-NLS-1$
+		CALLABLE_ELEMENTS.add("globalUserTask"); //$NON-NLS-1$
+	}
+
+	private static final Hashtable<IProject, ExternalReferenceIndex> indexes = new Hashtable<IProject, ExternalReferenceIndex>();
+	private static IResourceChangeListener listener;
+
+	private final IProject project;
+	// the symbols defined by each indexed file, and the file's modification stamp at the time it was indexed
+	private final Map<IFile, FileEntry> files = new HashMap<IFile, FileEntry>();
+	// symbol name lookup tables, one for each symbol kind
+	private final Map<SymbolKind, Map<String, Set<IFile>>> symbols = new HashMap<SymbolKind, Map<String, Set<IFile>>>();
+	private boolean initialized;
+	// set when an indexable file was added, changed or removed since the last refresh
+	private boolean refreshNeeded;
+
+	private static class FileEntry {
+		long stamp;
+		SymbolKind kind;
+		List<String> names;
+	}
+
+	private ExternalReferenceIndex(IProject project) {
+		this.project = project;
+		for (SymbolKind kind : SymbolKind.values())
+			symbols.put(kind, new HashMap<String, Set<IFile>>());
+	}
+
+	/**
+	 * Return the index for the given Project, creating an empty one if necessary.
+	 * The index will be populated the first time it is queried.
+	 *
+	 * @param project the Project
+	 * @return the index
+	 */
+	public static ExternalReferenceIndex getIndex(IProject project) {
+		synchronized (indexes) {
+			if (listener==null) {
+				listener = new ChangeListener();
+				ResourcesPlugin.getWorkspace().addResourceChangeListener(listener,
+						IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+			}
+			ExternalReferenceIndex index = indexes.get(project);
+			if (index==null) {
+				index = new ExternalReferenceIndex(project);
+				indexes.put(project, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Discard the index for the given Project, e.g. because the project was
+	 * closed, deleted or cleaned.
+	 *
+	 * @param project the Project
+	 */
+	public static void removeIndex(IProject project) {
+		indexes.remove(project);
+	}
+
+	/**
+	 * Check if the given workspace resource is a file that may define symbols
+	 * maintained by this index.
+	 *
+	 * @param resource a workspace resource
+	 * @return true if the resource is an indexable file
+	 */
+	public static boolean isIndexed(IResource resource) {
+		return resource instanceof IFile &&
+				SymbolKind.forExtension(((IFile)resource).getFileExtension())!=null;
+	}
+
+	/**
+	 * Return the files in this project that define a symbol of the given kind
+	 * and name. If no file is found, and an indexable file has been added,
+	 * changed or removed since the index was last refreshed, the index is
+	 * refreshed from the project contents in case the builder has not yet seen
+	 * a newly added file.
+	 *
+	 * @param kind the kind of symbol
+	 * @param name the CallableElement ID, XSD element or WSDL PortType name
+	 * @return a list of files, or an empty list if there are none
+	 */
+	public synchronized List<IFile> findFiles(SymbolKind kind, String name) {
+		boolean refreshed = false;
+		if (!initialized) {
+			refresh();
+			refreshed = true;
+		}
+		List<IFile> result = lookup(kind, name);
+		if (result.isEmpty() && !refreshed && refreshNeeded) {
+			refresh();
+			result = lookup(kind, name);
+		}
+		return result;
+	}
+
+	/**
+	 * Index or re-index the given file.
+	 *
+	 * @param file a file in this project
+	 */
+	public synchronized void update(IFile file) {
+		if (!initialized)
+			return;
+		if (file.exists())
+			index(file);
+		else
+			remove(file);
+	}
+
+	/**
+	 * Remove all symbols defined by the given file from the index.
+	 *
+	 * @param file a file in this project
+	 */
+	public synchronized void remove(IFile file) {
+		FileEntry entry = files.remove(file);
+		if (entry!=null) {
+			Map<String, Set<IFile>> table = symbols.get(entry.kind);
+			for (String name : entry.names) {
+				Set<IFile> set = table.get(name);
+				if (set!=null) {
+					set.remove(file);
+					if (set.isEmpty())
+						table.remove(name);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Synchronize the index with the current contents of the project. Only
+	 * files that have been added or changed since they were last indexed are
+	 * scanned again.
+	 */
+	public synchronized void refresh() {
+		initialized = true;
+		refreshNeeded = false;
+		Set<IFile> found = new HashSet<IFile>();
+		if (project.isAccessible())
+			findAllFiles(project, found);
+		Iterator<IFile> iter = new ArrayList<IFile>(files.keySet()).iterator();
+		while (iter.hasNext()) {
+			IFile file = iter.next();
+			if (!found.contains(file))
+				remove(file);
+		}
+		for (IFile file : found) {
+			FileEntry entry = files.get(file);
+			if (entry==null || entry.stamp!=file.getModificationStamp())
+				index(file);
+		}
+	}
+
+	private synchronized void resourcesChanged() {
+		refreshNeeded = true;
+	}
+
+	private List<IFile> lookup(SymbolKind kind, String name) {
+		Set<IFile> set = symbols.get(kind).get(name);
+		if (set==null || set.isEmpty())
+			return Collections.emptyList();
+
+		List<IFile> result = new ArrayList<IFile>(set.size());
+		for (IFile file : new ArrayList<IFile>(set)) {
+			// make sure the entry is still valid
+			FileEntry entry = files.get(file);
+			if (!file.exists()) {
+				remove(file);
+			}
+			else if (entry.stamp!=file.getModificationStamp()) {
+				index(file);
+				Set<IFile> s = symbols.get(kind).get(name);
+				if (s!=null && s.contains(file))
+					result.add(file);
+			}
+			else
+				result.add(file);
+		}
+		return result;
+	}
+
+	private void index(IFile file) {
+		remove(file);
+		SymbolKind kind = SymbolKind.forExtension(file.getFileExtension());
+		if (kind==null)
+			return;
+
+		FileEntry entry = new FileEntry();
+		entry.stamp = file.getModificationStamp();
+		entry.kind = kind;
+		entry.names = scan(file, kind);
+		files.put(file, entry);
+
+		Map<String, Set<IFile>> table = symbols.get(kind);
+		for (String name : entry.names) {
+			Set<IFile> set = table.get(name);
+			if (set==null) {
+				set = new HashSet<IFile>(1);
+				table.put(name, set);
+			}
+			set.add(file);
+		}
+	}
+
+	private void findAllFiles(IContainer container, Set<IFile> found) {
+		try {
+			for (IResource res : container.members()) {
+				if (res instanceof IFile) {
+					if (isIndexed(res))
+						found.add((IFile)res);
+				}
+				else if (res instanceof IContainer) {
+					findAllFiles((IContainer)res, found);
+				}
+			}
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static List<String> scan(IFile file, SymbolKind kind) {
+		if (kind==SymbolKind.CALLABLE_ELEMENT) {
+			List<String> names = new ArrayList<String>();
+			try {
+				BPMN2FileIndex fileIndex = BPMN2FileIndex.create(file);
+				for (BPMN2FileIndex.Element e : fileIndex.getElements()) {
+					if (BPMN2_NAMESPACE.equals(e.getNamespace()) && CALLABLE_ELEMENTS.contains(e.getType()))
+						names.add(e.getId());
+				}
+			}
+			catch (CoreException e) {
+				Activator.logError(e);
+			}
+			return names;
+		}
+
+		SymbolHandler handler = new SymbolHandler(kind);
+		InputStream is = null;
+		try {
+			is = file.getContents(true);
+			BPMN2Builder.getParser(true).parse(is, handler);
+		}
+		catch (StopParsingException e) {
+			// the file does not contain any symbols of interest
+		}
+		catch (Exception e) {
+			// not a well-formed XML file: index whatever was found so far
+		}
+		finally {
+			if (is!=null) {
+				try {
+					is.close();
+				} catch (Exception e) {
+				}
+			}
+		}
+		return handler.names;
+	}
+
+	/**
+	 * Marks the indexes of projects in which indexable files have changed, and
+	 * discards the indexes of projects that are closed or deleted.
+	 */
+	private static class ChangeListener implements IResourceChangeListener {
+
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			if (event.getType()==IResourceChangeEvent.PRE_CLOSE || event.getType()==IResourceChangeEvent.PRE_DELETE) {
+				if (event.getResource() instanceof IProject)
+					removeIndex((IProject) event.getResource());
+				return;
+			}
+			IResourceDelta delta = event.getDelta();
+			if (delta==null)
+				return;
+			for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+				final ExternalReferenceIndex index = indexes.get(projectDelta.getResource());
+				if (index==null)
+					continue;
+				try {
+					projectDelta.accept(new IResourceDeltaVisitor() {
+						public boolean visit(IResourceDelta d) throws CoreException {
+							if (isIndexed(d.getResource())) {
+								// marker changes, e.g. made by the builder, don't matter
+								if (d.getKind()!=IResourceDelta.CHANGED || (d.getFlags() & ~IResourceDelta.MARKERS)!=0)
+									index.resourcesChanged();
+								return false;
+							}
+							return true;
+						}
+					});
+				}
+				catch (CoreException e) {
+					index.resourcesChanged();
+				}
+			}
+		}
+	}
+
+	private static class StopParsingException extends SAXException {
+		private static final long serialVersionUID = -2380512693153396727L;
+	}
+
+	// collects XSD elements and WSDL port types; Callable Elements are read
+	// from the BPMN2FileIndex instead, see scan()
+	private static class SymbolHandler extends DefaultHandler {
+		final SymbolKind kind;
+		final List<String> names = new ArrayList<String>();
+		boolean root = true;
+
+		SymbolHandler(SymbolKind kind) {
+			this.kind = kind;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+			if (root) {
+				// skip files that don't have the expected root element
+				root = false;
+				switch (kind) {
+				case XSD_ELEMENT:
+					if (!XSD_NAMESPACE.equals(uri) || !"schema".equals(localName)) //$NON-NLS-1$
+						throw new StopParsingException();
+					break;
+				case WSDL_PORT_TYPE:
+					if (!WSDL_NAMESPACE.equals(uri) || !"definitions".equals(localName)) //$NON-NLS-1$
+						throw new StopParsingException();
+					break;
+				}
+				return;
+			}
+
+			String name = null;
+			switch (kind) {
+			case XSD_ELEMENT:
+				if (XSD_NAMESPACE.equals(uri) && "element".equals(localName)) //$NON-NLS-1$
+					name = attributes.getValue("name"); //$NON-NLS-1$
+				break;
+			case WSDL_PORT_TYPE:
+				if (WSDL_NAMESPACE.equals(uri) && "portType".equals(localName)) //$NON-NLS-1$
+					name = attributes.getValue("name"); //$NON-NLS-1$
+				break;
+			}
+			if (name!=null && !name.isEmpty())
+				names.add(name);
+		}
+	}
+}
@@ -84,6 +84,8 @@ public class DIGenerator {
 	private ImportDiagnostics diagnostics;
 	private DiagramElementTree missingElements;
 	private Bpmn2Preferences preferences;
+	// if not null, only the elements rendered on this diagram page are checked
+	private BPMNDiagram scope;
 	
 	public DIGenerator(DIImport importer) {
 		this.importer = importer;
@@ -95,6 +97,19 @@ public class DIGenerator {
 		definitions = ModelUtil.getDefinitions(bpmnDiagram);
 		preferences = Bpmn2Preferences.getInstance(definitions);
 	}
+
+	/**
+	 * Create a generator that only looks for missing DI elements of the
+	 * BPMN elements that belong on the given diagram page. This is used when
+	 * the diagram pages are imported on demand.
+	 * 
+	 * @param importer
+	 * @param scope the diagram page that was imported
+	 */
+	public DIGenerator(DIImport importer, BPMNDiagram scope) {
+		this(importer);
+		this.scope = scope;
+	}
 	
 	public boolean hasMissingDIElements() {
 		if (missingElements==null)
@@ -144,7 +159,7 @@ public class DIGenerator {
 		DiagramElementTree missing = new DiagramElementTree(null,null);
 		
 		// look for any BPMN2 elements that do not have corresponding DI elements
-		for (BaseElement be : definitions.getRootElements()) {
+		for (BaseElement be : getScopeElements()) {
 			findMissingDIElements(missing, be);
 		}
 		
@@ -211,11 +226,35 @@ public class DIGenerator {
 			children.removeAll(duplicates);
 	}
 	
+	private List<? extends BaseElement> getScopeElements() {
+		if (scope==null)
+			return definitions.getRootElements();
+		
+		// the element that owns the diagram page, and for Collaborations
+		// the Processes of the Pools that are drawn on the page
+		List<BaseElement> result = new ArrayList<BaseElement>();
+		BaseElement be = scope.getPlane().getBpmnElement();
+		if (be!=null) {
+			result.add(be);
+			if (be instanceof Collaboration && !(be instanceof Choreography)) {
+				for (Participant p : ((Collaboration)be).getParticipants()) {
+					if (p.getProcessRef()!=null && !result.contains(p.getProcessRef()))
+						result.add(p.getProcessRef());
+				}
+			}
+		}
+		return result;
+	}
+	
 	private boolean isMissingDIElement(BaseElement be) {
 		// ignore DataStores - there are bound to be references
 		// to these, which *should* be rendered
 		if (be instanceof DataStore)
 			return false;
+		// elements on diagram pages that have not been imported yet
+		// are checked when their page is imported
+		if (DIImport.isDeferred(definitions, be))
+			return false;
 		BPMNDiagram bpmnDiagram = DIUtils.findBPMNDiagram(be);
 		if (bpmnDiagram!=null)
 			return false;
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -52,6 +53,7 @@ import org.eclipse.bpmn2.di.BPMNLabel;
 import org.eclipse.bpmn2.di.BPMNPlane;
 import org.eclipse.bpmn2.di.BPMNShape;
 import org.eclipse.bpmn2.di.BpmnDiFactory;
+import org.eclipse.bpmn2.modeler.core.Activator;
 import org.eclipse.bpmn2.modeler.core.features.GraphitiConstants;
 import org.eclipse.bpmn2.modeler.core.model.ModelHandler;
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
@@ -64,12 +66,18 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.dd.dc.Bounds;
 import org.eclipse.dd.dc.Point;
 import org.eclipse.dd.di.DiagramElement;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.transaction.RecordingCommand;
+import org.eclipse.emf.transaction.RollbackException;
+import org.eclipse.emf.transaction.Transaction;
 import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.emf.transaction.impl.InternalTransactionalEditingDomain;
 import org.eclipse.graphiti.datatypes.IDimension;
 import org.eclipse.graphiti.datatypes.ILocation;
 import org.eclipse.graphiti.features.IAddFeature;
@@ -104,6 +112,18 @@ public class DIImport {
 	private final IGaService gaService = Graphiti.getGaService();
 	private BPMNDiagram currentBPMNDiagram;
 	private IDiagramBehavior diagramBehavior;
+	private boolean importOnDemand;
+
+	/**
+	 * Marks a BPMNDiagram whose Graphiti shapes and connections have not been
+	 * created yet, see {@link DIImport#setImportOnDemand(boolean)}.
+	 */
+	private static class DeferredDiagramAdapter extends AdapterImpl {
+		@Override
+		public boolean isAdapterForType(Object type) {
+			return type == DeferredDiagramAdapter.class;
+		}
+	}
 
 	public DIImport(IDiagramContainer diagramContainer, Bpmn2Preferences preferences) {
 		this.diagramContainer = diagramContainer;
@@ -113,6 +133,100 @@ public class DIImport {
 		featureProvider = diagramContainer.getDiagramTypeProvider().getFeatureProvider();
 	}
 	
+	/**
+	 * If set, {@link #generateFromDI()} only creates the shapes and connections
+	 * of the first BPMNDiagram. The other BPMNDiagrams are imported by
+	 * {@link #importDeferredDiagram(BPMNDiagram)} when their page is first shown.
+	 * 
+	 * @param importOnDemand
+	 */
+	public void setImportOnDemand(boolean importOnDemand) {
+		this.importOnDemand = importOnDemand;
+	}
+
+	/**
+	 * Check if the shapes and connections of the given BPMNDiagram have not
+	 * been imported yet.
+	 * 
+	 * @param bpmnDiagram
+	 * @return true if {@link #importDeferredDiagram(BPMNDiagram)} needs to be
+	 *         called before the diagram can be shown.
+	 */
+	public static boolean isDeferred(BPMNDiagram bpmnDiagram) {
+		return bpmnDiagram!=null && EcoreUtil.getExistingAdapter(bpmnDiagram, DeferredDiagramAdapter.class)!=null;
+	}
+
+	/**
+	 * Check if the given BPMN element is rendered in a BPMNDiagram that has
+	 * not been imported yet.
+	 * 
+	 * @param definitions
+	 * @param bpmnElement
+	 * @return true if a deferred BPMNDiagram contains a BPMNShape or BPMNEdge
+	 *         for the element.
+	 */
+	public static boolean isDeferred(Definitions definitions, BaseElement bpmnElement) {
+		for (BPMNDiagram d : definitions.getDiagrams()) {
+			if (isDeferred(d) && DIUtils.findDiagramElement(d, bpmnElement)!=null)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Create the shapes and connections of a BPMNDiagram that was skipped by
+	 * {@link #generateFromDI()}. Like the import of the first BPMNDiagram, this
+	 * is not something the user can undo and does not make the editor dirty,
+	 * so it is done in a write transaction that is not recorded on the
+	 * editor's command stack. Any DI elements that had to be generated are
+	 * saved with the next change of the model. If the import fails, the
+	 * diagram stays deferred and the import is tried again the next time.
+	 * 
+	 * @param bpmnDiagram
+	 * @return false if the diagram had already been imported.
+	 */
+	public boolean importDeferredDiagram(final BPMNDiagram bpmnDiagram) {
+		final Adapter adapter = EcoreUtil.getExistingAdapter(bpmnDiagram, DeferredDiagramAdapter.class);
+		if (adapter==null)
+			return false;
+
+		diagnostics = new ImportDiagnostics(modelHandler.getResource());
+		elements = new LinkedHashMap<BaseElement, PictogramElement>();
+		Bpmn2Preferences prefs = Bpmn2Preferences.getInstance(modelHandler.getResource());
+		prefs.setEnableConnectionRouting(false);
+		Transaction transaction = null;
+		try {
+			Map<Object, Object> options = new HashMap<Object, Object>();
+			options.put(Transaction.OPTION_NO_UNDO, Boolean.TRUE);
+			transaction = ((InternalTransactionalEditingDomain) domain).startTransaction(false, options);
+			DIUtils.getOrCreateDiagram(diagramBehavior, bpmnDiagram);
+			importDiagram(bpmnDiagram, modelHandler.getDefinitions());
+
+			DIGenerator generator = new DIGenerator(DIImport.this, bpmnDiagram);
+			generator.generateMissingDIElements();
+
+			layoutAll();
+			transaction.commit();
+			transaction = null;
+			// the import succeeded
+			bpmnDiagram.eAdapters().remove(adapter);
+		}
+		catch (InterruptedException e) {
+			Activator.logError(e);
+		}
+		catch (RollbackException e) {
+			Activator.logError(e);
+		}
+		finally {
+			if (transaction!=null)
+				transaction.rollback();
+			prefs.setEnableConnectionRouting(true);
+		}
+
+		diagnostics.report();
+		return true;
+	}
+
 	/**
 	 * Look for model diagram interchange information and generate all shapes for the diagrams.
 	 * 
@@ -160,30 +274,21 @@ public class DIImport {
 						diagram = DIUtils.getOrCreateDiagram(diagramBehavior,d);
 					}
 					for (BPMNDiagram d : bpmnDiagrams) {
-						
-						currentBPMNDiagram = d;
-						diagram = DIUtils.findDiagram(diagramBehavior,d);
-						diagramContainer.getDiagramTypeProvider().init(diagram, diagramBehavior);
-	
-						BPMNPlane plane = d.getPlane();
-						if (plane.getBpmnElement() == null) {
-							// Set the actual bpmnElement reference to the default if it is null.
-							// The editor relies on this to determine whether the BaseElement has
-							// its own diagram page or not.
-							plane.setBpmnElement(ModelUtil.getDefaultBPMNPlaneReference(definitions));
+						if (importOnDemand && d!=bpmnDiagrams.get(0)) {
+							BPMNPlane plane = d.getPlane();
+							if (plane.getBpmnElement() == null)
+								plane.setBpmnElement(ModelUtil.getDefaultBPMNPlaneReference(definitions));
+							d.eAdapters().add(new DeferredDiagramAdapter());
+							continue;
 						}
-						elements.put(plane.getBpmnElement(), diagram);
-						List<DiagramElement> ownedElement = plane.getPlaneElement();
-	
-						importShapes(ownedElement);
-						importConnections(ownedElement);
-	
-	//					relayoutLanes(ownedElement);
+						importDiagram(d, definitions);
 						
 						// search for BPMN elements that do not have the DI elements
 						// needed to render them in the editor
 					}
-					DIGenerator generator = new DIGenerator(DIImport.this);
+					DIGenerator generator = importOnDemand ?
+							new DIGenerator(DIImport.this, bpmnDiagrams.get(0)) :
+							new DIGenerator(DIImport.this);
 					generator.generateMissingDIElements();
 					
 					layoutAll();
@@ -198,6 +303,27 @@ public class DIImport {
 		diagnostics.report();
 	}
 	
+	private void importDiagram(BPMNDiagram d, Definitions definitions) {
+		currentBPMNDiagram = d;
+		Diagram diagram = DIUtils.findDiagram(diagramBehavior,d);
+		diagramContainer.getDiagramTypeProvider().init(diagram, diagramBehavior);
+
+		BPMNPlane plane = d.getPlane();
+		if (plane.getBpmnElement() == null) {
+			// Set the actual bpmnElement reference to the default if it is null.
+			// The editor relies on this to determine whether the BaseElement has
+			// its own diagram page or not.
+			plane.setBpmnElement(ModelUtil.getDefaultBPMNPlaneReference(definitions));
+		}
+		elements.put(plane.getBpmnElement(), diagram);
+		List<DiagramElement> ownedElement = plane.getPlaneElement();
+
+		importShapes(ownedElement);
+		importConnections(ownedElement);
+
+//		relayoutLanes(ownedElement);
+	}
+
 	public HashMap<BaseElement, PictogramElement> getImportedElements() {
 		return elements;
 	}
@@ -1015,7 +1141,7 @@ public class DIImport {
 	
 	private ContainerShape getContainerShape(BaseElement baseElement) {
 		Diagram diagram = diagramContainer.getDiagramTypeProvider().getDiagram();
-		for (PictogramElement pe : Graphiti.getLinkService().getPictogramElements(diagram, baseElement)) {
+		for (PictogramElement pe : PictogramElementIndex.getPictogramElements(diagram, baseElement)) {
 			if (pe instanceof ContainerShape) {
 				return (ContainerShape) pe;
 			}
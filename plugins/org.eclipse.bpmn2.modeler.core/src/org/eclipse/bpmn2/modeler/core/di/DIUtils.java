@@ -591,6 +591,9 @@ public class DIUtils {
 	 * @return true if the baseElement is referenced by a child of bpmnDiagram
 	 */
 	public static boolean isBPMNDiagramChild(BPMNDiagram bpmnDiagram, BaseElement baseElement) {
+		DiagramElementIndex index = getIndex(bpmnDiagram);
+		if (index!=null)
+			return index.getDiagramElement(bpmnDiagram, baseElement)!=null;
 		BaseElement bpmnElement;
 		for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
 			if (de instanceof BPMNShape)
@@ -702,19 +705,9 @@ public class DIUtils {
 								return bpmnDiagram;
 						}
 						if (contains) {
-							for (BPMNDiagram d : defs.getDiagrams()) {
-								BPMNDiagram bpmnDiagram = (BPMNDiagram)d;
-								for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
-									if (de instanceof BPMNShape)
-										bpmnElement = ((BPMNShape)de).getBpmnElement();
-									else if (de instanceof BPMNEdge)
-										bpmnElement = ((BPMNEdge)de).getBpmnElement();
-									else
-										continue;
-									if (bpmnElement == baseElement)
-										return bpmnDiagram;
-								}
-							}
+							DiagramElement de = DiagramElementIndex.getIndex(defs).getDiagramElement(baseElement);
+							if (de!=null)
+								return getBPMNDiagram(de);
 							EObject parent = baseElement.eContainer();
 							if (parent instanceof BaseElement && !(parent instanceof Definitions)) {
 								BPMNDiagram bpmnDiagram = findBPMNDiagram((BaseElement)parent, true);
@@ -775,18 +768,16 @@ public class DIUtils {
 	 * @return
 	 */
 	public static BPMNShape findBPMNShape(BaseElement baseElement) {
-		Definitions definitions = ModelUtil.getDefinitions(baseElement);
-		if (definitions!=null) {
-			for (BPMNDiagram d : definitions.getDiagrams()) {
-				BPMNShape bpmnShape = findBPMNShape(d, baseElement);
-				if (bpmnShape!=null)
-					return bpmnShape;
-			}
-		}
+		DiagramElementIndex index = DiagramElementIndex.getIndex(baseElement);
+		if (index!=null)
+			return index.getShape(baseElement);
 		return null;
 	}
 	
 	public static BPMNShape findBPMNShape(BPMNDiagram bpmnDiagram, BaseElement baseElement) {
+		DiagramElementIndex index = getIndex(bpmnDiagram);
+		if (index!=null)
+			return index.getShape(bpmnDiagram, baseElement);
 		for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
 			if (de instanceof BPMNShape) {
 				if (((BPMNShape)de).getBpmnElement() == baseElement)
@@ -797,14 +788,9 @@ public class DIUtils {
 	}
 	
 	public static BPMNEdge findBPMNEdge(EObject baseElement) {
-		Definitions definitions = ModelUtil.getDefinitions(baseElement);
-		if (definitions!=null) {
-			for (BPMNDiagram d : definitions.getDiagrams()) {
-				BPMNEdge bpmnEdge = findBPMNEdge(d, baseElement);
-				if (bpmnEdge!=null)
-					return bpmnEdge;
-			}
-		}
+		DiagramElementIndex index = DiagramElementIndex.getIndex(baseElement);
+		if (index!=null)
+			return index.getEdge(baseElement);
 		return null;
 	}
 	
@@ -813,6 +799,9 @@ public class DIUtils {
 		if (bpmnDiagram == null || bpmnDiagram.getPlane() == null)
 			return null;
 		
+		DiagramElementIndex index = getIndex(bpmnDiagram);
+		if (index!=null)
+			return index.getEdge(bpmnDiagram, baseElement);
 		for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
 			if (de instanceof BPMNEdge) {
 				if (((BPMNEdge)de).getBpmnElement() == baseElement)
@@ -823,18 +812,16 @@ public class DIUtils {
 	}
 	
 	public static DiagramElement findDiagramElement(EObject object) {
-		Definitions definitions = ModelUtil.getDefinitions(object);
-		if (definitions!=null) {
-			for (BPMNDiagram d : definitions.getDiagrams()) {
-				DiagramElement de = findDiagramElement(d, object);
-				if (de!=null)
-					return de;
-			}
-		}
+		DiagramElementIndex index = DiagramElementIndex.getIndex(object);
+		if (index!=null)
+			return index.getDiagramElement(object);
 		return null;
 	}
 	
 	public static DiagramElement findDiagramElement(BPMNDiagram bpmnDiagram, EObject object) {
+		DiagramElementIndex index = getIndex(bpmnDiagram);
+		if (index!=null)
+			return index.getDiagramElement(bpmnDiagram, object);
 		for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
 			EStructuralFeature f = de.eClass().getEStructuralFeature("bpmnElement"); //$NON-NLS-1$
 			if (f!=null) {
@@ -861,6 +848,20 @@ public class DIUtils {
 		return null;
 	}
 	
+	/**
+	 * Return the DiagramElementIndex of the Definitions that owns the given
+	 * BPMNDiagram. BPMNDiagrams that have not yet been added to a Definitions
+	 * are not indexed, and must be searched instead.
+	 * 
+	 * @param bpmnDiagram
+	 * @return the index, or null if the BPMNDiagram is not owned by a Definitions
+	 */
+	private static DiagramElementIndex getIndex(BPMNDiagram bpmnDiagram) {
+		if (bpmnDiagram!=null && bpmnDiagram.eContainer() instanceof Definitions)
+			return DiagramElementIndex.getIndex(bpmnDiagram.eContainer());
+		return null;
+	}
+	
 	public static boolean deleteContainerIfPossible(RootElement rootElement) {
 		if (rootElement==null)
 			return false;
@@ -949,7 +950,7 @@ public class DIUtils {
 			for (EObject o : r.getContents()) {
 				if (o instanceof Diagram) {
 					Diagram diagram = (Diagram)o;
-					elements.addAll( Graphiti.getLinkService().getPictogramElements(diagram, baseElement) );
+					elements.addAll( PictogramElementIndex.getPictogramElements(diagram, baseElement) );
 				}
 			}
 		}
@@ -987,7 +988,7 @@ public class DIUtils {
 		DiagramEditor diagramEditor = ModelUtil.getDiagramEditor(baseElement);
 		if (diagramEditor!=null) {
 			Diagram diagram = diagramEditor.getDiagramTypeProvider().getDiagram();
-			for (PictogramElement pe : Graphiti.getLinkService().getPictogramElements(diagram, baseElement)) {
+			for (PictogramElement pe : PictogramElementIndex.getPictogramElements(diagram, baseElement)) {
 				if (pe instanceof ContainerShape && BusinessObjectUtil.getFirstElementOfType(pe, BPMNShape.class)!=null) {
 					return (ContainerShape) pe;
 				}
@@ -1027,10 +1028,11 @@ public class DIUtils {
 		DiagramEditor diagramEditor = ModelUtil.getDiagramEditor(baseElement);
 		if (diagramEditor!=null) {
 			Diagram diagram = diagramEditor.getDiagramTypeProvider().getDiagram();
-			for (Connection c : diagram.getConnections()) {
-				if ( BusinessObjectUtil.getFirstBaseElement(c) == baseElement &&
-						BusinessObjectUtil.getFirstElementOfType(c, BPMNEdge.class)!=null) {
-					return c;
+			for (PictogramElement pe : PictogramElementIndex.getPictogramElements(diagram, baseElement)) {
+				if (pe instanceof Connection &&
+						BusinessObjectUtil.getFirstBaseElement(pe) == baseElement &&
+						BusinessObjectUtil.getFirstElementOfType(pe, BPMNEdge.class)!=null) {
+					return (Connection) pe;
 				}
 			}
 		}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.di;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.Bpmn2Package;
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.di.BPMNDiagram;
+import org.eclipse.bpmn2.di.BPMNEdge;
+import org.eclipse.bpmn2.di.BPMNPlane;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.di.BpmnDiPackage;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.dd.di.DiagramElement;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * An index of the BPMNShape and BPMNEdge elements of all BPMNDiagrams in a
+ * Definitions, keyed by the BPMN element they reference.
+ * <p>
+ * The index is built on first use, and is kept up to date from the
+ * notifications of the Definitions (added or removed BPMNDiagrams), of the
+ * BPMNDiagrams (replaced planes), of the BPMNPlanes (added or removed plane
+ * elements) and of the BPMNShapes and BPMNEdges themselves (changed
+ * bpmnElement references). Like the lookup methods in {@link DIUtils} that
+ * use it, only the direct children of a BPMNPlane are indexed. BPMNLabels are
+ * reached through their owning BPMNShape or BPMNEdge.
+ */
+public class DiagramElementIndex extends AdapterImpl {
+
+	private final Definitions definitions;
+	private final Map<EObject, List<DiagramElement>> index = new HashMap<EObject, List<DiagramElement>>();
+
+	private DiagramElementIndex(Definitions definitions) {
+		this.definitions = definitions;
+	}
+
+	/**
+	 * Return the index for the Definitions that contains the given object,
+	 * creating it if necessary.
+	 *
+	 * @param object a BPMN2 model object
+	 * @return the index, or null if the object does not belong to a
+	 *         Definitions
+	 */
+	public static DiagramElementIndex getIndex(EObject object) {
+		Definitions definitions = object instanceof Definitions ?
+				(Definitions) object : ModelUtil.getDefinitions(object);
+		if (definitions==null)
+			return null;
+		synchronized (definitions) {
+			for (Adapter a : definitions.eAdapters()) {
+				if (a instanceof DiagramElementIndex)
+					return (DiagramElementIndex) a;
+			}
+			DiagramElementIndex index = new DiagramElementIndex(definitions);
+			definitions.eAdapters().add(index);
+			for (BPMNDiagram d : definitions.getDiagrams())
+				index.addDiagram(d);
+			return index;
+		}
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == DiagramElementIndex.class;
+	}
+
+	/**
+	 * Return the first DiagramElement, in BPMNDiagram order, that references
+	 * the given BPMN element.
+	 *
+	 * @param bpmnElement
+	 * @return a BPMNShape or BPMNEdge, or null
+	 */
+	public DiagramElement getDiagramElement(EObject bpmnElement) {
+		return find(null, bpmnElement, DiagramElement.class);
+	}
+
+	/**
+	 * Return the DiagramElement in the given BPMNDiagram that references the
+	 * given BPMN element.
+	 *
+	 * @param bpmnDiagram
+	 * @param bpmnElement
+	 * @return a BPMNShape or BPMNEdge, or null
+	 */
+	public DiagramElement getDiagramElement(BPMNDiagram bpmnDiagram, EObject bpmnElement) {
+		return find(bpmnDiagram, bpmnElement, DiagramElement.class);
+	}
+
+	public BPMNShape getShape(EObject bpmnElement) {
+		return find(null, bpmnElement, BPMNShape.class);
+	}
+
+	public BPMNShape getShape(BPMNDiagram bpmnDiagram, EObject bpmnElement) {
+		return find(bpmnDiagram, bpmnElement, BPMNShape.class);
+	}
+
+	public BPMNEdge getEdge(EObject bpmnElement) {
+		return find(null, bpmnElement, BPMNEdge.class);
+	}
+
+	public BPMNEdge getEdge(BPMNDiagram bpmnDiagram, EObject bpmnElement) {
+		return find(bpmnDiagram, bpmnElement, BPMNEdge.class);
+	}
+
+	private synchronized <T extends DiagramElement> T find(BPMNDiagram bpmnDiagram, EObject bpmnElement, Class<T> type) {
+		List<DiagramElement> list = index.get(bpmnElement);
+		if (list==null)
+			return null;
+		T result = null;
+		int resultIndex = Integer.MAX_VALUE;
+		for (DiagramElement de : list) {
+			if (!type.isInstance(de))
+				continue;
+			BPMNDiagram d = getBPMNDiagram(de);
+			if (bpmnDiagram!=null) {
+				if (d==bpmnDiagram)
+					return type.cast(de);
+			}
+			else if (list.size()==1) {
+				return type.cast(de);
+			}
+			else {
+				// an element may be rendered in more than one BPMNDiagram:
+				// return the one from the first BPMNDiagram
+				int i = definitions.getDiagrams().indexOf(d);
+				if (i>=0 && i<resultIndex) {
+					resultIndex = i;
+					result = type.cast(de);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		Object notifier = notification.getNotifier();
+		Object feature = notification.getFeature();
+		if (notifier==definitions) {
+			if (feature==Bpmn2Package.eINSTANCE.getDefinitions_Diagrams())
+				update(notification);
+		}
+		else if (notifier instanceof BPMNDiagram) {
+			if (feature==BpmnDiPackage.eINSTANCE.getBPMNDiagram_Plane())
+				update(notification);
+		}
+		else if (notifier instanceof BPMNPlane) {
+			if (feature==BpmnDiPackage.eINSTANCE.getBPMNPlane_PlaneElement())
+				update(notification);
+		}
+		else if (notifier instanceof BPMNShape || notifier instanceof BPMNEdge) {
+			if (feature==BpmnDiPackage.eINSTANCE.getBPMNShape_BpmnElement() ||
+					feature==BpmnDiPackage.eINSTANCE.getBPMNEdge_BpmnElement()) {
+				DiagramElement de = (DiagramElement) notifier;
+				synchronized (this) {
+					remove((EObject) notification.getOldValue(), de);
+					add((EObject) notification.getNewValue(), de);
+				}
+			}
+		}
+	}
+
+	private void update(Notification notification) {
+		switch (notification.getEventType()) {
+		case Notification.ADD:
+		case Notification.SET:
+		case Notification.REMOVE:
+			removeObject(notification.getOldValue());
+			addObject(notification.getNewValue());
+			break;
+		case Notification.ADD_MANY:
+			for (Object o : (List<?>) notification.getNewValue())
+				addObject(o);
+			break;
+		case Notification.REMOVE_MANY:
+			for (Object o : (List<?>) notification.getOldValue())
+				removeObject(o);
+			break;
+		}
+	}
+
+	private void addObject(Object o) {
+		if (o instanceof BPMNDiagram)
+			addDiagram((BPMNDiagram) o);
+		else if (o instanceof BPMNPlane)
+			addPlane((BPMNPlane) o);
+		else if (o instanceof DiagramElement)
+			addDiagramElement((DiagramElement) o);
+	}
+
+	private void removeObject(Object o) {
+		if (o instanceof BPMNDiagram)
+			removeDiagram((BPMNDiagram) o);
+		else if (o instanceof BPMNPlane)
+			removePlane((BPMNPlane) o);
+		else if (o instanceof DiagramElement)
+			removeDiagramElement((DiagramElement) o);
+	}
+
+	private void addDiagram(BPMNDiagram bpmnDiagram) {
+		attach(bpmnDiagram);
+		if (bpmnDiagram.getPlane()!=null)
+			addPlane(bpmnDiagram.getPlane());
+	}
+
+	private void removeDiagram(BPMNDiagram bpmnDiagram) {
+		bpmnDiagram.eAdapters().remove(this);
+		if (bpmnDiagram.getPlane()!=null)
+			removePlane(bpmnDiagram.getPlane());
+	}
+
+	private void addPlane(BPMNPlane plane) {
+		attach(plane);
+		for (DiagramElement de : plane.getPlaneElement())
+			addDiagramElement(de);
+	}
+
+	private void removePlane(BPMNPlane plane) {
+		plane.eAdapters().remove(this);
+		for (DiagramElement de : plane.getPlaneElement())
+			removeDiagramElement(de);
+	}
+
+	private synchronized void addDiagramElement(DiagramElement de) {
+		if (de instanceof BPMNShape) {
+			attach(de);
+			add(((BPMNShape) de).getBpmnElement(), de);
+		}
+		else if (de instanceof BPMNEdge) {
+			attach(de);
+			add(((BPMNEdge) de).getBpmnElement(), de);
+		}
+	}
+
+	private synchronized void removeDiagramElement(DiagramElement de) {
+		if (de instanceof BPMNShape) {
+			de.eAdapters().remove(this);
+			remove(((BPMNShape) de).getBpmnElement(), de);
+		}
+		else if (de instanceof BPMNEdge) {
+			de.eAdapters().remove(this);
+			remove(((BPMNEdge) de).getBpmnElement(), de);
+		}
+	}
+
+	private void attach(Notifier notifier) {
+		if (!notifier.eAdapters().contains(this))
+			notifier.eAdapters().add(this);
+	}
+
+	private void add(EObject bpmnElement, DiagramElement de) {
+		if (bpmnElement==null)
+			return;
+		List<DiagramElement> list = index.get(bpmnElement);
+		if (list==null) {
+			list = new ArrayList<DiagramElement>(1);
+			index.put(bpmnElement, list);
+		}
+		if (!list.contains(de))
+			list.add(de);
+	}
+
+	private void remove(EObject bpmnElement, DiagramElement de) {
+		if (bpmnElement==null)
+			return;
+		List<DiagramElement> list = index.get(bpmnElement);
+		if (list!=null) {
+			list.remove(de);
+			if (list.isEmpty())
+				index.remove(bpmnElement);
+		}
+	}
+
+	private static BPMNDiagram getBPMNDiagram(DiagramElement de) {
+		EObject container = de.eContainer();
+		while (container!=null && !(container instanceof BPMNDiagram))
+			container = container.eContainer();
+		return (BPMNDiagram) container;
+	}
+}
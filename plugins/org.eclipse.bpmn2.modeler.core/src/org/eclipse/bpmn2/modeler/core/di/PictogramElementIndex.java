@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.di;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+import org.eclipse.graphiti.mm.pictograms.PictogramLink;
+import org.eclipse.graphiti.mm.pictograms.PictogramsPackage;
+import org.eclipse.graphiti.services.Graphiti;
+
+/**
+ * A reverse index from business objects to the PictogramElements of a Graphiti
+ * Diagram that are linked to them.
+ * <p>
+ * Graphiti's {@code ILinkService.getPictogramElements()} visits every
+ * PictogramLink of the Diagram on each call. This index is built once, on
+ * first use, and is then kept up to date from the notifications of the Diagram
+ * (added or removed PictogramLinks) and of the PictogramLinks themselves
+ * (added or removed business objects, changed PictogramElement). The
+ * notifications are also sent on undo and redo, so the index does not depend
+ * on which feature created or removed a link. The BPMN2 feature provider
+ * reports new links with {@link #link(PictogramElement, Object[])}.
+ * <p>
+ * If the {@code org.eclipse.bpmn2.modeler.core/debug/pictogramIndex} debug
+ * option is set, every lookup is compared with the result of the Graphiti
+ * link service and differences are logged as warnings.
+ */
+public class PictogramElementIndex extends AdapterImpl {
+
+	// if true, lookups are checked against a full scan of the Diagram
+	private static final boolean DEBUG = Activator.isTracing(Activator.TRACE_PICTOGRAM_INDEX);
+
+	private final Diagram diagram;
+	private final Map<EObject, List<PictogramElement>> index = new HashMap<EObject, List<PictogramElement>>();
+
+	private PictogramElementIndex(Diagram diagram) {
+		this.diagram = diagram;
+	}
+
+	/**
+	 * Return the index for the given Diagram, creating it if necessary.
+	 *
+	 * @param diagram a Graphiti Diagram
+	 * @return the index
+	 */
+	public static PictogramElementIndex getIndex(Diagram diagram) {
+		synchronized (diagram) {
+			for (Adapter a : diagram.eAdapters()) {
+				if (a instanceof PictogramElementIndex)
+					return (PictogramElementIndex) a;
+			}
+			PictogramElementIndex index = new PictogramElementIndex(diagram);
+			diagram.eAdapters().add(index);
+			for (PictogramLink link : diagram.getPictogramLinks())
+				index.addLink(link);
+			return index;
+		}
+	}
+
+	/**
+	 * Convenience method that returns the PictogramElements of the given
+	 * Diagram that are linked to the given business object.
+	 *
+	 * @param diagram a Graphiti Diagram
+	 * @param object a business object
+	 * @return the linked PictogramElements, never null
+	 */
+	public static List<PictogramElement> getPictogramElements(Diagram diagram, EObject object) {
+		return getIndex(diagram).get(object);
+	}
+
+	/**
+	 * Record that the given PictogramElement has been linked to the given
+	 * business objects. This is called by the feature provider after the link
+	 * has been established.
+	 *
+	 * @param pe the linked PictogramElement
+	 * @param objects the business objects
+	 */
+	public static void link(PictogramElement pe, Object[] objects) {
+		Diagram diagram = Graphiti.getPeService().getDiagramForPictogramElement(pe);
+		if (diagram==null)
+			return;
+		PictogramElementIndex index = getIndex(diagram);
+		synchronized (index) {
+			for (Object o : objects) {
+				if (o instanceof EObject)
+					index.add((EObject) o, pe);
+			}
+		}
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == PictogramElementIndex.class;
+	}
+
+	/**
+	 * Return the PictogramElements that are linked to the given business
+	 * object, in the order in which they were linked.
+	 *
+	 * @param object a business object
+	 * @return a new list of PictogramElements, never null
+	 */
+	public List<PictogramElement> get(EObject object) {
+		List<PictogramElement> result = new ArrayList<PictogramElement>();
+		synchronized (this) {
+			List<PictogramElement> list = index.get(object);
+			if (list!=null) {
+				for (Iterator<PictogramElement> iter = list.iterator(); iter.hasNext();) {
+					PictogramElement pe = iter.next();
+					// drop entries that were missed by a notification,
+					// for example when a link was changed without a Diagram
+					PictogramLink link = pe.getLink();
+					if (link==null || link.eContainer()!=diagram || !link.getBusinessObjects().contains(object))
+						iter.remove();
+					else
+						result.add(pe);
+				}
+				if (list.isEmpty())
+					index.remove(object);
+			}
+		}
+		if (DEBUG)
+			checkConsistency(object, result);
+		return result;
+	}
+
+	private void checkConsistency(EObject object, List<PictogramElement> result) {
+		List<PictogramElement> expected = Graphiti.getLinkService().getPictogramElements(diagram, object);
+		if (expected.size()!=result.size() || !result.containsAll(expected)) {
+			Activator.logStatus(new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+					"PictogramElementIndex: "+object+" indexed="+result.size()+" linked="+expected.size())); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		Object notifier = notification.getNotifier();
+		Object feature = notification.getFeature();
+		if (notifier==diagram) {
+			if (feature==PictogramsPackage.eINSTANCE.getDiagram_PictogramLinks()) {
+				switch (notification.getEventType()) {
+				case Notification.ADD:
+				case Notification.SET:
+				case Notification.REMOVE:
+					if (notification.getOldValue() instanceof PictogramLink)
+						removeLink((PictogramLink) notification.getOldValue());
+					if (notification.getNewValue() instanceof PictogramLink)
+						addLink((PictogramLink) notification.getNewValue());
+					break;
+				case Notification.ADD_MANY:
+					for (Object o : (List<?>) notification.getNewValue())
+						addLink((PictogramLink) o);
+					break;
+				case Notification.REMOVE_MANY:
+					for (Object o : (List<?>) notification.getOldValue())
+						removeLink((PictogramLink) o);
+					break;
+				}
+			}
+		}
+		else if (notifier instanceof PictogramLink) {
+			PictogramLink link = (PictogramLink) notifier;
+			if (feature==PictogramsPackage.eINSTANCE.getPictogramLink_BusinessObjects()) {
+				PictogramElement pe = link.getPictogramElement();
+				synchronized (this) {
+					switch (notification.getEventType()) {
+					case Notification.ADD:
+					case Notification.SET:
+					case Notification.REMOVE:
+						remove((EObject) notification.getOldValue(), pe);
+						add((EObject) notification.getNewValue(), pe);
+						break;
+					case Notification.ADD_MANY:
+						for (Object o : (List<?>) notification.getNewValue())
+							add((EObject) o, pe);
+						break;
+					case Notification.REMOVE_MANY:
+						for (Object o : (List<?>) notification.getOldValue())
+							remove((EObject) o, pe);
+						break;
+					}
+				}
+			}
+			else if (feature==PictogramsPackage.eINSTANCE.getPictogramLink_PictogramElement()) {
+				synchronized (this) {
+					for (EObject o : link.getBusinessObjects()) {
+						remove(o, (PictogramElement) notification.getOldValue());
+						add(o, (PictogramElement) notification.getNewValue());
+					}
+				}
+			}
+		}
+	}
+
+	private synchronized void addLink(PictogramLink link) {
+		if (!link.eAdapters().contains(this))
+			link.eAdapters().add(this);
+		PictogramElement pe = link.getPictogramElement();
+		for (EObject o : link.getBusinessObjects())
+			add(o, pe);
+	}
+
+	private synchronized void removeLink(PictogramLink link) {
+		link.eAdapters().remove(this);
+		PictogramElement pe = link.getPictogramElement();
+		for (EObject o : link.getBusinessObjects())
+			remove(o, pe);
+	}
+
+	private void add(EObject object, PictogramElement pe) {
+		if (object==null || pe==null)
+			return;
+		List<PictogramElement> list = index.get(object);
+		if (list==null) {
+			list = new ArrayList<PictogramElement>(1);
+			index.put(object, list);
+		}
+		if (!list.contains(pe))
+			list.add(pe);
+	}
+
+	private void remove(EObject object, PictogramElement pe) {
+		if (object==null || pe==null)
+			return;
+		List<PictogramElement> list = index.get(object);
+		if (list!=null) {
+			list.remove(pe);
+			if (list.isEmpty())
+				index.remove(object);
+		}
+	}
+}
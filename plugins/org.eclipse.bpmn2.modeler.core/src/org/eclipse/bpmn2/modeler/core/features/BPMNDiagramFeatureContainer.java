@@ -45,7 +45,7 @@ import org.eclipse.graphiti.services.Graphiti;
  * elements. Currently, it is only used to contribute context menu actions for
  * Connection Routing.
  */
-public class BPMNDiagramFeatureContainer extends BaseElementFeatureContainer {
+public class BPMNDiagramFeatureContainer extends BaseElementFeatureContainer implements ITypeBasedFeatureContainer {
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.bpmn2.modeler.core.features.BaseElementFeatureContainer#getApplyObject(org.eclipse.graphiti.features.context.IContext)
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.features;
+
+import java.util.ArrayList;
+import java.util.EventObject;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.emf.common.command.Command;
+import org.eclipse.emf.common.command.CommandStack;
+import org.eclipse.emf.common.command.CommandStackListener;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.transaction.RecordingCommand;
+import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.emf.transaction.util.TransactionUtil;
+import org.eclipse.graphiti.features.IFeatureProvider;
+import org.eclipse.graphiti.features.context.impl.UpdateContext;
+import org.eclipse.graphiti.mm.pictograms.Connection;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.services.Graphiti;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Routes Connections that use the {@link OrthogonalConnectionRouter} on a
+ * worker thread.
+ * <p>
+ * When a Connection is scheduled, a snapshot of the geometry around it is taken
+ * on the UI thread (see {@link OrthogonalRouteSearch}) and the route search is
+ * done by a background Job. The results are then applied back on the UI thread
+ * in a single RecordingCommand. If the source or target of a Connection has
+ * moved since its snapshot was taken, the Connection is simply routed again
+ * on the UI thread when the results are applied.
+ * <p>
+ * The command that applies the routes follows the command that scheduled them
+ * on the command stack, so that undo and the editor's dirty state stay
+ * consistent. If the scheduling command has been undone by the time the
+ * results arrive, they are discarded.
+ * <p>
+ * The routers of an editor's Diagrams must be released with
+ * {@link #dispose(ResourceSet)} when the editor is disposed, so that a late
+ * result is not applied to a disposed Diagram.
+ * <p>
+ * Scheduling a Connection that is already waiting for a route replaces the
+ * stale request and restarts the Job, so that dragging a shape around does
+ * not queue up routes for all of its intermediate locations.
+ */
+public class BackgroundConnectionRouter extends AdapterImpl {
+
+	/** The maximum time, in milliseconds, to spend searching for one route. */
+	static final long TIME_BUDGET = 2000;
+	// delay before the routing Job starts, to coalesce rapid changes
+	private static final long DELAY = 50;
+
+	private final Diagram diagram;
+	private final Display display;
+	private final CommandStack commandStack;
+	private final RoutingJob job = new RoutingJob();
+	// Connections waiting for a route, in the order in which they were scheduled
+	private final Map<Connection, Request> pending = new LinkedHashMap<Connection, Request>();
+	private volatile boolean disposed;
+
+	private static class Request {
+		IFeatureProvider fp;
+		OrthogonalRouteSearch search;
+		// the command that scheduled this request, once it has been executed
+		Command trigger;
+		volatile boolean done;
+	}
+
+	private final CommandStackListener commandStackListener = new CommandStackListener() {
+		public void commandStackChanged(EventObject event) {
+			// requests are scheduled while their command is executing, so the
+			// first change of the command stack after that is their command
+			synchronized (BackgroundConnectionRouter.this) {
+				for (Request r : pending.values()) {
+					if (r.trigger==null)
+						r.trigger = commandStack.getMostRecentCommand();
+				}
+			}
+		}
+	};
+
+	private class RoutingJob extends Job {
+
+		public RoutingJob() {
+			super("Connection Routing"); //$NON-NLS-1$
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			List<Request> requests;
+			synchronized (BackgroundConnectionRouter.this) {
+				requests = new ArrayList<Request>(pending.values());
+			}
+			for (Request r : requests) {
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+				if (r.done)
+					continue;
+				r.search.run(TIME_BUDGET, monitor);
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+				r.done = true;
+			}
+			if (!disposed && !display.isDisposed()) {
+				display.asyncExec(new Runnable() {
+					public void run() {
+						applyResults();
+					}
+				});
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private BackgroundConnectionRouter(Diagram diagram, Display display, CommandStack commandStack) {
+		this.diagram = diagram;
+		this.display = display;
+		this.commandStack = commandStack;
+		commandStack.addCommandStackListener(commandStackListener);
+	}
+
+	/**
+	 * Return the background router for the given Diagram, creating one if
+	 * necessary.
+	 *
+	 * @param diagram the Diagram
+	 * @return the background router, or null if the Diagram is null, does not
+	 *         belong to an editing domain or the current thread is not a UI
+	 *         thread
+	 */
+	public static BackgroundConnectionRouter getRouter(Diagram diagram) {
+		Display display = Display.getCurrent();
+		if (diagram==null || display==null)
+			return null;
+		synchronized (diagram) {
+			for (Adapter a : diagram.eAdapters()) {
+				if (a instanceof BackgroundConnectionRouter)
+					return (BackgroundConnectionRouter) a;
+			}
+			TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(diagram);
+			if (domain==null)
+				return null;
+			BackgroundConnectionRouter router = new BackgroundConnectionRouter(diagram, display, domain.getCommandStack());
+			diagram.eAdapters().add(router);
+			return router;
+		}
+	}
+
+	/**
+	 * Schedule the given Connection to be routed in the background. This must
+	 * be called on the UI thread, within a read/write transaction.
+	 *
+	 * @param fp the Feature Provider
+	 * @param connection the Connection to route
+	 * @return true if the Connection was scheduled, false if the caller needs
+	 *         to route the Connection immediately
+	 */
+	public static boolean schedule(IFeatureProvider fp, Connection connection) {
+		Diagram diagram = Graphiti.getPeService().getDiagramForPictogramElement(connection);
+		BackgroundConnectionRouter router = getRouter(diagram);
+		if (router==null)
+			return false;
+		OrthogonalRouteSearch search = new OrthogonalConnectionRouter(fp).createSearch(connection);
+		if (search==null)
+			return false;
+		router.add(fp, connection, search);
+		return true;
+	}
+
+	/**
+	 * Cancel all pending background routes. The affected Connections keep
+	 * their current routes.
+	 */
+	public void cancel() {
+		job.cancel();
+		synchronized (this) {
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Cancel the pending background routes of all Diagrams in the given
+	 * ResourceSet and release their routers. This must be called when the
+	 * editor that owns the ResourceSet is disposed.
+	 *
+	 * @param resourceSet the editor's ResourceSet
+	 */
+	public static void dispose(ResourceSet resourceSet) {
+		for (Resource resource : new ArrayList<Resource>(resourceSet.getResources())) {
+			for (EObject o : resource.getContents()) {
+				if (o instanceof Diagram) {
+					for (Adapter a : new ArrayList<Adapter>(o.eAdapters())) {
+						if (a instanceof BackgroundConnectionRouter)
+							((BackgroundConnectionRouter) a).dispose();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cancel all pending background routes and detach this router from its
+	 * Diagram. Results that are still on their way are discarded.
+	 */
+	public void dispose() {
+		disposed = true;
+		cancel();
+		commandStack.removeCommandStackListener(commandStackListener);
+		diagram.eAdapters().remove(this);
+	}
+
+	private void add(IFeatureProvider fp, Connection connection, OrthogonalRouteSearch search) {
+		job.cancel();
+		synchronized (this) {
+			Request r = new Request();
+			r.fp = fp;
+			r.search = search;
+			pending.remove(connection);
+			pending.put(connection, r);
+		}
+		job.schedule(DELAY);
+	}
+
+	private void applyResults() {
+		if (disposed || diagram.eResource()==null)
+			return;
+		final List<Connection> connections = new ArrayList<Connection>();
+		final List<Request> requests = new ArrayList<Request>();
+		synchronized (this) {
+			Iterator<Map.Entry<Connection, Request>> iter = pending.entrySet().iterator();
+			while (iter.hasNext()) {
+				Map.Entry<Connection, Request> e = iter.next();
+				Request r = e.getValue();
+				if (r.done) {
+					iter.remove();
+					// the user has undone the change that needed this route
+					if (r.trigger!=null && r.trigger==commandStack.getRedoCommand())
+						continue;
+					connections.add(e.getKey());
+					requests.add(r);
+				}
+			}
+		}
+		if (connections.isEmpty())
+			return;
+
+		TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(diagram);
+		if (domain==null)
+			return;
+		try {
+			domain.getCommandStack().execute(new RecordingCommand(domain, "Route Connections") { //$NON-NLS-1$
+				@Override
+				protected void doExecute() {
+					GraphicsUtil.dump("Applying "+connections.size()+" background routes"); //$NON-NLS-1$ //$NON-NLS-2$
+					for (int i=0; i<connections.size(); ++i) {
+						Connection connection = connections.get(i);
+						// the connection may have been deleted since it was scheduled
+						if (connection.getStart()==null || connection.getEnd()==null ||
+								Graphiti.getPeService().getDiagramForPictogramElement(connection)!=diagram)
+							continue;
+						Request r = requests.get(i);
+						OrthogonalConnectionRouter router = new OrthogonalConnectionRouter(r.fp);
+						router.route(connection, r.search);
+						if (router.routingNeeded(connection))
+							AbstractConnectionRouter.addRoutingInfo(connection, "failed"); //$NON-NLS-1$
+						else
+							AbstractConnectionRouter.removeRoutingInfo(connection);
+						r.fp.updateIfPossible(new UpdateContext(connection));
+					}
+				}
+			});
+		}
+		catch (Exception e) {
+			Activator.logError(e);
+		}
+	}
+}
@@ -34,7 +34,7 @@ import org.eclipse.graphiti.mm.pictograms.PictogramElement;
  * This is the Graphiti FeatureContainer class for all BPMN2 model connection
  * elements that subclass {@link BaseElement}.
  */
-public abstract class BaseElementConnectionFeatureContainer implements IConnectionFeatureContainer {
+public abstract class BaseElementConnectionFeatureContainer implements IConnectionFeatureContainer, ITypeBasedFeatureContainer {
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.bpmn2.modeler.core.features.IFeatureContainer#getApplyObject(org.eclipse.graphiti.features.context.IContext)
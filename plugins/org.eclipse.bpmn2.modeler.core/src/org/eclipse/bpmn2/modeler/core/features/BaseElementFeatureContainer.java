@@ -25,7 +25,7 @@ import org.eclipse.graphiti.features.custom.ICustomFeature;
  * This is the Graphiti FeatureContainer class for all BPMN2 model shape
  * elements that subclass {@link BaseElement}.
  */
-public abstract class BaseElementFeatureContainer implements IShapeFeatureContainer {
+public abstract class BaseElementFeatureContainer implements IShapeFeatureContainer, ITypeBasedFeatureContainer {
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.bpmn2.modeler.core.features.IFeatureContainer#getApplyObject(org.eclipse.graphiti.features.context.IContext)
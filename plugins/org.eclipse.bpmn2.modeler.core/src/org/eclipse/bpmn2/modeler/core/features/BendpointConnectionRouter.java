@@ -95,8 +95,8 @@ public class BendpointConnectionRouter extends DefaultConnectionRouter {
 	
 			findAllShapes();
 			if (movedBendpoint!=null) {
-				for (ContainerShape shape : allShapes) {
-					if (GraphicsUtil.contains(shape, movedBendpoint)) {
+				for (ContainerShape shape : shapeIndex.findShapes(movedBendpoint, movedBendpoint)) {
+					if (allShapesSet.contains(shape) && GraphicsUtil.contains(shape, movedBendpoint)) {
 						movedBendpoint = null;
 						break;
 					}
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.features;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.modeler.core.utils.BusinessObjectUtil;
+import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
+import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.graphiti.datatypes.IDimension;
+import org.eclipse.graphiti.datatypes.ILocation;
+import org.eclipse.graphiti.mm.algorithms.styles.Point;
+import org.eclipse.graphiti.mm.pictograms.ContainerShape;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.services.Graphiti;
+
+/**
+ * A spatial index of all shapes in a Diagram that may cause a collision with a
+ * connection, i.e. visible ContainerShapes that have a BPMNShape and are not
+ * Groups or Labels. This is used by the connection routers to find the shapes
+ * that intersect a line segment or rectangle without having to test every
+ * shape in the Diagram.
+ * <p>
+ * The shape bounds are kept in a uniform grid of square cells. The index is
+ * attached to the Diagram as an adapter, and is updated incrementally when
+ * shapes are added, removed, moved, resized or hidden: changed shapes (and
+ * their descendants, whose absolute locations depend on them) are only marked
+ * as dirty, and are re-indexed the next time the index is queried. This way a
+ * drag operation that moves many shapes only pays for re-indexing once.
+ */
+public class CollisionShapeIndex extends EContentAdapter {
+
+	// size of a grid cell, in diagram coordinates
+	private static final int CELL_SIZE = 200;
+
+	private final Diagram diagram;
+	// the indexed shapes and their absolute bounds, in Diagram order
+	private final Map<ContainerShape, Entry> entries = new LinkedHashMap<ContainerShape, Entry>();
+	// grid cell -> shapes whose bounds overlap that cell
+	private final Map<Long, List<ContainerShape>> cells = new HashMap<Long, List<ContainerShape>>();
+	// shapes that have changed since the last query
+	private final Set<ContainerShape> dirty = new LinkedHashSet<ContainerShape>();
+	private long sequence;
+
+	private static class Entry {
+		long order;
+		int x, y, width, height;
+		int cx0, cy0, cx1, cy1;
+	}
+
+	private CollisionShapeIndex(Diagram diagram) {
+		this.diagram = diagram;
+	}
+
+	/**
+	 * Return the collision shape index for the given Diagram, creating one if
+	 * necessary.
+	 *
+	 * @param diagram the Diagram
+	 * @return the index, or null if the Diagram is null
+	 */
+	public static CollisionShapeIndex getIndex(Diagram diagram) {
+		if (diagram==null)
+			return null;
+		synchronized (diagram) {
+			for (Adapter a : diagram.eAdapters()) {
+				if (a instanceof CollisionShapeIndex)
+					return (CollisionShapeIndex) a;
+			}
+			CollisionShapeIndex index = new CollisionShapeIndex(diagram);
+			diagram.eAdapters().add(index);
+			return index;
+		}
+	}
+
+	/**
+	 * Return all collision shapes in the Diagram.
+	 *
+	 * @return a list of shapes
+	 */
+	public synchronized List<ContainerShape> getShapes() {
+		flush();
+		return new ArrayList<ContainerShape>(entries.keySet());
+	}
+
+	/**
+	 * Return the collision shapes whose bounds intersect the bounding rectangle
+	 * of the given line segment. Callers still need to test whether the shape
+	 * actually intersects the line segment.
+	 *
+	 * @param p1 the start of the line segment
+	 * @param p2 the end of the line segment
+	 * @return a list of candidate shapes, in Diagram order
+	 */
+	public synchronized List<ContainerShape> findShapes(Point p1, Point p2) {
+		int x = Math.min(p1.getX(), p2.getX());
+		int y = Math.min(p1.getY(), p2.getY());
+		int w = Math.abs(p1.getX() - p2.getX());
+		int h = Math.abs(p1.getY() - p2.getY());
+		return findShapes(x, y, w, h);
+	}
+
+	/**
+	 * Return the collision shapes whose bounds intersect the given rectangle.
+	 *
+	 * @param x the left edge of the rectangle
+	 * @param y the top edge of the rectangle
+	 * @param width the width of the rectangle
+	 * @param height the height of the rectangle
+	 * @return a list of shapes, in Diagram order
+	 */
+	public synchronized List<ContainerShape> findShapes(int x, int y, int width, int height) {
+		flush();
+		Set<ContainerShape> found = new LinkedHashSet<ContainerShape>();
+		int cx0 = cell(x);
+		int cy0 = cell(y);
+		int cx1 = cell(x + width);
+		int cy1 = cell(y + height);
+		for (int cx=cx0; cx<=cx1; ++cx) {
+			for (int cy=cy0; cy<=cy1; ++cy) {
+				List<ContainerShape> list = cells.get(key(cx,cy));
+				if (list!=null) {
+					for (ContainerShape shape : list) {
+						Entry e = entries.get(shape);
+						if (e.x<=x+width && x<=e.x+e.width && e.y<=y+height && y<=e.y+e.height)
+							found.add(shape);
+					}
+				}
+			}
+		}
+		List<ContainerShape> result = new ArrayList<ContainerShape>(found);
+		if (result.size()>1) {
+			// return the shapes in Diagram order, the same as getShapes()
+			Collections.sort(result, new Comparator<ContainerShape>() {
+				public int compare(ContainerShape s1, ContainerShape s2) {
+					long o1 = entries.get(s1).order;
+					long o2 = entries.get(s2).order;
+					return o1<o2 ? -1 : (o1==o2 ? 0 : 1);
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Check if the given shape is a collision shape.
+	 *
+	 * @param shape a ContainerShape
+	 * @return true if the shape is in this index
+	 */
+	public synchronized boolean contains(ContainerShape shape) {
+		flush();
+		return entries.containsKey(shape);
+	}
+
+	/**
+	 * Return the number of shapes in this index.
+	 *
+	 * @return the number of collision shapes
+	 */
+	public synchronized int size() {
+		flush();
+		return entries.size();
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+		if (notification.isTouch())
+			return;
+
+		Object notifier = notification.getNotifier();
+		synchronized (this) {
+			if (notifier instanceof ContainerShape || notifier instanceof Diagram) {
+				// a shape was added, removed or hidden
+				switch (notification.getEventType()) {
+				case Notification.ADD:
+				case Notification.SET:
+					markDirty(notification.getNewValue());
+					markDirty(notification.getOldValue());
+					break;
+				case Notification.REMOVE:
+				case Notification.UNSET:
+					markDirty(notification.getOldValue());
+					break;
+				case Notification.ADD_MANY:
+					for (Object o : (List<?>) notification.getNewValue())
+						markDirty(o);
+					break;
+				case Notification.REMOVE_MANY:
+					for (Object o : (List<?>) notification.getOldValue())
+						markDirty(o);
+					break;
+				}
+				if (notifier instanceof ContainerShape)
+					markDirty(notifier);
+			}
+			else if (notifier instanceof EObject) {
+				// the shape's GraphicsAlgorithm, PictogramLink or properties have changed
+				EObject container = ((EObject) notifier).eContainer();
+				if (container instanceof ContainerShape && !(container instanceof Diagram))
+					markDirty(container);
+			}
+		}
+	}
+
+	@Override
+	public void setTarget(Notifier target) {
+		super.setTarget(target);
+		if (target==diagram) {
+			synchronized (this) {
+				TreeIterator<EObject> iter = diagram.eAllContents();
+				while (iter.hasNext()) {
+					EObject o = iter.next();
+					if (o instanceof ContainerShape)
+						dirty.add((ContainerShape) o);
+				}
+			}
+		}
+	}
+
+	@Override
+	protected boolean resolve() {
+		return false;
+	}
+
+	private void markDirty(Object o) {
+		if (o instanceof ContainerShape && !(o instanceof Diagram))
+			dirty.add((ContainerShape) o);
+	}
+
+	private void flush() {
+		if (dirty.isEmpty())
+			return;
+		List<ContainerShape> list = new ArrayList<ContainerShape>(dirty);
+		dirty.clear();
+		for (ContainerShape shape : list) {
+			update(shape);
+			// the absolute locations of all descendants depend on this shape
+			TreeIterator<EObject> iter = shape.eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof ContainerShape)
+					update((ContainerShape) o);
+			}
+		}
+	}
+
+	private void update(ContainerShape shape) {
+		Entry old = entries.get(shape);
+		if (old!=null)
+			removeCells(shape, old);
+
+		if (!isCollisionShape(shape)) {
+			entries.remove(shape);
+			return;
+		}
+
+		ILocation loc = Graphiti.getPeService().getLocationRelativeToDiagram(shape);
+		IDimension size = GraphicsUtil.calculateSize(shape);
+		Entry e = old;
+		if (e==null) {
+			e = new Entry();
+			e.order = sequence++;
+		}
+		e.x = loc.getX();
+		e.y = loc.getY();
+		e.width = size.getWidth();
+		e.height = size.getHeight();
+		e.cx0 = cell(e.x);
+		e.cy0 = cell(e.y);
+		e.cx1 = cell(e.x + e.width);
+		e.cy1 = cell(e.y + e.height);
+		entries.put(shape, e);
+		for (int cx=e.cx0; cx<=e.cx1; ++cx) {
+			for (int cy=e.cy0; cy<=e.cy1; ++cy) {
+				Long k = key(cx,cy);
+				List<ContainerShape> l = cells.get(k);
+				if (l==null) {
+					l = new ArrayList<ContainerShape>(4);
+					cells.put(k, l);
+				}
+				l.add(shape);
+			}
+		}
+	}
+
+	private void removeCells(ContainerShape shape, Entry e) {
+		for (int cx=e.cx0; cx<=e.cx1; ++cx) {
+			for (int cy=e.cy0; cy<=e.cy1; ++cy) {
+				Long k = key(cx,cy);
+				List<ContainerShape> l = cells.get(k);
+				if (l!=null) {
+					l.remove(shape);
+					if (l.isEmpty())
+						cells.remove(k);
+				}
+			}
+		}
+	}
+
+	private boolean isCollisionShape(ContainerShape shape) {
+		if (shape.eContainer()==null || Graphiti.getPeService().getDiagramForShape(shape)!=diagram) {
+			// this shape has been removed from the Diagram
+			return false;
+		}
+		if (!shape.isVisible() || shape.getGraphicsAlgorithm()==null)
+			return false;
+		if (BusinessObjectUtil.getFirstElementOfType(shape, BPMNShape.class)==null) {
+			// this shape does not have a visual,
+			// so no collision is possible
+			return false;
+		}
+		if (FeatureSupport.isGroupShape(shape) || FeatureSupport.isLabelShape(shape)) {
+			// ignore Groups and Labels
+			return false;
+		}
+		return true;
+	}
+
+	private static int cell(int v) {
+		return v>=0 ? v / CELL_SIZE : (v + 1) / CELL_SIZE - 1;
+	}
+
+	private static Long key(int cx, int cy) {
+		return Long.valueOf(((long)cx << 32) | (cy & 0xffffffffL));
+	}
+}
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.features;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
+import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
+import org.eclipse.emf.common.command.Command;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.transaction.RecordingCommand;
+import org.eclipse.emf.transaction.ResourceSetChangeEvent;
+import org.eclipse.emf.transaction.ResourceSetListenerImpl;
+import org.eclipse.emf.transaction.RollbackException;
+import org.eclipse.emf.transaction.Transaction;
+import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.emf.transaction.impl.InternalTransactionalEditingDomain;
+import org.eclipse.emf.transaction.util.TransactionUtil;
+import org.eclipse.graphiti.features.IFeatureProvider;
+import org.eclipse.graphiti.mm.algorithms.styles.Point;
+import org.eclipse.graphiti.mm.pictograms.Connection;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.services.Graphiti;
+
+/**
+ * Collects the Connections of a Diagram that need to be routed during a
+ * transaction, and routes them all in a single pass when the transaction is
+ * about to commit.
+ * <p>
+ * Moving a Pool or Lane, or resizing a container, affects many connections at
+ * once. Routing each one as soon as it is touched means that a connection may
+ * be routed several times in the same transaction, and that it is routed
+ * against the old positions of shapes that have not been moved yet. Instead,
+ * connections are only marked as dirty here; the routing pass at commit time
+ * routes each dirty connection once, when all shapes are at their final
+ * locations, so all routers share the same (already updated)
+ * {@link CollisionShapeIndex}.
+ * <p>
+ * Connections are routed shortest first: short connections usually have an
+ * obvious straight route, and routing them first lets the longer connections,
+ * which have more freedom, avoid crossing them.
+ * <p>
+ * If there is no active read/write transaction on the current thread (e.g.
+ * the diagram is not managed by a Transactional Editing Domain) connections
+ * can not be scheduled, and the caller must route them immediately.
+ * <p>
+ * The scheduler registers a listener with the Diagram's editing domain; it
+ * must be released with {@link #dispose(ResourceSet)} when the editor that
+ * owns the Diagram is disposed.
+ */
+public class ConnectionRoutingScheduler extends AdapterImpl {
+
+	private final Diagram diagram;
+	private final TransactionalEditingDomain domain;
+	// dirty connections, in the order in which they were scheduled
+	private final Map<Connection, Request> pending = new LinkedHashMap<Connection, Request>();
+	private final RoutingTrigger trigger = new RoutingTrigger();
+	private boolean flushing;
+
+	private static class Request {
+		IFeatureProvider fp;
+		boolean force;
+	}
+
+	private class RoutingTrigger extends ResourceSetListenerImpl {
+
+		@Override
+		public boolean isPrecommitOnly() {
+			return true;
+		}
+
+		@Override
+		public Command transactionAboutToCommit(ResourceSetChangeEvent event) throws RollbackException {
+			if (diagram.eResource()==null) {
+				// the Diagram has been unloaded
+				dispose();
+				return null;
+			}
+			if (!hasPendingConnections())
+				return null;
+			return new RecordingCommand(domain) {
+				@Override
+				protected void doExecute() {
+					flush();
+				}
+			};
+		}
+	}
+
+	private ConnectionRoutingScheduler(Diagram diagram, TransactionalEditingDomain domain) {
+		this.diagram = diagram;
+		this.domain = domain;
+	}
+
+	/**
+	 * Return the routing scheduler for the given Diagram, creating one if
+	 * necessary.
+	 *
+	 * @param diagram the Diagram
+	 * @return the scheduler, or null if the Diagram does not belong to a
+	 *         Transactional Editing Domain
+	 */
+	public static ConnectionRoutingScheduler getScheduler(Diagram diagram) {
+		if (diagram==null)
+			return null;
+		synchronized (diagram) {
+			for (Adapter a : diagram.eAdapters()) {
+				if (a instanceof ConnectionRoutingScheduler)
+					return (ConnectionRoutingScheduler) a;
+			}
+			TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(diagram);
+			if (domain==null)
+				return null;
+			ConnectionRoutingScheduler scheduler = new ConnectionRoutingScheduler(diagram, domain);
+			domain.addResourceSetListener(scheduler.trigger);
+			diagram.eAdapters().add(scheduler);
+			return scheduler;
+		}
+	}
+
+	/**
+	 * Release the routing schedulers of all Diagrams in the given ResourceSet.
+	 * This must be called when the editor that owns the ResourceSet is
+	 * disposed.
+	 *
+	 * @param resourceSet the editor's ResourceSet
+	 */
+	public static void dispose(ResourceSet resourceSet) {
+		for (Resource resource : new ArrayList<Resource>(resourceSet.getResources())) {
+			for (EObject o : resource.getContents()) {
+				if (o instanceof Diagram) {
+					for (Adapter a : new ArrayList<Adapter>(o.eAdapters())) {
+						if (a instanceof ConnectionRoutingScheduler)
+							((ConnectionRoutingScheduler) a).dispose();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discard all scheduled Connections and stop listening to the editing
+	 * domain.
+	 */
+	public void dispose() {
+		synchronized (this) {
+			pending.clear();
+		}
+		domain.removeResourceSetListener(trigger);
+		diagram.eAdapters().remove(this);
+	}
+
+	/**
+	 * Schedule the given Connection to be routed when the current transaction
+	 * commits. A Connection that is scheduled more than once is only routed
+	 * once.
+	 *
+	 * @param fp the Feature Provider
+	 * @param connection the Connection to route
+	 * @param force if true, all of the Connection's bendpoints are discarded
+	 *            before it is routed, see
+	 *            {@link FeatureSupport#updateConnection(IFeatureProvider, Connection, boolean)}
+	 * @return true if the Connection was scheduled, false if the caller needs
+	 *         to route the Connection immediately
+	 */
+	public static boolean schedule(IFeatureProvider fp, Connection connection, boolean force) {
+		Diagram diagram = Graphiti.getPeService().getDiagramForPictogramElement(connection);
+		ConnectionRoutingScheduler scheduler = getScheduler(diagram);
+		if (scheduler==null)
+			return false;
+		return scheduler.add(fp, connection, force);
+	}
+
+	/**
+	 * Check if any Connections are waiting to be routed.
+	 *
+	 * @return true if there are scheduled Connections
+	 */
+	public synchronized boolean hasPendingConnections() {
+		return !pending.isEmpty();
+	}
+
+	/**
+	 * Route all scheduled Connections now. This must be called within a
+	 * read/write transaction; it is normally called automatically when the
+	 * transaction commits.
+	 */
+	public void flush() {
+		List<Map.Entry<Connection, Request>> entries;
+		synchronized (this) {
+			if (pending.isEmpty() || flushing)
+				return;
+			entries = new ArrayList<Map.Entry<Connection, Request>>(pending.entrySet());
+			pending.clear();
+			flushing = true;
+		}
+		try {
+			Collections.sort(entries, new Comparator<Map.Entry<Connection, Request>>() {
+				public int compare(Map.Entry<Connection, Request> e1, Map.Entry<Connection, Request> e2) {
+					return getLength(e1.getKey()) - getLength(e2.getKey());
+				}
+			});
+			GraphicsUtil.dump("Routing "+entries.size()+" scheduled connections"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (Map.Entry<Connection, Request> e : entries) {
+				Connection connection = e.getKey();
+				// the connection may have been deleted since it was scheduled
+				if (connection.getStart()==null || connection.getEnd()==null ||
+						Graphiti.getPeService().getDiagramForPictogramElement(connection)!=diagram)
+					continue;
+				Request r = e.getValue();
+				FeatureSupport.updateConnection(r.fp, connection, r.force);
+			}
+		}
+		finally {
+			synchronized (this) {
+				flushing = false;
+			}
+		}
+	}
+
+	private synchronized boolean add(IFeatureProvider fp, Connection connection, boolean force) {
+		// Connections that are affected by the routing pass itself (e.g.
+		// connections attached to a routed connection) are routed immediately.
+		if (flushing || !isWriteTransactionActive())
+			return false;
+		Request r = pending.get(connection);
+		if (r==null) {
+			r = new Request();
+			pending.put(connection, r);
+		}
+		r.fp = fp;
+		r.force |= force;
+		return true;
+	}
+
+	private boolean isWriteTransactionActive() {
+		if (domain instanceof InternalTransactionalEditingDomain) {
+			Transaction tx = ((InternalTransactionalEditingDomain) domain).getActiveTransaction();
+			return tx!=null && tx.isActive() && !tx.isReadOnly() && tx.getOwner()==Thread.currentThread();
+		}
+		return false;
+	}
+
+	private static int getLength(Connection connection) {
+		if (connection.getStart()==null || connection.getEnd()==null)
+			return 0;
+		Point p1 = GraphicsUtil.createPoint(connection.getStart());
+		Point p2 = GraphicsUtil.createPoint(connection.getEnd());
+		return Math.abs(p1.getX() - p2.getX()) + Math.abs(p1.getY() - p2.getY());
+	}
+}
@@ -15,12 +15,13 @@ package org.eclipse.bpmn2.modeler.core.features;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.bpmn2.BaseElement;
 import org.eclipse.bpmn2.Lane;
 import org.eclipse.bpmn2.Participant;
-import org.eclipse.bpmn2.di.BPMNShape;
 import org.eclipse.bpmn2.modeler.core.preferences.ShapeStyle;
 import org.eclipse.bpmn2.modeler.core.preferences.ShapeStyle.RoutingStyle;
 import org.eclipse.bpmn2.modeler.core.utils.AnchorType;
@@ -28,7 +29,6 @@ import org.eclipse.bpmn2.modeler.core.utils.AnchorUtil;
 import org.eclipse.bpmn2.modeler.core.utils.BusinessObjectUtil;
 import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
 import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.graphiti.features.IFeatureProvider;
 import org.eclipse.graphiti.features.context.IAddConnectionContext;
@@ -63,6 +63,12 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 	/** The all shapes. */
 	protected List<ContainerShape> allShapes;
 	
+	/** The spatial index of all collision shapes in the diagram. */
+	protected CollisionShapeIndex shapeIndex;
+	
+	/** The allShapes set, for fast lookups. */
+	protected Set<ContainerShape> allShapesSet;
+	
 	/** The connection. */
 	protected Connection connection = null;
 	
@@ -99,6 +105,9 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 				else if (ss.getRoutingStyle() == RoutingStyle.AUTOMATIC) {
 					router = new AutomaticConnectionRouter(fp);
 				}
+				else if (ss.getRoutingStyle() == RoutingStyle.ORTHOGONAL) {
+					router = new OrthogonalConnectionRouter(fp);
+				}
 			}
 		}
 		if (router==null)
@@ -191,34 +200,31 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 			return allShapes;
 		
 		allShapes = new ArrayList<ContainerShape>();
+		allShapesSet = new HashSet<ContainerShape>();
 		Diagram diagram = peService.getDiagramForPictogramElement(connection);
+		shapeIndex = CollisionShapeIndex.getIndex(diagram);
 		
 		// first find all ancestors of source and  target, and their siblings
 		List<ContainerShape> ancestors = new ArrayList<ContainerShape>();
 		List<ContainerShape> shapes = new ArrayList<ContainerShape>();
 		
-		TreeIterator<EObject> iter = diagram.eAllContents();
-		while (iter.hasNext()) {
-			EObject o = iter.next();
-			if (o instanceof ContainerShape && !(o instanceof Diagram)) {
-				// this is a potential collision shape
-				ContainerShape shape = (ContainerShape)o;
-				BPMNShape bpmnShape = BusinessObjectUtil.getFirstElementOfType(shape, BPMNShape.class);
-				if (bpmnShape==null) {
-					// this shape does not have a visual,
-					// so no collision is possible
-					continue;
-				}
-				if (FeatureSupport.isGroupShape(shape) || FeatureSupport.isLabelShape(shape) ) {
-					// ignore Groups and Labels
-					continue;
+		// The index only contains visible shapes that have a visual
+		// and are not Groups or Labels: these are all potential
+		// collision shapes.
+		for (ContainerShape shape : shapeIndex.getShapes()) {
+			boolean ignore = false;
+			EObject ancestor = source.eContainer();
+			while (ancestor!=null) {
+				if (ancestor instanceof ContainerShape && shape==ancestor) {
+					ancestors.add((ContainerShape)ancestor);
+					ignore = true;
+					break;
 				}
-				if (!shape.isVisible()) {
-					continue;
-				}
-
-				boolean ignore = false;
-				EObject ancestor = source.eContainer();
+				ancestor = ancestor.eContainer();
+			}
+			
+			if (!ignore) {
+				ancestor = target.eContainer();
 				while (ancestor!=null) {
 					if (ancestor instanceof ContainerShape && shape==ancestor) {
 						ancestors.add((ContainerShape)ancestor);
@@ -229,19 +235,7 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 				}
 				
 				if (!ignore) {
-					ancestor = target.eContainer();
-					while (ancestor!=null) {
-						if (ancestor instanceof ContainerShape && shape==ancestor) {
-							ancestors.add((ContainerShape)ancestor);
-							ignore = true;
-							break;
-						}
-						ancestor = ancestor.eContainer();
-					}
-					
-					if (!ignore && !shapes.contains(shape)) {
-						shapes.add(shape);
-					}
+					shapes.add(shape);
 				}
 			}
 		}
@@ -284,6 +278,7 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 				
 				if (!ignore) {
 					allShapes.add(shape);
+					allShapesSet.add(shape);
 				}
 			}
 		}
@@ -334,8 +329,9 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 		List<ContainerShape> collisions = new ArrayList<ContainerShape>();
 		if (allShapes==null)
 			findAllShapes();
-		for (ContainerShape shape : allShapes) {
-			if (GraphicsUtil.intersectsLine(shape, p1, p2))
+		// only test the shapes that are near the line segment
+		for (ContainerShape shape : shapeIndex.findShapes(p1, p2)) {
+			if (allShapesSet.contains(shape) && GraphicsUtil.intersectsLine(shape, p1, p2))
 				collisions.add(shape);
 		}
 		return collisions;
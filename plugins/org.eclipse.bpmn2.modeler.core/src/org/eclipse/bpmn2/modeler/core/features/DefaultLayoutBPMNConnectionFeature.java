@@ -99,6 +99,12 @@ public class DefaultLayoutBPMNConnectionFeature extends AbstractLayoutFeature {
 			diagram = Graphiti.getPeService().getDiagramForPictogramElement(connection);
 			IConnectionRouter router = getRouter(connection);
 			if (router.canRoute(connection) && router.routingNeeded(connection)) {
+				if (router instanceof OrthogonalConnectionRouter && isRouteInBackground(connection)
+						&& BackgroundConnectionRouter.schedule(getFeatureProvider(), connection)) {
+					// the route will be applied later, by the BackgroundConnectionRouter
+					Graphiti.getPeService().removeProperty(connection, GraphitiConstants.INITIAL_UPDATE);
+					return hasDoneChanges;
+				}
 				hasDoneChanges |= router.route(connection);
 				if (router.routingNeeded(connection))
 					AbstractConnectionRouter.addRoutingInfo(connection, "failed"); //$NON-NLS-1$
@@ -114,6 +120,13 @@ public class DefaultLayoutBPMNConnectionFeature extends AbstractLayoutFeature {
 		return hasDoneChanges;
 	}
 	
+	private boolean isRouteInBackground(Connection connection) {
+		BaseElement be = BusinessObjectUtil.getFirstBaseElement(connection);
+		// a Connection without a business object uses the Diagram's preferences
+		Bpmn2Preferences prefs = be!=null ? Bpmn2Preferences.getInstance(be) : Bpmn2Preferences.getInstance(connection.eResource());
+		return prefs.getRouteConnectionsInBackground();
+	}
+
 	private IConnectionRouter getRouter(Connection connection) {
 		if (routers.containsKey(connection))
 			return routers.get(connection);
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.features;
+
+/**
+ * Marker interface for Feature Containers whose
+ * {@link IFeatureContainer#getApplyObject(org.eclipse.graphiti.features.context.IContext)}
+ * and {@link IFeatureContainer#canApplyTo(Object)} only look at the type of
+ * the context and the types of the business objects it refers to, never at
+ * the PictogramElement itself or at property values. The Feature Provider may
+ * then remember which Feature Container applies to a given combination of
+ * types.
+ * <p>
+ * Only the class that declares each of these methods is taken into account:
+ * a subclass that overrides {@code getApplyObject()} or {@code canApplyTo()}
+ * must implement this interface itself, otherwise it is asked on every lookup.
+ */
+public interface ITypeBasedFeatureContainer extends IFeatureContainer {
+}
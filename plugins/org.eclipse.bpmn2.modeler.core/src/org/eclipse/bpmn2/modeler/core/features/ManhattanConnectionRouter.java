@@ -859,14 +859,25 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 		if (allShapes==null)
 			findAllShapes();
 
-		for (int i=0; i<allShapes.size(); ++i) {
-			ContainerShape s = allShapes.get(i);
-			if (shape==s || shape==source || shape==target)
-				continue;
-			DetourPoints d = new DetourPoints(s, margin);
-			if (detour.intersects(d) && !detour.contains(d)) {
-				detour.merge(d);
-				i = -1;
+		// Only the shapes that are near the detour can be merged with it;
+		// the detour grows with each merge, so search again until no more
+		// shapes are merged.
+		boolean merged = true;
+		while (merged) {
+			merged = false;
+			int x = detour.topLeft.getX() - margin;
+			int y = detour.topLeft.getY() - margin;
+			int w = detour.bottomRight.getX() + margin - x;
+			int h = detour.bottomRight.getY() + margin - y;
+			for (ContainerShape s : shapeIndex.findShapes(x, y, w, h)) {
+				if (shape==s || shape==source || shape==target || !allShapesSet.contains(s))
+					continue;
+				DetourPoints d = new DetourPoints(s, margin);
+				if (detour.intersects(d) && !detour.contains(d)) {
+					detour.merge(d);
+					merged = true;
+					break;
+				}
 			}
 		}
 
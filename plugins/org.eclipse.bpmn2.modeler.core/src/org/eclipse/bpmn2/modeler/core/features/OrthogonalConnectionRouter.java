@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.core.features.OrthogonalRouteSearch.Port;
+import org.eclipse.bpmn2.modeler.core.utils.AnchorSite;
+import org.eclipse.bpmn2.modeler.core.utils.AnchorType;
+import org.eclipse.bpmn2.modeler.core.utils.AnchorUtil;
+import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
+import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
+import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil.LineSegment;
+import org.eclipse.graphiti.datatypes.IDimension;
+import org.eclipse.graphiti.datatypes.ILocation;
+import org.eclipse.graphiti.features.IFeatureProvider;
+import org.eclipse.graphiti.mm.algorithms.styles.Point;
+import org.eclipse.graphiti.mm.pictograms.Anchor;
+import org.eclipse.graphiti.mm.pictograms.Connection;
+import org.eclipse.graphiti.mm.pictograms.ContainerShape;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.FixPointAnchor;
+import org.eclipse.graphiti.mm.pictograms.FreeFormConnection;
+import org.eclipse.graphiti.mm.pictograms.Shape;
+
+/**
+ * A Connection Router that finds the cheapest orthogonal route between the
+ * source and target shapes with an A* search over an orthogonal visibility
+ * graph.
+ * <p>
+ * The graph is built from the horizontal and vertical lines through the edges
+ * of all collision shapes near the connection (inflated by the router margin)
+ * and through the connection's anchor points. A route is only allowed to
+ * follow lines that do not pass through a shape. The cost of a route is its
+ * length, plus a penalty for every bend, every crossing with another
+ * connection, and for attaching the connection to an edge of the source or
+ * target shape other than the one it is currently attached to.
+ * <p>
+ * Unlike {@link ManhattanConnectionRouter}, which calculates and ranks one
+ * candidate route for every combination of source and target edges, this
+ * router considers all combinations in a single search. The search is bounded
+ * by {@link #TIME_BUDGET}; if no route is found in time, or the connection
+ * cannot be handled by this router (self connections, connections with a
+ * bendpoint that was moved by the user, connections to other connections)
+ * the Manhattan routing is used instead.
+ * <p>
+ * The search itself works on a snapshot of the diagram geometry (see
+ * {@link OrthogonalRouteSearch}) so that the {@link BackgroundConnectionRouter}
+ * can run it on a worker thread.
+ */
+public class OrthogonalConnectionRouter extends ManhattanConnectionRouter {
+
+	/** The distance by which the search region extends beyond the source and target shapes. */
+	static final int REGION_MARGIN = 100;
+	/** The maximum time, in milliseconds, to spend searching for a route. */
+	static final long TIME_BUDGET = 200;
+
+	// a search that was already run by the BackgroundConnectionRouter
+	private OrthogonalRouteSearch presetSearch;
+
+	/**
+	 * Instantiates a new orthogonal connection router.
+	 *
+	 * @param fp the Feature Provider
+	 */
+	public OrthogonalConnectionRouter(IFeatureProvider fp) {
+		super(fp);
+	}
+
+	/**
+	 * Take a snapshot of the geometry needed to route the given Connection.
+	 * The snapshot is taken with the source and target anchors normalized the
+	 * same way as in {@link #route(Connection)}; the anchor locations are
+	 * restored afterwards.
+	 *
+	 * @param connection the Connection to route
+	 * @return the search, or null if the Connection can not be routed by
+	 *         this router
+	 */
+	OrthogonalRouteSearch createSearch(Connection connection) {
+		if (!(connection instanceof FreeFormConnection))
+			return null;
+		try {
+			initialize(connection);
+			if (isSelfConnection() || movedBendpoint!=null)
+				return null;
+			Map<Anchor,Point> initialSourceAnchorLocations = AnchorUtil.saveAnchorLocations(source);
+			Map<Anchor,Point> initialTargetAnchorLocations = AnchorUtil.saveAnchorLocations(target);
+			AnchorUtil.adjustAnchors(source);
+			AnchorUtil.adjustAnchors(target);
+			OrthogonalRouteSearch search = createSearch();
+			AnchorUtil.restoreAnchorLocations(source, initialSourceAnchorLocations);
+			AnchorUtil.restoreAnchorLocations(target, initialTargetAnchorLocations);
+			return search;
+		}
+		finally {
+			dispose();
+		}
+	}
+
+	/**
+	 * Route the given Connection using a search that was run in the
+	 * background. If the source or target geometry has changed since the
+	 * search was created, the Connection is routed from scratch.
+	 *
+	 * @param connection the Connection to route
+	 * @param search a search created by {@link #createSearch(Connection)}
+	 * @return true if the Connection was changed
+	 */
+	boolean route(Connection connection, OrthogonalRouteSearch search) {
+		presetSearch = search;
+		try {
+			return route(connection);
+		}
+		finally {
+			presetSearch = null;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.bpmn2.modeler.core.features.ManhattanConnectionRouter#calculateRoute()
+	 */
+	@Override
+	protected ConnectionRoute calculateRoute() {
+		if (isSelfConnection() || movedBendpoint!=null)
+			return super.calculateRoute();
+
+		GraphicsUtil.dump("\n===========================================\nOrthogonal Routing ", ffc); //$NON-NLS-1$
+
+		// a background search can only be used once, and only if nothing
+		// has moved since its snapshot was taken
+		OrthogonalRouteSearch search = presetSearch;
+		presetSearch = null;
+		if (search!=null && (!search.isDone() || !Arrays.equals(search.getStamp(), getStamp()))) {
+			GraphicsUtil.dump("Background route is out of date"); //$NON-NLS-1$
+			search = null;
+		}
+		if (search==null) {
+			search = createSearch();
+			if (search!=null)
+				search.run(TIME_BUDGET, null);
+		}
+
+		AnchorSite initialSourceSite = AnchorSite.getSite(sourceAnchor);
+		AnchorSite initialTargetSite = AnchorSite.getSite(targetAnchor);
+		Point initialSourceLocation = createPoint(sourceAnchor);
+		Point initialTargetLocation = createPoint(targetAnchor);
+		ConnectionRoute route = null;
+		if (search!=null && search.isFound()) {
+			route = createRoute(search);
+		}
+		if (route==null) {
+			// the anchors may have been moved to a different edge
+			// before the route was found to be invalid
+			restoreAnchor(source, sourceAnchor, initialSourceSite, initialSourceLocation);
+			restoreAnchor(target, targetAnchor, initialTargetSite, initialTargetLocation);
+			GraphicsUtil.dump("No orthogonal route found, using Manhattan routing"); //$NON-NLS-1$
+			return super.calculateRoute();
+		}
+
+		if (FeatureSupport.getPropertyValue(ffc, GraphitiConstants.INITIAL_UPDATE) != null) {
+			peService.removeProperty(ffc, GraphitiConstants.INITIAL_UPDATE);
+		}
+		GraphicsUtil.dump("Orthogonal route: "+route.toString()); //$NON-NLS-1$
+		return route;
+	}
+
+	/**
+	 * Take a snapshot of the ports, obstacles and connection segments in the
+	 * region around the source and target shapes.
+	 *
+	 * @return the search, or null if the connection's anchors are not
+	 *         attached to an edge of their shapes
+	 */
+	private OrthogonalRouteSearch createSearch() {
+		List<Port> sourcePorts = getPorts(source, sourceAnchor, sourceAnchorSites);
+		List<Port> targetPorts = getPorts(target, targetAnchor, targetAnchorSites);
+		if (sourcePorts.isEmpty() || targetPorts.isEmpty())
+			return null;
+
+		int sb[] = getBounds(source, 0);
+		int tb[] = getBounds(target, 0);
+		int region[] = {
+				Math.min(sb[0], tb[0]) - REGION_MARGIN,
+				Math.min(sb[1], tb[1]) - REGION_MARGIN,
+				Math.max(sb[2], tb[2]) + REGION_MARGIN,
+				Math.max(sb[3], tb[3]) + REGION_MARGIN
+		};
+
+		// The obstacles are all collision shapes in the region, inflated by
+		// the router margin. Shapes that would block one of the ports (e.g.
+		// the Activity to which a Boundary Event is attached) are ignored.
+		List<Port> ports = new ArrayList<Port>(sourcePorts);
+		ports.addAll(targetPorts);
+		List<int[]> obstacles = new ArrayList<int[]>();
+		if (allShapes==null)
+			findAllShapes();
+		for (ContainerShape shape : shapeIndex.findShapes(region[0], region[1], region[2] - region[0], region[3] - region[1])) {
+			if (!allShapesSet.contains(shape))
+				continue;
+			int b[] = getBounds(shape, margin);
+			boolean blocksPort = false;
+			for (Port p : ports) {
+				if (b[0]<p.px && p.px<b[2] && b[1]<p.py && p.py<b[3]) {
+					blocksPort = true;
+					break;
+				}
+			}
+			if (!blocksPort)
+				obstacles.add(b);
+		}
+
+		List<int[]> segments = findSegments(region);
+		GraphicsUtil.dump("Orthogonal search: "+obstacles.size()+" obstacles, "+segments.size()+" segments"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return new OrthogonalRouteSearch(sourcePorts, targetPorts, obstacles, segments, region, getStamp());
+	}
+
+	/**
+	 * Return the possible starting (or ending) points of a route on the given
+	 * shape. The anchor's current edge is always a candidate; other allowed
+	 * edges are candidates with an additional cost, unless the anchor is
+	 * attached to a Pool.
+	 *
+	 * @param shape the source or target shape
+	 * @param anchor the connection's anchor on that shape
+	 * @param allowedSites the edges of the shape the connection may be
+	 *            attached to, or null if any edge is allowed
+	 * @return a list of ports, empty if the anchor is not on an edge
+	 */
+	private List<Port> getPorts(Shape shape, FixPointAnchor anchor, AnchorSite allowedSites[]) {
+		List<Port> ports = new ArrayList<Port>();
+		AnchorSite currentSite = AnchorSite.getSite(anchor);
+		if (currentSite==null || currentSite==AnchorSite.CENTER)
+			return ports;
+		if (allowedSites!=null && allowedSites.length==1 && allowedSites[0]==AnchorSite.CENTER)
+			return ports;
+
+		Point a = createPoint(anchor);
+		ports.add(new Port(currentSite, a.getX(), a.getY(), margin, 0));
+		if (AnchorType.getType(anchor)!=AnchorType.POOL) {
+			LineSegment edges[] = GraphicsUtil.getEdges(shape);
+			AnchorSite sites[] = allowedSites!=null ? allowedSites :
+				new AnchorSite[] { AnchorSite.TOP, AnchorSite.BOTTOM, AnchorSite.LEFT, AnchorSite.RIGHT };
+			for (AnchorSite site : sites) {
+				if (site!=currentSite && site!=AnchorSite.CENTER) {
+					Point m = edges[site.ordinal()].getMiddle();
+					ports.add(new Port(site, m.getX(), m.getY(), margin, OrthogonalRouteSearch.SITE_PENALTY));
+				}
+			}
+		}
+		return ports;
+	}
+
+	/**
+	 * Collect the line segments of all other connections that are inside the
+	 * given region. Connections that share an anchor with this connection are
+	 * ignored, as in {@link #findCrossings(Connection, Point, Point)}.
+	 */
+	private List<int[]> findSegments(int region[]) {
+		List<int[]> segments = new ArrayList<int[]>();
+		Diagram diagram = peService.getDiagramForPictogramElement(connection);
+		List<FixPointAnchor> connectionAnchors = AnchorUtil.getAnchors(connection);
+		for (Connection c : diagram.getConnections()) {
+			if (c==connection || peService.getProperty(c, RoutingNet.CONNECTION)!=null)
+				continue;
+			if (connectionAnchors.contains(c.getStart()) || connectionAnchors.contains(c.getEnd()))
+				continue;
+			Point p1 = GraphicsUtil.createPoint(c.getStart());
+			if (c instanceof FreeFormConnection) {
+				for (Point p : ((FreeFormConnection) c).getBendpoints()) {
+					addSegment(segments, p1, p, region);
+					p1 = p;
+				}
+			}
+			addSegment(segments, p1, GraphicsUtil.createPoint(c.getEnd()), region);
+		}
+		return segments;
+	}
+
+	private void addSegment(List<int[]> segments, Point p1, Point p2, int region[]) {
+		int s[] = { p1.getX(), p1.getY(), p2.getX(), p2.getY() };
+		if (Math.max(s[0], s[2])<region[0] || Math.min(s[0], s[2])>region[2] ||
+				Math.max(s[1], s[3])<region[1] || Math.min(s[1], s[3])>region[3])
+			return;
+		segments.add(s);
+	}
+
+	/**
+	 * Create a ConnectionRoute from the search result. If the route leaves or
+	 * enters a shape on a different edge than the one the anchor is currently
+	 * attached to, the anchor is moved to the new edge.
+	 */
+	private ConnectionRoute createRoute(OrthogonalRouteSearch search) {
+		Port sourcePort = search.getSourcePort();
+		Port targetPort = search.getTargetPort();
+		int dx[] = OrthogonalRouteSearch.DX;
+		int dy[] = OrthogonalRouteSearch.DY;
+
+		List<Point> points = new ArrayList<Point>();
+		Point a = moveAnchor(source, sourceAnchor, sourcePort);
+		points.add(a);
+		points.add(createPoint(a.getX() + dx[sourcePort.direction] * margin, a.getY() + dy[sourcePort.direction] * margin));
+		for (int p[] : search.getPath())
+			points.add(createPoint(p[0], p[1]));
+		a = moveAnchor(target, targetAnchor, targetPort);
+		points.add(createPoint(a.getX() + dx[targetPort.direction] * margin, a.getY() + dy[targetPort.direction] * margin));
+		points.add(a);
+
+		// remove duplicate points and points in the middle of a straight line
+		List<Point> result = new ArrayList<Point>();
+		for (Point p : points) {
+			int size = result.size();
+			if (size>0 && GraphicsUtil.pointsEqual(result.get(size-1), p))
+				continue;
+			if (size>1) {
+				Point p0 = result.get(size-2);
+				Point p1 = result.get(size-1);
+				if ((p0.getX()==p1.getX() && p1.getX()==p.getX()) ||
+						(p0.getY()==p1.getY() && p1.getY()==p.getY()))
+					result.remove(size-1);
+			}
+			result.add(p);
+		}
+
+		ConnectionRoute route = new ConnectionRoute(this, 1, source, target);
+		route.setSourceAnchor(sourceAnchor);
+		route.setTargetAnchor(targetAnchor);
+		for (Point p : result) {
+			if (!route.add(p))
+				return null;
+		}
+		return route;
+	}
+
+	private Point moveAnchor(Shape shape, FixPointAnchor anchor, Port port) {
+		if (AnchorSite.getSite(anchor)!=port.site) {
+			AnchorSite.setSite(anchor, port.site);
+			AnchorUtil.adjustAnchors(shape);
+		}
+		return createPoint(anchor);
+	}
+
+	private void restoreAnchor(Shape shape, FixPointAnchor anchor, AnchorSite site, Point location) {
+		if (site!=null && AnchorSite.getSite(anchor)!=site) {
+			AnchorUtil.moveAnchor(anchor, location);
+			AnchorSite.setSite(anchor, site);
+			AnchorUtil.adjustAnchors(shape);
+		}
+	}
+
+	/**
+	 * Describe the current geometry of the source and target shapes and
+	 * anchors; a search result is only valid for the geometry it was
+	 * created with.
+	 */
+	private int[] getStamp() {
+		int sb[] = getBounds(source, 0);
+		int tb[] = getBounds(target, 0);
+		Point sa = createPoint(sourceAnchor);
+		Point ta = createPoint(targetAnchor);
+		return new int[] {
+				sb[0], sb[1], sb[2], sb[3],
+				tb[0], tb[1], tb[2], tb[3],
+				sa.getX(), sa.getY(), ta.getX(), ta.getY()
+		};
+	}
+
+	private static int[] getBounds(Shape shape, int inflate) {
+		ILocation loc = peService.getLocationRelativeToDiagram(shape);
+		IDimension size = GraphicsUtil.calculateSize(shape);
+		return new int[] {
+				loc.getX() - inflate,
+				loc.getY() - inflate,
+				loc.getX() + size.getWidth() + inflate,
+				loc.getY() + size.getHeight() + inflate
+		};
+	}
+}
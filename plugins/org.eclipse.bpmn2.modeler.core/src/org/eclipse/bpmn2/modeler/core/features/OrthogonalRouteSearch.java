@@ -0,0 +1,421 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import org.eclipse.bpmn2.modeler.core.utils.AnchorSite;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * The A* search used by the {@link OrthogonalConnectionRouter}.
+ * <p>
+ * A search is created from a snapshot of the diagram geometry: the possible
+ * start and end points of the route, the bounds of all obstacles and the line
+ * segments of all other connections near the route. It does not refer to
+ * any model objects, so once it has been created it may be run on any thread.
+ */
+class OrthogonalRouteSearch {
+
+	/** The cost of a bend, in pixels of route length. */
+	static final int BEND_PENALTY = 30;
+	/** The cost of crossing another connection. */
+	static final int CROSSING_PENALTY = 60;
+	/** The cost of moving an anchor to a different edge of its shape. */
+	static final int SITE_PENALTY = 20;
+
+	// search directions, indexed by Direction.ordinal()-1
+	static final int DX[] = { 0, 0, -1, 1 };
+	static final int DY[] = { -1, 1, 0, 0 };
+	private static final int OPPOSITE[] = { 1, 0, 3, 2 };
+
+	/**
+	 * A possible starting or ending point of a route: an anchor location on
+	 * one edge of the source or target shape, and the point just outside the
+	 * shape where the route leaves or enters that edge.
+	 */
+	static class Port {
+		final AnchorSite site;
+		final int direction;
+		final int px, py;
+		final int cost;
+		int node = -1;
+
+		Port(AnchorSite site, int x, int y, int margin, int cost) {
+			this.site = site;
+			this.direction = Direction.get(site).ordinal() - 1;
+			this.px = x + DX[direction] * margin;
+			this.py = y + DY[direction] * margin;
+			this.cost = cost;
+		}
+	}
+
+	private final List<Port> sourcePorts;
+	private final List<Port> targetPorts;
+	private final List<int[]> obstacles;
+	private final List<int[]> segments;
+	private final int region[];
+	private final int stamp[];
+
+	// the visibility graph
+	private int xs[];
+	private int ys[];
+	private int nx, ny;
+	private boolean blockedNode[];
+	private boolean blockedHorz[];
+	private boolean blockedVert[];
+	// the number of other connections that cross each horizontal or vertical graph edge
+	private int crossingsHorz[];
+	private int crossingsVert[];
+
+	// the result
+	private volatile boolean done;
+	private Port sourcePort;
+	private Port targetPort;
+	private List<int[]> path;
+
+	/**
+	 * Create a new search.
+	 *
+	 * @param sourcePorts the possible starting points of the route
+	 * @param targetPorts the possible ending points of the route
+	 * @param obstacles the bounds of the shapes the route must avoid, as
+	 *            {left, top, right, bottom}
+	 * @param segments the line segments of other connections, as {x1, y1, x2, y2}
+	 * @param region the area to search, as {left, top, right, bottom}
+	 * @param stamp a description of the source and target geometry, used to
+	 *            check if the search result is still valid
+	 */
+	OrthogonalRouteSearch(List<Port> sourcePorts, List<Port> targetPorts,
+			List<int[]> obstacles, List<int[]> segments, int region[], int stamp[]) {
+		this.sourcePorts = sourcePorts;
+		this.targetPorts = targetPorts;
+		this.obstacles = obstacles;
+		this.segments = segments;
+		this.region = region;
+		this.stamp = stamp;
+	}
+
+	/**
+	 * Search for the cheapest route from any of the source ports to any of
+	 * the target ports.
+	 *
+	 * @param timeBudget the maximum time to search, in milliseconds
+	 * @param monitor a progress monitor used to cancel the search, may be null
+	 * @return true if a route was found
+	 */
+	boolean run(long timeBudget, IProgressMonitor monitor) {
+		long startTime = System.currentTimeMillis();
+		buildGraph();
+
+		int states = nx * ny * 4;
+		int g[] = new int[states];
+		int parent[] = new int[states];
+		boolean closed[] = new boolean[states];
+		Arrays.fill(g, Integer.MAX_VALUE);
+		Arrays.fill(parent, -1);
+		int goalCost[] = new int[targetPorts.size()];
+		int goalFrom[] = new int[targetPorts.size()];
+		Arrays.fill(goalCost, Integer.MAX_VALUE);
+		Map<Integer,Port> startPorts = new HashMap<Integer,Port>();
+		PriorityQueue<Long> open = new PriorityQueue<Long>();
+
+		for (Port p : sourcePorts) {
+			if (p.node<0 || blockedNode[p.node])
+				continue;
+			int s = p.node * 4 + p.direction;
+			if (p.cost < g[s]) {
+				g[s] = p.cost;
+				startPorts.put(s, p);
+				open.add(key(p.cost + estimate(p.node), s));
+			}
+		}
+
+		int expanded = 0;
+		while (!open.isEmpty()) {
+			long k = open.poll();
+			int id = (int) (k & 0xffffffffL);
+			if (id>=states) {
+				// the cheapest route has reached a target port
+				int index = id - states;
+				createPath(startPorts, index, goalFrom[index], parent);
+				done = true;
+				return true;
+			}
+			if (closed[id])
+				continue;
+			closed[id] = true;
+
+			if ((++expanded & 0xff)==0) {
+				if (System.currentTimeMillis() - startTime > timeBudget || (monitor!=null && monitor.isCanceled()))
+					break;
+			}
+
+			int node = id / 4;
+			int dir = id % 4;
+			int i = node % nx;
+			int j = node / nx;
+
+			for (int t=0; t<targetPorts.size(); ++t) {
+				Port p = targetPorts.get(t);
+				if (p.node!=node)
+					continue;
+				// the route enters the target shape opposite to the
+				// direction in which it leaves the port
+				int finalDir = OPPOSITE[p.direction];
+				if (dir==p.direction)
+					continue;
+				int c = g[id] + p.cost + (dir!=finalDir ? BEND_PENALTY : 0);
+				if (c < goalCost[t]) {
+					goalCost[t] = c;
+					goalFrom[t] = id;
+					open.add(key(c, states + t));
+				}
+			}
+
+			for (int d=0; d<4; ++d) {
+				if (d==OPPOSITE[dir])
+					continue;
+				int ni = i + DX[d];
+				int nj = j + DY[d];
+				if (ni<0 || ni>=nx || nj<0 || nj>=ny)
+					continue;
+				int next = nj * nx + ni;
+				if (blockedNode[next])
+					continue;
+				int length;
+				int crossings;
+				if (DY[d]==0) {
+					int e = nj * nx + Math.min(i, ni);
+					if (blockedHorz[e])
+						continue;
+					length = Math.abs(xs[ni] - xs[i]);
+					crossings = getCrossings(e, true);
+				}
+				else {
+					int e = Math.min(j, nj) * nx + ni;
+					if (blockedVert[e])
+						continue;
+					length = Math.abs(ys[nj] - ys[j]);
+					crossings = getCrossings(e, false);
+				}
+				int c = g[id] + length + CROSSING_PENALTY * crossings + (d!=dir ? BEND_PENALTY : 0);
+				int s = next * 4 + d;
+				if (c < g[s]) {
+					g[s] = c;
+					parent[s] = id;
+					open.add(key(c + estimate(next), s));
+				}
+			}
+		}
+		done = true;
+		return false;
+	}
+
+	/**
+	 * Check if the search has been run to completion, i.e. it either found a
+	 * route or determined that there is none.
+	 *
+	 * @return true if the search is done
+	 */
+	boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return true if the search found a route
+	 */
+	boolean isFound() {
+		return path!=null;
+	}
+
+	Port getSourcePort() {
+		return sourcePort;
+	}
+
+	Port getTargetPort() {
+		return targetPort;
+	}
+
+	/**
+	 * @return the points of the route from the source port to the target
+	 *         port, as {x, y}
+	 */
+	List<int[]> getPath() {
+		return path;
+	}
+
+	int[] getStamp() {
+		return stamp;
+	}
+
+	private void createPath(Map<Integer,Port> startPorts, int targetIndex, int last, int parent[]) {
+		path = new ArrayList<int[]>();
+		int first = last;
+		for (int s=last; s>=0; s=parent[s]) {
+			int node = s / 4;
+			path.add(0, new int[] { xs[node % nx], ys[node / nx] });
+			first = s;
+		}
+		sourcePort = startPorts.get(first);
+		targetPort = targetPorts.get(targetIndex);
+	}
+
+	/**
+	 * Build the orthogonal visibility graph from the horizontal and vertical
+	 * lines through all obstacle edges and ports.
+	 */
+	private void buildGraph() {
+		TreeSet<Integer> xset = new TreeSet<Integer>();
+		TreeSet<Integer> yset = new TreeSet<Integer>();
+		xset.add(region[0]);
+		xset.add(region[2]);
+		yset.add(region[1]);
+		yset.add(region[3]);
+		List<Port> ports = new ArrayList<Port>(sourcePorts);
+		ports.addAll(targetPorts);
+		for (Port p : ports) {
+			xset.add(p.px);
+			yset.add(p.py);
+		}
+		for (int b[] : obstacles) {
+			xset.add(b[0]);
+			xset.add(b[2]);
+			yset.add(b[1]);
+			yset.add(b[3]);
+		}
+
+		xs = toArray(xset);
+		ys = toArray(yset);
+		nx = xs.length;
+		ny = ys.length;
+		blockedNode = new boolean[nx * ny];
+		blockedHorz = new boolean[nx * ny];
+		blockedVert = new boolean[nx * ny];
+
+		// Since the graph contains lines through all obstacle edges, a graph
+		// edge is either completely inside or completely outside of an obstacle;
+		// only the edges and nodes strictly inside an obstacle are blocked.
+		for (int b[] : obstacles) {
+			int i0 = Arrays.binarySearch(xs, b[0]);
+			int i1 = Arrays.binarySearch(xs, b[2]);
+			int j0 = Arrays.binarySearch(ys, b[1]);
+			int j1 = Arrays.binarySearch(ys, b[3]);
+			for (int j=j0; j<=j1; ++j) {
+				for (int i=i0; i<=i1; ++i) {
+					int n = j * nx + i;
+					boolean insideX = i0<i && i<i1;
+					boolean insideY = j0<j && j<j1;
+					if (insideX && insideY)
+						blockedNode[n] = true;
+					if (i<i1 && insideY)
+						blockedHorz[n] = true;
+					if (j<j1 && insideX)
+						blockedVert[n] = true;
+				}
+			}
+		}
+
+		for (Port p : ports)
+			p.node = Arrays.binarySearch(ys, p.py) * nx + Arrays.binarySearch(xs, p.px);
+
+		crossingsHorz = new int[nx * ny];
+		crossingsVert = new int[nx * ny];
+		Arrays.fill(crossingsHorz, -1);
+		Arrays.fill(crossingsVert, -1);
+	}
+
+	/**
+	 * Return the number of other connections that cross the given graph edge.
+	 * The result is cached, since most edges are visited more than once.
+	 */
+	private int getCrossings(int edge, boolean horizontal) {
+		int cache[] = horizontal ? crossingsHorz : crossingsVert;
+		if (cache[edge]>=0)
+			return cache[edge];
+		int i = edge % nx;
+		int j = edge / nx;
+		int x1 = xs[i];
+		int y1 = ys[j];
+		int x2 = horizontal ? xs[i+1] : x1;
+		int y2 = horizontal ? y1 : ys[j+1];
+		int count = 0;
+		for (int s[] : segments) {
+			if (s[0]==s[2]) {
+				// vertical segment
+				if (horizontal) {
+					if (x1<s[0] && s[0]<x2 && Math.min(s[1],s[3])<=y1 && y1<=Math.max(s[1],s[3]))
+						++count;
+				}
+				else if (s[0]==x1 && Math.min(s[1],s[3])<y2 && y1<Math.max(s[1],s[3]))
+					++count; // overlapping
+			}
+			else if (s[1]==s[3]) {
+				// horizontal segment
+				if (!horizontal) {
+					if (y1<s[1] && s[1]<y2 && Math.min(s[0],s[2])<=x1 && x1<=Math.max(s[0],s[2]))
+						++count;
+				}
+				else if (s[1]==y1 && Math.min(s[0],s[2])<x2 && x1<Math.max(s[0],s[2]))
+					++count; // overlapping
+			}
+			else if (intersects(x1, y1, x2, y2, s[0], s[1], s[2], s[3])) {
+				++count;
+			}
+		}
+		cache[edge] = count;
+		return count;
+	}
+
+	private int estimate(int node) {
+		int x = xs[node % nx];
+		int y = ys[node / nx];
+		int min = Integer.MAX_VALUE;
+		for (Port p : targetPorts) {
+			int d = Math.abs(x - p.px) + Math.abs(y - p.py);
+			if (d < min)
+				min = d;
+		}
+		return min;
+	}
+
+	private static boolean intersects(int x1, int y1, int x2, int y2, int x3, int y3, int x4, int y4) {
+		long d1 = cross(x3, y3, x4, y4, x1, y1);
+		long d2 = cross(x3, y3, x4, y4, x2, y2);
+		long d3 = cross(x1, y1, x2, y2, x3, y3);
+		long d4 = cross(x1, y1, x2, y2, x4, y4);
+		return ((d1>0 && d2<0) || (d1<0 && d2>0)) && ((d3>0 && d4<0) || (d3<0 && d4>0));
+	}
+
+	private static long cross(int x1, int y1, int x2, int y2, int x, int y) {
+		return (long)(x2 - x1) * (y - y1) - (long)(y2 - y1) * (x - x1);
+	}
+
+	private static long key(int cost, int id) {
+		return ((long) cost << 32) | (id & 0xffffffffL);
+	}
+
+	private static int[] toArray(TreeSet<Integer> set) {
+		int a[] = new int[set.size()];
+		int i = 0;
+		for (Integer v : set)
+			a[i++] = v;
+		return a;
+	}
+}
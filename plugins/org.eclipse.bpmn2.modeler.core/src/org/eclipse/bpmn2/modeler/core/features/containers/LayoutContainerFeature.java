@@ -89,7 +89,7 @@ public class LayoutContainerFeature extends AbstractLayoutBpmn2ShapeFeature {
 		
 		for (PictogramElement pe : FeatureSupport.getPoolAndLaneDescendants(rootContainer)) {
 			if (pe instanceof Connection) {
-				FeatureSupport.updateConnection(getFeatureProvider(), (Connection)pe, true);
+				FeatureSupport.scheduleConnectionUpdate(getFeatureProvider(), (Connection)pe, true);
 			}
 		}
 
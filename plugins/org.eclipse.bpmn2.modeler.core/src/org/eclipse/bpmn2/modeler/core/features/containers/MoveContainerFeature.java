@@ -55,7 +55,7 @@ public class MoveContainerFeature extends DefaultMoveBPMNShapeFeature {
 		if (!FeatureSupport.isLabelShape(shape) && shape instanceof ContainerShape) {
 			for (PictogramElement pe : children) {
 				if (pe instanceof Connection) {
-					FeatureSupport.updateConnection(getFeatureProvider(), (Connection)pe, true);
+					FeatureSupport.scheduleConnectionUpdate(getFeatureProvider(), (Connection)pe, true);
 				}
 				else {
 					DIUtils.updateDIShape(pe);
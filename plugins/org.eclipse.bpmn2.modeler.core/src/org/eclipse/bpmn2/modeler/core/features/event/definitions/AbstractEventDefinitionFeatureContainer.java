@@ -20,6 +20,7 @@ import org.eclipse.bpmn2.IntermediateCatchEvent;
 import org.eclipse.bpmn2.IntermediateThrowEvent;
 import org.eclipse.bpmn2.StartEvent;
 import org.eclipse.bpmn2.modeler.core.features.BaseElementFeatureContainer;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.utils.BusinessObjectUtil;
 import org.eclipse.graphiti.features.IAddFeature;
 import org.eclipse.graphiti.features.IDeleteFeature;
@@ -39,7 +40,7 @@ import org.eclipse.graphiti.mm.pictograms.ContainerShape;
 import org.eclipse.graphiti.mm.pictograms.Shape;
 import org.eclipse.graphiti.util.IColorConstant;
 
-public abstract class AbstractEventDefinitionFeatureContainer extends BaseElementFeatureContainer {
+public abstract class AbstractEventDefinitionFeatureContainer extends BaseElementFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public Object getApplyObject(IContext context) {
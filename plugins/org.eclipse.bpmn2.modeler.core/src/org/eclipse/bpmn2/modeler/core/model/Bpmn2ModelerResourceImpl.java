@@ -12,8 +12,10 @@
  ******************************************************************************/
 package org.eclipse.bpmn2.modeler.core.model;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -22,22 +24,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
-import org.eclipse.bpmn2.Assignment;
 import org.eclipse.bpmn2.BaseElement;
 import org.eclipse.bpmn2.Bpmn2Factory;
 import org.eclipse.bpmn2.Bpmn2Package;
-import org.eclipse.bpmn2.CompensateEventDefinition;
-import org.eclipse.bpmn2.DataAssociation;
 import org.eclipse.bpmn2.Definitions;
-import org.eclipse.bpmn2.Documentation;
 import org.eclipse.bpmn2.Expression;
-import org.eclipse.bpmn2.ExtensionAttributeValue;
 import org.eclipse.bpmn2.FormalExpression;
 import org.eclipse.bpmn2.Import;
 import org.eclipse.bpmn2.ItemDefinition;
-import org.eclipse.bpmn2.Lane;
-import org.eclipse.bpmn2.Participant;
 import org.eclipse.bpmn2.Process;
 import org.eclipse.bpmn2.RootElement;
 import org.eclipse.bpmn2.SubProcess;
@@ -60,7 +56,6 @@ import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
 import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
 import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntimeAdapter;
 import org.eclipse.bpmn2.modeler.core.runtime.TypeLanguageDescriptor;
-import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
 import org.eclipse.bpmn2.modeler.core.utils.ImportUtil;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
 import org.eclipse.bpmn2.modeler.core.utils.NamespaceUtil;
@@ -82,6 +77,7 @@ import org.eclipse.dd.dc.Point;
 import org.eclipse.dd.di.DiPackage;
 import org.eclipse.dd.di.DiagramElement;
 import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
 import org.eclipse.emf.common.util.BasicEList;
 import org.eclipse.emf.common.util.ECollections;
 import org.eclipse.emf.common.util.EList;
@@ -97,8 +93,8 @@ import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.ecore.util.BasicFeatureMap;
 import org.eclipse.emf.ecore.util.EObjectWithInverseEList;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.util.ExtendedMetaData;
 import org.eclipse.emf.ecore.util.FeatureMap;
 import org.eclipse.emf.ecore.util.FeatureMapUtil;
@@ -128,8 +124,17 @@ import org.xml.sax.helpers.DefaultHandler;
 public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 
 	public static final String BPMN2_CONTENT_TYPE_ID = "org.eclipse.bpmn2.content-type.xml"; //$NON-NLS-1$
+	/**
+	 * The number of characters that are buffered in memory while saving before
+	 * they are flushed to a temporary file, see {@link XMLResource#OPTION_FLUSH_THRESHOLD}
+	 */
+	public static final int SAVE_FLUSH_THRESHOLD = 1024 * 1024;
 	protected BpmnXmlHelper xmlHelper;
 	protected QNameURIHandler uriHandler;
+	// the result of the pre-save pipeline, used by the next save
+	protected volatile PreSavePipeline preSavePipeline;
+	// the pipeline used by the save in progress
+	protected PreSavePipeline savePipeline;
 	public HashMap xmlNameToFeatureMap = new HashMap();
 	protected static HashSet<EStructuralFeature> qnameMap = new HashSet<EStructuralFeature>();
 	static {
@@ -264,6 +269,10 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
         this.getDefaultSaveOptions().put(XMLResource.OPTION_ELEMENT_HANDLER, new ElementHandlerImpl(true));
         this.getDefaultSaveOptions().put(XMLResource.OPTION_ENCODING, "UTF-8"); //$NON-NLS-1$
         this.getDefaultSaveOptions().put(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE, new ArrayList<Object>());
+        // stream large documents through a temporary file instead of
+        // keeping the whole serialized document in memory
+        this.getDefaultSaveOptions().put(XMLResource.OPTION_FLUSH_THRESHOLD, SAVE_FLUSH_THRESHOLD);
+        this.getDefaultSaveOptions().put(XMLResource.OPTION_USE_FILE_BUFFER, Boolean.TRUE);
         
         // some interesting things to play with:
 //        this.getDefaultLoadOptions().put(XMLResource.OPTION_LAX_FEATURE_PROCESSING, true);
@@ -293,7 +302,24 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 	public void save(Map<?, ?> options) throws IOException {
 		uriHandler.setBaseURI(getURI());
 		xmlHelper.setResource(this);
-		super.save(options);
+		try {
+			super.save(options);
+		}
+		finally {
+			savePipeline = null;
+		}
+	}
+
+	@Override
+	public void save(OutputStream outputStream, Map<?, ?> options) throws IOException {
+		uriHandler.setBaseURI(getURI());
+		xmlHelper.setResource(this);
+		try {
+			super.save(outputStream, options);
+		}
+		finally {
+			savePipeline = null;
+		}
 	}
 
     @Override
@@ -402,27 +428,198 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 
 	@Override
 	protected void prepareSave() {
-		EObject cur;
-//		Definitions definitions = ImportHelper.getDefinitions(this);
-		for (Iterator<EObject> iter = getAllContents(); iter.hasNext();) {
-			cur = iter.next();
-
-			setDefaultId(cur);
-
-//			for (EObject referenced : cur.eCrossReferences()) {
-//				setDefaultId(referenced);
-//				if (definitions != null) {
-//					Resource refResource = referenced.eResource();
-//					if (refResource != null && refResource != this) {
-//						createImportIfNecessary(definitions, refResource);
-//					}
-//				}
-//			}
+		// a pipeline that was run ahead of time is used by one save only,
+		// every other save runs the stages again
+		PreSavePipeline pipeline = preSavePipeline;
+		preSavePipeline = null;
+		if (pipeline==null)
+			pipeline = createPreSavePipeline();
+		savePipeline = pipeline;
+	}
+
+	/**
+	 * Prepare this Resource for saving: assign missing IDs, compute the
+	 * origin of the BPMN Diagrams and run the given additional stages (e.g. a
+	 * Live validation) in a single traversal of the Resource contents. The
+	 * result is used by the next {@link #save(Map)} only, which will then not
+	 * traverse the Resource again. The Resource must not be changed between
+	 * this call and the save; if the save does not happen,
+	 * {@link #discardPreSavePipeline()} must be called.
+	 *
+	 * @param stages additional stages, run after the ID and origin stages
+	 * @return the pipeline, which holds the stage results and timings
+	 */
+	public PreSavePipeline runPreSavePipeline(PreSavePipeline.Stage... stages) {
+		PreSavePipeline pipeline = createPreSavePipeline(stages);
+		preSavePipeline = pipeline;
+		return pipeline;
+	}
+
+	private PreSavePipeline createPreSavePipeline(PreSavePipeline.Stage... stages) {
+		PreSavePipeline pipeline = new PreSavePipeline();
+		pipeline.addStage(new IdStage());
+		pipeline.addStage(new OriginStage());
+		for (PreSavePipeline.Stage s : stages)
+			pipeline.addStage(s);
+		pipeline.run(this);
+		return pipeline;
+	}
+
+	/**
+	 * Discard the result of {@link #runPreSavePipeline(PreSavePipeline.Stage...)},
+	 * e.g. because the save was canceled.
+	 */
+	public void discardPreSavePipeline() {
+		preSavePipeline = null;
+	}
+
+	/**
+	 * Create a detached copy of this Resource that can be saved on another
+	 * thread while the original is being edited. References to objects in
+	 * other Resources (e.g. imported WSDL or XSD files) are not copied.
+	 * <p>
+	 * This must be called within a read transaction so that the copy is
+	 * consistent. The result of the last {@link #runPreSavePipeline(PreSavePipeline.Stage...)}
+	 * is passed on to the copy, and discarded from this Resource.
+	 * <p>
+	 * Adapters are not copied. Instead, the decisions of the
+	 * {@link IExtensionValueAdapter}s of the original objects are made here,
+	 * on the calling thread, and attached to the copies as
+	 * {@link SaveDecisionAdapter}s so that the copy is serialized exactly
+	 * like the original.
+	 *
+	 * @return the copy, or null if no copy can be created
+	 */
+	public Bpmn2ModelerResourceImpl createSnapshot() {
+		Bpmn2ModelerResourceImpl snapshot = createSnapshotResource(getURI());
+		if (snapshot==null)
+			return null;
+		EcoreUtil.Copier copier = new EcoreUtil.Copier();
+		snapshot.getContents().addAll(copier.copyAll(getContents()));
+		copier.copyReferences();
+		for (Entry<EObject, EObject> entry : copier.entrySet()) {
+			EObject original = entry.getKey();
+			for (Adapter a : original.eAdapters()) {
+				if (a instanceof IExtensionValueAdapter)
+					entry.getValue().eAdapters().add(new SaveDecisionAdapter((IExtensionValueAdapter)a, original));
+			}
+		}
+		// load the preferences now so that the save does not need to
+		Bpmn2Preferences.getInstance(this);
+		TargetRuntime rt = TargetRuntimeAdapter.getTargetRuntime(this);
+		if (rt!=null)
+			TargetRuntimeAdapter.adapt(snapshot, rt);
+		snapshot.preSavePipeline = preSavePipeline;
+		preSavePipeline = null;
+		return snapshot;
+	}
+
+	/**
+	 * Create the empty Resource used by {@link #createSnapshot()}. This is an
+	 * instance of the same class as this Resource, created with its URI
+	 * constructor, so that the copy is saved the same way as the original.
+	 *
+	 * @param uri the URI of this Resource
+	 * @return a new Resource, or null if the class of this Resource has no
+	 *         public URI constructor
+	 */
+	protected Bpmn2ModelerResourceImpl createSnapshotResource(URI uri) {
+		try {
+			return getClass().getConstructor(URI.class).newInstance(uri);
+		}
+		catch (Exception e) {
+			Activator.logError(e);
+		}
+		return null;
+	}
+
+	/**
+	 * The decisions of an {@link IExtensionValueAdapter}, made for an object
+	 * of the original Resource and attached to its copy in a snapshot, see
+	 * {@link Bpmn2ModelerResourceImpl#createSnapshot()}.
+	 */
+	protected static class SaveDecisionAdapter extends AdapterImpl implements IExtensionValueAdapter {
+		private final boolean saveElement;
+		private final Set<EStructuralFeature> skippedFeatures = new HashSet<EStructuralFeature>();
+
+		public SaveDecisionAdapter(IExtensionValueAdapter adapter, EObject original) {
+			saveElement = adapter.shouldSaveElement(original);
+			for (EStructuralFeature f : original.eClass().getEAllStructuralFeatures()) {
+				if (!adapter.shouldSaveFeature(original, f))
+					skippedFeatures.add(f);
+			}
+		}
+
+		@Override
+		public boolean shouldSaveElement(EObject o) {
+			return saveElement;
+		}
+
+		@Override
+		public boolean shouldSaveFeature(EObject o, EStructuralFeature f) {
+			return !skippedFeatures.contains(f);
+		}
+	}
+
+	/**
+	 * Pre-save stage that generates the IDs of all BPMN2 elements that
+	 * don't have one.
+	 */
+	protected class IdStage extends PreSavePipeline.Stage {
+		@Override
+		public String getName() {
+			return "id"; //$NON-NLS-1$
+		}
+
+		@Override
+		public void visit(EObject object) {
+			setDefaultId(object);
+		}
+	}
+
+	/**
+	 * Pre-save stage that computes the smallest X and Y coordinates of the
+	 * shapes, edges and labels of all BPMN Diagrams. This is saved in a
+	 * comment at the start of the document.
+	 */
+	protected static class OriginStage extends PreSavePipeline.Stage {
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+
+		@Override
+		public String getName() {
+			return "origin"; //$NON-NLS-1$
+		}
+
+		@Override
+		public void visit(EObject object) {
+			// only the elements owned directly by the plane of a BPMN Diagram count
+			if (!(object instanceof DiagramElement) || !(object.eContainer() instanceof BPMNPlane)
+					|| !(object.eContainer().eContainer() instanceof BPMNDiagram))
+				return;
+			if (object instanceof BPMNShape) {
+				Bounds b = ((BPMNShape)object).getBounds();
+				minX = Math.min(minX, b.getX());
+				minY = Math.min(minY, b.getY());
+			}
+			else if (object instanceof BPMNEdge) {
+				for (Point p : ((BPMNEdge)object).getWaypoint()) {
+					minX = Math.min(minX, p.getX());
+					minY = Math.min(minY, p.getY());
+				}
+			}
+			else if (object instanceof BPMNLabel) {
+				Bounds b = ((BPMNLabel)object).getBounds();
+				minX = Math.min(minX, b.getX());
+				minY = Math.min(minY, b.getY());
+			}
 		}
 	}
 
 	/**
 	 * Generate an ID attribute for the given BPMN2 element if not already set.
+	 * The new ID is registered in this Resource's
+	 * {@link org.eclipse.bpmn2.modeler.core.utils.ResourceIdRegistry}.
 	 * 
 	 * @param obj
 	 *            The object whose ID should be set.
@@ -991,12 +1188,25 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 		protected float minY = Float.MAX_VALUE;
 		protected int lineNum = 1;
 		protected int lineOffset = 0;
+		protected int lineWidth = Integer.MAX_VALUE;
+		protected String temporaryFileName;
 		protected Bpmn2Preferences preferences;
 
 		@SuppressWarnings("serial")
 		protected class Bpmn2ModelerXMLString extends XMLString {
+			// the number of characters added so far; the XMLString length only
+			// counts the characters that have not yet been flushed to the file buffer
+			protected int charCount = 0;
+
 			public Bpmn2ModelerXMLString(String publicId, String systemId) {
-				super(Integer.MAX_VALUE, publicId, systemId, null);
+				super(Bpmn2ModelerXMLSave.this.lineWidth, publicId, systemId, Bpmn2ModelerXMLSave.this.temporaryFileName);
+			}
+
+			@Override
+			public void add(String newString) {
+				if (newString!=null)
+					charCount += newString.length();
+				super.add(newString);
 			}
         	@Override
         	public void addAttribute(String name, String value) {
@@ -1031,7 +1241,7 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 			public void addLine() {
 				++lineNum;
 				super.addLine();
-				lineOffset = getLength();
+				lineOffset = charCount;
 			}
 			
 			public int getLineNum() {
@@ -1045,7 +1255,7 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 			}
 
 			public int getColumnNum() {
-				return getLength() - lineOffset + 1;
+				return charCount - lineOffset + 1;
 			}
 		};
 		
@@ -1071,14 +1281,55 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 			super.addNamespaceDeclarations();
 		}
 
+		@Override
+		public void save(XMLResource resource, OutputStream outputStream, Map<?, ?> options) throws IOException {
+			try {
+				super.save(resource, outputStream, options);
+			}
+			finally {
+				if (temporaryFileName!=null) {
+					new File(temporaryFileName).delete();
+					temporaryFileName = null;
+				}
+			}
+		}
+
 		@Override
 		protected void init(XMLResource resource, Map<?, ?> options) {
+			// The XMLString created by XMLSaveImpl is replaced by our own below,
+			// so create the temporary file buffer here instead of letting the
+			// super class create one that would never be used or deleted.
+			boolean useFileBuffer = Boolean.TRUE.equals(options.get(XMLResource.OPTION_USE_FILE_BUFFER));
+			if (useFileBuffer) {
+				Map<Object, Object> superOptions = new HashMap<Object, Object>(options);
+				superOptions.remove(XMLResource.OPTION_USE_FILE_BUFFER);
+				options = superOptions;
+			}
 			super.init(resource, options);
+			if (options.get(XMLResource.OPTION_LINE_WIDTH) instanceof Integer)
+				lineWidth = (Integer) options.get(XMLResource.OPTION_LINE_WIDTH);
+			if (useFileBuffer) {
+				try {
+					temporaryFileName = File.createTempFile("Bpmn2Save", null).getPath(); //$NON-NLS-1$
+				}
+				catch (IOException e) {
+					// keep the whole document in memory
+					temporaryFileName = null;
+				}
+			}
 			featureTable = new Bpmn2ModelerXMLSave.Bpmn2Lookup(map, extendedMetaData, elementHandler);
 			
-			final List<BPMNDiagram> diagrams = getAll(BPMNDiagram.class, resource);
-			for (BPMNDiagram bpmnDiagram : diagrams) {
-				findMinXY(bpmnDiagram);
+			PreSavePipeline pipeline = savePipeline;
+			OriginStage origin = pipeline!=null ? pipeline.getStage(OriginStage.class) : null;
+			if (origin!=null) {
+				minX = origin.minX;
+				minY = origin.minY;
+			}
+			else {
+				final List<BPMNDiagram> diagrams = getAll(BPMNDiagram.class, resource);
+				for (BPMNDiagram bpmnDiagram : diagrams) {
+					findMinXY(bpmnDiagram);
+				}
 			}
 			
 			doc = createXMLString();
@@ -1150,119 +1401,18 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
         
 		@Override
         protected boolean shouldSaveFeature(EObject o, EStructuralFeature f) {
-			if (o instanceof BPMNShape) {
-            	BPMNShape s = (BPMNShape)o;
-	            if (f==BpmnDiPackage.eINSTANCE.getBPMNShape_IsExpanded()) {
-	            	if (FeatureSupport.isExpandableElement(s.getBpmnElement()))
-	            		return true;
-            	}
-	            if (f==BpmnDiPackage.eINSTANCE.getBPMNShape_IsHorizontal()) {
-	            	if (s.getBpmnElement() instanceof Lane || s.getBpmnElement() instanceof Participant)
-	            		return true;
-	            }
-			}
-            
-            // we also want to store x and y with value zero, would be skipped because of default value otherwise
-            if (o instanceof Bounds || o instanceof Point) {
-            	return true;
-            }
-            
-            if (o instanceof Process && f==Bpmn2Package.eINSTANCE.getProcess_IsExecutable())
-           		return true;
-            if (o instanceof ItemDefinition && f==Bpmn2Package.eINSTANCE.getItemDefinition_IsCollection())
-           		return true;
-            if (o instanceof CompensateEventDefinition && f==Bpmn2Package.eINSTANCE.getCompensateEventDefinition_WaitForCompletion())
-           		return true;
-            
-            // empty Expressions should not be saved
-            if (f!=null && (f.getEType() == Bpmn2Package.eINSTANCE.getExpression() ||
-            		f.getEType() == Bpmn2Package.eINSTANCE.getFormalExpression())) {
-            	Expression expression = (Expression)o.eGet(f);
-            	if (expression==null)
-            		return false;
-            	if (expression instanceof FormalExpression) {
-	            	FormalExpression formalExpression = (FormalExpression)expression;
-            		String body = ModelUtil.getExpressionBody(formalExpression);
-	            	if (body==null) {
-	            		return false;
-	            	}
-            	}
-            }
-            
-            if (o!=null && o instanceof Documentation) {
-            	Documentation doc = (Documentation)o;
-            	if (doc.getText()==null || doc.getText().isEmpty())
-            		return false;
-            }
-            
-            if (f!=null && f.getEType() == Bpmn2Package.eINSTANCE.getDocumentation()) {
-            	EList<Documentation> docList = (EList<Documentation>)o.eGet(f);
-            	if (docList.isEmpty())
-            		return false;
-            	int empty = 0;
-            	for (Documentation doc : docList) {
-            		if (doc.getText()==null || doc.getText().isEmpty())
-            			++empty;
-            	}
-            	if (empty==docList.size())
-            		return false;
-            }            	
-            
-            // don't serialize the "body" attribute of FormalExpressions because the expression text
-            // is already in the CDATA section of the <bpmn2:expression> element. This would cause
-            // the expression text to be duplicated on deserialization.
-            // Same goes for Documentation.text
-			if (Bpmn2Package.eINSTANCE.getFormalExpression_Body().equals(f) ||
-					Bpmn2Package.eINSTANCE.getDocumentation_Text().equals(f))
-				return false;
-            
-			// don't save Assignments if they are invalid: Assignments must have
-			// both a "from" and "to" expression and they may not be empty strings.
-			if (o instanceof DataAssociation && "assignment".equals(f.getName())) { //$NON-NLS-1$
-				DataAssociation da = (DataAssociation)o;
-				for (Assignment a : da.getAssignment()) {
-					Expression from = a.getFrom();
-					if (from instanceof FormalExpression) {
-						String body = ModelUtil.getExpressionBody(((FormalExpression)from));
-						if (body==null || body.isEmpty())
-							return false;
-					}
-					Expression to = a.getTo();
-					if (to instanceof FormalExpression) {
-						String body = ModelUtil.getExpressionBody(((FormalExpression)to));
-						if (body==null || body.isEmpty())
-							return false;
-					}
-				}
-			}
+			if (f==null)
+				return super.shouldSaveFeature(o, f);
 
-			if (f == Bpmn2Package.eINSTANCE.getBaseElement_ExtensionValues()) {
-				// check if this element is (or should be) empty
-				int entryCount = 0;
-				for (ExtensionAttributeValue ev : (EList<ExtensionAttributeValue>)o.eGet(f)) {
-					BasicFeatureMap map = (BasicFeatureMap) ev.getValue();
-					Iterator<FeatureMap.Entry> mi = map.iterator();
-					while (mi.hasNext()) {
-						FeatureMap.Entry entry = mi.next();
-						Object v = entry.getValue();
-						boolean entryCounted = false;
-						if (v instanceof EObject) {
-							Iterator<Adapter> ai = ((EObject)v).eAdapters().iterator();
-							while (ai.hasNext()) {
-								Adapter a = ai.next();
-								if (a instanceof IExtensionValueAdapter) {
-									if (((IExtensionValueAdapter)a).shouldSaveElement((EObject)v)) {
-										++entryCount;
-									}
-									entryCounted = true;
-								}
-							}
-						}
-						if (!entryCounted)
-							++entryCount;
-					}
-				}
-				return entryCount>0;
+			// the static rules are compiled once per (EClass, feature),
+			// see SavePolicyTable for details
+			switch (SavePolicyTable.shouldSave(o, f)) {
+			case SAVE:
+				return true;
+			case SKIP:
+				return false;
+			default:
+				break;
 			}
 			
 			Iterator<Adapter> ai = o.eAdapters().iterator();
@@ -11,6 +11,7 @@
 package org.eclipse.bpmn2.modeler.core.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -492,6 +493,26 @@ public class Bpmn2ModelerResourceSetImpl extends ResourceSetImpl implements IRes
 		}
 	}
 
+	/**
+	 * A file that was loaded into this ResourceSet as a dependency of a BPMN2
+	 * Resource (e.g. an imported XSD or WSDL file) has changed. Unload its
+	 * Resource, which turns all objects that were resolved from it into
+	 * proxies, and remove it from the ResourceSet. References to those objects
+	 * will be resolved against the new file contents the next time they are
+	 * accessed, so the rest of the model does not need to be reloaded.
+	 *
+	 * @param resource the Resource to refresh
+	 */
+	public void refreshResource(Resource resource) {
+		if (resource.getResourceSet()!=this)
+			return;
+		resource.unload();
+		if (uriResourceMap != null) {
+			uriResourceMap.values().removeAll(Collections.singleton(resource));
+		}
+		resources.remove(resource);
+	}
+
 	// Bugzilla 320545:
 	public static boolean isBPMN2File(IResource res)
 	{
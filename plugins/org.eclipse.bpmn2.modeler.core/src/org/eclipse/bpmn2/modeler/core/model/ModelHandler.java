@@ -61,6 +61,7 @@ import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil.Bpmn2DiagramType;
 import org.eclipse.bpmn2.modeler.core.utils.ShapeDecoratorUtil;
 import org.eclipse.bpmn2.modeler.core.utils.Tuple;
+import org.eclipse.bpmn2.util.Bpmn2Resource;
 import org.eclipse.bpmn2.util.Bpmn2ResourceImpl;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.dd.dc.Bounds;
@@ -890,6 +891,8 @@ public class ModelHandler {
 
 	@SuppressWarnings("unchecked")
 	public static <T> List<T> getAll(Resource resource, final Class<T> class1) {
+		if (resource instanceof Bpmn2Resource)
+			return ModelIndex.getIndex(resource).getAll(class1);
 		ArrayList<T> l = new ArrayList<T>();
 		TreeIterator<EObject> contents = resource.getAllContents();
 		while (contents.hasNext()) {
@@ -905,15 +908,7 @@ public class ModelHandler {
 		if (id==null || id.isEmpty())
 			return null;
 		
-		List<BaseElement> baseElements = getAll(BaseElement.class);
-
-		for (BaseElement be : baseElements) {
-			if (id.equals(be.getId())) {
-				return be;
-			}
-		}
-
-		return null;
+		return ModelIndex.getIndex(resource).findElement(id);
 	}
 	
 	/**
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Bpmn2Package;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.ECrossReferenceAdapter;
+
+/**
+ * An index of the contents of a BPMN2 Resource that answers the model-wide
+ * queries of {@link ModelHandler} and FeatureSupport without walking the
+ * whole model:
+ * <ul>
+ * <li>the inverse cross-references of an object, inherited from
+ * {@link ECrossReferenceAdapter}, e.g. all MessageFlows, Tasks and
+ * EventDefinitions that reference a Message</li>
+ * <li>all instances of an EClass, or of a Java type</li>
+ * <li>the BaseElements with a given ID</li>
+ * </ul>
+ * The index is installed on the Resource on first use and is then kept up to
+ * date from the notifications of the objects it contains, including those
+ * sent on undo and redo. Proxies are not resolved by the index, so building it
+ * never loads other Resources.
+ */
+public class ModelIndex extends ECrossReferenceAdapter {
+
+	private final Map<EClass, Set<EObject>> instances = new HashMap<EClass, Set<EObject>>();
+	private final Map<String, Set<BaseElement>> ids = new HashMap<String, Set<BaseElement>>();
+
+	private ModelIndex() {
+	}
+
+	/**
+	 * Return the index for the given Resource, creating it if necessary.
+	 *
+	 * @param resource a BPMN2 Resource
+	 * @return the index
+	 */
+	public static ModelIndex getIndex(Resource resource) {
+		synchronized (resource) {
+			for (Adapter a : resource.eAdapters()) {
+				if (a instanceof ModelIndex)
+					return (ModelIndex) a;
+			}
+			ModelIndex index = new ModelIndex();
+			resource.eAdapters().add(index);
+			return index;
+		}
+	}
+
+	/**
+	 * Return the index for the Resource that contains the given object.
+	 *
+	 * @param object a BPMN2 model object
+	 * @return the index, or null if the object is not contained in a Resource
+	 */
+	public static ModelIndex getIndex(EObject object) {
+		Resource resource = object.eResource();
+		if (resource==null)
+			return null;
+		return getIndex(resource);
+	}
+
+	@Override
+	protected boolean resolve() {
+		return false;
+	}
+
+	@Override
+	protected void setTarget(EObject target) {
+		super.setTarget(target);
+		synchronized (this) {
+			EClass eClass = target.eClass();
+			Set<EObject> set = instances.get(eClass);
+			if (set==null) {
+				set = new LinkedHashSet<EObject>();
+				instances.put(eClass, set);
+			}
+			set.add(target);
+			if (target instanceof BaseElement)
+				addId(((BaseElement) target).getId(), (BaseElement) target);
+		}
+	}
+
+	@Override
+	protected void unsetTarget(EObject target) {
+		super.unsetTarget(target);
+		synchronized (this) {
+			Set<EObject> set = instances.get(target.eClass());
+			if (set!=null)
+				set.remove(target);
+			if (target instanceof BaseElement)
+				removeId(((BaseElement) target).getId(), (BaseElement) target);
+		}
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+		if (notification.getFeature()==Bpmn2Package.eINSTANCE.getBaseElement_Id() &&
+				notification.getNotifier() instanceof BaseElement) {
+			BaseElement be = (BaseElement) notification.getNotifier();
+			synchronized (this) {
+				removeId(notification.getOldStringValue(), be);
+				addId(notification.getNewStringValue(), be);
+			}
+		}
+	}
+
+	/**
+	 * Return all objects of the given EClass, not including its subclasses.
+	 *
+	 * @param eClass the EClass
+	 * @return a new list of objects
+	 */
+	public synchronized List<EObject> getInstances(EClass eClass) {
+		Set<EObject> set = instances.get(eClass);
+		if (set==null)
+			return new ArrayList<EObject>();
+		return new ArrayList<EObject>(set);
+	}
+
+	/**
+	 * Return all objects that are instances of the given Java type, in
+	 * document order, like a walk over the Resource contents would.
+	 *
+	 * @param type a model interface, e.g. {@code Lane.class}
+	 * @return a new list of objects
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getAll(Class<T> type) {
+		List<EObject> result = new ArrayList<EObject>();
+		synchronized (this) {
+			for (Map.Entry<EClass, Set<EObject>> e : instances.entrySet()) {
+				Class<?> instanceClass = e.getKey().getInstanceClass();
+				if (instanceClass!=null && type.isAssignableFrom(instanceClass))
+					result.addAll(e.getValue());
+			}
+		}
+		if (result.size()>1)
+			Collections.sort(result, new DocumentOrderComparator());
+		return (List<T>) result;
+	}
+
+	/**
+	 * Return the first BaseElement that has the given ID.
+	 *
+	 * @param id the ID
+	 * @return the BaseElement, or null if there is none
+	 */
+	public synchronized BaseElement findElement(String id) {
+		Set<BaseElement> set = ids.get(id);
+		if (set==null || set.isEmpty())
+			return null;
+		return set.iterator().next();
+	}
+
+	/**
+	 * Return all BaseElements that have the given ID.
+	 *
+	 * @param id the ID
+	 * @return a new list of BaseElements, empty if there are none
+	 */
+	public synchronized List<BaseElement> findElements(String id) {
+		Set<BaseElement> set = ids.get(id);
+		if (set==null)
+			return new ArrayList<BaseElement>();
+		return new ArrayList<BaseElement>(set);
+	}
+
+	/**
+	 * Return the objects that reference the given object through any of the
+	 * given references.
+	 *
+	 * @param object the referenced object
+	 * @param references the references to follow backwards
+	 * @return a new list of referencing objects, without duplicates
+	 */
+	public List<EObject> getReferencingObjects(EObject object, EReference... references) {
+		List<EObject> result = new ArrayList<EObject>();
+		for (EStructuralFeature.Setting s : getNonNavigableInverseReferences(object, false)) {
+			EStructuralFeature f = s.getEStructuralFeature();
+			for (EReference r : references) {
+				if (f==r) {
+					if (!result.contains(s.getEObject()))
+						result.add(s.getEObject());
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Orders objects by their position in the containment tree. The positions
+	 * are computed only for the objects being sorted, so the cost depends on
+	 * the size of the result, not of the model.
+	 */
+	private static class DocumentOrderComparator implements Comparator<EObject> {
+
+		private final Map<EObject, int[]> paths = new HashMap<EObject, int[]>();
+
+		public int compare(EObject o1, EObject o2) {
+			int[] p1 = getPath(o1);
+			int[] p2 = getPath(o2);
+			int n = Math.min(p1.length, p2.length);
+			for (int i=0; i<n; ++i) {
+				if (p1[i]!=p2[i])
+					return p1[i] < p2[i] ? -1 : 1;
+			}
+			return p1.length - p2.length;
+		}
+
+		private int[] getPath(EObject object) {
+			int[] path = paths.get(object);
+			if (path==null) {
+				EObject container = object.eContainer();
+				int[] parent;
+				int position;
+				if (container==null) {
+					parent = new int[0];
+					Resource resource = object.eResource();
+					position = resource==null ? 0 : resource.getContents().indexOf(object);
+				}
+				else {
+					parent = getPath(container);
+					position = container.eContents().indexOf(object);
+				}
+				path = new int[parent.length + 1];
+				System.arraycopy(parent, 0, path, 0, parent.length);
+				path[parent.length] = position;
+				paths.put(object, path);
+			}
+			return path;
+		}
+	}
+
+	private void addId(String id, BaseElement be) {
+		if (id==null)
+			return;
+		Set<BaseElement> set = ids.get(id);
+		if (set==null) {
+			set = new LinkedHashSet<BaseElement>(2);
+			ids.put(id, set);
+		}
+		set.add(be);
+	}
+
+	private void removeId(String id, BaseElement be) {
+		if (id==null)
+			return;
+		Set<BaseElement> set = ids.get(id);
+		if (set!=null) {
+			set.remove(be);
+			if (set.isEmpty())
+				ids.remove(id);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * Prepares a BPMN2 Resource for saving in a single traversal of its contents.
+ * <p>
+ * Each of the things that need to be done before a Resource is serialized
+ * (assigning missing IDs, computing the origin of the diagrams, Live
+ * validation, and whatever extension plugins need to do) is a {@link Stage}
+ * of the pipeline. Every object in the Resource is passed to all stages, in
+ * the order in which the stages were added, before moving on to the next
+ * object. The time spent in each stage is measured, see {@link #getTimings()}.
+ * <p>
+ * Extension plugins can contribute their own stages with
+ * {@link #addStageProvider(StageProvider)}.
+ * <p>
+ * The stage timings are written to the trace when the
+ * {@link Activator#TRACE_PRESAVE} debug option is enabled.
+ */
+public class PreSavePipeline {
+
+	private static final List<StageProvider> stageProviders = new ArrayList<StageProvider>();
+
+	/**
+	 * A step in the pre-save processing of a Resource.
+	 */
+	public static abstract class Stage {
+
+		/**
+		 * @return a short name for this stage, used in the timing report
+		 */
+		public abstract String getName();
+
+		/**
+		 * Called once before the traversal starts.
+		 *
+		 * @param resource the Resource that is about to be saved
+		 */
+		public void begin(Resource resource) {
+		}
+
+		/**
+		 * Called for every object in the Resource, in tree order.
+		 *
+		 * @param object the current object
+		 */
+		public abstract void visit(EObject object);
+
+		/**
+		 * Called once after all objects have been visited.
+		 *
+		 * @param resource the Resource that is about to be saved
+		 */
+		public void end(Resource resource) {
+		}
+	}
+
+	/**
+	 * Creates the pipeline stages contributed by an extension plugin.
+	 */
+	public interface StageProvider {
+
+		/**
+		 * Create a new stage for the given Resource.
+		 *
+		 * @param resource the Resource that is about to be saved
+		 * @return a stage, or null if this provider has nothing to do for the
+		 *         given Resource
+		 */
+		public Stage createStage(Resource resource);
+	}
+
+	private final List<Stage> stages = new ArrayList<Stage>();
+	private long times[];
+	private int objectCount;
+
+	/**
+	 * Register a provider for additional pipeline stages. The stages are
+	 * added after the stages of the BPMN2 Modeler core.
+	 *
+	 * @param provider the stage provider
+	 */
+	public static void addStageProvider(StageProvider provider) {
+		synchronized (stageProviders) {
+			if (!stageProviders.contains(provider))
+				stageProviders.add(provider);
+		}
+	}
+
+	/**
+	 * Unregister a provider added with {@link #addStageProvider(StageProvider)}.
+	 *
+	 * @param provider the stage provider
+	 */
+	public static void removeStageProvider(StageProvider provider) {
+		synchronized (stageProviders) {
+			stageProviders.remove(provider);
+		}
+	}
+
+	/**
+	 * Add a stage to this pipeline.
+	 *
+	 * @param stage the stage
+	 * @return this pipeline
+	 */
+	public PreSavePipeline addStage(Stage stage) {
+		stages.add(stage);
+		return this;
+	}
+
+	/**
+	 * Return the first stage of the given type.
+	 *
+	 * @param type the stage class
+	 * @return the stage, or null if this pipeline has no stage of that type
+	 */
+	public <T extends Stage> T getStage(Class<T> type) {
+		for (Stage s : stages) {
+			if (type.isInstance(s))
+				return type.cast(s);
+		}
+		return null;
+	}
+
+	/**
+	 * Run all stages of this pipeline, and the stages of all registered
+	 * stage providers, over the contents of the given Resource.
+	 *
+	 * @param resource the Resource that is about to be saved
+	 */
+	public void run(Resource resource) {
+		synchronized (stageProviders) {
+			for (StageProvider p : stageProviders) {
+				Stage s = p.createStage(resource);
+				if (s!=null)
+					stages.add(s);
+			}
+		}
+
+		int size = stages.size();
+		Stage array[] = stages.toArray(new Stage[size]);
+		times = new long[size];
+		objectCount = 0;
+
+		for (int i=0; i<size; ++i) {
+			long start = System.nanoTime();
+			array[i].begin(resource);
+			times[i] += System.nanoTime() - start;
+		}
+
+		for (Iterator<EObject> iter = resource.getAllContents(); iter.hasNext();) {
+			EObject object = iter.next();
+			++objectCount;
+			for (int i=0; i<size; ++i) {
+				long start = System.nanoTime();
+				array[i].visit(object);
+				times[i] += System.nanoTime() - start;
+			}
+		}
+
+		for (int i=0; i<size; ++i) {
+			long start = System.nanoTime();
+			array[i].end(resource);
+			times[i] += System.nanoTime() - start;
+		}
+
+		if (Activator.isTracing(Activator.TRACE_PRESAVE))
+			Activator.trace(getReport(resource));
+	}
+
+	/**
+	 * Return the time spent in each stage during the last run.
+	 *
+	 * @return a map of stage names to times in milliseconds, in the order in
+	 *         which the stages were run
+	 */
+	public Map<String, Long> getTimings() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		if (times!=null) {
+			for (int i=0; i<times.length; ++i) {
+				String name = stages.get(i).getName();
+				Long t = result.get(name);
+				result.put(name, (t==null ? 0 : t) + times[i] / 1000000);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of objects visited during the last run
+	 */
+	public int getObjectCount() {
+		return objectCount;
+	}
+
+	private String getReport(Resource resource) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Pre-save "+resource.getURI()+": "+objectCount+" objects"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (Map.Entry<String, Long> e : getTimings().entrySet()) {
+			sb.append(", "+e.getKey()+"="+e.getValue()+"ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return sb.toString();
+	}
+}
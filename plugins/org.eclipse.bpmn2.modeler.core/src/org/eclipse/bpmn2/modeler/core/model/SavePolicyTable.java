@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.bpmn2.Assignment;
+import org.eclipse.bpmn2.Bpmn2Package;
+import org.eclipse.bpmn2.DataAssociation;
+import org.eclipse.bpmn2.Documentation;
+import org.eclipse.bpmn2.Expression;
+import org.eclipse.bpmn2.ExtensionAttributeValue;
+import org.eclipse.bpmn2.FormalExpression;
+import org.eclipse.bpmn2.Lane;
+import org.eclipse.bpmn2.Participant;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.di.BpmnDiPackage;
+import org.eclipse.bpmn2.modeler.core.adapters.IExtensionValueAdapter;
+import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.dd.dc.DcPackage;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.FeatureMap;
+
+/**
+ * Decides which features of an object are serialized by the
+ * {@link Bpmn2ModelerResourceImpl.Bpmn2ModelerXMLSave}.
+ * <p>
+ * The rules that apply to a feature depend mostly on the object's EClass and
+ * on the feature itself, and only some of them depend on the feature's value.
+ * For every (EClass, feature) pair the applicable rules are compiled once into
+ * a short chain of {@link SavePolicy} objects; rules that do not depend on the
+ * value (e.g. "always save Bounds", "never save FormalExpression.body") end
+ * the chain. Subsequent lookups for the same pair only evaluate that chain.
+ * <p>
+ * Target Runtimes can contribute their own rules for the EClasses they define
+ * with {@link #addPolicy(EClass, EStructuralFeature, SavePolicy)} and
+ * {@link #addElementPolicy(EClass, SavePolicy)}, instead of attaching an
+ * {@link IExtensionValueAdapter} to every object.
+ */
+public class SavePolicyTable {
+
+	/**
+	 * The result of a {@link SavePolicy}.
+	 */
+	public enum Decision {
+		/** The feature (or element) must be saved. */
+		SAVE,
+		/** The feature (or element) must not be saved. */
+		SKIP,
+		/** This policy does not decide, ask the next one. */
+		CONTINUE
+	}
+
+	/**
+	 * A rule that decides whether a feature of an object, or an object that
+	 * is an Extension Value, is saved.
+	 */
+	public interface SavePolicy {
+
+		/**
+		 * @param object the object being saved
+		 * @param feature the feature being saved, or null if the object
+		 *            itself is an Extension Value that is being saved
+		 * @return the decision
+		 */
+		public Decision shouldSave(EObject object, EStructuralFeature feature);
+	}
+
+	private static final SavePolicy ALWAYS = new SavePolicy() {
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			return Decision.SAVE;
+		}
+	};
+
+	private static final SavePolicy NEVER = new SavePolicy() {
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			return Decision.SKIP;
+		}
+	};
+
+	private static final SavePolicy[] NO_POLICIES = new SavePolicy[0];
+
+	// isExpanded is always saved for expandable elements
+	private static final SavePolicy IS_EXPANDED = new SavePolicy() {
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			if (FeatureSupport.isExpandableElement(((BPMNShape)object).getBpmnElement()))
+				return Decision.SAVE;
+			return Decision.CONTINUE;
+		}
+	};
+
+	// isHorizontal is always saved for Lanes and Pools
+	private static final SavePolicy IS_HORIZONTAL = new SavePolicy() {
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			EObject be = ((BPMNShape)object).getBpmnElement();
+			if (be instanceof Lane || be instanceof Participant)
+				return Decision.SAVE;
+			return Decision.CONTINUE;
+		}
+	};
+
+	// empty Expressions should not be saved
+	private static final SavePolicy EMPTY_EXPRESSION = new SavePolicy() {
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			Expression expression = (Expression)object.eGet(feature);
+			if (expression==null)
+				return Decision.SKIP;
+			if (expression instanceof FormalExpression) {
+				if (ModelUtil.getExpressionBody((FormalExpression)expression)==null)
+					return Decision.SKIP;
+			}
+			return Decision.CONTINUE;
+		}
+	};
+
+	// Documentation without text should not be saved
+	private static final SavePolicy EMPTY_DOCUMENTATION = new SavePolicy() {
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			if (isEmpty((Documentation)object))
+				return Decision.SKIP;
+			return Decision.CONTINUE;
+		}
+	};
+
+	private static final SavePolicy EMPTY_DOCUMENTATION_LIST = new SavePolicy() {
+		@SuppressWarnings("unchecked")
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			for (Documentation doc : (EList<Documentation>)object.eGet(feature)) {
+				if (!isEmpty(doc))
+					return Decision.CONTINUE;
+			}
+			return Decision.SKIP;
+		}
+	};
+
+	// don't save Assignments if they are invalid: Assignments must have
+	// both a "from" and "to" expression and they may not be empty strings.
+	private static final SavePolicy INVALID_ASSIGNMENTS = new SavePolicy() {
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			for (Assignment a : ((DataAssociation)object).getAssignment()) {
+				if (isEmpty(a.getFrom()) || isEmpty(a.getTo()))
+					return Decision.SKIP;
+			}
+			return Decision.CONTINUE;
+		}
+	};
+
+	// the extensionValues element is only saved if it is not (or should not be) empty
+	private static final SavePolicy EXTENSION_VALUES = new SavePolicy() {
+		@SuppressWarnings("unchecked")
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			for (ExtensionAttributeValue ev : (EList<ExtensionAttributeValue>)object.eGet(feature)) {
+				Iterator<FeatureMap.Entry> mi = ev.getValue().iterator();
+				while (mi.hasNext()) {
+					Object v = mi.next().getValue();
+					if (!(v instanceof EObject) || shouldSaveElement((EObject)v))
+						return Decision.SAVE;
+				}
+			}
+			return Decision.SKIP;
+		}
+	};
+
+	private static class Contribution {
+		EClass eClass;
+		EStructuralFeature feature;
+		SavePolicy policy;
+	}
+
+	private static final List<Contribution> contributions = new ArrayList<Contribution>();
+	private static final List<Contribution> elementContributions = new ArrayList<Contribution>();
+	// the compiled policy chains
+	private static final Map<EClass, Map<EStructuralFeature, SavePolicy[]>> featurePolicies =
+			new ConcurrentHashMap<EClass, Map<EStructuralFeature, SavePolicy[]>>();
+	private static final Map<EClass, SavePolicy[]> elementPolicies = new ConcurrentHashMap<EClass, SavePolicy[]>();
+
+	private SavePolicyTable() {
+	}
+
+	/**
+	 * Add a rule for a feature of the given EClass and its subclasses. The
+	 * rule is evaluated after the rules of the BPMN2 Modeler core.
+	 *
+	 * @param eClass the EClass of the objects this rule applies to
+	 * @param feature the feature this rule applies to, or null if the rule
+	 *            applies to all features
+	 * @param policy the rule
+	 */
+	public static void addPolicy(EClass eClass, EStructuralFeature feature, SavePolicy policy) {
+		add(contributions, eClass, feature, policy);
+	}
+
+	/**
+	 * Add a rule that decides whether an Extension Value object of the given
+	 * EClass (or one of its subclasses) is saved. The rule is called with a
+	 * null feature.
+	 *
+	 * @param eClass the EClass of the Extension Value objects this rule
+	 *            applies to
+	 * @param policy the rule
+	 */
+	public static void addElementPolicy(EClass eClass, SavePolicy policy) {
+		add(elementContributions, eClass, null, policy);
+	}
+
+	/**
+	 * Remove a rule added with {@link #addPolicy(EClass, EStructuralFeature, SavePolicy)}
+	 * or {@link #addElementPolicy(EClass, SavePolicy)}.
+	 *
+	 * @param policy the rule
+	 */
+	public static void removePolicy(SavePolicy policy) {
+		synchronized (contributions) {
+			remove(contributions, policy);
+			remove(elementContributions, policy);
+			featurePolicies.clear();
+			elementPolicies.clear();
+		}
+	}
+
+	/**
+	 * Decide whether the given feature of an object should be saved.
+	 *
+	 * @param object the object being saved
+	 * @param feature the feature being saved
+	 * @return {@link Decision#CONTINUE} if the default serialization rules
+	 *         should decide
+	 */
+	public static Decision shouldSave(EObject object, EStructuralFeature feature) {
+		for (SavePolicy p : getPolicies(object.eClass(), feature)) {
+			Decision d = p.shouldSave(object, feature);
+			if (d!=Decision.CONTINUE)
+				return d;
+		}
+		return Decision.CONTINUE;
+	}
+
+	/**
+	 * Decide whether the given Extension Value object should be saved.
+	 * Contributed element policies are asked first, then the object's
+	 * {@link IExtensionValueAdapter}s.
+	 *
+	 * @param object an Extension Value object
+	 * @return true if the object should be saved
+	 */
+	public static boolean shouldSaveElement(EObject object) {
+		for (SavePolicy p : getElementPolicies(object.eClass())) {
+			Decision d = p.shouldSave(object, null);
+			if (d!=Decision.CONTINUE)
+				return d==Decision.SAVE;
+		}
+		boolean save = true;
+		for (Adapter a : object.eAdapters()) {
+			if (a instanceof IExtensionValueAdapter) {
+				if (((IExtensionValueAdapter)a).shouldSaveElement(object))
+					return true;
+				save = false;
+			}
+		}
+		return save;
+	}
+
+	private static void add(List<Contribution> list, EClass eClass, EStructuralFeature feature, SavePolicy policy) {
+		Contribution c = new Contribution();
+		c.eClass = eClass;
+		c.feature = feature;
+		c.policy = policy;
+		synchronized (contributions) {
+			list.add(c);
+			featurePolicies.clear();
+			elementPolicies.clear();
+		}
+	}
+
+	private static void remove(List<Contribution> list, SavePolicy policy) {
+		Iterator<Contribution> iter = list.iterator();
+		while (iter.hasNext()) {
+			if (iter.next().policy==policy)
+				iter.remove();
+		}
+	}
+
+	private static SavePolicy[] getPolicies(EClass eClass, EStructuralFeature feature) {
+		Map<EStructuralFeature, SavePolicy[]> map = featurePolicies.get(eClass);
+		if (map==null) {
+			map = new ConcurrentHashMap<EStructuralFeature, SavePolicy[]>();
+			featurePolicies.put(eClass, map);
+		}
+		SavePolicy[] policies = map.get(feature);
+		if (policies==null) {
+			policies = compile(eClass, feature);
+			map.put(feature, policies);
+		}
+		return policies;
+	}
+
+	private static SavePolicy[] getElementPolicies(EClass eClass) {
+		SavePolicy[] policies = elementPolicies.get(eClass);
+		if (policies==null) {
+			List<SavePolicy> list = new ArrayList<SavePolicy>();
+			synchronized (contributions) {
+				for (Contribution c : elementContributions) {
+					if (c.eClass.isSuperTypeOf(eClass))
+						list.add(c.policy);
+				}
+			}
+			policies = list.isEmpty() ? NO_POLICIES : list.toArray(new SavePolicy[list.size()]);
+			elementPolicies.put(eClass, policies);
+		}
+		return policies;
+	}
+
+	/**
+	 * Build the chain of rules for a feature of the given EClass. The order of
+	 * the rules is significant: the first one that decides wins.
+	 */
+	private static SavePolicy[] compile(EClass eClass, EStructuralFeature feature) {
+		Bpmn2Package b = Bpmn2Package.eINSTANCE;
+		BpmnDiPackage di = BpmnDiPackage.eINSTANCE;
+		List<SavePolicy> list = new ArrayList<SavePolicy>();
+
+		if (di.getBPMNShape().isSuperTypeOf(eClass)) {
+			if (feature==di.getBPMNShape_IsExpanded())
+				list.add(IS_EXPANDED);
+			if (feature==di.getBPMNShape_IsHorizontal())
+				list.add(IS_HORIZONTAL);
+		}
+
+		// we also want to store x and y with value zero, would be skipped because of default value otherwise
+		if (DcPackage.eINSTANCE.getBounds().isSuperTypeOf(eClass) || DcPackage.eINSTANCE.getPoint().isSuperTypeOf(eClass))
+			return toArray(list, ALWAYS);
+
+		if ((b.getProcess().isSuperTypeOf(eClass) && feature==b.getProcess_IsExecutable()) ||
+				(b.getItemDefinition().isSuperTypeOf(eClass) && feature==b.getItemDefinition_IsCollection()) ||
+				(b.getCompensateEventDefinition().isSuperTypeOf(eClass) && feature==b.getCompensateEventDefinition_WaitForCompletion()))
+			return toArray(list, ALWAYS);
+
+		if (feature.getEType()==b.getExpression() || feature.getEType()==b.getFormalExpression())
+			list.add(EMPTY_EXPRESSION);
+
+		if (b.getDocumentation().isSuperTypeOf(eClass))
+			list.add(EMPTY_DOCUMENTATION);
+
+		if (feature.getEType()==b.getDocumentation())
+			list.add(EMPTY_DOCUMENTATION_LIST);
+
+		// don't serialize the "body" attribute of FormalExpressions because the expression text
+		// is already in the CDATA section of the <bpmn2:expression> element. This would cause
+		// the expression text to be duplicated on deserialization.
+		// Same goes for Documentation.text
+		if (feature==b.getFormalExpression_Body() || feature==b.getDocumentation_Text())
+			return toArray(list, NEVER);
+
+		if (b.getDataAssociation().isSuperTypeOf(eClass) && "assignment".equals(feature.getName())) //$NON-NLS-1$
+			list.add(INVALID_ASSIGNMENTS);
+
+		if (feature==b.getBaseElement_ExtensionValues())
+			return toArray(list, EXTENSION_VALUES);
+
+		synchronized (contributions) {
+			for (Contribution c : contributions) {
+				if (c.eClass.isSuperTypeOf(eClass) && (c.feature==null || c.feature==feature))
+					list.add(c.policy);
+			}
+		}
+		return toArray(list, null);
+	}
+
+	private static SavePolicy[] toArray(List<SavePolicy> list, SavePolicy last) {
+		if (last!=null)
+			list.add(last);
+		if (list.isEmpty())
+			return NO_POLICIES;
+		return list.toArray(new SavePolicy[list.size()]);
+	}
+
+	private static boolean isEmpty(Documentation doc) {
+		return doc.getText()==null || doc.getText().isEmpty();
+	}
+
+	private static boolean isEmpty(Expression expression) {
+		if (expression instanceof FormalExpression) {
+			String body = ModelUtil.getExpressionBody((FormalExpression)expression);
+			return body==null || body.isEmpty();
+		}
+		return false;
+	}
+}
@@ -111,6 +111,12 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	public final static String PREF_IS_MARKER_VISIBLE_LABEL = Messages.Bpmn2Preferences_Marker_Visible;
 	public final static String PREF_SAVE_BPMNLABELS = "save.bpmnlabels"; //$NON-NLS-1$
 	public final static String PREF_SAVE_BPMNLABELS_LABEL = Messages.Bpmn2Preferences_Save_BPMNLabels;
+	public final static String PREF_ROUTE_CONNECTIONS_IN_BACKGROUND = "route.connections.in.background"; //$NON-NLS-1$
+	public final static String PREF_ROUTE_CONNECTIONS_IN_BACKGROUND_LABEL = Messages.Bpmn2Preferences_Route_Connections_In_Background;
+	public final static String PREF_SAVE_IN_BACKGROUND = "save.in.background"; //$NON-NLS-1$
+	public final static String PREF_SAVE_IN_BACKGROUND_LABEL = Messages.Bpmn2Preferences_Save_In_Background;
+	public final static String PREF_IMPORT_DIAGRAMS_ON_DEMAND = "import.diagrams.on.demand"; //$NON-NLS-1$
+	public final static String PREF_IMPORT_DIAGRAMS_ON_DEMAND_LABEL = Messages.Bpmn2Preferences_Import_Diagrams_On_Demand;
 	
 	public final static String PREF_SHAPE_STYLE = "shape.style"; //$NON-NLS-1$
 
@@ -196,6 +202,9 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	private BPMNDIAttributeDefault isMessageVisible;
 	private BPMNDIAttributeDefault isMarkerVisible;
 	private boolean saveBPMNLabels;
+	private boolean routeConnectionsInBackground;
+	private boolean saveInBackground;
+	private boolean importDiagramsOnDemand;
 	private int connectionTimeout;
 	private int popupConfigDialog;
 	private boolean popupConfigDialogFor[] = new boolean[6];
@@ -289,12 +298,13 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	}
 	
 	/**
-	 * Return the Preferences for the given project.
+	 * Return the Preferences for the given project. This may be called from
+	 * any thread, e.g. by the workers of the ValidationScheduler.
 	 * 
 	 * @param project
 	 * @return project preferences
 	 */
-	public static Bpmn2Preferences getInstance(IProject project) {
+	public static synchronized Bpmn2Preferences getInstance(IProject project) {
 		Bpmn2Preferences pref = null;
 		if (project==null) {
 			if (instancePreferenceCache==null) {
@@ -364,6 +374,9 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 			defaultPreferences.put(PREF_IS_MESSAGE_VISIBLE, BPMNDIAttributeDefault.ALWAYS_TRUE.name());
 			defaultPreferences.put(PREF_IS_MARKER_VISIBLE, BPMNDIAttributeDefault.DEFAULT_TRUE.name());
 			defaultPreferences.putBoolean(PREF_SAVE_BPMNLABELS, true);
+			defaultPreferences.putBoolean(PREF_ROUTE_CONNECTIONS_IN_BACKGROUND, false);
+			defaultPreferences.putBoolean(PREF_SAVE_IN_BACKGROUND, false);
+			defaultPreferences.putBoolean(PREF_IMPORT_DIAGRAMS_ON_DEMAND, false);
 
 			defaultPreferences.putInt(PREF_POPUP_CONFIG_DIALOG, 0); // tri-state checkbox
 			defaultPreferences.putBoolean(PREF_POPUP_CONFIG_DIALOG_FOR_ACTIVITIES, false);
@@ -529,6 +542,9 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 			isMessageVisible = getBPMNDIAttributeDefault(PREF_IS_MESSAGE_VISIBLE, BPMNDIAttributeDefault.USE_DI_VALUE);
 			isMarkerVisible = getBPMNDIAttributeDefault(PREF_IS_MARKER_VISIBLE, BPMNDIAttributeDefault.USE_DI_VALUE);
 			saveBPMNLabels = getBoolean(PREF_SAVE_BPMNLABELS, true);
+			routeConnectionsInBackground = getBoolean(PREF_ROUTE_CONNECTIONS_IN_BACKGROUND, false);
+			saveInBackground = getBoolean(PREF_SAVE_IN_BACKGROUND, false);
+			importDiagramsOnDemand = getBoolean(PREF_IMPORT_DIAGRAMS_ON_DEMAND, false);
 			connectionTimeout = getInt(PREF_CONNECTION_TIMEOUT, 60000); //$NON-NLS-1$
 			resolveExternals = getInt(PREF_RESOLVE_EXTERNALS, 2); //$NON-NLS-1$
 			textLimit = getInt(PREF_TEXT_LIMIT, 255); //$NON-NLS-1$
@@ -569,6 +585,9 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 				setBPMNDIAttributeDefault(PREF_IS_MESSAGE_VISIBLE, isMessageVisible);
 				setBPMNDIAttributeDefault(PREF_IS_MARKER_VISIBLE, isMarkerVisible);
 				putBoolean(PREF_SAVE_BPMNLABELS, saveBPMNLabels);
+				putBoolean(PREF_ROUTE_CONNECTIONS_IN_BACKGROUND, routeConnectionsInBackground);
+				putBoolean(PREF_SAVE_IN_BACKGROUND, saveInBackground);
+				putBoolean(PREF_IMPORT_DIAGRAMS_ON_DEMAND, importDiagramsOnDemand);
 				
 				putInt(PREF_CONNECTION_TIMEOUT, connectionTimeout);
 				putInt(PREF_RESOLVE_EXTERNALS, resolveExternals);
@@ -1296,6 +1315,33 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 		putBoolean(PREF_SAVE_BPMNLABELS,enable);
 		saveBPMNLabels = enable;
 	}
+	
+	public boolean getRouteConnectionsInBackground() {
+		return routeConnectionsInBackground;
+	}
+	
+	public void setRouteConnectionsInBackground(boolean enable) {
+		putBoolean(PREF_ROUTE_CONNECTIONS_IN_BACKGROUND,enable);
+		routeConnectionsInBackground = enable;
+	}
+	
+	public boolean getSaveInBackground() {
+		return saveInBackground;
+	}
+	
+	public void setSaveInBackground(boolean enable) {
+		putBoolean(PREF_SAVE_IN_BACKGROUND,enable);
+		saveInBackground = enable;
+	}
+	
+	public boolean getImportDiagramsOnDemand() {
+		return importDiagramsOnDemand;
+	}
+	
+	public void setImportDiagramsOnDemand(boolean enable) {
+		putBoolean(PREF_IMPORT_DIAGRAMS_ON_DEMAND,enable);
+		importDiagramsOnDemand = enable;
+	}
 
 	public int getConnectionTimeout() {
 		return connectionTimeout;
@@ -36,6 +36,9 @@ public class Messages extends NLS {
 	public static String Bpmn2Preferences_Marker_Visible;
 	public static String Bpmn2Preferences_Message_Visible;
 	public static String Bpmn2Preferences_Save_BPMNLabels;
+	public static String Bpmn2Preferences_Route_Connections_In_Background;
+	public static String Bpmn2Preferences_Save_In_Background;
+	public static String Bpmn2Preferences_Import_Diagrams_On_Demand;
 	public static String Bpmn2Preferences_No_Runtime_Plugin_Message;
 	public static String Bpmn2Preferences_None;
 	public static String Bpmn2Preferences_Show_Advanced_Properties;
@@ -66,6 +69,7 @@ public class Messages extends NLS {
 	public static String ShapeStyle_RoutingStyle_Manual;
 	public static String ShapeStyle_RoutingStyle_Automatic;
 	public static String ShapeStyle_RoutingStyle_Manhattan;
+	public static String ShapeStyle_RoutingStyle_Orthogonal;
 
 	public static String ShapeStyle_LabelPosition_North;
 	public static String ShapeStyle_LabelPosition_South;
@@ -135,7 +135,8 @@ public class ShapeStyle extends BaseRuntimeExtensionDescriptor {
 	public static enum RoutingStyle {
 		MANUAL(Messages.ShapeStyle_RoutingStyle_Manual),
 		AUTOMATIC(Messages.ShapeStyle_RoutingStyle_Automatic),
-		MANHATTAN(Messages.ShapeStyle_RoutingStyle_Manhattan);
+		MANHATTAN(Messages.ShapeStyle_RoutingStyle_Manhattan),
+		ORTHOGONAL(Messages.ShapeStyle_RoutingStyle_Orthogonal);
 		
 		private String string;
 		private RoutingStyle(String string) {
@@ -72,6 +72,7 @@ public abstract class BaseRuntimeExtensionDescriptor implements IRuntimeExtensio
 	public void dispose() {
 		Collection<IRuntimeExtensionDescriptor> list = targetRuntime.getRuntimeExtensionDescriptors(getExtensionName());
 		list.remove(this);
+		targetRuntime.invalidateLookupTables();
 	}
 
 	public BaseRuntimeExtensionDescriptor(TargetRuntime rt) {
@@ -103,6 +104,7 @@ public abstract class BaseRuntimeExtensionDescriptor implements IRuntimeExtensio
 		this.targetRuntime = targetRuntime;
 		Collection<IRuntimeExtensionDescriptor> list = targetRuntime.getRuntimeExtensionDescriptors(getExtensionName());
 		list.add(this);
+		targetRuntime.invalidateLookupTables();
 	}
 	
 	public EPackage getEPackage() {
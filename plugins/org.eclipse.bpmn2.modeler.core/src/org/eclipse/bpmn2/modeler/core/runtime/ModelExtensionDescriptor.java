@@ -719,6 +719,8 @@ public class ModelExtensionDescriptor extends BaseRuntimeExtensionDescriptor {
 
 	public void setType(String type) {
 		this.type = type;
+		if (targetRuntime!=null)
+			targetRuntime.invalidateLookupTables();
 	}
 
 	public void setDescription(String description) {
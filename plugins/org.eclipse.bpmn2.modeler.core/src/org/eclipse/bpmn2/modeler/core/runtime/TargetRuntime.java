@@ -20,9 +20,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.modeler.core.IBpmn2RuntimeExtension;
@@ -105,8 +107,52 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 						);
 				}
 			}
-			return super.add(customTaskDescriptor);
+			// invalidate after the change, so that a concurrent lookup can not
+			// rebuild the tables from the old contents
+			boolean result = super.add(customTaskDescriptor);
+			invalidateLookupTables();
+			return result;
 		}
+
+		@Override
+		public boolean remove(Object o) {
+			boolean result = super.remove(o);
+			invalidateLookupTables();
+			return result;
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c) {
+			boolean result = super.removeAll(c);
+			invalidateLookupTables();
+			return result;
+		}
+
+		@Override
+		public void clear() {
+			super.clear();
+			invalidateLookupTables();
+		}
+	}
+
+	/**
+	 * Lookup tables for the descriptor queries that are made for every model
+	 * object, e.g. while rendering Property Sheets or building the Tool Palette.
+	 * Each table maps a key (a custom task ID, a Java class or an EClass) to
+	 * the result of the corresponding linear search over the descriptor lists,
+	 * so the tables always give the same answers as the searches. A result is
+	 * computed once and the tables are discarded whenever a descriptor is added
+	 * to or removed from this Target Runtime, e.g. when a .bpmn2config file is
+	 * loaded or reloaded.
+	 */
+	private static class LookupTables {
+		// marks a key for which the search found nothing
+		static final Object NONE = new Object();
+		volatile Map<String, CustomTaskDescriptor> customTasks;
+		final Map<Class, Object> propertyExtensions = new ConcurrentHashMap<Class, Object>();
+		final Map<EClass, Object> featureContainers = new ConcurrentHashMap<EClass, Object>();
+		final Map<EClass, Object> modelExtensions = new ConcurrentHashMap<EClass, Object>();
+		final Map<EClass, Object> modelExtensionsNoSuperTypes = new ConcurrentHashMap<EClass, Object>();
 	}
 
 	// extension point ID for Target Runtimes
@@ -140,6 +186,9 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	protected List<TypeLanguageDescriptor> typeLanguageDescriptors;
 	protected List<ExpressionLanguageDescriptor> expressionLanguageDescriptors;
 	protected List<ServiceImplementationDescriptor> serviceImplementationDescriptors;
+	
+	// descriptor lookup tables, built on demand
+	private volatile LookupTables lookupTables;
 
 	// all of the extension descriptor classes in the order in which they need to be processed
 	static Class extensionDescriptorClasses[] = {
@@ -592,28 +641,32 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	 * Custom Task convenience methods
 	 */
 	public CustomTaskDescriptor getCustomTask( String id ) {
-		Iterator<CustomTaskDescriptor> ctIter = customTaskDescriptors.iterator();
-		while (ctIter.hasNext()) {
-			CustomTaskDescriptor ctd = ctIter.next();
-			if (ctd.getId().equalsIgnoreCase(id)) 
-				return ctd;
+		if (id==null)
+			return null;
+		LookupTables tables = getLookupTables();
+		Map<String, CustomTaskDescriptor> customTasks = tables.customTasks;
+		if (customTasks==null) {
+			// Custom Task IDs are compared ignoring case: if two IDs differ only
+			// in case, the first one in the set wins
+			customTasks = new ConcurrentHashMap<String, CustomTaskDescriptor>();
+			for (CustomTaskDescriptor ctd : getCustomTaskDescriptors()) {
+				String key = ctd.getId().toLowerCase(Locale.ENGLISH);
+				if (!customTasks.containsKey(key))
+					customTasks.put(key, ctd);
+			}
+			tables.customTasks = customTasks;
 		}
-		return null;
+		return customTasks.get(id.toLowerCase(Locale.ENGLISH));
 	}
 
 	public boolean customTaskExists ( String id ) {
-		Iterator<CustomTaskDescriptor> ctIter = customTaskDescriptors.iterator();
-		while (ctIter.hasNext()) {
-			CustomTaskDescriptor ctd = ctIter.next();
-			if (ctd.getId().equalsIgnoreCase(id)) 
-				return true;
-		}
-		return false;
+		return getCustomTask(id)!=null;
 	}
 	
 	public void addCustomTask(CustomTaskDescriptor ct) {
 		getCustomTaskDescriptors().add(ct);
 		ct.targetRuntime = this;
+		invalidateLookupTables();
 	}
 	
 	// FIXME: {@see ICustomElementFeatureContainer#getId(EObject)}
@@ -631,6 +684,7 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	 */
 	public void addModelExtension(ModelExtensionDescriptor me) {
 		getModelExtensionDescriptors().add(me);
+		invalidateLookupTables();
 	}
 	
 	/*
@@ -638,9 +692,20 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	 */
 	public void addPropertyExtension(PropertyExtensionDescriptor me) {
 		getPropertyExtensionDescriptors().add(me);
+		invalidateLookupTables();
 	}
 
 	public PropertyExtensionDescriptor getPropertyExtension(Class clazz) {
+		Map<Class, Object> table = getLookupTables().propertyExtensions;
+		Object result = table.get(clazz);
+		if (result==null) {
+			result = findPropertyExtension(clazz);
+			table.put(clazz, result==null ? LookupTables.NONE : result);
+		}
+		return result==LookupTables.NONE ? null : (PropertyExtensionDescriptor) result;
+	}
+
+	private PropertyExtensionDescriptor findPropertyExtension(Class clazz) {
 		for (PropertyExtensionDescriptor ped : getPropertyExtensionDescriptors()) {
 			String className = clazz.getName();
 			if (className.equals(ped.type))
@@ -662,9 +727,20 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	 */
 	public void addFeatureContainer(FeatureContainerDescriptor me) {
 		getFeatureContainerDescriptors().add(me);
+		invalidateLookupTables();
 	}
 
 	public FeatureContainerDescriptor getFeatureContainer(EClass clazz) {
+		Map<EClass, Object> table = getLookupTables().featureContainers;
+		Object result = table.get(clazz);
+		if (result==null) {
+			result = findFeatureContainer(clazz);
+			table.put(clazz, result==null ? LookupTables.NONE : result);
+		}
+		return result==LookupTables.NONE ? null : (FeatureContainerDescriptor) result;
+	}
+
+	private FeatureContainerDescriptor findFeatureContainer(EClass clazz) {
 		for (FeatureContainerDescriptor fcd : getFeatureContainerDescriptors()) {
 			String className = clazz.getInstanceClassName();
 			if (className.equals(fcd.type))
@@ -896,12 +972,18 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 
 		unloadExtensions(file);
 		
-		for (IConfigurationElement e : elements) {
-			if (!EXTENSION_NAME.equals(e.getName())) {
-				TargetRuntime currentRuntime = getRuntime(e, targetRuntime);
-				createRuntimeExtensionDescriptor(currentRuntime, e, file);
+		try {
+			for (IConfigurationElement e : elements) {
+				if (!EXTENSION_NAME.equals(e.getName())) {
+					TargetRuntime currentRuntime = getRuntime(e, targetRuntime);
+					createRuntimeExtensionDescriptor(currentRuntime, e, file);
+				}
 			}
 		}
+		finally {
+			for (TargetRuntime rt : targetRuntimes)
+				rt.invalidateLookupTables();
+		}
 	}
 
 	public static void unloadExtensions(IFile file) {
@@ -921,10 +1003,32 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 			for (IRuntimeExtensionDescriptor d : disposed) {
 				d.dispose();
 			}
+			for (TargetRuntime rt : targetRuntimes)
+				rt.invalidateLookupTables();
 		}
 
 	}
 
+	/**
+	 * Discard the descriptor lookup tables of this Target Runtime. This must
+	 * be called whenever descriptors are added or removed other than through
+	 * {@link IRuntimeExtensionDescriptor#setRuntime(TargetRuntime)},
+	 * {@link IRuntimeExtensionDescriptor#dispose()} or the convenience methods
+	 * of this class, or when the type of a descriptor is changed.
+	 */
+	public void invalidateLookupTables() {
+		lookupTables = null;
+	}
+
+	private LookupTables getLookupTables() {
+		LookupTables tables = lookupTables;
+		if (tables==null) {
+			tables = new LookupTables();
+			lookupTables = tables;
+		}
+		return tables;
+	}
+
 	public static IRuntimeExtensionDescriptor createRuntimeExtensionDescriptor(TargetRuntime rt, IConfigurationElement e, IFile file) throws TargetRuntimeConfigurationException {
 		IRuntimeExtensionDescriptor d = null;
 		try {
@@ -1014,7 +1118,17 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 
 	public ModelExtensionDescriptor getModelExtensionDescriptor(EObject object, boolean checkSuperTypes) {
 		EClass eClass = (EClass) ((object instanceof EClass) ? object : object.eClass());
-		
+		LookupTables tables = getLookupTables();
+		Map<EClass, Object> table = checkSuperTypes ? tables.modelExtensions : tables.modelExtensionsNoSuperTypes;
+		Object result = table.get(eClass);
+		if (result==null) {
+			result = findModelExtensionDescriptor(eClass, checkSuperTypes);
+			table.put(eClass, result==null ? LookupTables.NONE : result);
+		}
+		return result==LookupTables.NONE ? null : (ModelExtensionDescriptor) result;
+	}
+
+	private ModelExtensionDescriptor findModelExtensionDescriptor(EClass eClass, boolean checkSuperTypes) {
 		for (ModelExtensionDescriptor md : getModelExtensionDescriptors()) {
 			String type = eClass.getName();
 			if (md.getType().equals(type))
@@ -30,7 +30,6 @@ import org.eclipse.bpmn2.CategoryValue;
 import org.eclipse.bpmn2.Choreography;
 import org.eclipse.bpmn2.ChoreographyActivity;
 import org.eclipse.bpmn2.Collaboration;
-import org.eclipse.bpmn2.CorrelationPropertyRetrievalExpression;
 import org.eclipse.bpmn2.Definitions;
 import org.eclipse.bpmn2.EndEvent;
 import org.eclipse.bpmn2.Event;
@@ -45,11 +44,8 @@ import org.eclipse.bpmn2.Lane;
 import org.eclipse.bpmn2.Message;
 import org.eclipse.bpmn2.MessageEventDefinition;
 import org.eclipse.bpmn2.MessageFlow;
-import org.eclipse.bpmn2.Operation;
 import org.eclipse.bpmn2.Participant;
 import org.eclipse.bpmn2.Process;
-import org.eclipse.bpmn2.ReceiveTask;
-import org.eclipse.bpmn2.SendTask;
 import org.eclipse.bpmn2.SequenceFlow;
 import org.eclipse.bpmn2.StartEvent;
 import org.eclipse.bpmn2.SubChoreography;
@@ -61,12 +57,15 @@ import org.eclipse.bpmn2.di.BPMNShape;
 import org.eclipse.bpmn2.di.ParticipantBandKind;
 import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesAdapter;
 import org.eclipse.bpmn2.modeler.core.di.DIUtils;
+import org.eclipse.bpmn2.modeler.core.di.PictogramElementIndex;
 import org.eclipse.bpmn2.modeler.core.features.AbstractConnectionRouter;
+import org.eclipse.bpmn2.modeler.core.features.ConnectionRoutingScheduler;
 import org.eclipse.bpmn2.modeler.core.features.GraphitiConstants;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.choreography.ChoreographyUtil;
 import org.eclipse.bpmn2.modeler.core.features.label.UpdateLabelFeature;
 import org.eclipse.bpmn2.modeler.core.model.ModelHandler;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
 import org.eclipse.bpmn2.modeler.core.preferences.ShapeStyle;
 import org.eclipse.bpmn2.modeler.core.preferences.ShapeStyle.LabelPosition;
@@ -651,50 +650,28 @@ public class FeatureSupport {
 
 	public static List<EObject> findMessageReferences(Diagram diagram, Message message) {
 		List<EObject> result = new ArrayList<EObject>();
-		Definitions definitions = ModelUtil.getDefinitions(message);
-		TreeIterator<EObject> iter = definitions.eAllContents();
-		while (iter.hasNext()) {
-			EObject o = iter.next();
-			if (o instanceof MessageFlow) {
-				if (((MessageFlow)o).getMessageRef() == message) {
-					result.add(o);
-				}
-			}
-			if (o instanceof MessageEventDefinition) {
-				if (((MessageEventDefinition)o).getMessageRef() == message) {
-					result.add(o);
-				}
-			}
-			if (o instanceof Operation) {
-				if (((Operation)o).getInMessageRef() == message ||
-						((Operation)o).getOutMessageRef() == message) {
-					result.add(o);
-				}
-			}
-			if (o instanceof ReceiveTask) {
-				if (((ReceiveTask)o).getMessageRef() == message) {
-					result.add(o);
-				}
-			}
-			if (o instanceof SendTask) {
-				if (((SendTask)o).getMessageRef() == message) {
-					result.add(o);
-				}
-			}
-			if (o instanceof CorrelationPropertyRetrievalExpression) {
-				if (((CorrelationPropertyRetrievalExpression)o).getMessageRef() == message) {
-					result.add(o);
-				}
-			}
+		ModelIndex index = ModelIndex.getIndex(message);
+		if (index!=null) {
+			Bpmn2Package p = Bpmn2Package.eINSTANCE;
+			result.addAll(index.getReferencingObjects(message,
+					p.getMessageFlow_MessageRef(),
+					p.getMessageEventDefinition_MessageRef(),
+					p.getOperation_InMessageRef(),
+					p.getOperation_OutMessageRef(),
+					p.getReceiveTask_MessageRef(),
+					p.getSendTask_MessageRef(),
+					p.getCorrelationPropertyRetrievalExpression_MessageRef()));
 		}
 
 		if (diagram!=null) {
-			iter = diagram.eResource().getAllContents();
-			while (iter.hasNext()) {
-				EObject o = iter.next();
-				if (o instanceof ContainerShape && !isLabelShape((ContainerShape)o)) {
-					if (BusinessObjectUtil.getFirstBaseElement((ContainerShape)o) == message)
-						result.add(o);
+			for (EObject o : diagram.eResource().getContents()) {
+				if (o instanceof Diagram) {
+					for (PictogramElement pe : PictogramElementIndex.getPictogramElements((Diagram)o, message)) {
+						if (pe instanceof ContainerShape && !isLabelShape((ContainerShape)pe)) {
+							if (BusinessObjectUtil.getFirstBaseElement(pe) == message)
+								result.add(pe);
+						}
+					}
 				}
 			}
 		}
@@ -857,10 +834,26 @@ public class FeatureSupport {
 			}
 		}
 		for (Connection c : connections) {
-			updateConnection(fp,c,force);
+			scheduleConnectionUpdate(fp,c,force);
 		}
 	}
 
+	/**
+	 * Route the given Connection when the current transaction commits,
+	 * together with all other Connections that need to be routed. If the
+	 * Connection can not be scheduled, it is routed immediately.
+	 * 
+	 * @param fp the Feature Provider
+	 * @param connection the Connection to route
+	 * @param force if true, the Connection's bendpoints are discarded before
+	 *            it is routed
+	 * @see ConnectionRoutingScheduler
+	 */
+	public static void scheduleConnectionUpdate(IFeatureProvider fp, Connection connection, boolean force) {
+		if (!ConnectionRoutingScheduler.schedule(fp, connection, force))
+			updateConnection(fp, connection, force);
+	}
+
 	public static boolean updateConnection(IFeatureProvider fp, Connection connection, boolean force) {
 		AbstractConnectionRouter.setForceRouting(connection, force);
 		if (force) {
@@ -879,7 +872,7 @@ public class FeatureSupport {
 				Connection c = a.getIncomingConnections().get(ci);
 				if (c instanceof FreeFormConnection) {
 					if (!alreadyUpdated.contains(c)) {
-						updateConnection(fp, c, true);
+						scheduleConnectionUpdate(fp, c, true);
 						alreadyUpdated.add(c);
 					}
 				}
@@ -892,7 +885,7 @@ public class FeatureSupport {
 				Connection c = a.getOutgoingConnections().get(ci);
 				if (c instanceof FreeFormConnection) {
 					if (!alreadyUpdated.contains(c)) {
-						updateConnection(fp, c, true);
+						scheduleConnectionUpdate(fp, c, true);
 						alreadyUpdated.add(c);
 					}
 				}
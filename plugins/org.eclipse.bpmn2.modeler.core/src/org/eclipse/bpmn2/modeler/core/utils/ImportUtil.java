@@ -27,17 +27,16 @@ import org.eclipse.bpmn2.Interface;
 import org.eclipse.bpmn2.ItemDefinition;
 import org.eclipse.bpmn2.ItemKind;
 import org.eclipse.bpmn2.Process;
+import org.eclipse.bpmn2.modeler.core.builder.ExternalReferenceIndex;
+import org.eclipse.bpmn2.modeler.core.builder.ExternalReferenceIndex.SymbolKind;
 import org.eclipse.bpmn2.modeler.core.Activator;
 import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerFactory;
 import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceSetImpl;
 import org.eclipse.bpmn2.util.Bpmn2Resource;
-import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
@@ -392,6 +391,10 @@ public class ImportUtil {
 	 * the type of object being referenced. Currently only CallableElements,
 	 * XSDElementDeclarations and WSDL PortTypes are supported as referenced
 	 * objects.
+	 * <p>
+	 * The files that define the referenced object are looked up in the
+	 * Project's {@link ExternalReferenceIndex}, so only those files need to be
+	 * loaded.
 	 * 
 	 * @param object the referencing object
 	 * @param feature the feature of the referencing object that identifies the
@@ -399,99 +402,84 @@ public class ImportUtil {
 	 * @param id the ID string of the referenced object
 	 */
 	public EObject resolveExternalReference(EObject object, EStructuralFeature feature, String id) {
-		Resource resource = object.eResource();
-		Bpmn2ModelerResourceSetImpl rs = new Bpmn2ModelerResourceSetImpl();
-		IWorkspace workspace = ResourcesPlugin.getWorkspace();
-		IFile file = workspace.getRoot().getFile(new Path(resource.getURI().toPlatformString(true)));
-		IContainer container = file.getProject();
-		List<IFile> files = new ArrayList<IFile>();
+		SymbolKind kind = null;
+		String importKind = null;
 		if (object instanceof CallActivity) {
 			if (feature == Bpmn2Package.eINSTANCE.getCallActivity_CalledElementRef()) {
 				// search other BPMN2 files in this project for a CallableElement
-				findAllFiles(container, new String[] {"bpmn","bpmn2"}, files); //$NON-NLS-1$ //$NON-NLS-2$
-				for (IFile f : files) {
-					if (f==file)
-						continue;
-					Object root = loadImport(rs, f, IMPORT_KIND_BPMN2);
-					if (root instanceof Definitions) {
-						TreeIterator<EObject> iter = ((Definitions)root).eAllContents();
-						while (iter.hasNext()) {
-							EObject o = iter.next();
-							if (o instanceof CallableElement) {
-								if (id.equals( ((CallableElement)o).getId() )) {
-									return o;
-								}
-							}
-						}
-					}
-				}
+				kind = SymbolKind.CALLABLE_ELEMENT;
+				importKind = IMPORT_KIND_BPMN2;
 			}
 		}
 		else if (object instanceof ItemDefinition) {
 			if (feature == Bpmn2Package.eINSTANCE.getItemDefinition_StructureRef()) {
-				findAllFiles(container, new String[] {"xml","xsd"}, files); //$NON-NLS-1$ //$NON-NLS-2$
-				for (IFile f : files) {
-					if (f==file)
-						continue;
-					Object root = loadImport(rs, f, IMPORT_KIND_XML_SCHEMA);
-					if (root instanceof XSDSchema) {
-						TreeIterator<EObject> iter = ((XSDSchema)root).eAllContents();
-						while (iter.hasNext()) {
-							EObject o = iter.next();
-							if (o instanceof XSDElementDeclaration) {
-								String name = getLocalnameForObject(o);
-								if ( id.equals(name) )
-									return o;
-							}
-						}
-					}
-				}
+				kind = SymbolKind.XSD_ELEMENT;
+				importKind = IMPORT_KIND_XML_SCHEMA;
 			}			
 		}
 		else if (object instanceof Interface) {
 			if (feature == Bpmn2Package.eINSTANCE.getInterface_ImplementationRef()) {
 				// Look for a WSDL PortType or a Java type
-				findAllFiles(container, new String[] {"wsdl"}, files); //$NON-NLS-1$
-				for (IFile f : files) {
-					if (f==file)
-						continue;
-					Object root = loadImport(rs, f, IMPORT_KIND_WSDL);
-					if (root instanceof org.eclipse.wst.wsdl.Definition) {
-						TreeIterator<EObject> iter = ((Definition)root).eAllContents();
-						while (iter.hasNext()) {
-							EObject o = iter.next();
-							if (o instanceof PortType) {
-								String name = getLocalnameForObject(o);
-								if ( id.equals(name) )
-									return o;
-							}
-						}
-					}
-				}
+				kind = SymbolKind.WSDL_PORT_TYPE;
+				importKind = IMPORT_KIND_WSDL;
 			}
 		}
+		if (kind==null || id==null)
+			return null;
+
+		Resource resource = object.eResource();
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		IFile file = workspace.getRoot().getFile(new Path(resource.getURI().toPlatformString(true)));
+		IProject project = file.getProject();
+		Bpmn2ModelerResourceSetImpl rs = null;
+		for (IFile f : ExternalReferenceIndex.getIndex(project).findFiles(kind, id)) {
+			if (f.equals(file))
+				continue;
+			if (rs==null)
+				rs = new Bpmn2ModelerResourceSetImpl();
+			Object root = loadImport(rs, f, importKind);
+			EObject o = findExternalReference(root, kind, id);
+			if (o!=null)
+				return o;
+		}
 		return null;
 	}
-	
-	private void findAllFiles(IContainer container, String[] extensions, List<IFile> files) {
-		try {
-			for (IResource res : container.members()) {
-				if (res instanceof IFile) {
-					String ext = ((IFile)res).getFileExtension();
-					for (String s : extensions) {
-						if (s.equals(ext)) {
-							files.add((IFile)res);
-						}
+
+	private EObject findExternalReference(Object root, SymbolKind kind, String id) {
+		if (kind==SymbolKind.CALLABLE_ELEMENT && root instanceof Definitions) {
+			TreeIterator<EObject> iter = ((Definitions)root).eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof CallableElement) {
+					if (id.equals( ((CallableElement)o).getId() )) {
+						return o;
 					}
 				}
-				else if (res instanceof IContainer) {
-					findAllFiles((IContainer)res, extensions, files);
+			}
+		}
+		else if (kind==SymbolKind.XSD_ELEMENT && root instanceof XSDSchema) {
+			TreeIterator<EObject> iter = ((XSDSchema)root).eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof XSDElementDeclaration) {
+					String name = getLocalnameForObject(o);
+					if ( id.equals(name) )
+						return o;
+				}
+			}
+		}
+		else if (kind==SymbolKind.WSDL_PORT_TYPE && root instanceof Definition) {
+			TreeIterator<EObject> iter = ((Definition)root).eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof PortType) {
+					String name = getLocalnameForObject(o);
+					if ( id.equals(name) )
+						return o;
 				}
 			}
-		} catch (CoreException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
 		}
+		return null;
 	}
 
 	/**
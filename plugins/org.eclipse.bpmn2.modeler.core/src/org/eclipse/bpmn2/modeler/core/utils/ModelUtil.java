@@ -54,7 +54,6 @@ import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceSetImpl;
 import org.eclipse.bpmn2.modeler.core.model.ModelDecorator;
 import org.eclipse.bpmn2.modeler.core.validation.SyntaxCheckerUtils;
 import org.eclipse.bpmn2.provider.Bpmn2EditPlugin;
-import org.eclipse.core.runtime.Assert;
 import org.eclipse.emf.common.notify.Adapter;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EClass;
@@ -87,15 +86,11 @@ import org.eclipse.xsd.XSDElementDeclaration;
 
 public class ModelUtil {
 
-	// TODO: need to determine whether IDs need to be unique within a Resource or ResourceSet - see getKey()
-	
-	// Map of EMF resource sets to ID mapping tables. The ID mapping tables map a BPMN2 element ID string to the EObject.
-	// The EObject is not used anywhere (yet!) just a placeholder to allow use of a HashMap for fast lookups of the ID string.
-	// The ID strings are composed from the BPMN2 element description name and a sequence number (starting at 1).
-	// When a new ID is requested, generateID() simply increments the sequence number until an ID is found that isn't
-	// already in the table.
-	public static HashMap<Object, Hashtable<String, EObject>> ids = new  HashMap<Object, Hashtable<String, EObject>>();
-	// Map of ID strings and sequential counters for each BPMN2 element description.
+	// The IDs in use by each EMF Resource are tracked by a ResourceIdRegistry, which is attached to the
+	// Resource as an adapter. The ID strings are composed from the BPMN2 element description name and a
+	// sequence number (starting at 1); the registry keeps track of the next free sequence number for each name.
+	// Map of ID strings and sequential counters for each BPMN2 element description. This is only used
+	// for objects that are not (yet) contained in a Resource.
 	public static HashMap<String, Integer> defaultIds = new HashMap<String, Integer>();
 
 	public enum Bpmn2DiagramType {
@@ -127,13 +122,15 @@ public class ModelUtil {
 	}
 
 	/**
-	 * Clear the IDs hashmap for the given EMF Resource. This should be called
-	 * when the editor is disposed to avoid unnecessary growth of the IDs table.
+	 * Remove the ID registry from the given EMF Resource. The registry goes away
+	 * with its Resource anyway; this only releases it early.
 	 * 
 	 * @param res - the EMF Resource that was used to generate the ID strings.
+	 * @param all - if true, also reset the counters used for objects that are
+	 *            not contained in a Resource.
 	 */
 	public static void clearIDs(Resource res, boolean all) {
-		ids.remove( getKey(res) );
+		ResourceIdRegistry.removeRegistry(res);
 		if (all) {
 			defaultIds.clear();
 		}
@@ -159,28 +156,13 @@ public class ModelUtil {
 		return name;
 	}
 	
-	private static Object getKey(EObject obj) {
+	private static ResourceIdRegistry getRegistry(EObject obj) {
 		Resource resource = ExtendedPropertiesAdapter.getResource(obj);
 		if (resource==null) {
 //			System.out.println("The object type "+obj.getClass().getName()+" is not contained in a Resource");
 			return null;
 		}
-		Assert.isTrue(obj!=null);
-		return getKey(resource);
-	}
-	
-	private static Object getKey(Resource res) {
-		Assert.isTrue(res!=null);
-		// we may have more than one Bpmn2Resource in our ResourceSet asking for IDs
-		String key = null;
-		if (res.getResourceSet()!=null) {
-			key = Integer.toString(res.getResourceSet().hashCode());
-			key += "-" + res.getResourceSet().getResources().indexOf(res); //$NON-NLS-1$
-		}
-		else {
-			key = Integer.toString(res.hashCode());
-		}
-		return key;
+		return ResourceIdRegistry.getRegistry(resource);
 	}
 	
 	/**
@@ -205,8 +187,10 @@ public class ModelUtil {
 
 	/**
 	 * Generate an ID string for a given BPMN2 object that will (eventually!) be added to the given Resource.
+	 * The ID is registered in the Resource's {@link ResourceIdRegistry}; it is composed of the object's
+	 * description name and the next free sequence number for that name.
 	 * 
-	 * CAUTION: IDs for objects that have already been deleted WILL be reused.
+	 * IDs of objects that have been deleted are not reused.
 	 * 
 	 * @param obj - the BPMN2 object
 	 * @param res - the Resource to which the object will be added
@@ -216,30 +200,25 @@ public class ModelUtil {
 		return generateID(obj, res, null);
 	}
 
+	/**
+	 * Generate an ID string for a given BPMN2 object that will (eventually!) be added to the given Resource.
+	 * If a name is given, the name itself is used as the ID if it is not yet registered in the Resource's
+	 * {@link ResourceIdRegistry}; otherwise the next free sequence number is appended to it. If neither the
+	 * Resource nor the object's Resource is known, an ID prefixed with an underscore is generated instead.
+	 * 
+	 * @param obj - the BPMN2 object
+	 * @param res - the Resource to which the object will be added, or null to use the object's Resource
+	 * @param name - the preferred ID, or null to use the object's description name as ID prefix
+	 * @return the ID string
+	 */
 	public static String generateID(EObject obj, Resource res, String name) {
 		if (res==null)
 			res = ExtendedPropertiesAdapter.getResource(obj);
-		Object key = (res==null ? getKey(obj) : getKey(res));
-		if (key!=null) {
-			Hashtable<String, EObject> tab = ids.get(key);
-			if (tab==null) {
-				tab = new Hashtable<String, EObject>();
-				ids.put(key, tab);
-			}
-			
-			String id = name;
-			if (name==null) {
-				name = getObjectName(obj);
-				id = name + "_" + 1; //$NON-NLS-1$
-			}
-			
-			for (int i=1;; ++i) {
-				if (tab.get(id)==null) {
-					tab.put(id, obj);
-					return id;
-				}
-				id = name + "_" + i; //$NON-NLS-1$
-			}
+		ResourceIdRegistry registry = (res==null ? getRegistry(obj) : ResourceIdRegistry.getRegistry(res));
+		if (registry!=null) {
+			if (name==null)
+				return registry.generateID(obj, getObjectName(obj), false);
+			return registry.generateID(obj, name, true);
 		}
 		return generateDefaultID(obj, name);
 	}
@@ -249,21 +228,18 @@ public class ModelUtil {
 		if (feature!=null) {
 			Object value = obj.eGet(feature);
 			if (value instanceof String) {
-				String id = (String)value;
-				Object key = getKey(resource);
-				if (key!=null) {
-					Hashtable<String, EObject> tab = ids.get(key);
-					if (tab!=null) {
-						tab.remove(id);
-					}
+				ResourceIdRegistry registry = ResourceIdRegistry.getExistingRegistry(resource);
+				if (registry!=null) {
+					registry.unregister(obj, (String)value);
 				}
 			}
 		}
 	}
 	
 	/**
-	 * Add an ID string to the ID mapping table(s). This must be used during model import
-	 * to add existing BPMN2 element IDs to the table so we don't generate duplicates.
+	 * Register the ID string of the given object in its Resource's ID registry. This must be used during
+	 * model import to add existing BPMN2 element IDs to the registry so we don't generate duplicates.
+	 * If the object has no ID, a new one is generated and set.
 	 * 
 	 * @param obj - the BPMN2 object
 	 */
@@ -285,16 +261,18 @@ public class ModelUtil {
 	}
 	
 	/**
-	 * Add an ID string to the ID mapping table(s). This must be used during model import
-	 * to add existing BPMN2 element IDs to the table so we don't generate duplicates.
+	 * Register an ID string for the given object in its Resource's ID registry. This must be used during
+	 * model import to add existing BPMN2 element IDs to the registry so we don't generate duplicates.
+	 * IDs of objects that are not contained in a Resource only advance the counters used by
+	 * {@link #generateDefaultID(EObject, String)}.
 	 * 
 	 * @param obj - the BPMN2 object
 	 * @param id - the object's ID string
 	 */
 	public static void addID(EObject obj, String id) {
-		Object key = getKey(obj);
+		ResourceIdRegistry registry = getRegistry(obj);
 		String name = getObjectName(obj);
-		if (key==null || id.startsWith("_" + name + "_")) { //$NON-NLS-1$ //$NON-NLS-2$
+		if (registry==null || id.startsWith("_" + name + "_")) { //$NON-NLS-1$ //$NON-NLS-2$
 			int newValue = 0;
 			try {
 				int i = id.lastIndexOf('_') + 1;
@@ -307,12 +285,7 @@ public class ModelUtil {
 				defaultIds.put(name, Integer.valueOf(newValue));
 		}
 		else {	
-			Hashtable<String, EObject> tab = ids.get(key);
-			if (tab==null) {
-				tab = new Hashtable<String, EObject>();
-				ids.put(key, tab);
-			}
-			tab.put(id, obj);
+			registry.register(obj, id);
 		}
 	}
 
@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+/**
+ * A registry of the ID strings in use by the objects of a single EMF Resource.
+ * <p>
+ * The registry is attached to the Resource as an adapter, so its lifetime is
+ * bound to that of the Resource; there is no global table that needs to be
+ * cleaned up when an editor is closed. Registered objects are only weakly
+ * referenced, and objects are unregistered automatically when they are removed
+ * from the Resource, or when their ID changes.
+ * <p>
+ * For each ID prefix (the part of an ID string up to the last underscore) the
+ * registry tracks the next free sequence number, so generating a new ID does
+ * not need to probe through all of the IDs already in use.
+ */
+public class ResourceIdRegistry extends EContentAdapter {
+
+	// guards the creation of registries, so that a Resource never gets two
+	private static final Object REGISTRY_LOCK = new Object();
+
+	private final Resource resource;
+	// Map of ID strings to the objects that own them
+	private final Map<String, WeakReference<EObject>> ids = new HashMap<String, WeakReference<EObject>>();
+	// Map of ID prefixes to the next free sequence number for that prefix
+	private final Map<String, Integer> nextSuffix = new HashMap<String, Integer>();
+
+	// statistics
+	private long generated;
+	private long collisions;
+	private long lookups;
+	private long hits;
+
+	private ResourceIdRegistry(Resource resource) {
+		this.resource = resource;
+	}
+
+	/**
+	 * Return the ID registry for the given Resource, creating one if necessary.
+	 *
+	 * @param resource the EMF Resource
+	 * @return the registry, or null if the Resource is null
+	 */
+	public static ResourceIdRegistry getRegistry(Resource resource) {
+		if (resource==null)
+			return null;
+		synchronized (REGISTRY_LOCK) {
+			ResourceIdRegistry registry = getExistingRegistry(resource);
+			if (registry==null) {
+				registry = new ResourceIdRegistry(resource);
+				resource.eAdapters().add(registry);
+			}
+			return registry;
+		}
+	}
+
+	/**
+	 * Return the ID registry for the given Resource if one has already been
+	 * created.
+	 *
+	 * @param resource the EMF Resource
+	 * @return the registry, or null if there is none
+	 */
+	public static ResourceIdRegistry getExistingRegistry(Resource resource) {
+		if (resource!=null) {
+			for (Adapter a : resource.eAdapters()) {
+				if (a instanceof ResourceIdRegistry)
+					return (ResourceIdRegistry) a;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remove the ID registry from the given Resource and discard all of its
+	 * ID mappings.
+	 *
+	 * @param resource the EMF Resource
+	 */
+	public static void removeRegistry(Resource resource) {
+		ResourceIdRegistry registry = getExistingRegistry(resource);
+		if (registry!=null) {
+			resource.eAdapters().remove(registry);
+			registry.clear();
+		}
+	}
+
+	/**
+	 * Generate an ID that is not yet in use in this Resource and register it for
+	 * the given object.
+	 * <p>
+	 * If an explicit ID is requested, the ID itself is tried first; otherwise,
+	 * and if that ID is already taken, a sequence number is appended to the
+	 * prefix, starting with the next free number for that prefix.
+	 *
+	 * @param obj the object that will own the ID
+	 * @param prefix the ID prefix, usually the object's type name
+	 * @param explicit if true, try to use the prefix itself as the ID
+	 * @return the new ID string
+	 */
+	public synchronized String generateID(EObject obj, String prefix, boolean explicit) {
+		++generated;
+		if (explicit && !isRegistered(prefix)) {
+			put(prefix, obj);
+			return prefix;
+		}
+		Integer value = nextSuffix.get(prefix);
+		int i = value==null ? 1 : value.intValue();
+		String id = prefix + "_" + i; //$NON-NLS-1$
+		while (isRegistered(id)) {
+			++collisions;
+			id = prefix + "_" + (++i); //$NON-NLS-1$
+		}
+		nextSuffix.put(prefix, Integer.valueOf(i + 1));
+		put(id, obj);
+		return id;
+	}
+
+	/**
+	 * Register an existing ID string for the given object. This must be used
+	 * during model import so that we don't generate duplicates.
+	 *
+	 * @param obj the object that owns the ID
+	 * @param id the ID string
+	 */
+	public synchronized void register(EObject obj, String id) {
+		if (id==null)
+			return;
+		EObject existing = get(id);
+		if (existing==null || existing==obj || existing.eResource()!=resource)
+			put(id, obj);
+		// make sure we don't generate this sequence number again
+		int i = id.lastIndexOf('_');
+		if (i>0 && i<id.length()-1) {
+			try {
+				int n = Integer.parseInt(id.substring(i+1));
+				String prefix = id.substring(0,i);
+				Integer value = nextSuffix.get(prefix);
+				if (value==null || n >= value.intValue())
+					nextSuffix.put(prefix, Integer.valueOf(n + 1));
+			}
+			catch (NumberFormatException e) {
+			}
+		}
+	}
+
+	/**
+	 * Remove the given ID from the registry if it is owned by the given object.
+	 *
+	 * @param obj the object that owns the ID
+	 * @param id the ID string
+	 */
+	public synchronized void unregister(EObject obj, String id) {
+		if (id!=null) {
+			WeakReference<EObject> ref = ids.get(id);
+			if (ref!=null) {
+				EObject o = ref.get();
+				if (o==null || o==obj)
+					ids.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Check if the given ID is in use by some object.
+	 *
+	 * @param id the ID string
+	 * @return true if the ID is in use
+	 */
+	public synchronized boolean isRegistered(String id) {
+		++lookups;
+		if (get(id)!=null) {
+			++hits;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the object that owns the given ID.
+	 *
+	 * @param id the ID string
+	 * @return the owning object, or null if the ID is not in use
+	 */
+	public synchronized EObject getObject(String id) {
+		return get(id);
+	}
+
+	/**
+	 * Discard all ID mappings and sequence numbers.
+	 */
+	public synchronized void clear() {
+		ids.clear();
+		nextSuffix.clear();
+	}
+
+	/**
+	 * @return the number of registered IDs, after discarding any entries whose
+	 *         owning objects have been garbage collected.
+	 */
+	public synchronized int size() {
+		Iterator<WeakReference<EObject>> iter = ids.values().iterator();
+		while (iter.hasNext()) {
+			if (iter.next().get()==null)
+				iter.remove();
+		}
+		return ids.size();
+	}
+
+	/**
+	 * @return the number of IDs generated by this registry.
+	 */
+	public synchronized long getGeneratedCount() {
+		return generated;
+	}
+
+	/**
+	 * @return the number of times an ID candidate was already in use during ID
+	 *         generation.
+	 */
+	public synchronized long getCollisionCount() {
+		return collisions;
+	}
+
+	/**
+	 * @return the number of ID lookups performed.
+	 */
+	public synchronized long getLookupCount() {
+		return lookups;
+	}
+
+	/**
+	 * @return the number of ID lookups that found an existing ID.
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceIdRegistry[" + resource.getURI() + "] size=" + size() + //$NON-NLS-1$ //$NON-NLS-2$
+				" generated=" + getGeneratedCount() + //$NON-NLS-1$
+				" collisions=" + getCollisionCount() + //$NON-NLS-1$
+				" lookups=" + getLookupCount() + //$NON-NLS-1$
+				" hits=" + getHitCount(); //$NON-NLS-1$
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == ResourceIdRegistry.class;
+	}
+
+	@Override
+	protected boolean resolve() {
+		// don't force loading of cross-resource contained objects
+		return false;
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+
+		Object notifier = notification.getNotifier();
+		Object feature = notification.getFeature();
+		if (notifier instanceof EObject && feature instanceof EAttribute) {
+			if ("id".equals(((EAttribute)feature).getName())) { //$NON-NLS-1$
+				EObject obj = (EObject) notifier;
+				if (obj.eClass().getEStructuralFeature("id")==feature) { //$NON-NLS-1$
+					Object oldValue = notification.getOldValue();
+					Object newValue = notification.getNewValue();
+					if (oldValue instanceof String)
+						unregister(obj, (String)oldValue);
+					if (newValue instanceof String)
+						register(obj, (String)newValue);
+				}
+			}
+		}
+		else if (notifier==resource ||
+				(feature instanceof EReference && ((EReference)feature).isContainment())) {
+			switch (notification.getEventType()) {
+			case Notification.ADD:
+			case Notification.SET:
+				if (notification.getOldValue() instanceof EObject)
+					unregisterAll((EObject)notification.getOldValue());
+				if (notification.getNewValue() instanceof EObject)
+					registerAll((EObject)notification.getNewValue());
+				break;
+			case Notification.ADD_MANY:
+				for (Object o : (Collection<?>)notification.getNewValue()) {
+					if (o instanceof EObject)
+						registerAll((EObject)o);
+				}
+				break;
+			case Notification.UNSET:
+			case Notification.REMOVE:
+				if (notification.getOldValue() instanceof EObject)
+					unregisterAll((EObject)notification.getOldValue());
+				break;
+			case Notification.REMOVE_MANY:
+				for (Object o : (Collection<?>)notification.getOldValue()) {
+					if (o instanceof EObject)
+						unregisterAll((EObject)o);
+				}
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void setTarget(Notifier target) {
+		super.setTarget(target);
+		if (target==resource) {
+			// register all of the objects that are already in the Resource
+			for (EObject o : resource.getContents())
+				registerAll(o);
+		}
+	}
+
+	private void registerAll(EObject root) {
+		for (EObject o : allContents(root)) {
+			register(o, ModelUtil.getID(o));
+		}
+	}
+
+	private void unregisterAll(EObject root) {
+		for (EObject o : allContents(root)) {
+			unregister(o, ModelUtil.getID(o));
+		}
+	}
+
+	private List<EObject> allContents(EObject root) {
+		List<EObject> list = new ArrayList<EObject>();
+		list.add(root);
+		Iterator<EObject> iter = root.eAllContents();
+		while (iter.hasNext())
+			list.add(iter.next());
+		return list;
+	}
+
+	private EObject get(String id) {
+		WeakReference<EObject> ref = ids.get(id);
+		if (ref!=null) {
+			EObject o = ref.get();
+			if (o==null)
+				ids.remove(id);
+			return o;
+		}
+		return null;
+	}
+
+	private void put(String id, EObject obj) {
+		ids.put(id, new WeakReference<EObject>(obj));
+	}
+}
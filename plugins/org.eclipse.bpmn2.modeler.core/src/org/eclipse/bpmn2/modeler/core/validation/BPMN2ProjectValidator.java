@@ -11,9 +11,12 @@
 package org.eclipse.bpmn2.modeler.core.validation;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.eclipse.bpmn2.Definitions;
 import org.eclipse.bpmn2.modeler.core.Activator;
 import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesAdapter;
 import org.eclipse.bpmn2.modeler.core.builder.BPMN2Nature;
@@ -68,12 +71,32 @@ import org.eclipse.wst.validation.ValidatorMessage;
 
 public class BPMN2ProjectValidator extends AbstractValidator {
 
+	/**
+	 * The ResourceSet and the EMF batch validator used to load and validate
+	 * files on one thread. Each thread that validates files, e.g. a worker of
+	 * the {@link ValidationScheduler}, gets its own, so that no model objects
+	 * are shared between threads; the ResourceSet is emptied after every file.
+	 */
+	private static class ValidationWorker {
+		final Bpmn2ModelerResourceSetImpl resourceSet = new Bpmn2ModelerResourceSetImpl();
+		final IBatchValidator validator = ModelValidationService.getInstance().newValidator(EvaluationMode.BATCH);
+	}
+
+	private static final ThreadLocal<ValidationWorker> workers = new ThreadLocal<ValidationWorker>() {
+		@Override
+		protected ValidationWorker initialValue() {
+			return new ValidationWorker();
+		}
+	};
+
     @Override
     public synchronized ValidationResult validate(ValidationEvent event, ValidationState state, IProgressMonitor monitor) {
     	IResource file = event.getResource();
         if ((event.getKind() & IResourceDelta.REMOVED) != 0 
         		|| file.isDerived(IResource.CHECK_ANCESTORS)
         		|| !(file instanceof IFile)) {
+        	if (file instanceof IFile)
+        		ValidationResultCache.getCache(file.getProject()).remove((IFile) file);
             return new ValidationResult();
         }
 
@@ -83,7 +106,76 @@ public class BPMN2ProjectValidator extends AbstractValidator {
 			modelFile.deleteMarkers(null, true, IProject.DEPTH_INFINITE);
 
 			TargetRuntime runtime = TargetRuntime.getRuntime(new FileEditorInput(modelFile));
-	    	Bpmn2ModelerResourceSetImpl rs = new Bpmn2ModelerResourceSetImpl();
+			List<ValidatorMessage> messages = validate(modelFile, runtime, monitor);
+			if (messages!=null) {
+		        result = new ValidationResult();
+		        for (ValidatorMessage message : messages)
+		        	result.add(message);
+			}
+		} catch (CoreException e1) {
+			e1.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Validate the given BPMN2 file and return the validation messages. If the
+     * file, its Target Runtime and the files it depends on have not changed
+     * since the last time it was validated, the messages are returned from the
+     * {@link ValidationResultCache} instead of loading and validating the file
+     * again.
+     * <p>
+     * This method does not create any markers, and may be called from any
+     * thread; see {@link ValidationScheduler}.
+     * 
+     * @param modelFile the BPMN2 file to validate
+     * @param runtime the Target Runtime for the file
+     * @param monitor a progress monitor
+     * @return the validation messages, or null if the file could not be loaded.
+     */
+    public static List<ValidatorMessage> validate(IFile modelFile, TargetRuntime runtime, IProgressMonitor monitor) {
+    	ValidationResultCache cache = ValidationResultCache.getCache(modelFile.getProject());
+    	String key = ValidationResultCache.computeKey(modelFile, runtime);
+    	List<ValidatorMessage> messages = cache.get(modelFile, key);
+    	if (messages==null) {
+    		messages = validateFile(modelFile, runtime, monitor);
+    		if (messages!=null && (monitor==null || !monitor.isCanceled()))
+    			cache.put(modelFile, key, messages);
+    	}
+    	return messages;
+    }
+
+    /**
+     * Validate the given BPMN2 file with validation profiling enabled, and
+     * return the profiling report. The {@link ValidationResultCache} is
+     * bypassed, so the file is always validated. Statistics collected before
+     * this call are discarded.
+     * <p>
+     * This method does not need a workbench, and can be used from headless
+     * applications and tests.
+     * 
+     * @param modelFile the BPMN2 file to validate
+     * @param runtime the Target Runtime for the file
+     * @param monitor a progress monitor
+     * @return the report, see {@link ValidationProfiler#getReport()}
+     */
+    public static String profile(IFile modelFile, TargetRuntime runtime, IProgressMonitor monitor) {
+    	boolean wasEnabled = ValidationProfiler.isEnabled();
+    	ValidationProfiler.reset();
+    	ValidationProfiler.setEnabled(true);
+    	try {
+    		validateFile(modelFile, runtime, monitor);
+    	}
+    	finally {
+    		ValidationProfiler.setEnabled(wasEnabled);
+    	}
+    	return ValidationProfiler.getReport();
+    }
+
+    private static List<ValidatorMessage> validateFile(IFile modelFile, TargetRuntime runtime, IProgressMonitor monitor) {
+    	ValidationWorker worker = workers.get();
+    	Bpmn2ModelerResourceSetImpl rs = worker.resourceSet;
+    	try {
 	    	runtime.registerExtensionResourceFactory(rs);
 			URI modelUri = URI.createPlatformResourceURI(modelFile.getFullPath().toString(), true);
 			rs.setURIConverter(new ProxyURIConverterImplExtension(modelUri));
@@ -95,21 +187,24 @@ public class BPMN2ProjectValidator extends AbstractValidator {
 			TargetRuntimeAdapter.adapt(resource, runtime);
 
             resource.load(null);
-	        result = new ValidationResult();
+	        ValidationResult result = new ValidationResult();
 	        if (resource.getContents().isEmpty()) {
 	            ValidatorMessage message = ValidatorMessage.create(Messages.BPMN2ProjectValidator_Invalid_File, modelFile);
 	            message.setType(runtime.getProblemMarkerId());
 	            result.add(message);
 	        } else {
-	            IBatchValidator validator = ModelValidationService.getInstance().newValidator(EvaluationMode.BATCH);
-	            processStatus(validator.validate(resource.getContents(), monitor), modelFile, result, runtime);
+	            processStatus(worker.validator.validate(resource.getContents(), monitor), modelFile, result, runtime);
 	        }
-		} catch (CoreException e1) {
-			e1.printStackTrace();
+	        return Arrays.asList(result.getMessages());
         } catch (IOException e2) {
             e2.printStackTrace();
         }
-        return result;
+    	finally {
+    		for (Resource r : rs.getResources())
+    			r.unload();
+    		rs.getResources().clear();
+    	}
+    	return null;
     }
     
     public static void validate(IResource resource, IProgressMonitor monitor) {
@@ -149,6 +244,12 @@ public class BPMN2ProjectValidator extends AbstractValidator {
 	 *         for believing the model is corrupt.
 	 */
     public static IStatus validateLive(EObject object) {
+    	if (object instanceof Definitions) {
+    		// only validate what has changed since the last Live validation
+    		IncrementalLiveValidator validator = IncrementalLiveValidator.getValidator((Definitions) object);
+    		if (validator!=null)
+    			return validator.validate();
+    	}
 		IValidator<Notification> validator = ModelValidationService.getInstance().newValidator(EvaluationMode.LIVE);
     	Notification n = new ENotificationImpl((InternalEObject) object, 0, null, null, null, false);
 		return validator.validate(n);
@@ -251,7 +352,7 @@ public class BPMN2ProjectValidator extends AbstractValidator {
     	return needValidation;
     }
     
-    public void processStatus(IStatus status, IResource resource, ValidationResult result, TargetRuntime runtime) {
+    public static void processStatus(IStatus status, IResource resource, ValidationResult result, TargetRuntime runtime) {
         if (status.isMultiStatus()) {
             for (IStatus child : status.getChildren()) {
                 processStatus(child, resource, result, runtime);
@@ -261,7 +362,7 @@ public class BPMN2ProjectValidator extends AbstractValidator {
         }
     }
 
-    public ValidatorMessage createValidationMessage(IStatus status, IResource resource, TargetRuntime runtime) {
+    public static ValidatorMessage createValidationMessage(IStatus status, IResource resource, TargetRuntime runtime) {
         ValidatorMessage message = ValidatorMessage.create(status.getMessage(), resource);
         switch (status.getSeverity()) {
         case IStatus.INFO:
@@ -305,9 +406,17 @@ public class BPMN2ProjectValidator extends AbstractValidator {
         return message;
     }
 
+    @Override
+    public void validationFinishing(IProject project, ValidationState state, IProgressMonitor monitor) {
+    	super.validationFinishing(project, state, monitor);
+    	if (project!=null)
+    		ValidationResultCache.getCache(project).save();
+    }
+
     @Override
     public void clean(IProject project, ValidationState state, IProgressMonitor monitor) {
         super.clean(project, state, monitor);
+        ValidationResultCache.getCache(project).clear();
         try {
             project.deleteMarkers(null, false, IProject.DEPTH_INFINITE);
         } catch (CoreException e) {
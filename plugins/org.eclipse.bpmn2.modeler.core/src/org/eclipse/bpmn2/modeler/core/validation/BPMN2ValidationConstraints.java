@@ -42,7 +42,15 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 
 	public final static String CATEGORY_ID = "org.eclipse.bpmn2.modeler.core.validation.category.override"; //$NON-NLS-1$
 
-	protected StatusList result = new StatusList();
+	// The EMF Validation Framework only constructs a single instance of each
+	// Constraint object, but files may be validated concurrently by the
+	// ValidationScheduler, so each thread gets its own results list.
+	private final ThreadLocal<StatusList> result = new ThreadLocal<StatusList>() {
+		@Override
+		protected StatusList initialValue() {
+			return new StatusList();
+		}
+	};
 	
 	public BPMN2ValidationConstraints() {
 	}
@@ -51,6 +59,7 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	public IStatus validate(IValidationContext ctx) {
 		initialize();
 		
+		long start = ValidationProfiler.start();
 		EObject object = ctx.getTarget();
 		if (doValidation(ctx, object)) {
 			
@@ -78,19 +87,37 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 						baseValidator = validator;
 						if (isLiveValidation(ctx) && !validator.doLiveValidation())
 							continue;
-						addStatus(validator.validate(object));
+						addStatus(validate(validator, object));
 					}
 					else if (baseValidator.checkSuperType(eClass, object)) {
 						// The subclass validator wants to invoke the validator
 						// for this super class.
 						if (isLiveValidation(ctx) && !validator.doLiveValidation())
 							continue;
-						addStatus(validator.validate(object));
+						addStatus(validate(validator, object));
 					}
 				}
 			}
 		}
-		return getResult(ctx);
+		IStatus status = getResult(ctx);
+		ValidationProfiler.recordConstraint(this, object, start);
+		return status;
+	}
+
+	/**
+	 * Invoke the given validator, and record the time it took if validation
+	 * profiling is enabled.
+	 * 
+	 * @param validator the validator
+	 * @param object the object to be validated
+	 * @return the validation result
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected IStatus validate(IBpmn2ElementValidator validator, EObject object) {
+		long start = ValidationProfiler.start();
+		IStatus status = validator.validate(object);
+		ValidationProfiler.recordValidator(validator, start);
+		return status;
 	}
 
 	/**
@@ -102,7 +129,7 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	 * Subclasses should override this method for additional initialization.
 	 */
 	protected void initialize() {
-		result.clear();
+		result.get().clear();
 	}
 	
 	/**
@@ -148,7 +175,7 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	 * @param status
 	 */
 	protected void addStatus(IStatus status) {
-		result.add(status);
+		result.get().add(status);
 	}
 	
 	/**
@@ -159,11 +186,12 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	 * @return an IStatus object
 	 */
 	protected IStatus getResult(IValidationContext ctx) {
-		if (result.isEmpty())
+		StatusList list = result.get();
+		if (list.isEmpty())
 			return ctx.createSuccessStatus();
-		if (result.size()==1)
-			return result.get(0);
-		return ConstraintStatus.createMultiStatus(ctx, result);
+		if (list.size()==1)
+			return list.get(0);
+		return ConstraintStatus.createMultiStatus(ctx, list);
 	}
 	
 	/**
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.validation.IValidationContext;
+
+/**
+ * An index of all BaseElements contained in a Definitions object, keyed by
+ * their IDs. This is used by the ID validators to detect duplicate IDs without
+ * having to walk the entire model for every BaseElement being validated.
+ * <p>
+ * An index is built once per validation operation and is cached in the
+ * Validation Context's constraint data, so all validators invoked during the
+ * same Batch or Live validation pass share the same index.
+ */
+public class BaseElementIdIndex {
+
+	// an index that was built ahead of a validation operation, see LiveValidationStage
+	private static final ThreadLocal<BaseElementIdIndex> prebuiltIndex = new ThreadLocal<BaseElementIdIndex>();
+
+	private final Definitions definitions;
+	private final Map<String, List<BaseElement>> index = new HashMap<String, List<BaseElement>>();
+
+	/**
+	 * Build an ID index for the given Definitions. The elements for each ID are
+	 * kept in the same order as they are returned by
+	 * {@link Definitions#eAllContents()}.
+	 *
+	 * @param definitions the root Definitions object of a BPMN2 Resource
+	 */
+	public BaseElementIdIndex(Definitions definitions) {
+		this(definitions, true);
+	}
+
+	/**
+	 * Create an ID index for the given Definitions.
+	 *
+	 * @param definitions the root Definitions object of a BPMN2 Resource
+	 * @param build if false, the index is left empty, to be filled by
+	 *            {@link #add(BaseElement)}
+	 */
+	BaseElementIdIndex(Definitions definitions, boolean build) {
+		this.definitions = definitions;
+		if (build) {
+			TreeIterator<EObject> iter = definitions.eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof BaseElement)
+					add((BaseElement)o);
+			}
+		}
+	}
+
+	/**
+	 * Add a BaseElement to this index.
+	 *
+	 * @param be the BaseElement
+	 */
+	void add(BaseElement be) {
+		String id = be.getId();
+		if (id!=null) {
+			List<BaseElement> list = index.get(id);
+			if (list==null) {
+				list = new ArrayList<BaseElement>(1);
+				index.put(id, list);
+			}
+			list.add(be);
+		}
+	}
+
+	/**
+	 * Return all of the BaseElements that have the given ID.
+	 *
+	 * @param id the ID to look up
+	 * @return a list of BaseElements, or an empty list if the ID was not found.
+	 */
+	public List<BaseElement> getElements(String id) {
+		if (id!=null) {
+			List<BaseElement> list = index.get(id);
+			if (list!=null)
+				return Collections.unmodifiableList(list);
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Return the number of distinct IDs in this index.
+	 *
+	 * @return the ID count
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Return the ID index for the given Definitions that belongs to the current
+	 * validation operation. The index is constructed on first use and then
+	 * reused by all subsequent validators in the same validation operation.
+	 *
+	 * @param ctx the Validation Context of the current validation operation.
+	 * @param definitions the root Definitions object of a BPMN2 Resource
+	 * @return the ID index
+	 */
+	public static BaseElementIdIndex getIndex(IValidationContext ctx, Definitions definitions) {
+		if (ctx==null)
+			return new BaseElementIdIndex(definitions);
+
+		IndexMap indexes;
+		Object data = ctx.getCurrentConstraintData();
+		if (data instanceof IndexMap)
+			indexes = (IndexMap) data;
+		else {
+			indexes = new IndexMap();
+			ctx.putCurrentConstraintData(indexes);
+		}
+
+		BaseElementIdIndex index = indexes.get(definitions);
+		if (index==null) {
+			index = prebuiltIndex.get();
+			if (index==null || index.definitions!=definitions)
+				index = new BaseElementIdIndex(definitions);
+			indexes.put(definitions, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Use the given index for validation operations on the current thread,
+	 * instead of building a new one.
+	 *
+	 * @param index the index to use, or null to clear it
+	 */
+	static void setPrebuiltIndex(BaseElementIdIndex index) {
+		if (index==null)
+			prebuiltIndex.remove();
+		else
+			prebuiltIndex.set(index);
+	}
+
+	/**
+	 * @return the index set with {@link #setPrebuiltIndex(BaseElementIdIndex)}
+	 *         for the current thread, or null
+	 */
+	static BaseElementIdIndex getPrebuiltIndex() {
+		return prebuiltIndex.get();
+	}
+
+	private static class IndexMap extends HashMap<Definitions, BaseElementIdIndex> {
+		private static final long serialVersionUID = 2893561170548723146L;
+	}
+}
@@ -0,0 +1,405 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Bpmn2Package;
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
+import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.impl.ENotificationImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.transaction.ResourceSetChangeEvent;
+import org.eclipse.emf.transaction.ResourceSetListenerImpl;
+import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.emf.transaction.util.TransactionUtil;
+import org.eclipse.emf.validation.model.EvaluationMode;
+import org.eclipse.emf.validation.model.IConstraintStatus;
+import org.eclipse.emf.validation.service.IValidator;
+import org.eclipse.emf.validation.service.ModelValidationService;
+
+/**
+ * Performs Live validations of a Definitions object incrementally.
+ * <p>
+ * The first validation is a full Live validation of the Definitions, which
+ * checks every BaseElement. After that, the changes made by each committed
+ * transaction are collected, and only the BaseElements that were touched, and
+ * the elements that depend on them, are validated again. An element depends
+ * on a changed element if either one references the other, e.g. the
+ * SequenceFlows of a FlowNode that was changed, or the source and target of a
+ * SequenceFlow that was reconnected. The problems found for all other
+ * elements are kept by this validator; elements without problems are not
+ * recorded at all.
+ * <p>
+ * An incremental validation is still a Live validation of the Definitions;
+ * validators that check the contents of the Definitions (e.g. the
+ * DefinitionsValidator) check only the elements returned by
+ * {@link #getChangedElements()} in that case.
+ * <p>
+ * The results are discarded when the validation settings change, i.e. the
+ * BPMN2 preferences that are checked by the validators or the enablement of
+ * Model Constraints. Changes that are not made in a transaction of the
+ * Definitions' editing domain are not seen; use {@link #invalidateAll()}
+ * after such changes.
+ * <p>
+ * The validators of an editor's Definitions must be released with
+ * {@link #dispose(ResourceSet)} when the editor is disposed.
+ */
+public class IncrementalLiveValidator extends AdapterImpl {
+
+	// the changed elements, while an incremental validation is running on the current thread
+	private static final ThreadLocal<Collection<BaseElement>> changedElements = new ThreadLocal<Collection<BaseElement>>();
+
+	private final Definitions definitions;
+	private final TransactionalEditingDomain domain;
+	private final ChangeTracker tracker = new ChangeTracker();
+	private final Set<BaseElement> dirty = new LinkedHashSet<BaseElement>();
+	// the results of the elements that have problems
+	private final Map<BaseElement, IStatus> problems = new LinkedHashMap<BaseElement, IStatus>();
+	private boolean validateAll = true;
+	// the validation settings the current results were computed with
+	private String settings;
+
+	private class ChangeTracker extends ResourceSetListenerImpl {
+
+		@Override
+		public boolean isPostcommitOnly() {
+			return true;
+		}
+
+		@Override
+		public void resourceSetChanged(ResourceSetChangeEvent event) {
+			for (Notification n : event.getNotifications())
+				handleChange(n);
+		}
+	}
+
+	private IncrementalLiveValidator(Definitions definitions, TransactionalEditingDomain domain) {
+		this.definitions = definitions;
+		this.domain = domain;
+	}
+
+	/**
+	 * Return the incremental validator for the given Definitions, creating one
+	 * if necessary.
+	 *
+	 * @param definitions the root Definitions object of a BPMN2 Resource
+	 * @return the validator, or null if the Definitions does not belong to a
+	 *         Transactional Editing Domain
+	 */
+	public static IncrementalLiveValidator getValidator(Definitions definitions) {
+		synchronized (definitions) {
+			for (Adapter a : definitions.eAdapters()) {
+				if (a instanceof IncrementalLiveValidator)
+					return (IncrementalLiveValidator) a;
+			}
+			TransactionalEditingDomain domain = TransactionUtil.getEditingDomain(definitions);
+			if (domain==null)
+				return null;
+			IncrementalLiveValidator validator = new IncrementalLiveValidator(definitions, domain);
+			domain.addResourceSetListener(validator.tracker);
+			definitions.eAdapters().add(validator);
+			return validator;
+		}
+	}
+
+	/**
+	 * Release the incremental validators of all Definitions in the given
+	 * ResourceSet. This must be called when the editor that owns the
+	 * ResourceSet is disposed.
+	 *
+	 * @param resourceSet the editor's ResourceSet
+	 */
+	public static void dispose(ResourceSet resourceSet) {
+		for (Resource resource : new ArrayList<Resource>(resourceSet.getResources())) {
+			Definitions definitions = ModelUtil.getDefinitions(resource);
+			if (definitions!=null) {
+				for (Adapter a : new ArrayList<Adapter>(definitions.eAdapters())) {
+					if (a instanceof IncrementalLiveValidator)
+						((IncrementalLiveValidator) a).dispose();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop tracking changes and detach this validator from its Definitions.
+	 */
+	public void dispose() {
+		domain.removeResourceSetListener(tracker);
+		synchronized (definitions) {
+			definitions.eAdapters().remove(this);
+		}
+		synchronized (this) {
+			dirty.clear();
+			problems.clear();
+		}
+	}
+
+	/**
+	 * Return the BaseElements that are validated by the incremental
+	 * validation that is running on the current thread. Validators that
+	 * validate the contents of the object they are given (e.g. the
+	 * DefinitionsValidator) must only validate these elements: the results
+	 * for all other elements are kept.
+	 *
+	 * @return the changed elements, or null if no incremental validation is
+	 *         running, in which case all contents must be validated
+	 */
+	public static Collection<BaseElement> getChangedElements() {
+		return changedElements.get();
+	}
+
+	/**
+	 * Discard all cached results, so that the next validation checks every
+	 * BaseElement again.
+	 */
+	public synchronized void invalidateAll() {
+		validateAll = true;
+		dirty.clear();
+	}
+
+	/**
+	 * Validate the BaseElements that have changed since the last validation,
+	 * and return the combined results of all BaseElements.
+	 *
+	 * @return the Live validation status of the Definitions
+	 */
+	public IStatus validate() {
+		String currentSettings = ValidationResultCache.computeSettingsKey(Bpmn2Preferences.getInstance(definitions));
+		Set<BaseElement> targets = new LinkedHashSet<BaseElement>();
+		Set<BaseElement> changed = null;
+		synchronized (this) {
+			if (!currentSettings.equals(settings)) {
+				settings = currentSettings;
+				invalidateAll();
+			}
+			if (validateAll) {
+				problems.clear();
+				targets.add(definitions);
+				for (Iterator<EObject> iter = definitions.eAllContents(); iter.hasNext();) {
+					EObject o = iter.next();
+					if (o instanceof BaseElement)
+						targets.add((BaseElement) o);
+				}
+				validateAll = false;
+			}
+			else if (!dirty.isEmpty()) {
+				changed = new LinkedHashSet<BaseElement>();
+				for (BaseElement be : dirty) {
+					// the element may have been deleted after it was changed
+					if (be!=definitions && EcoreUtil.isAncestor(definitions, be))
+						changed.add(be);
+				}
+				targets.add(definitions);
+				targets.addAll(changed);
+			}
+			dirty.clear();
+		}
+
+		if (!targets.isEmpty()) {
+			IValidator<Notification> validator = ModelValidationService.getInstance().newValidator(EvaluationMode.LIVE);
+			Notification n = new ENotificationImpl((InternalEObject) definitions, 0, null, null, null, false);
+			BaseElementIdIndex prebuilt = BaseElementIdIndex.getPrebuiltIndex();
+			IStatus status;
+			if (changed!=null)
+				changedElements.set(Collections.unmodifiableSet(changed));
+			try {
+				// the ID index is built once, and shared by the validations
+				// of all targets
+				if (prebuilt==null)
+					BaseElementIdIndex.setPrebuiltIndex(new BaseElementIdIndex(definitions));
+				status = validator.validate(n);
+			}
+			finally {
+				changedElements.remove();
+				if (prebuilt==null)
+					BaseElementIdIndex.setPrebuiltIndex(null);
+			}
+
+			Map<BaseElement, List<IStatus>> results = new LinkedHashMap<BaseElement, List<IStatus>>();
+			collectResults(status, results);
+			// elements that were not changed may still have been checked
+			// along with the Definitions
+			targets.addAll(results.keySet());
+			synchronized (this) {
+				for (BaseElement be : targets) {
+					List<IStatus> list = results.get(be);
+					if (list==null)
+						problems.remove(be);
+					else if (list.size()==1)
+						problems.put(be, list.get(0));
+					else
+						problems.put(be, new MultiStatus(Activator.PLUGIN_ID, 0, list.toArray(new IStatus[list.size()]), "", null)); //$NON-NLS-1$
+				}
+			}
+		}
+
+		synchronized (this) {
+			if (problems.isEmpty())
+				return Status.OK_STATUS;
+			IStatus[] children = problems.values().toArray(new IStatus[problems.size()]);
+			return new MultiStatus(Activator.PLUGIN_ID, 0, children, "", null); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Sort the constraint statuses contained in a validation result by the
+	 * BaseElement that was validated.
+	 */
+	private static void collectResults(IStatus status, Map<BaseElement, List<IStatus>> results) {
+		if (status.isMultiStatus() && status.getChildren().length>0) {
+			// e.g. the results of all contents of the Definitions
+			for (IStatus s : status.getChildren())
+				collectResults(s, results);
+		}
+		else if (status instanceof IConstraintStatus) {
+			if (status.isOK())
+				return;
+			BaseElement target = getBaseElement(((IConstraintStatus) status).getTarget());
+			if (target==null)
+				return;
+			List<IStatus> list = results.get(target);
+			if (list==null) {
+				list = new ArrayList<IStatus>(1);
+				results.put(target, list);
+			}
+			list.add(status);
+		}
+	}
+
+	private void handleChange(Notification n) {
+		Object notifier = n.getNotifier();
+		if (notifier instanceof Resource) {
+			if (notifier==definitions.eResource())
+				invalidateAll();
+			return;
+		}
+		if (!(notifier instanceof EObject))
+			return;
+		EObject object = (EObject) notifier;
+		if (object!=definitions && !EcoreUtil.isAncestor(definitions, object))
+			return;
+
+		synchronized (this) {
+			if (validateAll)
+				return;
+			markDirty(object);
+			Object feature = n.getFeature();
+			if (feature instanceof EReference && ((EReference) feature).isContainment()) {
+				// added elements are validated along with their contents,
+				// removed elements lose their results
+				for (Object o : getValues(n, false))
+					forget((EObject) o);
+				for (Object o : getValues(n, true)) {
+					EObject added = (EObject) o;
+					markDirty(added);
+					for (Iterator<EObject> iter = added.eAllContents(); iter.hasNext();)
+						markDirty(iter.next());
+				}
+			}
+			else if (feature==Bpmn2Package.eINSTANCE.getBaseElement_Id()) {
+				// duplicate IDs are reported on all elements that share them
+				ModelIndex index = ModelIndex.getIndex(object);
+				if (index!=null) {
+					for (BaseElement be : index.findElements(n.getOldStringValue()))
+						markDirty(be);
+					for (BaseElement be : index.findElements(n.getNewStringValue()))
+						markDirty(be);
+				}
+			}
+			else if (feature instanceof EReference) {
+				// elements that were previously or are now referenced
+				for (Object o : getValues(n, false))
+					markDirty((EObject) o);
+				for (Object o : getValues(n, true))
+					markDirty((EObject) o);
+			}
+		}
+	}
+
+	private void markDirty(EObject object) {
+		BaseElement be = getBaseElement(object);
+		if (be==null || !dirty.add(be))
+			return;
+		// the dependents of the changed element
+		for (EObject o : be.eCrossReferences()) {
+			if (o instanceof BaseElement)
+				dirty.add((BaseElement) o);
+		}
+		ModelIndex index = ModelIndex.getIndex(be);
+		if (index!=null) {
+			for (EStructuralFeature.Setting s : index.getInverseReferences(be, false)) {
+				if (s.getEObject() instanceof BaseElement)
+					dirty.add((BaseElement) s.getEObject());
+			}
+		}
+	}
+
+	private void forget(EObject object) {
+		if (object instanceof BaseElement)
+			problems.remove(object);
+		for (Iterator<EObject> iter = object.eAllContents(); iter.hasNext();) {
+			EObject o = iter.next();
+			if (o instanceof BaseElement)
+				problems.remove(o);
+		}
+	}
+
+	private static BaseElement getBaseElement(EObject object) {
+		// changes to non-BaseElements, e.g. the FormalExpression of a
+		// condition, belong to the nearest BaseElement that contains them
+		while (object!=null && !(object instanceof BaseElement))
+			object = object.eContainer();
+		return (BaseElement) object;
+	}
+
+	private static List<Object> getValues(Notification n, boolean newValues) {
+		List<Object> result = new ArrayList<Object>();
+		Object value = newValues ? n.getNewValue() : n.getOldValue();
+		if (value instanceof EObject)
+			result.add(value);
+		else if (value instanceof List) {
+			for (Object o : (List<?>) value) {
+				if (o instanceof EObject)
+					result.add(o);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.validation;
+
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.modeler.core.model.PreSavePipeline;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * A {@link PreSavePipeline} stage that performs a Live validation of the
+ * Resource before it is saved.
+ * <p>
+ * The BaseElement ID index, which the ID validators need for detecting
+ * duplicate IDs, is collected during the pipeline traversal, so the Live
+ * validation does not have to build it with another walk over the model.
+ * The validation itself runs when the traversal is complete.
+ */
+public class LiveValidationStage extends PreSavePipeline.Stage {
+
+	private Definitions definitions;
+	private BaseElementIdIndex index;
+	private IStatus status = Status.OK_STATUS;
+
+	@Override
+	public String getName() {
+		return "validation"; //$NON-NLS-1$
+	}
+
+	@Override
+	public void begin(Resource resource) {
+		definitions = ModelUtil.getDefinitions(resource);
+		if (definitions!=null)
+			index = new BaseElementIdIndex(definitions, false);
+	}
+
+	@Override
+	public void visit(EObject object) {
+		// the index only contains the descendants of the Definitions
+		if (index!=null && object instanceof BaseElement && object!=definitions)
+			index.add((BaseElement) object);
+	}
+
+	@Override
+	public void end(Resource resource) {
+		if (definitions==null)
+			return;
+		try {
+			BaseElementIdIndex.setPrebuiltIndex(index);
+			status = BPMN2ProjectValidator.validateLive(definitions);
+		}
+		finally {
+			BaseElementIdIndex.setPrebuiltIndex(null);
+			index = null;
+		}
+	}
+
+	/**
+	 * @return the result of the Live validation
+	 */
+	public IStatus getStatus() {
+		return status;
+	}
+}
@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.validation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * Collects timing statistics for BPMN2 validation.
+ * <p>
+ * When profiling is enabled, every invocation of a Model Constraint (e.g.
+ * {@link BPMN2ValidationConstraints}) and of the element validators it
+ * dispatches to is timed; the time of a validator includes the validators
+ * that it invokes itself.
+ * The statistics are kept per constraint, per validator class and per EClass
+ * of the validated objects: the number of calls (which is the number of
+ * objects visited), the total time, and the median, 90th and 99th percentile
+ * and maximum time of a single call.
+ * <p>
+ * The statistics are discarded at the start of every build of a project and
+ * of every {@link BPMN2ProjectValidator#profile(org.eclipse.core.resources.IFile, org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime, org.eclipse.core.runtime.IProgressMonitor) profile()}
+ * call, so they describe all files validated by the last build or profiling run.
+ * <p>
+ * Profiling is off by default; it is enabled with {@link #setEnabled(boolean)},
+ * with the {@code org.eclipse.bpmn2.modeler.core/debug/validation/profile}
+ * debug option, or by starting Eclipse with {@code -Dorg.eclipse.bpmn2.modeler.validation.profile=true}.
+ * {@link BPMN2ProjectValidator#profile(org.eclipse.core.resources.IFile, org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime, org.eclipse.core.runtime.IProgressMonitor)}
+ * validates a single file with profiling enabled and returns the report,
+ * which makes it usable from headless builds and tests.
+ */
+public class ValidationProfiler {
+
+	public final static String PROFILE_PROPERTY = "org.eclipse.bpmn2.modeler.validation.profile"; //$NON-NLS-1$
+
+	// the number of call times kept per statistic for computing percentiles
+	private final static int MAX_SAMPLES = 1024;
+
+	private static volatile boolean enabled = Boolean.getBoolean(PROFILE_PROPERTY) ||
+			Activator.isTracing(Activator.TRACE_VALIDATION_PROFILE);
+
+	private static final Map<String, Stats> constraints = new ConcurrentHashMap<String, Stats>();
+	private static final Map<String, Stats> validators = new ConcurrentHashMap<String, Stats>();
+	private static final Map<String, Stats> eClasses = new ConcurrentHashMap<String, Stats>();
+
+	private ValidationProfiler() {
+	}
+
+	/**
+	 * The statistics for one constraint, validator or EClass.
+	 */
+	public static class Stats {
+
+		private final String name;
+		private long count;
+		private long total;
+		private long max;
+		private final long samples[] = new long[MAX_SAMPLES];
+		private int sampleCount;
+		private final Random random = new Random(0);
+
+		private Stats(String name) {
+			this.name = name;
+		}
+
+		private synchronized void add(long time) {
+			++count;
+			total += time;
+			if (time>max)
+				max = time;
+			// reservoir sampling keeps a uniform sample of all call times
+			if (sampleCount<MAX_SAMPLES)
+				samples[sampleCount++] = time;
+			else {
+				long i = (long) (random.nextDouble() * count);
+				if (i<MAX_SAMPLES)
+					samples[(int) i] = time;
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of calls, which is the number of objects visited
+		 */
+		public synchronized long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the total time of all calls, in nanoseconds
+		 */
+		public synchronized long getTotalTime() {
+			return total;
+		}
+
+		/**
+		 * @return the longest call time, in nanoseconds
+		 */
+		public synchronized long getMaxTime() {
+			return max;
+		}
+
+		/**
+		 * Return the given percentile of the call times.
+		 *
+		 * @param percentile a value between 0 and 100
+		 * @return the call time, in nanoseconds
+		 */
+		public synchronized long getPercentile(double percentile) {
+			if (sampleCount==0)
+				return 0;
+			long sorted[] = Arrays.copyOf(samples, sampleCount);
+			Arrays.sort(sorted);
+			int i = (int) Math.ceil(percentile / 100 * sampleCount) - 1;
+			return sorted[Math.max(0, Math.min(i, sampleCount - 1))];
+		}
+	}
+
+	/**
+	 * @return true if validation profiling is enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enable or disable validation profiling. The statistics collected so far
+	 * are kept; see {@link #reset()}.
+	 *
+	 * @param enable true to enable profiling
+	 */
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * Discard all statistics.
+	 */
+	public static void reset() {
+		constraints.clear();
+		validators.clear();
+		eClasses.clear();
+	}
+
+	/**
+	 * Return the start time for a call that is about to be profiled.
+	 *
+	 * @return the current time in nanoseconds, or 0 if profiling is disabled
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record an invocation of a Model Constraint. This counts as a visit of
+	 * the object for the object's EClass.
+	 *
+	 * @param constraint the Model Constraint
+	 * @param object the validated object
+	 * @param start the value returned by {@link #start()}
+	 */
+	public static void recordConstraint(Object constraint, EObject object, long start) {
+		if (start==0)
+			return;
+		long time = System.nanoTime() - start;
+		getStats(constraints, constraint.getClass().getName()).add(time);
+		getStats(eClasses, object.eClass().getEPackage().getName() + ":" + object.eClass().getName()).add(time); //$NON-NLS-1$
+	}
+
+	/**
+	 * Record an invocation of an element validator.
+	 *
+	 * @param validator the validator
+	 * @param start the value returned by {@link #start()}
+	 */
+	public static void recordValidator(Object validator, long start) {
+		if (start==0)
+			return;
+		getStats(validators, validator.getClass().getName()).add(System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the statistics for all Model Constraints, most expensive first
+	 */
+	public static List<Stats> getConstraintStats() {
+		return sort(constraints);
+	}
+
+	/**
+	 * @return the statistics for all element validators, most expensive first
+	 */
+	public static List<Stats> getValidatorStats() {
+		return sort(validators);
+	}
+
+	/**
+	 * @return the statistics for all EClasses, most expensive first
+	 */
+	public static List<Stats> getEClassStats() {
+		return sort(eClasses);
+	}
+
+	/**
+	 * @return a report of all statistics, as comma separated values
+	 */
+	public static String getReport() {
+		StringBuilder sb = new StringBuilder();
+		appendReport(sb, "constraint", getConstraintStats()); //$NON-NLS-1$
+		appendReport(sb, "validator", getValidatorStats()); //$NON-NLS-1$
+		appendReport(sb, "eclass", getEClassStats()); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	/**
+	 * Write the report returned by {@link #getReport()}.
+	 *
+	 * @param writer the destination of the report
+	 * @throws IOException
+	 */
+	public static void writeReport(Writer writer) throws IOException {
+		writer.write(getReport());
+		writer.flush();
+	}
+
+	private static void appendReport(StringBuilder sb, String kind, List<Stats> stats) {
+		if (sb.length()==0)
+			sb.append("kind,name,calls,total_ms,mean_us,p50_us,p90_us,p99_us,max_us\n"); //$NON-NLS-1$
+		for (Stats s : stats) {
+			long count = s.getCount();
+			sb.append(kind).append(',');
+			sb.append(s.getName()).append(',');
+			sb.append(count).append(',');
+			sb.append(s.getTotalTime() / 1000000).append(',');
+			sb.append(count==0 ? 0 : s.getTotalTime() / count / 1000).append(',');
+			sb.append(s.getPercentile(50) / 1000).append(',');
+			sb.append(s.getPercentile(90) / 1000).append(',');
+			sb.append(s.getPercentile(99) / 1000).append(',');
+			sb.append(s.getMaxTime() / 1000).append('\n');
+		}
+	}
+
+	private static Stats getStats(Map<String, Stats> map, String name) {
+		Stats s = map.get(name);
+		if (s==null) {
+			synchronized (map) {
+				s = map.get(name);
+				if (s==null) {
+					s = new Stats(name);
+					map.put(name, s);
+				}
+			}
+		}
+		return s;
+	}
+
+	private static List<Stats> sort(Map<String, Stats> map) {
+		List<Stats> result = new ArrayList<Stats>(map.values());
+		Collections.sort(result, new Comparator<Stats>() {
+			public int compare(Stats s1, Stats s2) {
+				long t1 = s1.getTotalTime();
+				long t2 = s2.getTotalTime();
+				return t1 < t2 ? 1 : (t1 > t2 ? -1 : 0);
+			}
+		});
+		return result;
+	}
+}
@@ -0,0 +1,346 @@
+/*************************************************************************************
+ * Copyright (c) 2012 Red Hat, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     JBoss by Red Hat - Initial implementation.
+ ************************************************************************************/
+package org.eclipse.bpmn2.modeler.core.validation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.bpmn2.modeler.core.builder.BPMN2FileIndex;
+import org.eclipse.bpmn2.modeler.core.builder.DependencyGraph;
+import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
+import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.emf.validation.service.ConstraintRegistry;
+import org.eclipse.emf.validation.service.IConstraintDescriptor;
+import org.eclipse.wst.validation.ValidatorMessage;
+
+/**
+ * A per-project cache of BPMN2 validation results.
+ * <p>
+ * The results of validating a BPMN2 file are stored along with a key that is
+ * composed from the Target Runtime ID, the validation settings (the BPMN2
+ * preferences that affect validation and the Model Constraints that have been
+ * disabled), a hash of the file's contents and the modification stamps of all
+ * of the files it depends on (imported XSD and WSDL files, BPMN2 files defining
+ * called elements and XML Schemas defining data structures). As long as the key
+ * is unchanged, the cached messages can be reported again without having to
+ * load and validate the file.
+ * <p>
+ * The cache is kept in the project's working location for this plug-in, so it
+ * survives workbench restarts. It is discarded when the project is cleaned.
+ */
+public class ValidationResultCache {
+
+	private static final String CACHE_FILE = "validation.cache"; //$NON-NLS-1$
+	// increment this whenever the format of the cache file or the cache key changes
+	private static final int CACHE_VERSION = 2;
+
+	private static final Hashtable<IProject, ValidationResultCache> caches = new Hashtable<IProject, ValidationResultCache>();
+
+	private final IProject project;
+	private HashMap<String, Entry> entries;
+	private boolean dirty;
+
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 4271146029437580264L;
+		String key;
+		ArrayList<CachedMessage> messages = new ArrayList<CachedMessage>();
+	}
+
+	private static class CachedMessage implements Serializable {
+		private static final long serialVersionUID = -1306862391883151042L;
+		String type;
+		HashMap<String, Object> attributes = new HashMap<String, Object>();
+	}
+
+	private ValidationResultCache(IProject project) {
+		this.project = project;
+	}
+
+	/**
+	 * Return the validation result cache for the given Project.
+	 *
+	 * @param project the Project
+	 * @return the cache
+	 */
+	public static ValidationResultCache getCache(IProject project) {
+		synchronized (caches) {
+			ValidationResultCache cache = caches.get(project);
+			if (cache==null) {
+				cache = new ValidationResultCache(project);
+				caches.put(project, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Compute the cache key for the given file. This reads the file contents,
+	 * so the key should be computed only once per validation.
+	 *
+	 * @param file a BPMN2 file
+	 * @param runtime the Target Runtime used to validate the file
+	 * @return the cache key, or null if the file can not be read
+	 */
+	public static String computeKey(IFile file, TargetRuntime runtime) {
+		String settings = computeSettingsKey(Bpmn2Preferences.getInstance(file.getProject()));
+		InputStream is = null;
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			DigestInputStream dis = new DigestInputStream(file.getContents(true), md);
+			is = dis;
+			// index the file and compute its hash in a single pass
+			BPMN2FileIndex fileIndex = BPMN2FileIndex.create(dis);
+			byte[] buffer = new byte[8192];
+			while (dis.read(buffer) >= 0) {
+				// consume anything the parser did not read
+			}
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(CACHE_VERSION).append('|');
+			sb.append(runtime.getId()).append('|');
+			sb.append(settings).append('|');
+			appendHex(sb, md.digest());
+			for (IFile dep : DependencyGraph.computeDependencies(file, fileIndex)) {
+				sb.append('|').append(dep.getFullPath()).append('@').append(dep.getModificationStamp());
+			}
+			return sb.toString();
+		}
+		catch (Exception e) {
+			return null;
+		}
+		finally {
+			if (is!=null) {
+				try {
+					is.close();
+				} catch (Exception e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compute the part of the cache key that covers the validation settings:
+	 * the BPMN2 preferences that are checked by the validators, and the Model
+	 * Constraints that have been disabled in the Model Validation preferences.
+	 * This is also used by the {@link IncrementalLiveValidator} to detect
+	 * settings changes.
+	 *
+	 * @param prefs the BPMN2 preferences of the Project
+	 * @return the settings key
+	 */
+	static String computeSettingsKey(Bpmn2Preferences prefs) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(prefs.getDoCoreValidation() ? 'c' : '-');
+		sb.append(prefs.getAllowMultipleConnections() ? 'm' : '-');
+
+		List<String> disabled = new ArrayList<String>();
+		for (Object o : ConstraintRegistry.getInstance().getAllDescriptors()) {
+			IConstraintDescriptor d = (IConstraintDescriptor) o;
+			if (!d.isEnabled())
+				disabled.add(d.getId());
+		}
+		if (!disabled.isEmpty()) {
+			Collections.sort(disabled);
+			try {
+				MessageDigest md = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+				for (String id : disabled)
+					md.update((id + '\n').getBytes("UTF-8")); //$NON-NLS-1$
+				sb.append(':');
+				appendHex(sb, md.digest());
+			}
+			catch (Exception e) {
+				// SHA-1 and UTF-8 are always available
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void appendHex(StringBuilder sb, byte[] bytes) {
+		for (byte b : bytes)
+			sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+	}
+
+	/**
+	 * Return the cached validation messages for the given file.
+	 *
+	 * @param file a BPMN2 file
+	 * @param key the file's current cache key
+	 * @return a list of messages, or null if the cache has no entry for this
+	 *         file or the entry is out of date.
+	 */
+	public synchronized List<ValidatorMessage> get(IFile file, String key) {
+		if (key==null)
+			return null;
+		Entry entry = getEntries().get(file.getFullPath().toString());
+		if (entry==null || !key.equals(entry.key))
+			return null;
+
+		List<ValidatorMessage> messages = new ArrayList<ValidatorMessage>(entry.messages.size());
+		for (CachedMessage cm : entry.messages) {
+			Object text = cm.attributes.get(IMarker.MESSAGE);
+			ValidatorMessage message = ValidatorMessage.create(text==null ? "" : text.toString(), file); //$NON-NLS-1$
+			for (Map.Entry<String, Object> a : cm.attributes.entrySet())
+				message.setAttribute(a.getKey(), a.getValue());
+			message.setType(cm.type);
+			messages.add(message);
+		}
+		return messages;
+	}
+
+	/**
+	 * Store the validation messages for the given file.
+	 *
+	 * @param file a BPMN2 file
+	 * @param key the file's cache key at the time it was validated
+	 * @param messages the validation messages
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void put(IFile file, String key, List<ValidatorMessage> messages) {
+		if (key==null)
+			return;
+		Entry entry = new Entry();
+		entry.key = key;
+		for (ValidatorMessage m : messages) {
+			CachedMessage cm = new CachedMessage();
+			cm.type = m.getType();
+			Map<String, Object> attributes = m.getAttributes();
+			if (attributes!=null) {
+				for (Map.Entry<String, Object> a : attributes.entrySet()) {
+					if (a.getValue() instanceof Serializable)
+						cm.attributes.put(a.getKey(), a.getValue());
+				}
+			}
+			entry.messages.add(cm);
+		}
+		getEntries().put(file.getFullPath().toString(), entry);
+		dirty = true;
+	}
+
+	/**
+	 * Remove the cached results for the given file.
+	 *
+	 * @param file a BPMN2 file
+	 */
+	public synchronized void remove(IFile file) {
+		if (getEntries().remove(file.getFullPath().toString())!=null)
+			dirty = true;
+	}
+
+	/**
+	 * Discard all cached results and delete the cache file.
+	 */
+	public synchronized void clear() {
+		entries = new HashMap<String, Entry>();
+		dirty = false;
+		File f = getCacheFile();
+		if (f!=null && f.exists())
+			f.delete();
+	}
+
+	/**
+	 * Write the cache to the project's working location if it has changed.
+	 */
+	public synchronized void save() {
+		if (!dirty || entries==null)
+			return;
+		File f = getCacheFile();
+		if (f==null)
+			return;
+		ObjectOutputStream os = null;
+		try {
+			os = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+			os.writeInt(CACHE_VERSION);
+			os.writeObject(entries);
+			dirty = false;
+		}
+		catch (Exception e) {
+			Activator.logError(e);
+		}
+		finally {
+			if (os!=null) {
+				try {
+					os.close();
+				} catch (Exception e) {
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Entry> getEntries() {
+		if (entries==null) {
+			entries = new HashMap<String, Entry>();
+			File f = getCacheFile();
+			if (f!=null && f.exists()) {
+				ObjectInputStream is = null;
+				try {
+					is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(f))) {
+						@Override
+						protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+							// resolve our own classes with this bundle's class loader
+							try {
+								return Class.forName(desc.getName(), false, ValidationResultCache.class.getClassLoader());
+							}
+							catch (ClassNotFoundException e) {
+								return super.resolveClass(desc);
+							}
+						}
+					};
+					if (is.readInt()==CACHE_VERSION)
+						entries = (HashMap<String, Entry>) is.readObject();
+				}
+				catch (Exception e) {
+					// corrupt or incompatible cache file: start over
+				}
+				finally {
+					if (is!=null) {
+						try {
+							is.close();
+						} catch (Exception e) {
+						}
+					}
+				}
+			}
+		}
+		return entries;
+	}
+
+	private File getCacheFile() {
+		if (!project.isAccessible())
+			return null;
+		IPath location = project.getWorkingLocation(Activator.PLUGIN_ID);
+		if (location==null)
+			return null;
+		return location.append(CACHE_FILE).toFile();
+	}
+}
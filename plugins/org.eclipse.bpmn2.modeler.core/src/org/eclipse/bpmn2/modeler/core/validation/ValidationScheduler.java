@@ -0,0 +1,159 @@
+/*************************************************************************************
+ * Copyright (c) 2012 Red Hat, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     JBoss by Red Hat - Initial implementation.
+ ************************************************************************************/
+package org.eclipse.bpmn2.modeler.core.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.part.FileEditorInput;
+import org.eclipse.wst.validation.ValidationFramework;
+import org.eclipse.wst.validation.Validator;
+
+/**
+ * Validates a set of BPMN2 files on a bounded pool of worker threads.
+ * <p>
+ * The results are not reported directly; instead they are stored in the
+ * project's {@link ValidationResultCache}. The {@link BPMN2ProjectValidator}
+ * is invoked by the WST Validation Builder afterwards, and will find the
+ * results for each file in the cache. This allows the BPMN2 Project Builder,
+ * which runs before the WST Validation Builder, to do the expensive part of
+ * the validation in parallel, while markers are still managed by the WST
+ * Validation Framework.
+ * <p>
+ * Each worker loads the files into its own ResourceSet and validates them
+ * with its own EMF batch validator, so workers do not share any model objects.
+ * The element validators are created for every validated object, and the
+ * Model Constraints keep their results per thread.
+ */
+public class ValidationScheduler {
+
+	// upper bound for the number of worker threads
+	private static final int MAX_WORKERS = 4;
+
+	private ValidationScheduler() {
+	}
+
+	/**
+	 * Check if the given BPMN2 file will be validated by the WST Validation
+	 * Builder.
+	 *
+	 * @param file a BPMN2 file
+	 * @return true if build validation is enabled for the BPMN2 Project
+	 *         Validator
+	 */
+	public static boolean isBuildValidationEnabled(IFile file) {
+		ValidationFramework vf = ValidationFramework.getDefault();
+		if (vf.isSuspended(file.getProject()))
+			return false;
+		for (Validator v : vf.getValidatorsFor(file)) {
+			if (BPMN2ProjectValidator.class.getName().equals(v.getValidatorClassname()))
+				return v.isBuildValidation();
+		}
+		return false;
+	}
+
+	/**
+	 * Validate the given files and store the results in the
+	 * {@link ValidationResultCache}. Files whose cached results are still
+	 * valid are not validated again. This method returns when all files have
+	 * been validated, or the progress monitor has been canceled.
+	 *
+	 * @param project the Project that contains the files
+	 * @param files the BPMN2 files to validate
+	 * @param monitor a progress monitor
+	 */
+	public static void validate(IProject project, Collection<IFile> files, final IProgressMonitor monitor) {
+		if (files.isEmpty())
+			return;
+		final IProgressMonitor pm = monitor==null ? new NullProgressMonitor() : monitor;
+
+		// The Target Runtimes are looked up here, on the calling thread,
+		// because their cache is not thread-safe.
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (final IFile file : files) {
+			final TargetRuntime runtime = TargetRuntime.getRuntime(new FileEditorInput(file));
+			tasks.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					if (!pm.isCanceled()) {
+						BPMN2ProjectValidator.validate(file, runtime, null);
+					}
+					return null;
+				}
+			});
+		}
+
+		int workers = Math.min(tasks.size(), Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()));
+		if (workers<=1) {
+			for (Callable<Object> task : tasks) {
+				try {
+					task.call();
+				} catch (Exception e) {
+					Activator.logError(e);
+				}
+			}
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			private int count = 0;
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "BPMN2 Validation Worker " + (++count)); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for (Callable<Object> task : tasks)
+				futures.add(executor.submit(task));
+			for (Future<Object> f : futures) {
+				for (;;) {
+					if (pm.isCanceled()) {
+						executor.shutdownNow();
+						return;
+					}
+					try {
+						f.get(100, TimeUnit.MILLISECONDS);
+						break;
+					}
+					catch (TimeoutException e) {
+					}
+					catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						Activator.logError(cause instanceof Exception ? (Exception) cause : e);
+						break;
+					}
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
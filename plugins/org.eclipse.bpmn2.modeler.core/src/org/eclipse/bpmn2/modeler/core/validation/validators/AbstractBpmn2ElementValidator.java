@@ -54,7 +54,9 @@ public abstract class AbstractBpmn2ElementValidator<T extends EObject> implement
 	 * classes that implement a validator must be in the form <BPMN2 type
 	 * name>Validator and must be declared public. This factory method searches
 	 * for such classes in the same package as this
-	 * AbstractBpmn2ElementValidator base class. If such a class is found, a new
+	 * AbstractBpmn2ElementValidator base class, unless the Target Runtime of
+	 * the validated object has registered a validator for the type with
+	 * {@link ValidatorRegistry}. If such a class is found, a new
 	 * instance is constructed and returned; otherwise null is returned.
 	 * 
 	 * @param ctx the IValidationContext used to construct the validator class
@@ -64,35 +66,24 @@ public abstract class AbstractBpmn2ElementValidator<T extends EObject> implement
 	 * @return a validator class if found, otherwise null.
 	 */
 	public static IBpmn2ElementValidator<?> getValidator(IValidationContext ctx, Class<?> c) {
-		String className = AbstractBpmn2ElementValidator.class.getPackage().getName() + "." + c.getSimpleName(); //$NON-NLS-1$
-		if (className.endsWith("Impl")) { //$NON-NLS-1$
-			className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-		className += "Validator"; //$NON-NLS-1$
-		try {
-			Class<?> validatorClass = AbstractBpmn2ElementValidator.class.getClassLoader().loadClass(className);
-			if (validatorClass != null) {
-				return (AbstractBpmn2ElementValidator<?>) validatorClass.getConstructor(IValidationContext.class)
-						.newInstance(ctx);
-			}
-		} catch (Exception e) {
+		ValidatorRegistry.ValidatorFactory factory = ValidatorRegistry.getFactory(ctx==null ? null : ctx.getTarget(), c);
+		if (factory != null) {
+			return factory.create(ctx);
 		}
 		return null;
 	}
 
 	public static IBpmn2ElementValidator<?> getValidator(IBpmn2ElementValidator<?> parent, Class<?> c) {
-		String className = AbstractBpmn2ElementValidator.class.getPackage().getName() + "." + c.getSimpleName(); //$NON-NLS-1$
-		if (className.endsWith("Impl")) { //$NON-NLS-1$
-			className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-		className += "Validator"; //$NON-NLS-1$
-		try {
-			Class<?> validatorClass = AbstractBpmn2ElementValidator.class.getClassLoader().loadClass(className);
-			if (validatorClass != null) {
-				return (AbstractBpmn2ElementValidator<?>) validatorClass.getConstructor(AbstractBpmn2ElementValidator.class)
-						.newInstance(parent);
+		EObject object = null;
+		if (parent instanceof AbstractBpmn2ElementValidator) {
+			IValidationContext ctx = ((AbstractBpmn2ElementValidator<?>) parent).ctx;
+			if (ctx != null) {
+				object = ctx.getTarget();
 			}
-		} catch (Exception e) {
+		}
+		ValidatorRegistry.ValidatorFactory factory = ValidatorRegistry.getFactory(object, c);
+		if (factory != null) {
+			return factory.create(parent);
 		}
 		return null;
 	}
@@ -19,12 +19,11 @@ import org.eclipse.bpmn2.BaseElement;
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.Definitions;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.bpmn2.modeler.core.validation.BaseElementIdIndex;
 import org.eclipse.bpmn2.modeler.core.validation.SyntaxCheckerUtils;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EClass;
-import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.validation.IValidationContext;
 
 /**
@@ -74,20 +73,15 @@ public class BaseElementValidator extends AbstractBpmn2ElementValidator<BaseElem
 			}
 			
 			Definitions definitions = ModelUtil.getDefinitions(object);
-			TreeIterator<EObject> iter = definitions.eAllContents();
-			while (iter.hasNext()) {
-				EObject o2 = iter.next();
-				if (o2 instanceof BaseElement && object!=o2) {
-					String id2;
-					id2 = ((BaseElement)o2).getId();
-					if (id!=null && id2!=null) {
-						if (id.equals(id2)) {
-							addStatus(object, Status.ERROR,
-								Messages.BaseElementValidator_Duplicate_IDs,
-								getLabel(object)+" "+getName(object), //$NON-NLS-1$
-								getLabel(o2)+" "+getName(o2) //$NON-NLS-1$
-							);
-						}
+			if (id!=null && definitions!=null) {
+				BaseElementIdIndex index = BaseElementIdIndex.getIndex(ctx, definitions);
+				for (BaseElement o2 : index.getElements(id)) {
+					if (object!=o2) {
+						addStatus(object, Status.ERROR,
+							Messages.BaseElementValidator_Duplicate_IDs,
+							getLabel(object)+" "+getName(object), //$NON-NLS-1$
+							getLabel(o2)+" "+getName(o2) //$NON-NLS-1$
+						);
 					}
 				}
 			}
@@ -13,9 +13,13 @@
 
 package org.eclipse.bpmn2.modeler.core.validation.validators;
 
+import java.util.Collection;
+
 import org.eclipse.bpmn2.BaseElement;
 import org.eclipse.bpmn2.Definitions;
 import org.eclipse.bpmn2.Import;
+import org.eclipse.bpmn2.modeler.core.validation.BaseElementIdIndex;
+import org.eclipse.bpmn2.modeler.core.validation.IncrementalLiveValidator;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.emf.common.util.TreeIterator;
@@ -56,11 +60,24 @@ public class DefinitionsValidator extends AbstractBpmn2ElementValidator<Definiti
 			}
 		}
 		if (isLiveValidation()) {
-			TreeIterator<EObject> iter = object.eAllContents();
-			while (iter.hasNext()) {
-				EObject o = iter.next();
-				if (o instanceof BaseElement) {
-					addStatus(new BaseElementValidator(this).validate((BaseElement)o));
+			// build the ID index once up front; the BaseElementValidator
+			// will look it up again in the Validation Context.
+			BaseElementIdIndex.getIndex(ctx, object);
+			// During an incremental validation, only the changed BaseElements
+			// are validated again.
+			Collection<BaseElement> changed = IncrementalLiveValidator.getChangedElements();
+			if (changed!=null) {
+				for (BaseElement be : changed) {
+					addStatus(new BaseElementValidator(this).validate(be));
+				}
+			}
+			else {
+				TreeIterator<EObject> iter = object.eAllContents();
+				while (iter.hasNext()) {
+					EObject o = iter.next();
+					if (o instanceof BaseElement) {
+						addStatus(new BaseElementValidator(this).validate((BaseElement)o));
+					}
 				}
 			}
 		}
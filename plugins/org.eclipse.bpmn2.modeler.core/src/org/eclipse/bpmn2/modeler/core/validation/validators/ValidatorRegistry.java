@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.validation.validators;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.validation.IValidationContext;
+
+/**
+ * The registry of BPMN2 Element Validator classes used by
+ * {@link AbstractBpmn2ElementValidator#getValidator(IValidationContext, Class)}.
+ * <p>
+ * The validator for a BPMN2 type is looked up first among the validators that
+ * were registered for the Target Runtime of the object being validated, and
+ * then by the naming convention described in
+ * {@link AbstractBpmn2ElementValidator#getValidator(IValidationContext, Class)}.
+ * The result of the naming convention lookup is resolved once per type and
+ * kept, including the fact that a type has no validator, so that validation
+ * passes do not load classes or look up constructors.
+ */
+public class ValidatorRegistry {
+
+	// marks a BPMN2 type that has no validator
+	private static final ValidatorFactory NONE = new ValidatorFactory(null);
+
+	// validators found by naming convention, by BPMN2 type
+	private static final Map<Class<?>, ValidatorFactory> defaultValidators = new ConcurrentHashMap<Class<?>, ValidatorFactory>();
+	// validators registered by Target Runtimes, by BPMN2 type
+	private static final Map<TargetRuntime, Map<Class<?>, ValidatorFactory>> runtimeValidators = new ConcurrentHashMap<TargetRuntime, Map<Class<?>, ValidatorFactory>>();
+
+	private ValidatorRegistry() {
+	}
+
+	/**
+	 * The constructors of a validator class.
+	 */
+	static class ValidatorFactory {
+		private final Constructor<?> contextConstructor;
+		private final Constructor<?> parentConstructor;
+
+		ValidatorFactory(Class<?> validatorClass) {
+			Constructor<?> cc = null;
+			Constructor<?> pc = null;
+			if (validatorClass!=null && AbstractBpmn2ElementValidator.class.isAssignableFrom(validatorClass)) {
+				try {
+					cc = validatorClass.getConstructor(IValidationContext.class);
+				}
+				catch (Exception e) {
+				}
+				try {
+					pc = validatorClass.getConstructor(AbstractBpmn2ElementValidator.class);
+				}
+				catch (Exception e) {
+				}
+			}
+			contextConstructor = cc;
+			parentConstructor = pc;
+		}
+
+		IBpmn2ElementValidator<?> create(IValidationContext ctx) {
+			if (contextConstructor!=null) {
+				try {
+					return (IBpmn2ElementValidator<?>) contextConstructor.newInstance(ctx);
+				}
+				catch (Exception e) {
+				}
+			}
+			return null;
+		}
+
+		IBpmn2ElementValidator<?> create(IBpmn2ElementValidator<?> parent) {
+			if (parentConstructor!=null && parent instanceof AbstractBpmn2ElementValidator) {
+				try {
+					return (IBpmn2ElementValidator<?>) parentConstructor.newInstance(parent);
+				}
+				catch (Exception e) {
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Register a validator for the given BPMN2 type in the given Target
+	 * Runtime. This validator is used instead of the one in the
+	 * {@code org.eclipse.bpmn2.modeler.core.validation.validators} package
+	 * for objects that belong to the Target Runtime. The validator class must
+	 * be public and have public constructors that take an IValidationContext
+	 * and an AbstractBpmn2ElementValidator.
+	 *
+	 * @param rt the Target Runtime
+	 * @param type the BPMN2 element interface, e.g. {@code Task.class}
+	 * @param validatorClass the validator class
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void register(TargetRuntime rt, Class<?> type, Class<? extends AbstractBpmn2ElementValidator> validatorClass) {
+		Map<Class<?>, ValidatorFactory> validators;
+		synchronized (runtimeValidators) {
+			validators = runtimeValidators.get(rt);
+			if (validators==null) {
+				validators = new ConcurrentHashMap<Class<?>, ValidatorFactory>();
+				runtimeValidators.put(rt, validators);
+			}
+		}
+		validators.put(type, new ValidatorFactory(validatorClass));
+	}
+
+	/**
+	 * Convenience method for registering a validator by EClass.
+	 *
+	 * @param rt the Target Runtime
+	 * @param eClass the BPMN2 element type
+	 * @param validatorClass the validator class
+	 * @see #register(TargetRuntime, Class, Class)
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void register(TargetRuntime rt, EClass eClass, Class<? extends AbstractBpmn2ElementValidator> validatorClass) {
+		register(rt, eClass.getInstanceClass(), validatorClass);
+	}
+
+	/**
+	 * Remove the validator that was registered for the given BPMN2 type in the
+	 * given Target Runtime.
+	 *
+	 * @param rt the Target Runtime
+	 * @param type the BPMN2 element interface
+	 */
+	public static void unregister(TargetRuntime rt, Class<?> type) {
+		Map<Class<?>, ValidatorFactory> validators = runtimeValidators.get(rt);
+		if (validators!=null)
+			validators.remove(type);
+	}
+
+	/**
+	 * Return the validator constructors for the given BPMN2 type.
+	 *
+	 * @param object the object being validated, used to find its Target
+	 *            Runtime; may be null
+	 * @param type the BPMN2 type
+	 * @return the constructors, or null if there is no validator for the type
+	 */
+	static ValidatorFactory getFactory(EObject object, Class<?> type) {
+		if (!runtimeValidators.isEmpty() && object!=null) {
+			TargetRuntime rt = getTargetRuntime(object);
+			Map<Class<?>, ValidatorFactory> validators = rt==null ? null : runtimeValidators.get(rt);
+			if (validators!=null) {
+				ValidatorFactory factory = validators.get(type);
+				if (factory!=null)
+					return factory;
+			}
+		}
+
+		ValidatorFactory factory = defaultValidators.get(type);
+		if (factory==null) {
+			factory = NONE;
+			String className = AbstractBpmn2ElementValidator.class.getPackage().getName() + "." + type.getSimpleName(); //$NON-NLS-1$
+			if (className.endsWith("Impl")) { //$NON-NLS-1$
+				className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			className += "Validator"; //$NON-NLS-1$
+			try {
+				Class<?> validatorClass = AbstractBpmn2ElementValidator.class.getClassLoader().loadClass(className);
+				factory = new ValidatorFactory(validatorClass);
+			}
+			catch (Exception e) {
+			}
+			defaultValidators.put(type, factory);
+		}
+		return factory==NONE ? null : factory;
+	}
+
+	private static TargetRuntime getTargetRuntime(EObject object) {
+		try {
+			return TargetRuntime.getRuntime(object);
+		}
+		catch (Exception e) {
+			// the object does not belong to a BPMN2 Resource
+			return null;
+		}
+	}
+}
@@ -38,12 +38,14 @@ import org.eclipse.bpmn2.modeler.core.IBpmn2RuntimeExtension;
 import org.eclipse.bpmn2.modeler.core.LifecycleEvent;
 import org.eclipse.bpmn2.modeler.core.LifecycleEvent.EventType;
 import org.eclipse.bpmn2.modeler.core.merrimac.clad.PropertiesCompositeFactory;
+import org.eclipse.bpmn2.modeler.core.model.SavePolicyTable;
 import org.eclipse.bpmn2.modeler.core.runtime.CustomTaskDescriptor;
 import org.eclipse.bpmn2.modeler.core.runtime.CustomTaskImageProvider;
 import org.eclipse.bpmn2.modeler.core.runtime.ModelExtensionDescriptor.Property;
 import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil.Bpmn2DiagramType;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.features.JbpmCustomTaskFeatureContainer;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.DroolsPackage;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.GlobalType;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.ImportType;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmActivityDetailComposite;
@@ -66,7 +68,7 @@ import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmScriptTaskDeta
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmSendTaskDetailComposite;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmSequenceFlowDetailComposite;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmTaskDetailComposite;
-import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WIDLoader;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WIDCache;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WorkItemDefinition;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WorkItemDefinition.Parameter;
 import org.eclipse.bpmn2.modeler.ui.AbstractBpmn2RuntimeExtension.RootElementParser;
@@ -95,6 +97,8 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 	public final static String DROOLS_NAMESPACE = "http://www.jboss.org/drools"; //$NON-NLS-1$
 
 	private List<WorkItemDefinition> workItemDefinitions;
+
+	private static boolean savePoliciesRegistered = false;
 	
 	/* (non-Javadoc)
 	 * Check if the given input file is a drools-generated (jBPM) process file.
@@ -137,6 +141,8 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
         TargetRuntime targetRuntime = event.targetRuntime;
 
 		if (event.eventType == EventType.EDITOR_STARTUP) {
+			registerSavePolicies();
+
 			// TODO: if file was opened from a Guvnor Repository view (or git in jBPM 6)
 			// we may want to explicitly make the editor read-only
 	
@@ -147,19 +153,21 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 				// initialize workItemDefinitions list if necessary
 				getWorkItemDefinitions().clear();
 				try {
-					final WIDLoader loader = new WIDLoader();
-					loader.load(project);
+					// the WIDs are shared by all editors in the project, and
+					// only the files that have changed are loaded again
+					final WIDCache cache = WIDCache.getCache(project);
+					cache.refresh();
 					
-					if (loader.getClasspathWIDs().size() > 0) {
-						workItemDefinitions.addAll(loader.getClasspathWIDs());
-						for (Entry<String, ImageDescriptor> e : loader.getClasspathIcons().entrySet()) {
+					if (cache.getClasspathWIDs().size() > 0) {
+						workItemDefinitions.addAll(cache.getClasspathWIDs());
+						for (Entry<String, ImageDescriptor> e : cache.getClasspathIcons().entrySet()) {
 							CustomTaskImageProvider.registerImage(e.getKey(), e.getValue());
 						}
 					}
 
-					if (loader.getProjectWIDs().size() > 0) {
-						workItemDefinitions.addAll(loader.getProjectWIDs());
-						for (Entry<String, ImageDescriptor> e : loader.getProjectIcons().entrySet()) {
+					if (cache.getProjectWIDs().size() > 0) {
+						workItemDefinitions.addAll(cache.getProjectWIDs());
+						for (Entry<String, ImageDescriptor> e : cache.getProjectIcons().entrySet()) {
 							CustomTaskImageProvider.registerImage(e.getKey(), e.getValue());
 						}
 					}
@@ -175,7 +183,13 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 						java.util.Iterator<WorkItemDefinition> widIterator = workItemDefinitions.iterator();
 						while(widIterator.hasNext()) {
 							final WorkItemDefinition wid = widIterator.next();
-							final CustomTaskDescriptor ctd = convertWIDtoCT(inputFile.getProject(),wid);
+							CustomTaskDescriptor cached = cache.getCustomTaskDescriptor(wid);
+							if (cached == null) {
+								cached = convertWIDtoCT(inputFile.getProject(),wid);
+								if (cached != null)
+									cache.putCustomTaskDescriptor(wid, cached);
+							}
+							final CustomTaskDescriptor ctd = cached;
 							if (ctd != null) {
 								if (targetRuntime.customTaskExists(ctd.getId())) {
 									Display.getDefault().asyncExec( new Runnable() {
@@ -232,9 +246,6 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 			if (ProcessVariableNameChangeAdapter.appliesTo(object)) {
 				ProcessVariableNameChangeAdapter.adapt(object);
 			}
-			else if (MetaDataTypeAdapter.appliesTo(object)) {
-				MetaDataTypeAdapter.adapt(object);
-			}
 		}
 		else if (event.eventType == EventType.BUSINESSOBJECT_LOADED ||
 				event.eventType == EventType.BUSINESSOBJECT_INITIALIZED) {
@@ -259,6 +270,19 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 			}
 		}
 	}
+
+	/**
+	 * Register the save rules for the jBPM extension model elements. This is
+	 * done once, before the first BPMN2 Resource of this Target Runtime is
+	 * loaded.
+	 */
+	private static synchronized void registerSavePolicies() {
+		if (!savePoliciesRegistered) {
+			// MetaData elements with no name, or a "customAsync" value of false, are not saved
+			SavePolicyTable.addElementPolicy(DroolsPackage.eINSTANCE.getMetaDataType(), MetaDataTypeAdapter.SAVE_POLICY);
+			savePoliciesRegistered = true;
+		}
+	}
 	
 	/*
 	 * Convert a WID to a CustomTaskDescriptor
@@ -16,6 +16,8 @@ package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5;
 import org.eclipse.bpmn2.BaseElement;
 import org.eclipse.bpmn2.modeler.core.adapters.IExtensionValueAdapter;
 import org.eclipse.bpmn2.modeler.core.model.ModelDecorator;
+import org.eclipse.bpmn2.modeler.core.model.SavePolicyTable;
+import org.eclipse.bpmn2.modeler.core.model.SavePolicyTable.Decision;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.DroolsFactory;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.DroolsPackage;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.MetaDataType;
@@ -27,6 +29,18 @@ import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.resource.Resource;
 
 public class MetaDataTypeAdapter extends AdapterImpl implements IExtensionValueAdapter {
+
+	/**
+	 * The save rule for all MetaDataType objects, registered with the
+	 * {@link SavePolicyTable} by the JBPM5RuntimeExtension so that the
+	 * objects do not need an adapter.
+	 */
+	public static final SavePolicyTable.SavePolicy SAVE_POLICY = new SavePolicyTable.SavePolicy() {
+		@Override
+		public Decision shouldSave(EObject object, EStructuralFeature feature) {
+			return isSaved((MetaDataType)object) ? Decision.SAVE : Decision.SKIP;
+		}
+	};
 	
 	public static MetaDataTypeAdapter adapt(EObject object) {
 		if (appliesTo(object)) {
@@ -51,13 +65,16 @@ public class MetaDataTypeAdapter extends AdapterImpl implements IExtensionValueA
 	 */
 	@Override
 	public boolean shouldSaveElement(EObject o) {
-		MetaDataType metaData = (MetaDataType)o;
+		return isSaved((MetaDataType)o);
+	}
+
+	public static boolean isSaved(MetaDataType metaData) {
 		String name = metaData.getName();
 		if (name==null || name.isEmpty())
 			return false;
-		if ("customAsync".equals(name)) {
+		if ("customAsync".equals(name)) { //$NON-NLS-1$
 			MetaValueType metaValue = metaData.getMetaValue();
-			if (metaValue==null || "false".equals(metaValue.getValue()))
+			if (metaValue==null || "false".equals(metaValue.getValue())) //$NON-NLS-1$
 				return false;
 		}
 		return true;
@@ -28,6 +28,7 @@ import org.eclipse.bpmn2.UserTask;
 import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesAdapter;
 import org.eclipse.bpmn2.modeler.core.runtime.ModelExtensionDescriptor;
 import org.eclipse.bpmn2.modeler.core.runtime.ModelExtensionDescriptor.Property;
+import org.eclipse.bpmn2.modeler.core.validation.ValidationProfiler;
 import org.eclipse.bpmn2.modeler.core.validation.validators.ItemAwareElementValidator;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.GlobalType;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.extensions.NotificationType;
@@ -52,6 +53,13 @@ public class JbpmModelConstraint extends AbstractModelConstraint {
 
 	@Override
 	public IStatus validate(IValidationContext ctx) {
+		long start = ValidationProfiler.start();
+		IStatus status = doValidate(ctx);
+		ValidationProfiler.recordConstraint(this, ctx.getTarget(), start);
+		return status;
+	}
+
+	private IStatus doValidate(IValidationContext ctx) {
 		EObject object = ctx.getTarget();
 	
 		if (object instanceof BusinessRuleTask) {
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.bpmn2.modeler.core.runtime.CustomTaskDescriptor;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.Activator;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jface.resource.ImageDescriptor;
+
+/**
+ * The Work Item Definitions of a project, shared by all editors that open
+ * files in the project.
+ * <p>
+ * Every *.wid file in the project's WID folder and every jar in its classpath
+ * is parsed once, and the result is kept together with the file's
+ * modification time and size. {@link #refresh()} reads again only the files
+ * and jars that were added or have changed since then. Resource change events
+ * tell the cache when the WID or icons folder changes, and Java element change
+ * events tell it when the classpath changes, so a refresh of an unchanged
+ * project only checks the time stamps of the classpath jars.
+ * <p>
+ * The CustomTaskDescriptors that are created from the Work Item Definitions
+ * are kept as well, for as long as the Work Item Definition they were created
+ * from has not changed.
+ */
+public class WIDCache {
+
+	private static final Map<IProject, WIDCache> caches = new HashMap<IProject, WIDCache>();
+	private static ChangeListener listener;
+
+	/**
+	 * The Work Item Definitions and icons loaded from one *.wid file or jar.
+	 */
+	private static class CacheEntry {
+		final long timeStamp;
+		final long size;
+		final List<WorkItemDefinition> wids;
+		final Map<String, ImageDescriptor> icons;
+
+		CacheEntry(long timeStamp, long size, List<WorkItemDefinition> wids, Map<String, ImageDescriptor> icons) {
+			this.timeStamp = timeStamp;
+			this.size = size;
+			this.wids = wids;
+			this.icons = icons;
+		}
+
+		boolean isCurrent(long timeStamp, long size) {
+			return this.timeStamp==timeStamp && this.size==size;
+		}
+	}
+
+	private final IProject project;
+	// project *.wid files by workspace path, and classpath jars by file system path
+	private Map<IPath, CacheEntry> projectEntries = new LinkedHashMap<IPath, CacheEntry>();
+	private Map<String, CacheEntry> classpathEntries = new LinkedHashMap<String, CacheEntry>();
+	private List<File> classpathJars;
+	private boolean projectChanged = true;
+
+	private List<WorkItemDefinition> projectWIDs = new ArrayList<WorkItemDefinition>();
+	private Map<String, ImageDescriptor> projectIcons = new HashMap<String, ImageDescriptor>();
+	private List<WorkItemDefinition> classpathWIDs = new ArrayList<WorkItemDefinition>();
+	private Map<String, ImageDescriptor> classpathIcons = new HashMap<String, ImageDescriptor>();
+	private final Map<WorkItemDefinition, CustomTaskDescriptor> descriptors = new IdentityHashMap<WorkItemDefinition, CustomTaskDescriptor>();
+
+	private WIDCache(IProject project) {
+		this.project = project;
+	}
+
+	/**
+	 * Return the cache for the given project, creating it if necessary. The
+	 * cache is empty until it is refreshed.
+	 *
+	 * @param project the project
+	 * @return the cache
+	 */
+	public static WIDCache getCache(IProject project) {
+		synchronized (caches) {
+			if (listener==null) {
+				listener = new ChangeListener();
+				ResourcesPlugin.getWorkspace().addResourceChangeListener(listener,
+						IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+				JavaCore.addElementChangedListener(listener, ElementChangedEvent.POST_CHANGE);
+			}
+			WIDCache cache = caches.get(project);
+			if (cache==null) {
+				cache = new WIDCache(project);
+				caches.put(project, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Discard all caches and stop listening for changes. This is called when
+	 * the plug-in is stopped.
+	 */
+	public static void dispose() {
+		synchronized (caches) {
+			if (listener!=null) {
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(listener);
+				JavaCore.removeElementChangedListener(listener);
+				listener = null;
+			}
+			caches.clear();
+		}
+	}
+
+	private static WIDCache getExistingCache(IProject project) {
+		synchronized (caches) {
+			return caches.get(project);
+		}
+	}
+
+	/**
+	 * Bring the cache up to date: load the *.wid files and classpath jars that
+	 * were added or have changed since the last refresh, and forget the ones
+	 * that were removed. Files that fail to load are not tried again until
+	 * they change.
+	 *
+	 * @throws CoreException if the project can not be read
+	 */
+	public synchronized void refresh() throws CoreException {
+		boolean changed = false;
+
+		if (projectChanged) {
+			projectChanged = false;
+			Map<IPath, CacheEntry> entries = new LinkedHashMap<IPath, CacheEntry>();
+			for (IFile file : WIDLoader.getWIDFiles(project)) {
+				IPath path = file.getFullPath();
+				long timeStamp = file.getLocalTimeStamp();
+				IPath location = file.getLocation();
+				long size = location==null ? -1 : location.toFile().length();
+				CacheEntry entry = projectEntries.get(path);
+				if (entry==null || !entry.isCurrent(timeStamp, size)) {
+					WIDLoader loader = new WIDLoader();
+					try {
+						loader.loadFile(file);
+					}
+					catch (Exception e) {
+						Activator.logError(e);
+					}
+					entry = new CacheEntry(timeStamp, size, loader.getProjectWIDs(), loader.getProjectIcons());
+					changed = true;
+				}
+				entries.put(path, entry);
+			}
+			if (entries.size()!=projectEntries.size())
+				changed = true;
+			projectEntries = entries;
+		}
+
+		if (classpathJars==null)
+			classpathJars = WIDLoader.getClasspathJars(project);
+		// jars outside of the workspace are not seen by the resource change
+		// listener, so their time stamps are always checked
+		Map<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>();
+		for (File jarFile : classpathJars) {
+			String path = jarFile.getAbsolutePath();
+			if (entries.containsKey(path))
+				continue;
+			long timeStamp = jarFile.lastModified();
+			long size = jarFile.length();
+			CacheEntry entry = classpathEntries.get(path);
+			if (entry==null || !entry.isCurrent(timeStamp, size)) {
+				WIDLoader loader = new WIDLoader();
+				try {
+					loader.loadJar(jarFile);
+				}
+				catch (Exception e) {
+					Activator.logError(e);
+				}
+				entry = new CacheEntry(timeStamp, size, loader.getClasspathWIDs(), loader.getClasspathIcons());
+				changed = true;
+			}
+			entries.put(path, entry);
+		}
+		if (entries.size()!=classpathEntries.size())
+			changed = true;
+		classpathEntries = entries;
+
+		if (changed) {
+			List<WorkItemDefinition> wids = new ArrayList<WorkItemDefinition>();
+			Map<String, ImageDescriptor> icons = new HashMap<String, ImageDescriptor>();
+			for (CacheEntry entry : projectEntries.values()) {
+				wids.addAll(entry.wids);
+				icons.putAll(entry.icons);
+			}
+			projectWIDs = wids;
+			projectIcons = icons;
+
+			wids = new ArrayList<WorkItemDefinition>();
+			icons = new HashMap<String, ImageDescriptor>();
+			for (CacheEntry entry : classpathEntries.values()) {
+				wids.addAll(entry.wids);
+				// the first jar that contains an icon wins
+				for (Entry<String, ImageDescriptor> e : entry.icons.entrySet()) {
+					if (!icons.containsKey(e.getKey()))
+						icons.put(e.getKey(), e.getValue());
+				}
+			}
+			classpathWIDs = wids;
+			classpathIcons = icons;
+
+			// forget the descriptors of Work Item Definitions that are gone
+			Map<WorkItemDefinition, CustomTaskDescriptor> current = new IdentityHashMap<WorkItemDefinition, CustomTaskDescriptor>();
+			for (WorkItemDefinition wid : projectWIDs) {
+				if (descriptors.containsKey(wid))
+					current.put(wid, descriptors.get(wid));
+			}
+			for (WorkItemDefinition wid : classpathWIDs) {
+				if (descriptors.containsKey(wid))
+					current.put(wid, descriptors.get(wid));
+			}
+			descriptors.clear();
+			descriptors.putAll(current);
+		}
+	}
+
+	public synchronized List<WorkItemDefinition> getProjectWIDs() {
+		return projectWIDs;
+	}
+
+	public synchronized Map<String, ImageDescriptor> getProjectIcons() {
+		return projectIcons;
+	}
+
+	public synchronized List<WorkItemDefinition> getClasspathWIDs() {
+		return classpathWIDs;
+	}
+
+	public synchronized Map<String, ImageDescriptor> getClasspathIcons() {
+		return classpathIcons;
+	}
+
+	/**
+	 * Return the CustomTaskDescriptor that was created from the given Work
+	 * Item Definition.
+	 *
+	 * @param wid a Work Item Definition of this cache
+	 * @return the descriptor, or null if none has been created yet
+	 */
+	public synchronized CustomTaskDescriptor getCustomTaskDescriptor(WorkItemDefinition wid) {
+		return descriptors.get(wid);
+	}
+
+	/**
+	 * Remember the CustomTaskDescriptor created from the given Work Item
+	 * Definition, so that other editors can use it.
+	 *
+	 * @param wid a Work Item Definition of this cache
+	 * @param ctd the descriptor
+	 */
+	public synchronized void putCustomTaskDescriptor(WorkItemDefinition wid, CustomTaskDescriptor ctd) {
+		descriptors.put(wid, ctd);
+	}
+
+	private synchronized void projectChanged() {
+		projectChanged = true;
+	}
+
+	private synchronized void iconsChanged() {
+		// the project *.wid files are read again along with their icons
+		projectEntries.clear();
+		projectChanged = true;
+	}
+
+	private synchronized void classpathChanged() {
+		classpathJars = null;
+	}
+
+	/**
+	 * Marks the caches of projects whose WID or icons folders, or classpaths
+	 * have changed, and discards the caches of projects that are closed or
+	 * deleted.
+	 */
+	private static class ChangeListener implements IResourceChangeListener, IElementChangedListener {
+
+		private static final IPath WID_PATH = new Path(WIDLoader.WID_FOLDER).makeRelative();
+		private static final IPath ICONS_PATH = new Path(WIDLoader.ICONS_FOLDER).makeRelative();
+
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			if (event.getType()==IResourceChangeEvent.PRE_CLOSE || event.getType()==IResourceChangeEvent.PRE_DELETE) {
+				IResource resource = event.getResource();
+				if (resource instanceof IProject) {
+					synchronized (caches) {
+						caches.remove(resource);
+					}
+				}
+				return;
+			}
+			IResourceDelta delta = event.getDelta();
+			if (delta==null)
+				return;
+			for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+				IResource resource = projectDelta.getResource();
+				if (!(resource instanceof IProject))
+					continue;
+				WIDCache cache = getExistingCache((IProject) resource);
+				if (cache==null)
+					continue;
+				if (projectDelta.findMember(WID_PATH)!=null)
+					cache.projectChanged();
+				if (projectDelta.findMember(ICONS_PATH)!=null)
+					cache.iconsChanged();
+			}
+		}
+
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			for (IJavaElementDelta delta : event.getDelta().getAffectedChildren()) {
+				if (delta.getElement() instanceof IJavaProject &&
+						(delta.getFlags() & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED))!=0) {
+					WIDCache cache = getExistingCache(((IJavaProject) delta.getElement()).getProject());
+					if (cache!=null)
+						cache.classpathChanged();
+				}
+			}
+		}
+	}
+}
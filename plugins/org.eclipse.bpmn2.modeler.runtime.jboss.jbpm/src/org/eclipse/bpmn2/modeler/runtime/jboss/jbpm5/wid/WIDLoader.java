@@ -13,9 +13,9 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -26,10 +26,11 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.swt.graphics.ImageData;
 
 /*
- * Class: Visits each file in the project to see if it's a *.conf/*.wid
- * and loads the file's contents into a String. If the given IProject is
- * a JavaProject, then all jars in the classpath are searched for *.conf/*.wid
- * files and their contents are loaded.
+ * Class: Loads the *.wid files in the project's src/main/resources/META-INF
+ * folder. If the given IProject is a JavaProject, then all jars in the
+ * classpath are searched for *.wid files and their contents are loaded.
+ * The parsed files are kept in the project's {@link WIDCache}, so only
+ * files and jars that have changed since the last load are read again.
  * 
  * @author bfitzpat
  *
@@ -37,70 +38,85 @@ import org.eclipse.swt.graphics.ImageData;
 public class WIDLoader {
 
 	private static final int BUFFER_SIZE = 1024;
-	private static final String WID_FOLDER = "/src/main/resources/META-INF";
-	private static final String ICONS_FOLDER = "/src/main/resources/icons";
+	static final String WID_FOLDER = "/src/main/resources/META-INF";
+	static final String ICONS_FOLDER = "/src/main/resources/icons";
 	
 	private List<WorkItemDefinition> projectWIDs = new ArrayList<WorkItemDefinition>();
 	private HashMap<String, ImageDescriptor> projectIcons = new HashMap<String, ImageDescriptor>();
 	private List<WorkItemDefinition> classpathWIDs = new ArrayList<WorkItemDefinition>();
 	private HashMap<String, ImageDescriptor> classpathIcons = new HashMap<String, ImageDescriptor>();
 	
-	private class WIDVisitor implements IResourceVisitor {
-
-		@Override
-		public boolean visit (IResource resource) throws CoreException {
-			try {
-				if (resource.getType() == IResource.FILE) {
-					// only check the folder src/main/resources/META-INF for WID files
-					if ("wid".equalsIgnoreCase(((IFile)resource).getFileExtension())) { //$NON-NLS-1$
-						String folder = resource.getParent().getFullPath().toString();
-						IProject project = resource.getProject();
-						if ((project.getFullPath().toString() + WID_FOLDER).equals(folder)) {
-							getProjectFileWIDs((IFile)resource);
-						}
-						return true;
-					}
-				}
-				else if (resource.getType() == IResource.PROJECT) {
-					// Check if this is a Java Project.
-					// If so, check all jars in the classpath for WID files.
-					IProject project = (IProject)resource;
-					IJavaProject javaProject;
-					javaProject = getJavaProject(project);
-					if (javaProject!=null) {
-						for (IClasspathEntry e : javaProject.getRawClasspath()) {
-							if (e.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
-								IPath path = e.getPath();
-								String name = null;
-								if (path.getDevice()!=null)
-									name = e.getPath().toOSString();
-								else
-									name = project.getLocation().removeLastSegments(1).append(e.getPath()).toOSString();
-								java.io.File jarFile = new java.io.File(name);
-								getJarFileWIDs(jarFile);
-							}
-						}
-					}
-					return true;
-				}
-				else if (resource.getType() == IResource.FOLDER) {
-					// skip over "bin" and "target" folders
-					String name = resource.getName();
-					if ("bin".equals(name) || "target".equals(name)) //$NON-NLS-1$ //$NON-NLS-2$
-						return false;
+	public void load(IProject project) throws CoreException {
+		WIDCache cache = WIDCache.getCache(project);
+		cache.refresh();
+		projectWIDs.addAll(cache.getProjectWIDs());
+		projectIcons.putAll(cache.getProjectIcons());
+		classpathWIDs.addAll(cache.getClasspathWIDs());
+		classpathIcons.putAll(cache.getClasspathIcons());
+	}
+	
+	/**
+	 * Load the WIDs and icons of a single *.wid file in the project.
+	 * 
+	 * @param file the *.wid file
+	 */
+	void loadFile(IFile file) throws CoreException, IOException, WIDException {
+		getProjectFileWIDs(file);
+	}
+	
+	/**
+	 * Load the WIDs and icons of all *.wid files in a single jar.
+	 * 
+	 * @param jarFile the jar
+	 */
+	void loadJar(java.io.File jarFile) throws IOException, WIDException {
+		getJarFileWIDs(jarFile);
+	}
+	
+	/**
+	 * Return the *.wid files in the project's src/main/resources/META-INF
+	 * folder. WIDs in other folders are ignored.
+	 * 
+	 * @param project the project
+	 * @return the files, in workspace order
+	 */
+	static List<IFile> getWIDFiles(IProject project) throws CoreException {
+		List<IFile> files = new ArrayList<IFile>();
+		IFolder folder = project.getFolder(new Path(WID_FOLDER).makeRelative());
+		if (folder.exists()) {
+			for (IResource r : folder.members()) {
+				if (r.getType() == IResource.FILE && "wid".equalsIgnoreCase(r.getFileExtension())) { //$NON-NLS-1$
+					files.add((IFile)r);
 				}
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			} catch (WIDException e2) {
-				e2.printStackTrace();
 			}
-			return true;
 		}
+		return files;
 	}
 	
-	public void load(IProject project) throws CoreException {
-		WIDVisitor visitor = new WIDVisitor();
-		project.accept(visitor, IResource.DEPTH_INFINITE, false);
+	/**
+	 * If the given project is a Java Project, return the jars in its
+	 * classpath.
+	 * 
+	 * @param project the project
+	 * @return the jars, in classpath order
+	 */
+	static List<java.io.File> getClasspathJars(IProject project) throws CoreException {
+		List<java.io.File> jars = new ArrayList<java.io.File>();
+		IJavaProject javaProject = getJavaProject(project);
+		if (javaProject!=null) {
+			for (IClasspathEntry e : javaProject.getRawClasspath()) {
+				if (e.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+					IPath path = e.getPath();
+					String name = null;
+					if (path.getDevice()!=null)
+						name = e.getPath().toOSString();
+					else
+						name = project.getLocation().removeLastSegments(1).append(e.getPath()).toOSString();
+					jars.add(new java.io.File(name));
+				}
+			}
+		}
+		return jars;
 	}
 	
 	public List<WorkItemDefinition> getProjectWIDs() {
@@ -222,7 +238,7 @@ public class WIDLoader {
 		}
 	}
 	
-	private IJavaProject getJavaProject(IProject project) throws IOException {
+	private static IJavaProject getJavaProject(IProject project) {
         if (project != null) {
             try {
                 if (project.getNature("org.eclipse.jdt.core.javanature") != null) {
@@ -79,6 +79,7 @@ import org.eclipse.bpmn2.di.BPMNDiagram;
 import org.eclipse.bpmn2.modeler.core.LifecycleEvent;
 import org.eclipse.bpmn2.modeler.core.LifecycleEvent.EventType;
 import org.eclipse.bpmn2.modeler.core.di.DIImport;
+import org.eclipse.bpmn2.modeler.core.di.PictogramElementIndex;
 import org.eclipse.bpmn2.modeler.core.features.AbstractBpmn2AddFeature;
 import org.eclipse.bpmn2.modeler.core.features.AbstractBpmn2CreateConnectionFeature;
 import org.eclipse.bpmn2.modeler.core.features.AbstractBpmn2CreateFeature;
@@ -231,6 +232,7 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 	private HashMap<Class,IFeature> mapBusinessObjectClassToCreateFeature = new HashMap<Class,IFeature>();
 	private DefaultCopyBPMNElementFeature defaultCopyFeature = new DefaultCopyBPMNElementFeature(this);
 	private DefaultPasteBPMNElementFeature defaultPasteFeature = new DefaultPasteBPMNElementFeature(this);
+	private FeatureContainerCache featureContainerCache = new FeatureContainerCache();
 	
 	public BPMN2FeatureProvider(IDiagramTypeProvider dtp) {
 		super(dtp);
@@ -323,6 +325,7 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 		// and replace the ones in our list of FeatureContainers
 		IDiagramBehavior diagramBehavior = getDiagramTypeProvider().getDiagramBehavior();
 		TargetRuntime rt = diagramBehavior != null ? TargetRuntime.getRuntime(diagramBehavior) : TargetRuntime.getDefaultRuntime();
+		List<IFeatureContainer> contributedContainers = new ArrayList<IFeatureContainer>();
 		for (FeatureContainerDescriptor fcd : rt.getFeatureContainerDescriptors()) {
 			IFeatureContainer fc = fcd.getFeatureContainer();
 			if (fc instanceof IConnectionFeatureContainer) {
@@ -338,7 +341,9 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 					containers.put(fcd.getType(), fc);
 				}
 			}
+			contributedContainers.add(fc);
 		}
+		featureContainerCache.reset(containers.values(), contributedContainers);
 
 		// build the list of CreateFeatures from our new list of all FeatureContainers
 		List<ICreateFeature> createFeaturesList = new ArrayList<ICreateFeature>();
@@ -447,14 +452,9 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 		}
 		
 		Object id = CustomElementFeatureContainer.getId(context); 
-		for (IFeatureContainer container : containers.values()) {
-			if (id!=null && !(container instanceof ICustomElementFeatureContainer))
-				continue;
-			Object o = container.getApplyObject(context);
-			if (o != null && container.canApplyTo(o)) {
-				return container;
-			}
-		}
+		IFeatureContainer fc = featureContainerCache.find(context, id, containers.values());
+		if (fc!=null)
+			return fc;
 		if (id!=null) {
 			for (CustomTaskDescriptor ct : rt.getCustomTaskDescriptors()) {
 				if (id.equals(ct.getId())) {
@@ -737,6 +737,7 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 				}
 			}
 		}
+		PictogramElementIndex.link(element, objects);
 	}
 
 	@Override
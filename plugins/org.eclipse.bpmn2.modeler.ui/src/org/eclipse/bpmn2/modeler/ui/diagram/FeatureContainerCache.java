@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ *
+ * @author Bob Brodt
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.ui.diagram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.bpmn2.modeler.core.features.ICustomElementFeatureContainer;
+import org.eclipse.bpmn2.modeler.core.features.IFeatureContainer;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
+import org.eclipse.bpmn2.modeler.ui.Activator;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.graphiti.features.context.IAddContext;
+import org.eclipse.graphiti.features.context.IContext;
+import org.eclipse.graphiti.features.context.ICustomContext;
+import org.eclipse.graphiti.features.context.IPictogramElementContext;
+import org.eclipse.graphiti.features.context.IReconnectionContext;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+import org.eclipse.graphiti.mm.pictograms.PictogramLink;
+
+/**
+ * Remembers which Feature Container of the {@link BPMN2FeatureProvider}
+ * handles a Graphiti context, so that the provider does not have to ask every
+ * Feature Container on every {@code getXxxFeature()} call.
+ * <p>
+ * Most Feature Containers decide whether they apply to a context only from
+ * the type of the context and the types of the business objects it refers to.
+ * For these, the result is cached per key, which is made of the context
+ * class, the custom task ID and the EClasses of the business objects. Other
+ * Feature Containers, e.g. the ones for Labels, Choreography Participant
+ * bands and the ones contributed by a Target Runtime, look at the
+ * PictogramElement itself; they are asked again on every lookup, in their
+ * original order, before the cached match. The lookup therefore always
+ * returns the same Feature Container as a scan of the whole list.
+ * <p>
+ * A Feature Container is considered type based only if the classes that
+ * declare its {@code getApplyObject()} and its {@code canApplyTo()} both
+ * implement {@link ITypeBasedFeatureContainer}; all others are asked on every
+ * lookup.
+ * <p>
+ * If the {@code org.eclipse.bpmn2.modeler.ui/debug/featureContainerCache}
+ * debug option is set, the hit rate is periodically written to the log.
+ */
+class FeatureContainerCache {
+
+	private static final boolean DEBUG = Activator.getDefault()!=null && Activator.getDefault().isDebugging() &&
+			"true".equalsIgnoreCase(Platform.getDebugOption(Activator.PLUGIN_ID + "/debug/featureContainerCache")); //$NON-NLS-1$ //$NON-NLS-2$
+	// number of lookups between two hit rate reports
+	private static final int REPORT_INTERVAL = 10000;
+
+	/**
+	 * The Feature Containers that must be asked for a given key: the ones that
+	 * look at the PictogramElement, followed by the first type based one that
+	 * applies to the key, if there is one.
+	 */
+	private static class Plan {
+		final List<IFeatureContainer> candidates = new ArrayList<IFeatureContainer>();
+		IFeatureContainer match;
+	}
+
+	private final Map<List<Object>, Plan> plans = new HashMap<List<Object>, Plan>();
+	private final Set<IFeatureContainer> typeBased = new HashSet<IFeatureContainer>();
+	private long hits;
+	private long misses;
+
+	/**
+	 * Discard all cached results. This must be called whenever the list of
+	 * Feature Containers changes.
+	 *
+	 * @param containers the new list of Feature Containers
+	 * @param contributed the Feature Containers contributed by the Target
+	 *            Runtime; these are never cached
+	 */
+	public void reset(Collection<IFeatureContainer> containers, Collection<IFeatureContainer> contributed) {
+		plans.clear();
+		typeBased.clear();
+		for (IFeatureContainer fc : containers) {
+			if (!contributed.contains(fc) && isTypeBased(fc))
+				typeBased.add(fc);
+		}
+	}
+
+	/**
+	 * Return the first of the given Feature Containers that applies to the
+	 * given context.
+	 *
+	 * @param context a Graphiti context
+	 * @param id the custom task ID of the context, or null
+	 * @param containers the Feature Containers, in the order in which they are
+	 *            checked; this must be the list given to
+	 *            {@link #reset(Collection, Collection)}
+	 * @return the Feature Container, or null if none applies
+	 */
+	public IFeatureContainer find(IContext context, Object id, Collection<IFeatureContainer> containers) {
+		List<Object> key = getKey(context, id);
+		Plan plan = plans.get(key);
+		if (plan==null) {
+			++misses;
+			plan = createPlan(context, id, containers);
+			plans.put(key, plan);
+		}
+		else
+			++hits;
+		if (DEBUG && (hits + misses) % REPORT_INTERVAL == 0) {
+			Activator.logStatus(new Status(IStatus.INFO, Activator.PLUGIN_ID,
+					"FeatureContainerCache: lookups=" + (hits + misses) + //$NON-NLS-1$
+					" hits=" + hits + " hit rate=" + (100 * hits / (hits + misses)) + "%" + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					" keys=" + plans.size())); //$NON-NLS-1$
+		}
+
+		for (IFeatureContainer fc : plan.candidates) {
+			if (appliesTo(fc, context))
+				return fc;
+		}
+		return plan.match;
+	}
+
+	private Plan createPlan(IContext context, Object id, Collection<IFeatureContainer> containers) {
+		Plan plan = new Plan();
+		for (IFeatureContainer fc : containers) {
+			if (id!=null && !(fc instanceof ICustomElementFeatureContainer))
+				continue;
+			if (!typeBased.contains(fc))
+				plan.candidates.add(fc);
+			else if (appliesTo(fc, context)) {
+				plan.match = fc;
+				break;
+			}
+		}
+		return plan;
+	}
+
+	private static boolean appliesTo(IFeatureContainer fc, IContext context) {
+		Object o = fc.getApplyObject(context);
+		return o!=null && fc.canApplyTo(o);
+	}
+
+	private static boolean isTypeBased(IFeatureContainer fc) {
+		if (fc instanceof ICustomElementFeatureContainer)
+			return false;
+		try {
+			return optsIn(fc.getClass().getMethod("getApplyObject", IContext.class).getDeclaringClass()) && //$NON-NLS-1$
+					optsIn(fc.getClass().getMethod("canApplyTo", Object.class).getDeclaringClass()); //$NON-NLS-1$
+		}
+		catch (NoSuchMethodException e) {
+		}
+		return false;
+	}
+
+	// only the class that declares the method can vouch for it
+	private static boolean optsIn(Class c) {
+		return Arrays.asList(c.getInterfaces()).contains(ITypeBasedFeatureContainer.class);
+	}
+
+	private static List<Object> getKey(IContext context, Object id) {
+		List<Object> key = new ArrayList<Object>();
+		key.add(context.getClass());
+		key.add(id);
+		if (context instanceof IAddContext)
+			key.add(getType(((IAddContext) context).getNewObject()));
+		if (context instanceof IPictogramElementContext)
+			key.add(getTypes(((IPictogramElementContext) context).getPictogramElement()));
+		if (context instanceof IReconnectionContext)
+			key.add(getTypes(((IReconnectionContext) context).getConnection()));
+		if (context instanceof ICustomContext) {
+			PictogramElement[] pes = ((ICustomContext) context).getPictogramElements();
+			key.add(pes.length);
+			if (pes.length==1)
+				key.add(getTypes(pes[0]));
+		}
+		return key;
+	}
+
+	private static List<Object> getTypes(PictogramElement pe) {
+		if (pe==null)
+			return null;
+		List<Object> types = new ArrayList<Object>();
+		PictogramLink link = pe.getLink();
+		if (link!=null) {
+			for (EObject o : link.getBusinessObjects())
+				types.add(getType(o));
+		}
+		return types;
+	}
+
+	private static Object getType(Object o) {
+		if (o instanceof EObject)
+			return ((EObject) o).eClass();
+		return o==null ? null : o.getClass();
+	}
+}
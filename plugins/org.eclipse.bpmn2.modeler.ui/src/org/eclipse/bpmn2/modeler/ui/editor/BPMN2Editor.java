@@ -14,16 +14,18 @@ package org.eclipse.bpmn2.modeler.ui.editor;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.bpmn2.modeler.core.builder.BPMN2Builder;
 import org.eclipse.bpmn2.modeler.core.merrimac.dialogs.ObjectEditingDialog;
+import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceSetImpl;
 import org.eclipse.bpmn2.modeler.core.model.ModelHandlerLocator;
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
 import org.eclipse.bpmn2.modeler.core.utils.ErrorUtils;
 import org.eclipse.bpmn2.modeler.core.utils.FileUtils;
 import org.eclipse.bpmn2.modeler.core.utils.MarkerUtils;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
-import org.eclipse.bpmn2.modeler.core.validation.BPMN2ProjectValidator;
 import org.eclipse.bpmn2.modeler.core.validation.BPMN2ValidationStatusLoader;
 import org.eclipse.bpmn2.modeler.ui.Activator;
 import org.eclipse.bpmn2.modeler.ui.Bpmn2DiagramEditorInput;
@@ -46,6 +48,9 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.transaction.RollbackException;
+import org.eclipse.emf.transaction.Transaction;
+import org.eclipse.emf.transaction.impl.InternalTransactionalEditingDomain;
 import org.eclipse.graphiti.features.IFeatureProvider;
 import org.eclipse.graphiti.mm.pictograms.PictogramElement;
 import org.eclipse.graphiti.ui.editor.DiagramBehavior;
@@ -179,10 +184,8 @@ public class BPMN2Editor extends DefaultBPMN2Editor implements IGotoMarker {
 
     @Override
     public void doSave(IProgressMonitor monitor) {
+    	// the file is validated by BPMN2PersistencyBehavior once it is saved
     	super.doSave(monitor);
-
-		Resource resource = getResourceSet().getResource(modelUri, false);
-		BPMN2ProjectValidator.validateOnSave(resource, monitor);
     }
 
     @Override
@@ -251,6 +254,7 @@ public class BPMN2Editor extends DefaultBPMN2Editor implements IGotoMarker {
 				@Override
 				public boolean preShutdown(IWorkbench workbench, boolean forced) {
 					workbenchShutdown = true;
+					BPMN2PersistencyBehavior.joinBackgroundSaves(null);
 					return true;
 				}
 
@@ -368,6 +372,32 @@ public class BPMN2Editor extends DefaultBPMN2Editor implements IGotoMarker {
 		    	multipageEditor.setInput(input);
 			}
 		}
+		else if (isImportedDefinitions(resource)) {
+			// An imported XSD or WSDL file has changed: refresh only that
+			// Resource instead of reloading the whole model. Unloading the
+			// Resource changes the ResourceSet, so this needs a write
+			// transaction; it is not recorded on the command stack because
+			// it does not change the BPMN2 model itself.
+			Transaction transaction = null;
+			try {
+				Map<Object, Object> options = new HashMap<Object, Object>();
+				options.put(Transaction.OPTION_NO_UNDO, Boolean.TRUE);
+				options.put(Transaction.OPTION_NO_TRIGGERS, Boolean.TRUE);
+				options.put(Transaction.OPTION_NO_VALIDATION, Boolean.TRUE);
+				transaction = ((InternalTransactionalEditingDomain)getEditingDomain()).startTransaction(false, options);
+				((Bpmn2ModelerResourceSetImpl)resource.getResourceSet()).refreshResource(resource);
+				transaction.commit();
+				transaction = null;
+			} catch (InterruptedException e) {
+				Activator.logError(e);
+			} catch (RollbackException e) {
+				Activator.logError(e);
+			}
+			finally {
+				if (transaction!=null)
+					transaction.rollback();
+			}
+		}
 		Display.getDefault().asyncExec(new Runnable() {
 			public void run() {
 				if (getEditorInput()!=null) {
@@ -379,6 +409,19 @@ public class BPMN2Editor extends DefaultBPMN2Editor implements IGotoMarker {
 		return true;
 	}
 
+	/**
+	 * Check if the given Resource is an XML Schema or WSDL file that was loaded
+	 * into this editor's ResourceSet because the BPMN2 model imports it.
+	 * BPMN2 Resources are never refreshed this way.
+	 */
+	private boolean isImportedDefinitions(Resource resource) {
+		if (resource==null || resource instanceof Bpmn2ResourceImpl ||
+				!(resource.getResourceSet() instanceof Bpmn2ModelerResourceSetImpl))
+			return false;
+		String ext = resource.getURI().fileExtension();
+		return "xsd".equalsIgnoreCase(ext) || "wsdl".equalsIgnoreCase(ext); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	public boolean handleResourceDeleted(Resource resource) {
 		closeEditor();
 		return true;
@@ -10,29 +10,49 @@
  *******************************************************************************/
 package org.eclipse.bpmn2.modeler.ui.editor;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceImpl;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
 import org.eclipse.bpmn2.modeler.core.validation.BPMN2ProjectValidator;
+import org.eclipse.bpmn2.modeler.core.validation.LiveValidationStage;
+import org.eclipse.bpmn2.modeler.ui.Activator;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceRuleFactory;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.emf.common.command.BasicCommandStack;
+import org.eclipse.emf.common.command.Command;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.common.util.WrappedException;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.transaction.TransactionalEditingDomain;
 import org.eclipse.graphiti.mm.pictograms.Diagram;
 import org.eclipse.graphiti.ui.editor.DefaultPersistencyBehavior;
 import org.eclipse.graphiti.ui.editor.DiagramBehavior;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.operation.IThreadListener;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
 
 public class BPMN2PersistencyBehavior extends DefaultPersistencyBehavior {
 
@@ -69,8 +89,21 @@ public class BPMN2PersistencyBehavior extends DefaultPersistencyBehavior {
 		// Perform a Live validation first: if there are any ERRORs, the model should be
 		// considered to be corrupt (because of such things as invalid IDs, duplicate IDs, etc.)
 		// and saving it in its current state MAY render the file unreadable.
-		IStatus status = BPMN2ProjectValidator.validateLive(ModelUtil.getDefinitions(resource));
+		// The validation is done in the same pass over the model that prepares it
+		// for saving, and the save will reuse the other results of that pass.
+		IStatus status;
+		Bpmn2ModelerResourceImpl bpmnResource = null;
+		if (resource instanceof Bpmn2ModelerResourceImpl) {
+			bpmnResource = (Bpmn2ModelerResourceImpl) resource;
+			LiveValidationStage validation = new LiveValidationStage();
+			bpmnResource.runPreSavePipeline(validation);
+			status = validation.getStatus();
+		}
+		else
+			status = BPMN2ProjectValidator.validateLive(ModelUtil.getDefinitions(resource));
 		if (status.getSeverity() >= Status.ERROR) {
+			if (bpmnResource!=null)
+				bpmnResource.discardPreSavePipeline();
 			String statusList = ""; //$NON-NLS-1$
 			for (IStatus s : collectStatus(status)) {
 				statusList += "  " + s.getMessage() + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
@@ -82,7 +115,89 @@ public class BPMN2PersistencyBehavior extends DefaultPersistencyBehavior {
 			return;
 		}
 
-    	super.saveDiagram(monitor);
+		// saves that are requested while the workbench is shutting down are
+		// done right away, so that they are complete before it exits
+		if (bpmnResource!=null && editor.getPreferences().getSaveInBackground() &&
+				!PlatformUI.getWorkbench().isClosing()) {
+			if (saveInBackground(bpmnResource))
+				return;
+		}
+
+    	try {
+    		super.saveDiagram(monitor);
+    	}
+    	finally {
+			if (bpmnResource!=null)
+				bpmnResource.discardPreSavePipeline();
+    	}
+    	if (!monitor.isCanceled())
+    		BPMN2ProjectValidator.validateOnSave(resource, monitor);
+    }
+    
+    /**
+     * Save the given Resource without blocking the editor: a copy of the model
+     * is taken within a read transaction, and the copy is serialized by a Job
+     * to a temporary file which then replaces the model file. The editor is
+     * marked as clean only if the save succeeds and the model was not changed
+     * in the meantime.
+     * <p>
+     * The save Jobs of a file are serialized by a scheduling rule on the
+     * file; see {@link #joinBackgroundSaves(IFile)} for waiting until they
+     * are done.
+     * 
+     * @param resource the BPMN2 Resource
+     * @return false if the Resource can not be saved in the background, e.g.
+     *         because it is not a local workspace file
+     */
+    protected boolean saveInBackground(final Bpmn2ModelerResourceImpl resource) {
+    	IFile file = editor.getModelFile();
+    	IPath location = file!=null ? file.getLocation() : null;
+    	if (location==null)
+    		return false;
+
+    	TransactionalEditingDomain domain = diagramBehavior.getEditingDomain();
+    	final Bpmn2ModelerResourceImpl snapshot[] = new Bpmn2ModelerResourceImpl[1];
+    	try {
+			domain.runExclusive(new Runnable() {
+				public void run() {
+					snapshot[0] = resource.createSnapshot();
+				}
+			});
+		}
+    	catch (InterruptedException e) {
+			Activator.logError(e);
+			return false;
+		}
+    	if (snapshot[0]==null)
+    		return false;
+
+    	// save the copy with the same options as a foreground save
+    	Map<Object, Object> options = new HashMap<Object, Object>(resource.getDefaultSaveOptions());
+    	Map<?, ?> editorOptions = createSaveOptions().get(resource);
+    	if (editorOptions!=null)
+    		options.putAll(editorOptions);
+
+    	BasicCommandStack commandStack = (BasicCommandStack) domain.getCommandStack();
+    	Job job = new BackgroundSaveJob(resource, snapshot[0], options, file, location.toFile(), commandStack);
+    	job.schedule();
+    	return true;
+    }
+
+    /**
+     * Wait until the pending background saves of the given file are done.
+     * This is called when an editor is disposed and before the workbench
+     * shuts down, so that no save is cut short.
+     * 
+     * @param file the model file, or null to wait for the background saves
+     *            of all files
+     */
+    public static void joinBackgroundSaves(IFile file) {
+    	try {
+    		Job.getJobManager().join(file!=null ? file : BackgroundSaveJob.class, null);
+    	}
+    	catch (InterruptedException e) {
+    		Activator.logError(e);
+    	}
     }
     
     List<IStatus> collectStatus(IStatus status) {
@@ -107,6 +222,106 @@ public class BPMN2PersistencyBehavior extends DefaultPersistencyBehavior {
 		return operation;
 	}
 
+	/**
+	 * The Job that saves a snapshot of the model, see {@link BPMN2PersistencyBehavior#saveInBackground(Bpmn2ModelerResourceImpl)}
+	 */
+	protected class BackgroundSaveJob extends Job {
+		private final Resource resource;
+		private final Bpmn2ModelerResourceImpl snapshot;
+		private final Map<?, ?> options;
+		private final IFile file;
+		private final File localFile;
+		private final BasicCommandStack commandStack;
+		// the last command executed before the snapshot was taken
+		private final Command savePoint;
+
+		private BackgroundSaveJob(Resource resource, Bpmn2ModelerResourceImpl snapshot, Map<?, ?> options, IFile file, File localFile, BasicCommandStack commandStack) {
+			super(NLS.bind(Messages.BPMN2PersistencyBehavior_Saving, file.getName()));
+			this.resource = resource;
+			this.snapshot = snapshot;
+			this.options = options;
+			this.file = file;
+			this.localFile = localFile;
+			this.commandStack = commandStack;
+			this.savePoint = commandStack.getUndoCommand();
+			// saves of the same file are done in the order in which they were requested
+			IResourceRuleFactory ruleFactory = ResourcesPlugin.getWorkspace().getRuleFactory();
+			setRule(MultiRule.combine(ruleFactory.modifyRule(file), ruleFactory.refreshRule(file)));
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family==BackgroundSaveJob.class || file.equals(family);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			File tempFile = null;
+			try {
+				tempFile = File.createTempFile(localFile.getName(), ".tmp", localFile.getParentFile()); //$NON-NLS-1$
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+				try {
+					snapshot.save(out, options);
+				}
+				finally {
+					out.close();
+				}
+				replace(tempFile, localFile);
+				tempFile = null;
+				file.refreshLocal(IResource.DEPTH_ZERO, monitor);
+			}
+			catch (final Exception e) {
+				Activator.logError(e);
+				Display.getDefault().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						MessageDialog.openError(Display.getDefault().getActiveShell(),
+								Messages.BPMN2PersistencyBehavior_Cannot_Save_Title, e.getMessage());
+					}
+				});
+				return Status.CANCEL_STATUS;
+			}
+			finally {
+				if (tempFile!=null)
+					tempFile.delete();
+				snapshot.unload();
+			}
+
+			Display.getDefault().asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					// if the model was changed while it was being saved, it stays dirty
+					if (editor.getEditorInput()!=null && commandStack.getUndoCommand()==savePoint) {
+						commandStack.saveIsDone();
+						editor.updateDirtyState();
+					}
+					BPMN2ProjectValidator.validateOnSave(resource, null);
+				}
+			});
+			return Status.OK_STATUS;
+		}
+
+		/*
+		 * Move the temporary file into place. File.renameTo() replaces the
+		 * target atomically on most platforms; where it does not (e.g. Windows)
+		 * the old file is kept as a backup until the new one is in place. The
+		 * backup gets a unique name so that no existing file is overwritten.
+		 */
+		private void replace(File source, File target) throws IOException {
+			if (source.renameTo(target))
+				return;
+			File backup = File.createTempFile(target.getName(), ".bak", target.getParentFile()); //$NON-NLS-1$
+			backup.delete();
+			if (target.exists() && !target.renameTo(backup))
+				throw new IOException(NLS.bind(Messages.BPMN2PersistencyBehavior_Cannot_Replace, target.getPath()));
+			if (!source.renameTo(target)) {
+				backup.renameTo(target);
+				throw new IOException(NLS.bind(Messages.BPMN2PersistencyBehavior_Cannot_Replace, target.getPath()));
+			}
+			backup.delete();
+		}
+	}
+
 	/**
 	 * The workspace operation used to do the actual save.
 	 */
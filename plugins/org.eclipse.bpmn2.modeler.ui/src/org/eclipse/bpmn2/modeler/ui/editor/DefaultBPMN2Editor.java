@@ -24,6 +24,8 @@ import org.eclipse.bpmn2.modeler.core.LifecycleEvent;
 import org.eclipse.bpmn2.modeler.core.LifecycleEvent.EventType;
 import org.eclipse.bpmn2.modeler.core.di.DIImport;
 import org.eclipse.bpmn2.modeler.core.di.DIUtils;
+import org.eclipse.bpmn2.modeler.core.features.BackgroundConnectionRouter;
+import org.eclipse.bpmn2.modeler.core.features.ConnectionRoutingScheduler;
 import org.eclipse.bpmn2.modeler.core.merrimac.clad.Bpmn2TabbedPropertySheetPage;
 import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceImpl;
 import org.eclipse.bpmn2.modeler.core.model.ModelHandler;
@@ -41,6 +43,7 @@ import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil.Bpmn2DiagramType;
 import org.eclipse.bpmn2.modeler.core.utils.StyleUtil;
+import org.eclipse.bpmn2.modeler.core.validation.IncrementalLiveValidator;
 import org.eclipse.bpmn2.modeler.help.IHelpContexts;
 import org.eclipse.bpmn2.modeler.ui.Activator;
 import org.eclipse.bpmn2.modeler.ui.Bpmn2DiagramEditorInput;
@@ -249,6 +252,7 @@ public class DefaultBPMN2Editor extends DiagramEditor implements IPreferenceChan
 
 			DIImport di = new DIImport(this, getPreferences());
 			di.setModelHandler(modelHandler);
+			di.setImportOnDemand(getPreferences().getImportDiagramsOnDemand());
 
 			di.generateFromDI();
 		}
@@ -471,6 +475,9 @@ public class DefaultBPMN2Editor extends DiagramEditor implements IPreferenceChan
 
 	@Override
 	public void dispose() {
+		// a save that is still running must not be cut short
+		if (getModelFile()!=null)
+			BPMN2PersistencyBehavior.joinBackgroundSaves(getModelFile());
 		if (targetRuntime != null) {
 			targetRuntime.notify(new LifecycleEvent(EventType.EDITOR_SHUTDOWN, this, targetRuntime));
 		}
@@ -491,6 +498,11 @@ public class DefaultBPMN2Editor extends DiagramEditor implements IPreferenceChan
 
 		if (getResourceSet() != null) {
 			getResourceSet().eAdapters().remove(getEditorAdapter());
+			// stop routing connections of this editor's Diagrams
+			ConnectionRoutingScheduler.dispose(getResourceSet());
+			BackgroundConnectionRouter.dispose(getResourceSet());
+			// stop tracking changes for Live validation
+			IncrementalLiveValidator.dispose(getResourceSet());
 		}
 
 		super.dispose();
@@ -578,6 +590,14 @@ public class DefaultBPMN2Editor extends DiagramEditor implements IPreferenceChan
 	}
 
 	public void setBpmnDiagram(final BPMNDiagram bpmnDiagram) {
+		// create the shapes and connections of this diagram page
+		// if this was deferred when the file was opened
+		if (DIImport.isDeferred(bpmnDiagram)) {
+			DIImport di = new DIImport(this, getPreferences());
+			di.setModelHandler(modelHandler);
+			di.importDeferredDiagram(bpmnDiagram);
+		}
+
 		// create a new Graphiti Diagram if needed
 		Diagram diagram = DIUtils.getOrCreateDiagram(getDiagramBehavior(), bpmnDiagram);
 
@@ -18,6 +18,8 @@ public class Messages extends NLS {
 	public static String BPMN2MultiPageEditor_Source_Tab;
 	public static String BPMN2PersistencyBehavior_Cannot_Save_Message;
 	public static String BPMN2PersistencyBehavior_Cannot_Save_Title;
+	public static String BPMN2PersistencyBehavior_Saving;
+	public static String BPMN2PersistencyBehavior_Cannot_Replace;
 	public static String DesignEditor_Delete_Diagram_Action;
 	public static String DesignEditor_Delete_Page_Title;
 	public static String DesignEditor_DeletePage_Message;
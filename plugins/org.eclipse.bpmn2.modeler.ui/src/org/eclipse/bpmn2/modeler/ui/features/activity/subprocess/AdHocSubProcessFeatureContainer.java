@@ -15,6 +15,7 @@ package org.eclipse.bpmn2.modeler.ui.features.activity.subprocess;
 import org.eclipse.bpmn2.AdHocSubProcess;
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.modeler.core.features.GraphitiConstants;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.activity.AbstractCreateExpandableFlowNodeFeature;
 import org.eclipse.bpmn2.modeler.core.utils.ShapeDecoratorUtil;
 import org.eclipse.bpmn2.modeler.ui.ImageProvider;
@@ -25,7 +26,7 @@ import org.eclipse.graphiti.features.IFeatureProvider;
 import org.eclipse.graphiti.features.context.IAddContext;
 import org.eclipse.graphiti.mm.pictograms.ContainerShape;
 
-public class AdHocSubProcessFeatureContainer extends AbstractExpandableActivityFeatureContainer {
+public class AdHocSubProcessFeatureContainer extends AbstractExpandableActivityFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public boolean canApplyTo(Object o) {
@@ -27,6 +27,7 @@ import org.eclipse.bpmn2.SubProcess;
 import org.eclipse.bpmn2.TimerEventDefinition;
 import org.eclipse.bpmn2.Transaction;
 import org.eclipse.bpmn2.modeler.core.features.GraphitiConstants;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.activity.AbstractCreateExpandableFlowNodeFeature;
 import org.eclipse.bpmn2.modeler.core.features.activity.AbstractUpdateMarkerFeature;
@@ -56,7 +57,7 @@ import org.eclipse.graphiti.mm.pictograms.PictogramElement;
 import org.eclipse.graphiti.mm.pictograms.Shape;
 import org.eclipse.graphiti.services.Graphiti;
 
-public class SubProcessFeatureContainer extends AbstractExpandableActivityFeatureContainer {
+public class SubProcessFeatureContainer extends AbstractExpandableActivityFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public boolean canApplyTo(Object o) {
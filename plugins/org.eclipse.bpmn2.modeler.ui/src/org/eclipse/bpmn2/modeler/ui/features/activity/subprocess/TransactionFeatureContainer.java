@@ -14,6 +14,7 @@ package org.eclipse.bpmn2.modeler.ui.features.activity.subprocess;
 
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.Transaction;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.activity.AbstractCreateExpandableFlowNodeFeature;
 import org.eclipse.bpmn2.modeler.core.utils.StyleUtil;
 import org.eclipse.bpmn2.modeler.ui.ImageProvider;
@@ -28,7 +29,7 @@ import org.eclipse.graphiti.mm.pictograms.ContainerShape;
 import org.eclipse.graphiti.services.Graphiti;
 import org.eclipse.graphiti.services.IGaService;
 
-public class TransactionFeatureContainer extends AbstractExpandableActivityFeatureContainer {
+public class TransactionFeatureContainer extends AbstractExpandableActivityFeatureContainer implements ITypeBasedFeatureContainer {
 
 	private static final int offset = 3;
 
@@ -14,6 +14,7 @@ package org.eclipse.bpmn2.modeler.ui.features.activity.task;
 
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.ReceiveTask;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.activity.task.AbstractCreateTaskFeature;
 import org.eclipse.bpmn2.modeler.ui.ImageProvider;
 import org.eclipse.emf.ecore.EClass;
@@ -21,7 +22,7 @@ import org.eclipse.graphiti.features.IAddFeature;
 import org.eclipse.graphiti.features.ICreateFeature;
 import org.eclipse.graphiti.features.IFeatureProvider;
 
-public class ReceiveTaskFeatureContainer extends AbstractTaskFeatureContainer {
+public class ReceiveTaskFeatureContainer extends AbstractTaskFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public boolean canApplyTo(Object o) {
@@ -16,6 +16,7 @@ import org.eclipse.bpmn2.BaseElement;
 import org.eclipse.bpmn2.TextAnnotation;
 import org.eclipse.bpmn2.modeler.core.features.DefaultMoveBPMNShapeFeature;
 import org.eclipse.bpmn2.modeler.core.features.DefaultResizeBPMNShapeFeature;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.ShowDocumentationFeature;
 import org.eclipse.bpmn2.modeler.core.features.ShowPropertiesFeature;
@@ -50,7 +51,7 @@ import org.eclipse.graphiti.mm.algorithms.styles.Point;
 import org.eclipse.graphiti.mm.pictograms.PictogramElement;
 import org.eclipse.graphiti.mm.pictograms.Shape;
 
-public class TextAnnotationFeatureContainer extends LabelFeatureContainer {
+public class TextAnnotationFeatureContainer extends LabelFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public Object getApplyObject(IContext context) {
@@ -15,13 +15,14 @@ package org.eclipse.bpmn2.modeler.ui.features.choreography;
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.CallChoreography;
 import org.eclipse.bpmn2.Participant;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.ui.ImageProvider;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.graphiti.features.IAddFeature;
 import org.eclipse.graphiti.features.ICreateFeature;
 import org.eclipse.graphiti.features.IFeatureProvider;
 
-public class CallChoreographyFeatureContainer extends AbstractChoreographyFeatureContainer {
+public class CallChoreographyFeatureContainer extends AbstractChoreographyFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public boolean canApplyTo(Object o) {
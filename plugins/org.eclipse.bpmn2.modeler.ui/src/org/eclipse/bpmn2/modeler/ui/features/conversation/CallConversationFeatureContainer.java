@@ -15,6 +15,7 @@ package org.eclipse.bpmn2.modeler.ui.features.conversation;
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.CallConversation;
 import org.eclipse.bpmn2.modeler.core.features.DefaultMoveBPMNShapeFeature;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.label.UpdateLabelFeature;
 import org.eclipse.bpmn2.modeler.core.preferences.ShapeStyle.LabelPosition;
@@ -37,7 +38,7 @@ import org.eclipse.graphiti.mm.algorithms.AbstractText;
 import org.eclipse.graphiti.mm.pictograms.ContainerShape;
 import org.eclipse.graphiti.mm.pictograms.Shape;
 
-public class CallConversationFeatureContainer extends AbstractExpandableActivityFeatureContainer {
+public class CallConversationFeatureContainer extends AbstractExpandableActivityFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public boolean canApplyTo(Object o) {
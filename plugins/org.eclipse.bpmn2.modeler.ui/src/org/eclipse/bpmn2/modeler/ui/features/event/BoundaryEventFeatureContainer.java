@@ -14,6 +14,7 @@ package org.eclipse.bpmn2.modeler.ui.features.event;
 
 import org.eclipse.bpmn2.BoundaryEvent;
 import org.eclipse.bpmn2.modeler.core.features.BaseElementFeatureContainer;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.label.UpdateLabelFeature;
 import org.eclipse.bpmn2.modeler.ui.features.AbstractDefaultDeleteFeature;
@@ -28,7 +29,7 @@ import org.eclipse.graphiti.features.IUpdateFeature;
 import org.eclipse.graphiti.features.context.IResizeShapeContext;
 import org.eclipse.graphiti.features.impl.DefaultResizeShapeFeature;
 
-public class BoundaryEventFeatureContainer extends BaseElementFeatureContainer {
+public class BoundaryEventFeatureContainer extends BaseElementFeatureContainer implements ITypeBasedFeatureContainer {
 
 	public static String BOUNDARY_EVENT_CANCEL = "cancel.activity"; //$NON-NLS-1$
 	public static String BOUNDARY_EVENT_DISTANCE = "boundary.distance"; //$NON-NLS-1$
@@ -32,6 +32,7 @@ import org.eclipse.bpmn2.modeler.core.Activator;
 import org.eclipse.bpmn2.modeler.core.features.AbstractBpmn2UpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.BaseElementConnectionFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.DefaultLayoutBPMNConnectionFeature;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.flow.AbstractAddFlowFeature;
 import org.eclipse.bpmn2.modeler.core.features.flow.AbstractCreateFlowFeature;
@@ -72,7 +73,7 @@ import org.eclipse.graphiti.services.IGaService;
 import org.eclipse.graphiti.services.IPeService;
 import org.eclipse.graphiti.util.IColorConstant;
 
-public class SequenceFlowFeatureContainer extends BaseElementConnectionFeatureContainer {
+public class SequenceFlowFeatureContainer extends BaseElementConnectionFeatureContainer implements ITypeBasedFeatureContainer {
 
 	private static final String IS_DEFAULT_FLOW_PROPERTY = "is.default.flow"; //$NON-NLS-1$
 	private static final String IS_CONDITIONAL_FLOW_PROPERTY = "is.conditional.flow"; //$NON-NLS-1$
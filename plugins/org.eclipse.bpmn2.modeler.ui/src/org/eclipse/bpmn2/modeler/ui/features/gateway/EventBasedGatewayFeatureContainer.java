@@ -15,6 +15,7 @@ package org.eclipse.bpmn2.modeler.ui.features.gateway;
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.EventBasedGateway;
 import org.eclipse.bpmn2.EventBasedGatewayType;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.gateway.AbstractCreateGatewayFeature;
 import org.eclipse.bpmn2.modeler.core.features.gateway.AddGatewayFeature;
@@ -33,7 +34,7 @@ import org.eclipse.graphiti.mm.pictograms.PictogramElement;
 import org.eclipse.graphiti.services.Graphiti;
 import org.eclipse.graphiti.services.IPeService;
 
-public class EventBasedGatewayFeatureContainer extends AbstractGatewayFeatureContainer {
+public class EventBasedGatewayFeatureContainer extends AbstractGatewayFeatureContainer implements ITypeBasedFeatureContainer {
 
 	static final String INSTANTIATE_PROPERTY = "instantiate"; //$NON-NLS-1$
 	static final String EVENT_GATEWAY_TYPE_PROPERTY = "eventGatewayType"; //$NON-NLS-1$
@@ -14,6 +14,7 @@ package org.eclipse.bpmn2.modeler.ui.features.lane;
 
 import org.eclipse.bpmn2.Lane;
 import org.eclipse.bpmn2.modeler.core.features.BaseElementFeatureContainer;
+import org.eclipse.bpmn2.modeler.core.features.ITypeBasedFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.MultiUpdateFeature;
 import org.eclipse.bpmn2.modeler.core.features.containers.LayoutContainerFeature;
 import org.eclipse.bpmn2.modeler.core.features.containers.UpdateContainerLabelFeature;
@@ -33,7 +34,7 @@ import org.eclipse.graphiti.features.IResizeShapeFeature;
 import org.eclipse.graphiti.features.IUpdateFeature;
 import org.eclipse.graphiti.features.custom.ICustomFeature;
 
-public class LaneFeatureContainer extends BaseElementFeatureContainer {
+public class LaneFeatureContainer extends BaseElementFeatureContainer implements ITypeBasedFeatureContainer {
 
 	@Override
 	public boolean canApplyTo(Object o) {
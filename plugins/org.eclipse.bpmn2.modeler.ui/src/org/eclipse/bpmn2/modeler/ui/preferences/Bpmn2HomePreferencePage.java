@@ -112,6 +112,24 @@ public class Bpmn2HomePreferencePage
 				getFieldEditorParent());
 		addField(saveBPMNLabels);
 		
+		BooleanFieldEditor routeConnectionsInBackground = new BooleanFieldEditor(
+				Bpmn2Preferences.PREF_ROUTE_CONNECTIONS_IN_BACKGROUND,
+				Bpmn2Preferences.PREF_ROUTE_CONNECTIONS_IN_BACKGROUND_LABEL,
+				getFieldEditorParent());
+		addField(routeConnectionsInBackground);
+		
+		BooleanFieldEditor saveInBackground = new BooleanFieldEditor(
+				Bpmn2Preferences.PREF_SAVE_IN_BACKGROUND,
+				Bpmn2Preferences.PREF_SAVE_IN_BACKGROUND_LABEL,
+				getFieldEditorParent());
+		addField(saveInBackground);
+		
+		BooleanFieldEditor importDiagramsOnDemand = new BooleanFieldEditor(
+				Bpmn2Preferences.PREF_IMPORT_DIAGRAMS_ON_DEMAND,
+				Bpmn2Preferences.PREF_IMPORT_DIAGRAMS_ON_DEMAND_LABEL,
+				getFieldEditorParent());
+		addField(importDiagramsOnDemand);
+		
 		ComboFieldEditor resolveExternals = new ComboFieldEditor(
 				Bpmn2Preferences.PREF_RESOLVE_EXTERNALS,
 				Bpmn2Preferences.PREF_RESOLVE_EXTERNALS_LABEL,
@@ -143,6 +161,9 @@ public class Bpmn2HomePreferencePage
 		preferences.setToDefault(Bpmn2Preferences.PREF_IS_MARKER_VISIBLE);
 		preferences.setToDefault(Bpmn2Preferences.PREF_CONNECTION_TIMEOUT);
 		preferences.setToDefault(Bpmn2Preferences.PREF_SAVE_BPMNLABELS);
+		preferences.setToDefault(Bpmn2Preferences.PREF_ROUTE_CONNECTIONS_IN_BACKGROUND);
+		preferences.setToDefault(Bpmn2Preferences.PREF_SAVE_IN_BACKGROUND);
+		preferences.setToDefault(Bpmn2Preferences.PREF_IMPORT_DIAGRAMS_ON_DEMAND);
 		super.performDefaults();
 	}
 	
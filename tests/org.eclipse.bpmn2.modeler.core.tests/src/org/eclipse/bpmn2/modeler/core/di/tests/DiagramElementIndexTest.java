@@ -0,0 +1,176 @@
+package org.eclipse.bpmn2.modeler.core.di.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Bpmn2Factory;
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.FlowElementsContainer;
+import org.eclipse.bpmn2.SequenceFlow;
+import org.eclipse.bpmn2.di.BPMNDiagram;
+import org.eclipse.bpmn2.di.BPMNEdge;
+import org.eclipse.bpmn2.di.BPMNPlane;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.di.BpmnDiFactory;
+import org.eclipse.bpmn2.modeler.core.di.DIUtils;
+import org.eclipse.bpmn2.modeler.core.tests.TestModels;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.dd.di.DiagramElement;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.Test;
+
+/**
+ * Checks that the DIUtils lookups, which use the DiagramElementIndex, find
+ * the same BPMNShapes and BPMNEdges as a scan of all BPMNDiagrams, both on
+ * the example models and after the diagrams were changed.
+ */
+public class DiagramElementIndexTest {
+
+	@Test
+	public void testExampleModels() throws Exception {
+		for (String name : TestModels.EXAMPLES) {
+			Resource resource = TestModels.load(name);
+			Definitions definitions = ModelUtil.getDefinitions(resource);
+			assertFalse(name + ": no diagrams", definitions.getDiagrams().isEmpty()); //$NON-NLS-1$
+			assertSameElements(name, definitions);
+		}
+	}
+
+	@Test
+	public void testChangedPlane() throws Exception {
+		Resource resource = TestModels.load(TestModels.EXAMPLES[0]);
+		Definitions definitions = ModelUtil.getDefinitions(resource);
+		BPMNPlane plane = definitions.getDiagrams().get(0).getPlane();
+		BPMNShape shape = getFirst(plane, BPMNShape.class);
+		BPMNEdge edge = getFirst(plane, BPMNEdge.class);
+		BaseElement element = shape.getBpmnElement();
+		assertSameElements("initial", definitions); //$NON-NLS-1$
+
+		// remove and re-add a shape
+		plane.getPlaneElement().remove(shape);
+		assertNull(DIUtils.findBPMNShape(element));
+		assertSameElements("removed shape", definitions); //$NON-NLS-1$
+		plane.getPlaneElement().add(shape);
+		assertSame(shape, DIUtils.findBPMNShape(element));
+		assertSameElements("added shape", definitions); //$NON-NLS-1$
+
+		// change the element of an edge
+		BaseElement oldElement = edge.getBpmnElement();
+		SequenceFlow flow = Bpmn2Factory.eINSTANCE.createSequenceFlow();
+		((FlowElementsContainer) oldElement.eContainer()).getFlowElements().add(flow);
+		edge.setBpmnElement(flow);
+		assertNull(DIUtils.findBPMNEdge(oldElement));
+		assertSame(edge, DIUtils.findBPMNEdge(flow));
+		assertSameElements("changed edge", definitions); //$NON-NLS-1$
+
+		// remove all shapes at once
+		List<DiagramElement> removed = new ArrayList<DiagramElement>(plane.getPlaneElement());
+		plane.getPlaneElement().clear();
+		assertNull(DIUtils.findBPMNShape(element));
+		assertSameElements("cleared plane", definitions); //$NON-NLS-1$
+		plane.getPlaneElement().addAll(removed);
+		assertSameElements("restored plane", definitions); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testMultipleDiagrams() throws Exception {
+		Resource resource = TestModels.load(TestModels.EXAMPLES[0]);
+		Definitions definitions = ModelUtil.getDefinitions(resource);
+		BPMNDiagram diagram1 = definitions.getDiagrams().get(0);
+		BPMNShape shape1 = getFirst(diagram1.getPlane(), BPMNShape.class);
+		BaseElement element = shape1.getBpmnElement();
+
+		// the same element in a second diagram: the first diagram wins
+		BpmnDiFactory factory = BpmnDiFactory.eINSTANCE;
+		BPMNDiagram diagram2 = factory.createBPMNDiagram();
+		BPMNPlane plane2 = factory.createBPMNPlane();
+		diagram2.setPlane(plane2);
+		BPMNShape shape2 = factory.createBPMNShape();
+		shape2.setBpmnElement(element);
+		plane2.getPlaneElement().add(shape2);
+		definitions.getDiagrams().add(diagram2);
+
+		assertSame(shape1, DIUtils.findBPMNShape(element));
+		assertSame(shape2, DIUtils.findBPMNShape(diagram2, element));
+		assertSameElements("second diagram", definitions); //$NON-NLS-1$
+
+		// ...unless it is moved in front of the first one
+		definitions.getDiagrams().move(0, diagram2);
+		assertSame(shape2, DIUtils.findBPMNShape(element));
+		assertSameElements("moved diagram", definitions); //$NON-NLS-1$
+
+		// remove the second diagram
+		definitions.getDiagrams().remove(diagram2);
+		assertSame(shape1, DIUtils.findBPMNShape(element));
+		// a BPMNDiagram that does not belong to the Definitions is searched
+		assertSame(shape2, DIUtils.findBPMNShape(diagram2, element));
+		assertSameElements("removed diagram", definitions); //$NON-NLS-1$
+
+		// replace the plane of the first diagram
+		BPMNPlane plane1 = diagram1.getPlane();
+		diagram1.setPlane(plane2);
+		assertSame(shape2, DIUtils.findBPMNShape(element));
+		assertSameElements("replaced plane", definitions); //$NON-NLS-1$
+		diagram1.setPlane(plane1);
+		assertSame(shape1, DIUtils.findBPMNShape(element));
+		assertSameElements("restored plane", definitions); //$NON-NLS-1$
+	}
+
+	/**
+	 * Compare the indexed lookups of every object with a scan of all
+	 * BPMNDiagrams, in BPMNDiagram order.
+	 */
+	private static void assertSameElements(String message, Definitions definitions) {
+		TreeIterator<EObject> iter = definitions.eAllContents();
+		while (iter.hasNext()) {
+			EObject o = iter.next();
+			if (!(o instanceof BaseElement) || o instanceof DiagramElement)
+				continue;
+			BaseElement be = (BaseElement) o;
+			String text = message + ": " + be.getId(); //$NON-NLS-1$
+			assertSame(text, scan(definitions, null, be, BPMNShape.class), DIUtils.findBPMNShape(be));
+			assertSame(text, scan(definitions, null, be, BPMNEdge.class), DIUtils.findBPMNEdge(be));
+			assertSame(text, scan(definitions, null, be, DiagramElement.class), DIUtils.findDiagramElement(be));
+			for (BPMNDiagram d : definitions.getDiagrams()) {
+				assertSame(text, scan(definitions, d, be, BPMNShape.class), DIUtils.findBPMNShape(d, be));
+				assertSame(text, scan(definitions, d, be, BPMNEdge.class), DIUtils.findBPMNEdge(d, be));
+				assertSame(text, scan(definitions, d, be, DiagramElement.class), DIUtils.findDiagramElement(d, be));
+			}
+		}
+	}
+
+	/**
+	 * The lookup that DIUtils did before the DiagramElementIndex was added.
+	 */
+	private static <T extends DiagramElement> T scan(Definitions definitions, BPMNDiagram diagram, BaseElement be, Class<T> type) {
+		for (BPMNDiagram d : definitions.getDiagrams()) {
+			if (diagram!=null && d!=diagram)
+				continue;
+			if (d.getPlane()==null)
+				continue;
+			for (DiagramElement de : d.getPlane().getPlaneElement()) {
+				if (!type.isInstance(de))
+					continue;
+				if ((de instanceof BPMNShape && ((BPMNShape) de).getBpmnElement()==be) ||
+						(de instanceof BPMNEdge && ((BPMNEdge) de).getBpmnElement()==be))
+					return type.cast(de);
+			}
+		}
+		return null;
+	}
+
+	private static <T extends DiagramElement> T getFirst(BPMNPlane plane, Class<T> type) {
+		for (DiagramElement de : plane.getPlaneElement()) {
+			if (type.isInstance(de))
+				return type.cast(de);
+		}
+		throw new AssertionError("no " + type.getSimpleName()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,145 @@
+package org.eclipse.bpmn2.modeler.core.di.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.bpmn2.Bpmn2Factory;
+import org.eclipse.bpmn2.Task;
+import org.eclipse.bpmn2.modeler.core.di.PictogramElementIndex;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.graphiti.mm.pictograms.ContainerShape;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+import org.eclipse.graphiti.mm.pictograms.PictogramLink;
+import org.eclipse.graphiti.mm.pictograms.PictogramsFactory;
+import org.eclipse.graphiti.services.Graphiti;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the PictogramElementIndex returns the same PictogramElements
+ * as the Graphiti link service, which scans all PictogramLinks of the
+ * Diagram, while links are added, changed and removed.
+ */
+public class PictogramElementIndexTest {
+
+	Diagram diagram;
+
+	List<Task> tasks;
+
+	List<ContainerShape> shapes;
+
+	@Before
+	public void setUp() {
+		diagram = Graphiti.getPeCreateService().createDiagram("BPMN2", "test", true); //$NON-NLS-1$ //$NON-NLS-2$
+		tasks = new ArrayList<Task>();
+		shapes = new ArrayList<ContainerShape>();
+		for (int i=0; i<4; ++i) {
+			Task task = Bpmn2Factory.eINSTANCE.createTask();
+			// the link service compares business objects by value
+			task.setId("Task_" + i); //$NON-NLS-1$
+			tasks.add(task);
+			shapes.add(Graphiti.getPeCreateService().createContainerShape(diagram, true));
+		}
+	}
+
+	@Test
+	public void testExistingLinks() throws Exception {
+		link(shapes.get(0), tasks.get(0));
+		link(shapes.get(1), tasks.get(0));
+		link(shapes.get(2), tasks.get(1), tasks.get(2));
+
+		assertSameElements("existing links"); //$NON-NLS-1$
+		assertEquals(2, PictogramElementIndex.getPictogramElements(diagram, tasks.get(0)).size());
+	}
+
+	@Test
+	public void testAddedAndRemovedLinks() throws Exception {
+		assertSameElements("no links"); //$NON-NLS-1$
+
+		PictogramLink link0 = link(shapes.get(0), tasks.get(0));
+		PictogramLink link1 = link(shapes.get(1), tasks.get(1));
+		assertSameElements("added links"); //$NON-NLS-1$
+
+		diagram.getPictogramLinks().remove(link0);
+		assertSameElements("removed link"); //$NON-NLS-1$
+		assertTrue(PictogramElementIndex.getPictogramElements(diagram, tasks.get(0)).isEmpty());
+
+		diagram.getPictogramLinks().removeAll(Arrays.asList(link1));
+		diagram.getPictogramLinks().addAll(Arrays.asList(link0, link1));
+		assertSameElements("re-added links"); //$NON-NLS-1$
+
+		diagram.getPictogramLinks().clear();
+		assertSameElements("cleared links"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testChangedBusinessObjects() throws Exception {
+		PictogramLink link = link(shapes.get(0), tasks.get(0));
+		assertSameElements("initial"); //$NON-NLS-1$
+
+		link.getBusinessObjects().add(tasks.get(1));
+		assertSameElements("added business object"); //$NON-NLS-1$
+
+		link.getBusinessObjects().set(0, tasks.get(2));
+		assertSameElements("replaced business object"); //$NON-NLS-1$
+
+		link.getBusinessObjects().removeAll(Arrays.asList(tasks.get(1), tasks.get(2)));
+		assertSameElements("removed business objects"); //$NON-NLS-1$
+
+		link.getBusinessObjects().addAll(Arrays.asList(tasks.get(0), tasks.get(3)));
+		assertSameElements("added business objects"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testChangedPictogramElement() throws Exception {
+		PictogramLink link = link(shapes.get(0), tasks.get(0));
+		assertSameElements("initial"); //$NON-NLS-1$
+
+		link.setPictogramElement(shapes.get(1));
+		assertSameElements("changed pictogram element"); //$NON-NLS-1$
+		assertSame(shapes.get(1), PictogramElementIndex.getPictogramElements(diagram, tasks.get(0)).get(0));
+	}
+
+	@Test
+	public void testLink() throws Exception {
+		link(shapes.get(0), tasks.get(0));
+		// the feature provider reports links that the index already knows
+		PictogramElementIndex.link(shapes.get(0), new Object[] { tasks.get(0) });
+		assertSameElements("reported link"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testMissedNotification() throws Exception {
+		PictogramLink link = link(shapes.get(0), tasks.get(0));
+		assertSameElements("initial"); //$NON-NLS-1$
+
+		link.eSetDeliver(false);
+		link.getBusinessObjects().clear();
+		link.eSetDeliver(true);
+		assertSameElements("missed notification"); //$NON-NLS-1$
+	}
+
+	private PictogramLink link(PictogramElement pe, EObject... objects) {
+		PictogramLink link = PictogramsFactory.eINSTANCE.createPictogramLink();
+		link.setPictogramElement(pe);
+		link.getBusinessObjects().addAll(Arrays.asList(objects));
+		diagram.getPictogramLinks().add(link);
+		return link;
+	}
+
+	private void assertSameElements(String message) {
+		for (Task task : tasks) {
+			List<PictogramElement> expected = Graphiti.getLinkService().getPictogramElements(diagram, task);
+			List<PictogramElement> actual = PictogramElementIndex.getPictogramElements(diagram, task);
+			String text = message + ": " + task.getId(); //$NON-NLS-1$
+			assertEquals(text, expected.size(), actual.size());
+			assertTrue(text, actual.containsAll(expected));
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package org.eclipse.bpmn2.modeler.core.model.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.bpmn2.Activity;
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Bpmn2Factory;
+import org.eclipse.bpmn2.FlowElement;
+import org.eclipse.bpmn2.FlowElementsContainer;
+import org.eclipse.bpmn2.FlowNode;
+import org.eclipse.bpmn2.Lane;
+import org.eclipse.bpmn2.RootElement;
+import org.eclipse.bpmn2.SequenceFlow;
+import org.eclipse.bpmn2.Task;
+import org.eclipse.bpmn2.di.BPMNDiagram;
+import org.eclipse.bpmn2.di.BPMNEdge;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
+import org.eclipse.bpmn2.modeler.core.tests.TestModels;
+import org.eclipse.dd.dc.Bounds;
+import org.eclipse.dd.dc.Point;
+import org.eclipse.dd.di.DiagramElement;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EContentsEList;
+import org.junit.Test;
+
+/**
+ * Checks that the ModelIndex answers the type, ID and inverse reference
+ * queries like a walk over the Resource contents, on the example models and
+ * after the model was changed.
+ */
+public class ModelIndexTest {
+
+	private static final Class<?>[] TYPES = {
+		BaseElement.class,
+		RootElement.class,
+		FlowElement.class,
+		FlowNode.class,
+		Activity.class,
+		Task.class,
+		SequenceFlow.class,
+		Lane.class,
+		BPMNDiagram.class,
+		DiagramElement.class,
+		BPMNShape.class,
+		BPMNEdge.class,
+		Bounds.class,
+		Point.class
+	};
+
+	@Test
+	public void testExampleModels() throws Exception {
+		for (String name : TestModels.EXAMPLES) {
+			Resource resource = TestModels.load(name);
+			assertSameContents(name, resource);
+			assertSameReferences(name, resource);
+		}
+	}
+
+	@Test
+	public void testChangedModel() throws Exception {
+		Resource resource = TestModels.load(TestModels.EXAMPLES[0]);
+		ModelIndex index = ModelIndex.getIndex(resource);
+		assertSameContents("initial", resource); //$NON-NLS-1$
+
+		// add a Task
+		FlowNode node = getAll(resource, FlowNode.class).get(0);
+		FlowElementsContainer container = (FlowElementsContainer) node.eContainer();
+		Task task = Bpmn2Factory.eINSTANCE.createTask();
+		task.setId("Task_new"); //$NON-NLS-1$
+		container.getFlowElements().add(task);
+		assertSame(task, index.findElement("Task_new")); //$NON-NLS-1$
+		assertSameContents("added task", resource); //$NON-NLS-1$
+
+		// change its ID
+		task.setId("Task_changed"); //$NON-NLS-1$
+		assertNull(index.findElement("Task_new")); //$NON-NLS-1$
+		assertSame(task, index.findElement("Task_changed")); //$NON-NLS-1$
+		assertSameContents("changed id", resource); //$NON-NLS-1$
+
+		// give it the ID of another element: the first one in the index wins
+		task.setId(node.getId());
+		assertEquals(2, index.findElements(node.getId()).size());
+		assertSame(node, index.findElement(node.getId()));
+
+		// remove it
+		container.getFlowElements().remove(task);
+		assertEquals(1, index.findElements(node.getId()).size());
+		assertNull(index.findElement("Task_changed")); //$NON-NLS-1$
+		assertSameContents("removed task", resource); //$NON-NLS-1$
+
+		// remove and re-add a whole subtree
+		List<FlowElement> removed = new ArrayList<FlowElement>(container.getFlowElements());
+		container.getFlowElements().clear();
+		assertNull(index.findElement(node.getId()));
+		assertSameContents("removed subtree", resource); //$NON-NLS-1$
+		container.getFlowElements().addAll(removed);
+		assertSame(node, index.findElement(node.getId()));
+		assertSameContents("re-added subtree", resource); //$NON-NLS-1$
+		assertSameReferences("re-added subtree", resource); //$NON-NLS-1$
+	}
+
+	/**
+	 * Compare getAll() with a walk over the Resource contents, and
+	 * findElement() and findElements() with a search of that walk.
+	 */
+	private static void assertSameContents(String message, Resource resource) {
+		ModelIndex index = ModelIndex.getIndex(resource);
+		for (Class<?> type : TYPES)
+			assertEquals(message + ": " + type.getSimpleName(), getAll(resource, type), index.getAll(type)); //$NON-NLS-1$
+
+		List<BaseElement> all = getAll(resource, BaseElement.class);
+		for (BaseElement be : all) {
+			if (be.getId()==null)
+				continue;
+			List<BaseElement> expected = new ArrayList<BaseElement>();
+			for (BaseElement other : all) {
+				if (be.getId().equals(other.getId()))
+					expected.add(other);
+			}
+			assertSame(message + ": " + be.getId(), expected.get(0), index.findElement(be.getId())); //$NON-NLS-1$
+			assertEquals(message + ": " + be.getId(), expected.size(), index.findElements(be.getId()).size()); //$NON-NLS-1$
+			assertTrue(message + ": " + be.getId(), index.findElements(be.getId()).containsAll(expected)); //$NON-NLS-1$
+		}
+		assertNull(index.findElement("no such id")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Check that every cross reference without an opposite is found by
+	 * getReferencingObjects(), and that every object it returns does
+	 * reference the target.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void assertSameReferences(String message, Resource resource) {
+		ModelIndex index = ModelIndex.getIndex(resource);
+		int count = 0;
+		TreeIterator<EObject> iter = resource.getAllContents();
+		while (iter.hasNext()) {
+			EObject o = iter.next();
+			for (EContentsEList.FeatureIterator<EObject> fi = (EContentsEList.FeatureIterator<EObject>) o.eCrossReferences().iterator(); fi.hasNext();) {
+				EObject target = fi.next();
+				EReference reference = (EReference) fi.feature();
+				if (reference.getEOpposite()!=null || reference.isDerived() || !reference.isChangeable())
+					continue;
+				List<EObject> referencing = index.getReferencingObjects(target, reference);
+				String text = message + ": " + o.eClass().getName() + "." + reference.getName(); //$NON-NLS-1$ //$NON-NLS-2$
+				assertTrue(text, referencing.contains(o));
+				for (EObject r : referencing) {
+					Object value = r.eGet(reference, false);
+					assertTrue(text, value==target || (value instanceof List && ((List<?>) value).contains(target)));
+				}
+				++count;
+			}
+		}
+		assertTrue(message + ": no references", count>0); //$NON-NLS-1$
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> List<T> getAll(Resource resource, Class<T> type) {
+		List<T> result = new ArrayList<T>();
+		TreeIterator<EObject> iter = resource.getAllContents();
+		while (iter.hasNext()) {
+			EObject o = iter.next();
+			if (type.isInstance(o))
+				result.add((T) o);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,364 @@
+package org.eclipse.bpmn2.modeler.core.model.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.eclipse.bpmn2.Assignment;
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Bpmn2Factory;
+import org.eclipse.bpmn2.Bpmn2Package;
+import org.eclipse.bpmn2.CompensateEventDefinition;
+import org.eclipse.bpmn2.DataAssociation;
+import org.eclipse.bpmn2.DataInput;
+import org.eclipse.bpmn2.DataInputAssociation;
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.DocumentRoot;
+import org.eclipse.bpmn2.Documentation;
+import org.eclipse.bpmn2.Expression;
+import org.eclipse.bpmn2.ExtensionAttributeValue;
+import org.eclipse.bpmn2.FormalExpression;
+import org.eclipse.bpmn2.InputOutputSpecification;
+import org.eclipse.bpmn2.ItemDefinition;
+import org.eclipse.bpmn2.Lane;
+import org.eclipse.bpmn2.LaneSet;
+import org.eclipse.bpmn2.Participant;
+import org.eclipse.bpmn2.Process;
+import org.eclipse.bpmn2.SequenceFlow;
+import org.eclipse.bpmn2.SubProcess;
+import org.eclipse.bpmn2.Task;
+import org.eclipse.bpmn2.di.BPMNDiagram;
+import org.eclipse.bpmn2.di.BPMNPlane;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.di.BpmnDiFactory;
+import org.eclipse.bpmn2.di.BpmnDiPackage;
+import org.eclipse.bpmn2.modeler.core.adapters.IExtensionValueAdapter;
+import org.eclipse.bpmn2.modeler.core.model.SavePolicyTable;
+import org.eclipse.bpmn2.modeler.core.model.SavePolicyTable.Decision;
+import org.eclipse.bpmn2.modeler.core.tests.TestModels;
+import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.dd.dc.Bounds;
+import org.eclipse.dd.dc.DcFactory;
+import org.eclipse.dd.dc.Point;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.util.FeatureMap;
+import org.eclipse.emf.ecore.xml.type.AnyType;
+import org.eclipse.emf.ecore.xml.type.XMLTypeFactory;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link SavePolicyTable} makes the same decisions as the
+ * chain of rules that was previously hard coded in
+ * Bpmn2ModelerXMLSave.shouldSaveFeature(), for every feature of every object
+ * of the example models and of a model that exercises the rules which depend
+ * on feature values.
+ */
+public class SavePolicyTableTest {
+
+	@Test
+	public void testExampleModels() throws Exception {
+		for (String name : TestModels.EXAMPLES) {
+			Resource resource = TestModels.load(name);
+			assertSameDecisions(name, resource);
+		}
+	}
+
+	@Test
+	public void testValueDependentRules() throws Exception {
+		Resource resource = createFixture();
+		assertSameDecisions("fixture", resource); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testExtensionValues() throws Exception {
+		Bpmn2Factory factory = Bpmn2Factory.eINSTANCE;
+		Task task = factory.createTask();
+		EStructuralFeature f = Bpmn2Package.eINSTANCE.getBaseElement_ExtensionValues();
+
+		// no Extension Values at all
+		assertEquals(Decision.SKIP, SavePolicyTable.shouldSave(task, f));
+
+		// an Extension Value without adapter is always saved
+		AnyType value = addExtensionValue(task);
+		assertEquals(Decision.SAVE, SavePolicyTable.shouldSave(task, f));
+		assertEquals(legacyShouldSave(task, f), toBoolean(SavePolicyTable.shouldSave(task, f)));
+
+		// ...unless its adapter says otherwise
+		SaveAdapter adapter = new SaveAdapter(false);
+		value.eAdapters().add(adapter);
+		assertFalse(SavePolicyTable.shouldSaveElement(value));
+		assertEquals(Decision.SKIP, SavePolicyTable.shouldSave(task, f));
+		assertEquals(legacyShouldSave(task, f), toBoolean(SavePolicyTable.shouldSave(task, f)));
+
+		adapter.save = true;
+		assertTrue(SavePolicyTable.shouldSaveElement(value));
+		assertEquals(Decision.SAVE, SavePolicyTable.shouldSave(task, f));
+		assertEquals(legacyShouldSave(task, f), toBoolean(SavePolicyTable.shouldSave(task, f)));
+	}
+
+	private static void assertSameDecisions(String name, Resource resource) {
+		int count = 0;
+		TreeIterator<EObject> iter = resource.getAllContents();
+		while (iter.hasNext()) {
+			EObject o = iter.next();
+			for (EStructuralFeature f : o.eClass().getEAllStructuralFeatures()) {
+				Boolean expected = legacyShouldSave(o, f);
+				Boolean actual = toBoolean(SavePolicyTable.shouldSave(o, f));
+				assertEquals(name + ": " + o.eClass().getName() + "." + f.getName(), expected, actual); //$NON-NLS-1$ //$NON-NLS-2$
+				++count;
+			}
+		}
+		assertTrue(name + ": no objects", count>0); //$NON-NLS-1$
+	}
+
+	private static Boolean toBoolean(Decision decision) {
+		switch (decision) {
+		case SAVE:
+			return Boolean.TRUE;
+		case SKIP:
+			return Boolean.FALSE;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * The rules of Bpmn2ModelerXMLSave.shouldSaveFeature() before they were
+	 * compiled into the SavePolicyTable.
+	 *
+	 * @return the decision, or null if the rules do not decide and the
+	 *         IExtensionValueAdapters and default serialization rules are
+	 *         asked instead
+	 */
+	@SuppressWarnings("unchecked")
+	private static Boolean legacyShouldSave(EObject o, EStructuralFeature f) {
+		if (o instanceof BPMNShape) {
+			BPMNShape s = (BPMNShape)o;
+			if (f==BpmnDiPackage.eINSTANCE.getBPMNShape_IsExpanded()) {
+				if (FeatureSupport.isExpandableElement(s.getBpmnElement()))
+					return true;
+			}
+			if (f==BpmnDiPackage.eINSTANCE.getBPMNShape_IsHorizontal()) {
+				if (s.getBpmnElement() instanceof Lane || s.getBpmnElement() instanceof Participant)
+					return true;
+			}
+		}
+
+		if (o instanceof Bounds || o instanceof Point)
+			return true;
+
+		if (o instanceof Process && f==Bpmn2Package.eINSTANCE.getProcess_IsExecutable())
+			return true;
+		if (o instanceof ItemDefinition && f==Bpmn2Package.eINSTANCE.getItemDefinition_IsCollection())
+			return true;
+		if (o instanceof CompensateEventDefinition && f==Bpmn2Package.eINSTANCE.getCompensateEventDefinition_WaitForCompletion())
+			return true;
+
+		if (f.getEType()==Bpmn2Package.eINSTANCE.getExpression() ||
+				f.getEType()==Bpmn2Package.eINSTANCE.getFormalExpression()) {
+			Expression expression = (Expression)o.eGet(f);
+			if (expression==null)
+				return false;
+			if (expression instanceof FormalExpression) {
+				if (ModelUtil.getExpressionBody((FormalExpression)expression)==null)
+					return false;
+			}
+		}
+
+		if (o instanceof Documentation) {
+			Documentation doc = (Documentation)o;
+			if (doc.getText()==null || doc.getText().isEmpty())
+				return false;
+		}
+
+		if (f.getEType()==Bpmn2Package.eINSTANCE.getDocumentation()) {
+			EList<Documentation> docList = (EList<Documentation>)o.eGet(f);
+			if (docList.isEmpty())
+				return false;
+			int empty = 0;
+			for (Documentation doc : docList) {
+				if (doc.getText()==null || doc.getText().isEmpty())
+					++empty;
+			}
+			if (empty==docList.size())
+				return false;
+		}
+
+		if (Bpmn2Package.eINSTANCE.getFormalExpression_Body().equals(f) ||
+				Bpmn2Package.eINSTANCE.getDocumentation_Text().equals(f))
+			return false;
+
+		if (o instanceof DataAssociation && "assignment".equals(f.getName())) { //$NON-NLS-1$
+			DataAssociation da = (DataAssociation)o;
+			for (Assignment a : da.getAssignment()) {
+				Expression from = a.getFrom();
+				if (from instanceof FormalExpression) {
+					String body = ModelUtil.getExpressionBody(((FormalExpression)from));
+					if (body==null || body.isEmpty())
+						return false;
+				}
+				Expression to = a.getTo();
+				if (to instanceof FormalExpression) {
+					String body = ModelUtil.getExpressionBody(((FormalExpression)to));
+					if (body==null || body.isEmpty())
+						return false;
+				}
+			}
+		}
+
+		if (f==Bpmn2Package.eINSTANCE.getBaseElement_ExtensionValues()) {
+			int entryCount = 0;
+			for (ExtensionAttributeValue ev : (EList<ExtensionAttributeValue>)o.eGet(f)) {
+				Iterator<FeatureMap.Entry> mi = ev.getValue().iterator();
+				while (mi.hasNext()) {
+					Object v = mi.next().getValue();
+					boolean entryCounted = false;
+					if (v instanceof EObject) {
+						for (Adapter a : ((EObject)v).eAdapters()) {
+							if (a instanceof IExtensionValueAdapter) {
+								if (((IExtensionValueAdapter)a).shouldSaveElement((EObject)v))
+									++entryCount;
+								entryCounted = true;
+							}
+						}
+					}
+					if (!entryCounted)
+						++entryCount;
+				}
+			}
+			return entryCount>0;
+		}
+		return null;
+	}
+
+	/**
+	 * Create a model with the objects and values that the rules depend on:
+	 * empty and non-empty Expressions, Documentation and Assignments, and
+	 * BPMNShapes for Lanes, expandable and other activities.
+	 */
+	private static Resource createFixture() {
+		Bpmn2Factory factory = Bpmn2Factory.eINSTANCE;
+		BpmnDiFactory diFactory = BpmnDiFactory.eINSTANCE;
+
+		DocumentRoot root = factory.createDocumentRoot();
+		Definitions definitions = factory.createDefinitions();
+		root.setDefinitions(definitions);
+		Process process = factory.createProcess();
+		definitions.getRootElements().add(process);
+		ItemDefinition itemDefinition = factory.createItemDefinition();
+		definitions.getRootElements().add(itemDefinition);
+
+		LaneSet laneSet = factory.createLaneSet();
+		process.getLaneSets().add(laneSet);
+		Lane lane = factory.createLane();
+		laneSet.getLanes().add(lane);
+
+		Task task1 = factory.createTask();
+		process.getFlowElements().add(task1);
+		Documentation emptyDoc = factory.createDocumentation();
+		task1.getDocumentation().add(emptyDoc);
+
+		Task task2 = factory.createTask();
+		process.getFlowElements().add(task2);
+		Documentation doc = factory.createDocumentation();
+		doc.setText("documentation"); //$NON-NLS-1$
+		task2.getDocumentation().add(doc);
+
+		SubProcess subProcess = factory.createSubProcess();
+		process.getFlowElements().add(subProcess);
+
+		SequenceFlow flow1 = factory.createSequenceFlow();
+		flow1.setSourceRef(task1);
+		flow1.setTargetRef(task2);
+		flow1.setConditionExpression(factory.createFormalExpression());
+		process.getFlowElements().add(flow1);
+
+		SequenceFlow flow2 = factory.createSequenceFlow();
+		flow2.setSourceRef(task2);
+		flow2.setTargetRef(subProcess);
+		FormalExpression condition = factory.createFormalExpression();
+		condition.setBody("true"); //$NON-NLS-1$
+		flow2.setConditionExpression(condition);
+		process.getFlowElements().add(flow2);
+
+		InputOutputSpecification ioSpec = factory.createInputOutputSpecification();
+		task2.setIoSpecification(ioSpec);
+		DataInput input = factory.createDataInput();
+		ioSpec.getDataInputs().add(input);
+		task2.getDataInputAssociations().add(createAssociation(input, "", "to")); //$NON-NLS-1$ //$NON-NLS-2$
+		task2.getDataInputAssociations().add(createAssociation(input, "from", "to")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		BPMNDiagram diagram = diFactory.createBPMNDiagram();
+		definitions.getDiagrams().add(diagram);
+		BPMNPlane plane = diFactory.createBPMNPlane();
+		plane.setBpmnElement(process);
+		diagram.setPlane(plane);
+		plane.getPlaneElement().add(createShape(lane));
+		plane.getPlaneElement().add(createShape(task1));
+		plane.getPlaneElement().add(createShape(subProcess));
+
+		Resource resource = new XMIResourceImpl(URI.createURI("fixture.bpmn")); //$NON-NLS-1$
+		resource.getContents().add(root);
+		return resource;
+	}
+
+	private static DataInputAssociation createAssociation(DataInput target, String from, String to) {
+		Bpmn2Factory factory = Bpmn2Factory.eINSTANCE;
+		DataInputAssociation association = factory.createDataInputAssociation();
+		association.setTargetRef(target);
+		Assignment assignment = factory.createAssignment();
+		FormalExpression fromExpression = factory.createFormalExpression();
+		fromExpression.setBody(from);
+		assignment.setFrom(fromExpression);
+		FormalExpression toExpression = factory.createFormalExpression();
+		toExpression.setBody(to);
+		assignment.setTo(toExpression);
+		association.getAssignment().add(assignment);
+		return association;
+	}
+
+	private static BPMNShape createShape(BaseElement element) {
+		BPMNShape shape = BpmnDiFactory.eINSTANCE.createBPMNShape();
+		shape.setBpmnElement(element);
+		Bounds bounds = DcFactory.eINSTANCE.createBounds();
+		shape.setBounds(bounds);
+		return shape;
+	}
+
+	private static AnyType addExtensionValue(Task task) {
+		ExtensionAttributeValue ev = Bpmn2Factory.eINSTANCE.createExtensionAttributeValue();
+		task.getExtensionValues().add(ev);
+		EStructuralFeature feature = ExtendedMetaData.INSTANCE.demandFeature("http://www.example.org/test", "custom", true); //$NON-NLS-1$ //$NON-NLS-2$
+		AnyType value = XMLTypeFactory.eINSTANCE.createAnyType();
+		ev.getValue().add(feature, value);
+		return value;
+	}
+
+	private static class SaveAdapter extends AdapterImpl implements IExtensionValueAdapter {
+		boolean save;
+
+		SaveAdapter(boolean save) {
+			this.save = save;
+		}
+
+		public boolean shouldSaveElement(EObject o) {
+			return save;
+		}
+
+		public boolean shouldSaveFeature(EObject o, EStructuralFeature f) {
+			return true;
+		}
+	}
+}
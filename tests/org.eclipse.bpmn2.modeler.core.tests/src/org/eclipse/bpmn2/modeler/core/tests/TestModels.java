@@ -0,0 +1,47 @@
+package org.eclipse.bpmn2.modeler.core.tests;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.bpmn2.util.Bpmn2ResourceFactoryImpl;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+
+/**
+ * Loads the example BPMN2 models in the "models" folder of this plugin.
+ */
+public class TestModels {
+
+	/** The file names of all example models. */
+	public static final String[] EXAMPLES = {
+		"SampleProcess.bpmn",
+		"VacationRequest.bpmn"
+	};
+
+	private TestModels() {
+	}
+
+	/**
+	 * Load the given example model into a new ResourceSet.
+	 *
+	 * @param name the file name of the model, see {@link #EXAMPLES}
+	 * @return the loaded Resource
+	 */
+	public static Resource load(String name) throws IOException {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		Resource resource = new Bpmn2ResourceFactoryImpl().createResource(URI.createURI("models/" + name));
+		resourceSet.getResources().add(resource);
+		InputStream in = TestModels.class.getResourceAsStream("/models/" + name);
+		if (in==null)
+			throw new IOException("Model not found: " + name);
+		try {
+			resource.load(in, null);
+		}
+		finally {
+			in.close();
+		}
+		return resource;
+	}
+}
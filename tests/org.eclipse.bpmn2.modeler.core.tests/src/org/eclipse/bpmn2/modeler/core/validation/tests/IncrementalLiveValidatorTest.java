@@ -0,0 +1,145 @@
+package org.eclipse.bpmn2.modeler.core.validation.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.bpmn2.Bpmn2Factory;
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.DocumentRoot;
+import org.eclipse.bpmn2.Process;
+import org.eclipse.bpmn2.Task;
+import org.eclipse.bpmn2.modeler.core.validation.IncrementalLiveValidator;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.eclipse.emf.transaction.RecordingCommand;
+import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.emf.validation.model.IConstraintStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the incremental Live validation still reports duplicate IDs,
+ * both on the first (full) validation and after an ID was changed.
+ */
+public class IncrementalLiveValidatorTest {
+
+	ResourceSet resourceSet;
+
+	TransactionalEditingDomain domain;
+
+	Definitions definitions;
+
+	Task task1;
+
+	Task task2;
+
+	IncrementalLiveValidator validator;
+
+	@Before
+	public void setUp() {
+		resourceSet = new ResourceSetImpl();
+		domain = TransactionalEditingDomain.Factory.INSTANCE.createEditingDomain(resourceSet);
+		final Resource resource = new XMIResourceImpl(URI.createURI("test.bpmn"));
+		resourceSet.getResources().add(resource);
+		domain.getCommandStack().execute(new RecordingCommand(domain) {
+			@Override
+			protected void doExecute() {
+				Bpmn2Factory factory = Bpmn2Factory.eINSTANCE;
+				DocumentRoot root = factory.createDocumentRoot();
+				definitions = factory.createDefinitions();
+				definitions.setId("Definitions_1");
+				definitions.setTargetNamespace("http://www.example.org/test");
+				root.setDefinitions(definitions);
+				Process process = factory.createProcess();
+				process.setId("Process_1");
+				definitions.getRootElements().add(process);
+				task1 = factory.createTask();
+				task1.setId("Task_1");
+				process.getFlowElements().add(task1);
+				task2 = factory.createTask();
+				task2.setId("Task_2");
+				process.getFlowElements().add(task2);
+				resource.getContents().add(root);
+			}
+		});
+		validator = IncrementalLiveValidator.getValidator(definitions);
+		assertNotNull(validator);
+	}
+
+	@After
+	public void tearDown() {
+		IncrementalLiveValidator.dispose(resourceSet);
+		domain.dispose();
+	}
+
+	@Test
+	public void testDuplicateIdsOnFirstValidation() throws Exception {
+		setId(task2, "Task_1");
+
+		IStatus status = validator.validate();
+
+		assertEquals(IStatus.ERROR, status.getSeverity());
+		assertTrue(hasError(status, task1));
+		assertTrue(hasError(status, task2));
+	}
+
+	@Test
+	public void testDuplicateIdsAfterChange() throws Exception {
+		IStatus status = validator.validate();
+		assertFalse(hasError(status, task1));
+		assertFalse(hasError(status, task2));
+
+		setId(task2, "Task_1");
+		status = validator.validate();
+
+		assertEquals(IStatus.ERROR, status.getSeverity());
+		assertTrue(hasError(status, task1));
+		assertTrue(hasError(status, task2));
+
+		setId(task2, "Task_2");
+		status = validator.validate();
+
+		assertFalse(hasError(status, task1));
+		assertFalse(hasError(status, task2));
+	}
+
+	@Test
+	public void testDuplicateIdsAfterInvalidateAll() throws Exception {
+		validator.validate();
+		setId(task2, "Task_1");
+		validator.invalidateAll();
+
+		IStatus status = validator.validate();
+
+		assertTrue(hasError(status, task1));
+		assertTrue(hasError(status, task2));
+	}
+
+	private void setId(final Task task, final String id) {
+		domain.getCommandStack().execute(new RecordingCommand(domain) {
+			@Override
+			protected void doExecute() {
+				task.setId(id);
+			}
+		});
+	}
+
+	private static boolean hasError(IStatus status, EObject target) {
+		if (status instanceof IConstraintStatus && !status.isMultiStatus()) {
+			return status.getSeverity()==IStatus.ERROR && ((IConstraintStatus) status).getTarget()==target;
+		}
+		for (IStatus s : status.getChildren()) {
+			if (hasError(s, target))
+				return true;
+		}
+		return false;
+	}
+}